@@ -0,0 +1,122 @@
+package com.rainervana.flight_planner_backend.benchmark;
+
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.service.BookingJournal;
+import com.rainervana.flight_planner_backend.service.FareEngine;
+import com.rainervana.flight_planner_backend.service.FlightServiceImpl;
+import com.rainervana.flight_planner_backend.service.SeatLayoutRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deterministic synthetic data shared by the benchmarks.
+ */
+final class BenchmarkData {
+    static final String[] DESTINATIONS = {"WAW", "RIX", "HEL", "ARN", "OSL", "CPH", "BER", "VNO", "FRA", "AMS"};
+    static final String[] AIRCRAFT = {"Boeing 737", "Airbus A320", "ATR 72"};
+    static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 4, 1, 6, 0);
+    static final int DAYS = 60;
+
+    /**
+     * Journal that writes nothing, for measuring the in-memory booking path.
+     */
+    static final BookingJournal NO_JOURNAL = new BookingJournal() {
+        private final AtomicLong nextBookingId = new AtomicLong(1);
+
+        @Override
+        public long appendOccupied(long flightId, int[] seatIndexes) {
+            return 0L;
+        }
+
+        @Override
+        public long appendReleased(long flightId, int[] seatIndexes) {
+            return 0L;
+        }
+
+        @Override
+        public void awaitDurable(long sequence) {
+        }
+
+        @Override
+        public long reserveBookingIds(int count) {
+            return nextBookingId.getAndAdd(count);
+        }
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Builds a flight service holding {@code size} flights spread over all destinations and {@link #DAYS} days,
+     * without a search cache so the searches measure the index.
+     */
+    static FlightServiceImpl catalog(int size, long seed) {
+        return catalog(size, seed, 0);
+    }
+
+    static FlightServiceImpl catalog(int size, long seed, int searchCacheSize) {
+        SplittableRandom random = new SplittableRandom(seed);
+        FlightServiceImpl flightService = new FlightServiceImpl(new SeatLayoutRegistry(), metrics(), searchCacheSize);
+        for (int i = 0; i < size; i++) {
+            LocalDateTime departure = BASE_TIME.plusDays(random.nextInt(DAYS)).plusMinutes(random.nextInt(16 * 60));
+            LocalDateTime arrival = departure.plusMinutes(45 + random.nextInt(300));
+            BigDecimal price = BigDecimal.valueOf(3_000 + random.nextInt(40_000), 2);
+            flightService.addFlight(new Flight(null, "FL" + i, "TLL", DESTINATIONS[random.nextInt(DESTINATIONS.length)],
+                    departure, arrival, price, AIRCRAFT[random.nextInt(AIRCRAFT.length)]));
+        }
+        return flightService;
+    }
+
+    /**
+     * Builds a flight service holding {@code size} flights between random pairs of TLL and the destinations,
+     * so itineraries can connect anywhere.
+     */
+    static FlightServiceImpl network(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        FlightServiceImpl flightService = new FlightServiceImpl(new SeatLayoutRegistry(), metrics(), 0);
+        for (int i = 0; i < size; i++) {
+            int origin = random.nextInt(DESTINATIONS.length + 1);
+            int destination = (origin + 1 + random.nextInt(DESTINATIONS.length)) % (DESTINATIONS.length + 1);
+            LocalDateTime departure = BASE_TIME.plusDays(random.nextInt(DAYS)).plusMinutes(random.nextInt(16 * 60));
+            LocalDateTime arrival = departure.plusMinutes(45 + random.nextInt(300));
+            BigDecimal price = BigDecimal.valueOf(3_000 + random.nextInt(40_000), 2);
+            flightService.addFlight(new Flight(null, "FL" + i, airport(origin), airport(destination),
+                    departure, arrival, price, AIRCRAFT[random.nextInt(AIRCRAFT.length)]));
+        }
+        return flightService;
+    }
+
+    /**
+     * @return  -   TLL for 0, otherwise the destination at index - 1.
+     */
+    static String airport(int index) {
+        return index == 0 ? "TLL" : DESTINATIONS[index - 1];
+    }
+
+    /**
+     * Metrics backed by an in-memory registry, so the benchmarks include the cost of recording.
+     * Per-flight gauges are off, the large catalogs would mostly measure gauge registration.
+     */
+    static FlightPlannerMetrics metrics() {
+        return new FlightPlannerMetrics(new SimpleMeterRegistry(), false);
+    }
+
+    /**
+     * Fare engine with seat surcharges and two load factor tiers, so quotes take every lookup.
+     */
+    static FareEngine fareEngine(SeatLayoutRegistry seatLayoutRegistry) {
+        return new FareEngine(seatLayoutRegistry, new BigDecimal("50.00"), new BigDecimal("5.00"),
+                new BigDecimal("15.00"), new BigDecimal("10.00"), "0.8:1.15,0.95:1.3");
+    }
+
+    static LocalDate day(int offset) {
+        return BASE_TIME.toLocalDate().plusDays(offset);
+    }
+}
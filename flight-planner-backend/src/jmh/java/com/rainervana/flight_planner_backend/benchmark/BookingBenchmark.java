@@ -0,0 +1,147 @@
+package com.rainervana.flight_planner_backend.benchmark;
+
+import com.rainervana.flight_planner_backend.dto.BookingRequest;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import com.rainervana.flight_planner_backend.service.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Measures the booking path. "contended" has every thread booking on the same flight, "uncontended"
+ * gives each thread its own flight. Booked seats are released again so the inventory stays at a
+ * steady fill level, rejected bookings (seat already taken) are part of the measured cost.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark {
+    @State(Scope.Benchmark)
+    public static class Service {
+        @Param({"1", "3"})
+        public int groupSize;
+
+        /**
+         * "none" measures the in-memory path only, "async" / "sync" add the booking journal
+         * without and with waiting for the group commit.
+         */
+        @Param({"none", "async", "sync"})
+        public String journal;
+
+        BookingServiceImpl bookingService;
+        BookingJournalImpl bookingJournal;
+        BookingEngine bookingEngine;
+        Path journalDirectory;
+        FlightServiceImpl flightService;
+        SeatLayout layout;
+        final AtomicInteger nextFlightId = new AtomicInteger(1);
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+            flightService = BenchmarkData.catalog(256, 3L);
+
+            BookingJournal bookingJournal = BenchmarkData.NO_JOURNAL;
+            if (!journal.equals("none")) {
+                journalDirectory = Files.createTempDirectory("booking-journal");
+                this.bookingJournal = new BookingJournalImpl(flightService, journalDirectory, 256 << 20, journal.equals("sync"));
+                this.bookingJournal.open();
+                bookingJournal = this.bookingJournal;
+            }
+            bookingEngine = new BookingEngine(bookingJournal, BenchmarkData.metrics(), 0, 256, 10000);
+            bookingEngine.start();
+            bookingService = new BookingServiceImpl(
+                    flightService,
+                    seatLayoutRegistry,
+                    BenchmarkData.fareEngine(seatLayoutRegistry),
+                    new SeatHoldServiceImpl(flightService, bookingEngine, BenchmarkData.metrics(), PartitionMap.singleNode(), 600, 1000),
+                    bookingEngine,
+                    bookingJournal,
+                    PartitionMap.singleNode(),
+                    BenchmarkData.metrics()
+            );
+            layout = seatLayoutRegistry.layoutFor(SeatLayoutRegistry.DEFAULT_AIRCRAFT_TYPE);
+            for (Flight flight : flightService.findFlights(null, null, null, null)) {
+                flight.setAircraftType(SeatLayoutRegistry.DEFAULT_AIRCRAFT_TYPE);
+                flight.setSeatInventory(layout.newInventory());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            bookingEngine.stop();
+            if (bookingJournal != null) {
+                bookingJournal.close();
+                try (Stream<Path> files = Files.list(journalDirectory)) {
+                    for (Path file : files.toList()) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(journalDirectory);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnFlight {
+        long flightId;
+
+        @Setup(Level.Trial)
+        public void setUp(Service service) {
+            flightId = service.nextFlightId.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object contended(Service service) {
+        return book(service, 1L);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object uncontended(Service service, OwnFlight ownFlight) {
+        return book(service, ownFlight.flightId);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object singleThread(Service service) {
+        return book(service, 1L);
+    }
+
+    private static Object book(Service service, long flightId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SeatLayout layout = service.layout;
+        int row = 1 + random.nextInt(layout.getTotalRows());
+        int firstColumn = random.nextInt(layout.getColumnCount() - service.groupSize + 1);
+        String[] seats = new String[service.groupSize];
+        for (int i = 0; i < seats.length; i++) {
+            seats[i] = layout.seatNr(row, firstColumn + i);
+        }
+
+        try {
+            Object booking = service.bookingService.createBooking(new BookingRequest(flightId, seats.length, List.of(seats)));
+            // release again so the flight never fills up.
+            SeatInventory inventory = service.flightService.findFlightById(flightId).orElseThrow().getSeatInventory();
+            for (String seat : seats) {
+                inventory.release(inventory.seatIndex(seat));
+            }
+            return booking;
+        } catch (ResponseStatusException e) {
+            return e;
+        }
+    }
+}
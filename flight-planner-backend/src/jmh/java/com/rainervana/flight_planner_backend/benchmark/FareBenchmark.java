@@ -0,0 +1,66 @@
+package com.rainervana.flight_planner_backend.benchmark;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.service.FareEngine;
+import com.rainervana.flight_planner_backend.service.FlightServiceImpl;
+import com.rainervana.flight_planner_backend.service.SeatLayoutRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures FareEngine.quote for a group of seats. "quote" prices an unchanged inventory,
+ * "quoteAfterChange" books and frees a seat first, so the load factor tier is recomputed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FareBenchmark {
+
+    @Param({"1", "6"})
+    public int groupSize;
+
+    private FareEngine fareEngine;
+    private Flight flight;
+    private int[] seatIndexes;
+    private int toggledSeat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+        FlightServiceImpl flightService = BenchmarkData.catalog(1, 7L);
+        fareEngine = BenchmarkData.fareEngine(seatLayoutRegistry);
+        flight = flightService.findFlightById(1L).orElseThrow();
+
+        SeatInventory inventory = flight.getSeatInventory();
+        SplittableRandom random = new SplittableRandom(11L);
+        while (inventory.occupiedCount() < inventory.capacity() * 80 / 100) {
+            inventory.occupy(random.nextInt(inventory.capacity()));
+        }
+
+        seatIndexes = new int[groupSize];
+        for (int i = 0; i < groupSize; i++) {
+            seatIndexes[i] = i;
+        }
+        toggledSeat = inventory.capacity() - 1;
+        inventory.release(toggledSeat);
+    }
+
+    @Benchmark
+    public long quote() {
+        return fareEngine.quote(flight, groupSize, seatIndexes);
+    }
+
+    @Benchmark
+    public long quoteAfterChange() {
+        SeatInventory inventory = flight.getSeatInventory();
+        inventory.occupy(toggledSeat);
+        inventory.release(toggledSeat);
+        return fareEngine.quote(flight, groupSize, seatIndexes);
+    }
+}
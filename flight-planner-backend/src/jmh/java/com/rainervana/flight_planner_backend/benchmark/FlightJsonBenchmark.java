@@ -0,0 +1,83 @@
+package com.rainervana.flight_planner_backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rainervana.flight_planner_backend.controller.FlightJsonHttpMessageConverter;
+import com.rainervana.flight_planner_backend.dto.FlightSearchResult;
+import com.rainervana.flight_planner_backend.dto.SeatAvailabilitySummary;
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a flight search response: Jackson serializing every flight against the
+ * converter copying each flight's cached JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlightJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int resultSize;
+
+    private ObjectMapper objectMapper;
+    private FlightJsonHttpMessageConverter converter;
+    private List<FlightSearchResult> results;
+    private Type resultsType;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchFieldException {
+        objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        converter = new FlightJsonHttpMessageConverter(objectMapper);
+
+        List<Flight> flights = BenchmarkData.catalog(resultSize, 42L).getAllFlights();
+        flights.sort(Comparator.comparing(Flight::getId));
+        results = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            results.add(new FlightSearchResult(flight, new SeatAvailabilitySummary(120, 8, 112, 6)));
+        }
+        resultsType = FlightJsonBenchmark.class.getDeclaredField("results").getGenericType();
+    }
+
+    @Benchmark
+    public byte[] jackson() throws IOException {
+        return objectMapper.writeValueAsBytes(results);
+    }
+
+    @Benchmark
+    public byte[] cachedFlightJson() throws IOException {
+        BufferedMessage message = new BufferedMessage();
+        converter.write(results, resultsType, MediaType.APPLICATION_JSON, message);
+        return message.body.toByteArray();
+    }
+
+    private static final class BufferedMessage implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.rainervana.flight_planner_backend.benchmark;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.service.FlightServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures FlightServiceImpl.findFlights on catalogs of different sizes, with and without the search cache.
+ * The destination and date queries are 600 distinct keys, all of which fit the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlightSearchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"0", "1024"})
+    public int searchCacheSize;
+
+    private FlightServiceImpl flightService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        flightService = BenchmarkData.catalog(catalogSize, 42L, searchCacheSize);
+    }
+
+    @Benchmark
+    public List<Flight> destinationAndDate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return flightService.findFlights(randomDestination(random), BenchmarkData.day(random.nextInt(BenchmarkData.DAYS)), null, null);
+    }
+
+    @Benchmark
+    public List<Flight> destinationDateAndLimits() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return flightService.findFlights(randomDestination(random), BenchmarkData.day(random.nextInt(BenchmarkData.DAYS)), 120L, BigDecimal.valueOf(150));
+    }
+
+    @Benchmark
+    public List<Flight> dateOnly() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return flightService.findFlights(null, BenchmarkData.day(random.nextInt(BenchmarkData.DAYS)), null, BigDecimal.valueOf(100));
+    }
+
+    private static String randomDestination(ThreadLocalRandom random) {
+        return BenchmarkData.DESTINATIONS[random.nextInt(BenchmarkData.DESTINATIONS.length)];
+    }
+}
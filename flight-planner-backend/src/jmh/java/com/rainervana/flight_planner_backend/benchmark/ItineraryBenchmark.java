@@ -0,0 +1,59 @@
+package com.rainervana.flight_planner_backend.benchmark;
+
+import com.rainervana.flight_planner_backend.dto.ItineraryResponse;
+import com.rainervana.flight_planner_backend.service.FlightServiceImpl;
+import com.rainervana.flight_planner_backend.service.ItinerarySortOrder;
+import com.rainervana.flight_planner_backend.service.ItineraryServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ItineraryServiceImpl.findItineraries on route networks of different sizes. The route graph
+ * is built during setup, the benchmarks measure the search only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItineraryBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private ItineraryServiceImpl itineraryService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FlightServiceImpl flightService = BenchmarkData.network(catalogSize, 42L);
+        itineraryService = new ItineraryServiceImpl(flightService, BenchmarkData.metrics(), 45, "", 1440);
+        itineraryService.findItineraries("TLL", "WAW", BenchmarkData.day(0), 0, ItinerarySortOrder.PRICE, 1);
+    }
+
+    @Benchmark
+    public List<ItineraryResponse> oneStopByPrice() {
+        return search(1, ItinerarySortOrder.PRICE);
+    }
+
+    @Benchmark
+    public List<ItineraryResponse> twoStopsByPrice() {
+        return search(2, ItinerarySortOrder.PRICE);
+    }
+
+    @Benchmark
+    public List<ItineraryResponse> twoStopsByDuration() {
+        return search(2, ItinerarySortOrder.DURATION);
+    }
+
+    private List<ItineraryResponse> search(int maxStops, ItinerarySortOrder sortOrder) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int origin = random.nextInt(BenchmarkData.DESTINATIONS.length + 1);
+        int destination = (origin + 1 + random.nextInt(BenchmarkData.DESTINATIONS.length)) % (BenchmarkData.DESTINATIONS.length + 1);
+        return itineraryService.findItineraries(BenchmarkData.airport(origin), BenchmarkData.airport(destination),
+                BenchmarkData.day(random.nextInt(BenchmarkData.DAYS)), maxStops, sortOrder, 20);
+    }
+}
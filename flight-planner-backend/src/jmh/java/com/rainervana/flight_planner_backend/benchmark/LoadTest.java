@@ -0,0 +1,287 @@
+package com.rainervana.flight_planner_backend.benchmark;
+
+import com.rainervana.flight_planner_backend.dto.BookingRequest;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import com.rainervana.flight_planner_backend.service.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load test of the search, seat map and booking paths on a generated catalog, run in-process
+ * with {@code ./gradlew loadTest}. Options are passed as {@code -PloadTestArgs="--flights=2000000 --threads=32"}:
+ * <ul>
+ *     <li>flights (1000000), airports (40), days (60), seed (42): the catalog, see {@link CatalogGenerator}.</li>
+ *     <li>threads (2 per processor), warmup (10) and seconds (30): the load, warmup results are dropped.</li>
+ *     <li>mix (search:70,seatmap:25,booking:5): share of each operation.</li>
+ *     <li>hot-flights (8): bookings all go to these flights, so they contend for the same shards and seats.</li>
+ *     <li>search-cache (1024): search cache size, 0 measures the index alone.</li>
+ * </ul>
+ * Reports throughput and latency percentiles per operation. Booked seats are released again, so
+ * the hot flights stay at their generated fill level and rejected bookings are part of the result.
+ */
+public final class LoadTest {
+    private static final String[] OPERATIONS = {"search", "seatmap", "booking"};
+    private static final int SEARCH = 0;
+    private static final int SEAT_MAP = 1;
+    private static final int BOOKING = 2;
+
+    private final Map<String, String> options;
+    private final int flights;
+    private final int days;
+    private final int hotFlights;
+    private final int[] cumulativeMix = new int[OPERATIONS.length];
+    private final SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+    private final CatalogGenerator catalogGenerator;
+    private FlightServiceImpl flightService;
+    private SeatServiceImpl seatService;
+    private BookingServiceImpl bookingService;
+    private BookingEngine bookingEngine;
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.flights = intOption("flights", 1_000_000);
+        this.days = intOption("days", BenchmarkData.DAYS);
+        this.hotFlights = Math.min(flights, intOption("hot-flights", 8));
+        this.catalogGenerator = new CatalogGenerator(seatLayoutRegistry, intOption("seed", 42),
+                BenchmarkData.BASE_TIME.toLocalDate(), days, intOption("airports", 40));
+
+        int total = 0;
+        for (String share : options.getOrDefault("mix", "search:70,seatmap:25,booking:5").split(",")) {
+            String[] parts = share.split(":");
+            int operation = Arrays.asList(OPERATIONS).indexOf(parts[0].trim());
+            if (operation < 0 || parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + share);
+            }
+            cumulativeMix[operation] = Integer.parseInt(parts[1].trim());
+        }
+        for (int i = 0; i < cumulativeMix.length; i++) {
+            total += cumulativeMix[i];
+            cumulativeMix[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The mix has no operations");
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options look like --name=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadTest(options).run();
+    }
+
+    private void run() throws InterruptedException {
+        setUp();
+        int threads = intOption("threads", Runtime.getRuntime().availableProcessors() * 2);
+        int warmupSeconds = intOption("warmup", 10);
+        int seconds = intOption("seconds", 30);
+
+        Histogram[][] histograms = new Histogram[threads][OPERATIONS.length];
+        long[][] rejected = new long[threads][OPERATIONS.length];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Histogram[] own = histograms[t];
+            long[] ownRejected = rejected[t];
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                own[op] = new Histogram();
+            }
+            workers[t] = new Thread(() -> work(own, ownRejected), "load-" + t);
+            workers[t].start();
+        }
+
+        System.out.printf("Warming up %d threads for %d s%n", threads, warmupSeconds);
+        Thread.sleep(warmupSeconds * 1000L);
+        recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        recording = false;
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        bookingEngine.stop();
+
+        System.out.printf("%n%-8s %12s %10s %10s %10s %10s %10s %10s %10s%n",
+                "op", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "count", "rejected");
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            Histogram merged = new Histogram();
+            long rejectedCount = 0;
+            for (int t = 0; t < threads; t++) {
+                merged.add(histograms[t][op]);
+                rejectedCount += rejected[t][op];
+            }
+            if (merged.count == 0) {
+                continue;
+            }
+            System.out.printf("%-8s %12.0f %10.1f %10.1f %10.1f %10.1f %10.1f %10d %10d%n",
+                    OPERATIONS[op], merged.count / elapsedSeconds,
+                    merged.percentile(0.5) / 1e3, merged.percentile(0.9) / 1e3, merged.percentile(0.99) / 1e3,
+                    merged.percentile(0.999) / 1e3, merged.max / 1e3, merged.count, rejectedCount);
+        }
+    }
+
+    private void setUp() {
+        long start = System.nanoTime();
+        flightService = new FlightServiceImpl(seatLayoutRegistry, BenchmarkData.metrics(), intOption("search-cache", 1024));
+        flightService.addFlights(catalogGenerator.generate(flights));
+        System.out.printf("Generated and indexed %d flights in %d ms%n", flights, (System.nanoTime() - start) / 1_000_000);
+
+        seatService = new SeatServiceImpl(flightService, seatLayoutRegistry, BenchmarkData.metrics(), SeatAllocationStrategy.BEST_FIT);
+        bookingEngine = new BookingEngine(BenchmarkData.NO_JOURNAL, BenchmarkData.metrics(), 0, 256, 10000);
+        bookingEngine.start();
+        bookingService = new BookingServiceImpl(
+                flightService,
+                seatLayoutRegistry,
+                BenchmarkData.fareEngine(seatLayoutRegistry),
+                new SeatHoldServiceImpl(flightService, bookingEngine, BenchmarkData.metrics(), PartitionMap.singleNode(), 600, 1000),
+                bookingEngine,
+                BenchmarkData.NO_JOURNAL,
+                PartitionMap.singleNode(),
+                BenchmarkData.metrics()
+        );
+    }
+
+    private void work(Histogram[] histograms, long[] rejected) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            int pick = random.nextInt(cumulativeMix[cumulativeMix.length - 1]);
+            int operation = 0;
+            while (pick >= cumulativeMix[operation]) {
+                operation++;
+            }
+
+            long start = System.nanoTime();
+            boolean accepted = switch (operation) {
+                case SEARCH -> search(random);
+                case SEAT_MAP -> seatMap(random);
+                default -> book(random);
+            };
+            long latency = System.nanoTime() - start;
+            if (recording) {
+                histograms[operation].record(latency);
+                if (!accepted) {
+                    rejected[operation]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches a destination and day like the flight list does, destinations skewed towards the hubs.
+     */
+    private boolean search(ThreadLocalRandom random) {
+        double u = random.nextDouble();
+        String destination = catalogGenerator.airport((int) (catalogGenerator.airportCount() * u * u));
+        LocalDate date = BenchmarkData.day(random.nextInt(days));
+        seatService.findFlightsWithAvailability(destination, date, null, null, null,
+                Optional.empty(), Optional.empty(), Optional.empty());
+        return true;
+    }
+
+    private boolean seatMap(ThreadLocalRandom random) {
+        Flight flight = flightService.findFlightById(1L + random.nextInt(flights)).orElseThrow();
+        seatService.getSeatMapAndRecommendations(flight, 1 + random.nextInt(4),
+                Optional.of(random.nextBoolean()), Optional.of(random.nextInt(4) == 0), Optional.of(random.nextInt(8) == 0));
+        return true;
+    }
+
+    private boolean book(ThreadLocalRandom random) {
+        Flight flight = flightService.findFlightById(1L + random.nextInt(hotFlights)).orElseThrow();
+        SeatInventory inventory = flight.getSeatInventory();
+        int groupSize = 1 + random.nextInt(3);
+        int row = 1 + random.nextInt(inventory.getTotalRows());
+        int firstColumn = random.nextInt(inventory.getColumns() - groupSize + 1);
+        SeatLayout layout = seatLayoutRegistry.layoutFor(flight.getAircraftType());
+        List<String> seats = new ArrayList<>(groupSize);
+        for (int i = 0; i < groupSize; i++) {
+            seats.add(layout.seatNr(row, firstColumn + i));
+        }
+
+        try {
+            bookingService.createBooking(new BookingRequest(flight.getId(), groupSize, seats));
+        } catch (ResponseStatusException e) {
+            return false;
+        }
+        // release again so the hot flights never fill up.
+        for (int i = 0; i < groupSize; i++) {
+            inventory.release(row, firstColumn + i);
+        }
+        return true;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * Latency histogram with log-linear buckets: each power of two is split into 32 buckets,
+     * so a percentile is off by at most about 3%. Recording is an array increment.
+     */
+    private static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final long[] counts = new long[Long.SIZE * SUB_BUCKETS];
+        private long count;
+        private long max;
+
+        void record(long nanos) {
+            counts[index(nanos)]++;
+            count++;
+            max = Math.max(max, nanos);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+
+        /**
+         * @return  -   lower bound of the bucket holding the percentile, in nanoseconds.
+         */
+        long percentile(double percentile) {
+            long rank = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return lowerBound(i);
+                }
+            }
+            return max;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) Math.max(0, value);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+        }
+
+        private static long lowerBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = (index >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+            return (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << (exponent - SUB_BUCKET_BITS);
+        }
+    }
+}
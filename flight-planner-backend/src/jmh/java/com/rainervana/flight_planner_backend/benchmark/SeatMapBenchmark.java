@@ -0,0 +1,69 @@
+package com.rainervana.flight_planner_backend.benchmark;
+
+import com.rainervana.flight_planner_backend.dto.SeatMapResponse;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.service.FlightServiceImpl;
+import com.rainervana.flight_planner_backend.service.SeatAllocationStrategy;
+import com.rainervana.flight_planner_backend.service.SeatLayoutRegistry;
+import com.rainervana.flight_planner_backend.service.SeatServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SeatServiceImpl.getSeatMapAndRecommendations across group sizes, preferences and
+ * allocation strategies on a flight that is {@code occupancy} percent full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeatMapBenchmark {
+
+    @Param({"1", "3", "6", "8"})
+    public int groupSize;
+
+    @Param({"NONE", "WINDOW", "LEGROOM", "EXIT", "WINDOW_LEGROOM"})
+    public String preferences;
+
+    @Param({"40", "85", "97"})
+    public int occupancy;
+
+    @Param({"FIRST_FIT", "BEST_FIT"})
+    public SeatAllocationStrategy allocationStrategy;
+
+    private SeatServiceImpl seatService;
+    private Flight flight;
+    private Optional<Boolean> preferWindow;
+    private Optional<Boolean> preferExtraLegroom;
+    private Optional<Boolean> preferNearExit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+        FlightServiceImpl flightService = BenchmarkData.catalog(1, 7L);
+        seatService = new SeatServiceImpl(flightService, seatLayoutRegistry, BenchmarkData.metrics(), allocationStrategy);
+        flight = flightService.findFlightById(1L).orElseThrow();
+
+        SeatInventory inventory = flight.getSeatInventory();
+        SplittableRandom random = new SplittableRandom(11L);
+        int toOccupy = inventory.capacity() * occupancy / 100;
+        while (inventory.occupiedCount() < toOccupy) {
+            inventory.occupy(random.nextInt(inventory.capacity()));
+        }
+
+        preferWindow = Optional.of(preferences.contains("WINDOW"));
+        preferExtraLegroom = Optional.of(preferences.contains("LEGROOM"));
+        preferNearExit = Optional.of(preferences.contains("EXIT"));
+    }
+
+    @Benchmark
+    public SeatMapResponse seatMapAndRecommendations() {
+        return seatService.getSeatMapAndRecommendations(flight, groupSize, preferWindow, preferExtraLegroom, preferNearExit);
+    }
+}
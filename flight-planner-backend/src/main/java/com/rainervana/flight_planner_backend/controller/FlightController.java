@@ -1,48 +1,221 @@
 package com.rainervana.flight_planner_backend.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.rainervana.flight_planner_backend.dto.BatchBookingRequest;
+import com.rainervana.flight_planner_backend.dto.BatchBookingResponse;
 import com.rainervana.flight_planner_backend.dto.BookingRequest;
 import com.rainervana.flight_planner_backend.dto.BookingResponse;
+import com.rainervana.flight_planner_backend.dto.CompactSeatMapResponse;
+import com.rainervana.flight_planner_backend.dto.FareQuoteResponse;
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchRequest;
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchResponse;
+import com.rainervana.flight_planner_backend.dto.FlightPageResponse;
+import com.rainervana.flight_planner_backend.dto.FlightSearchResult;
+import com.rainervana.flight_planner_backend.dto.ItineraryResponse;
+import com.rainervana.flight_planner_backend.dto.SeatHoldRequest;
+import com.rainervana.flight_planner_backend.dto.SeatHoldResponse;
 import com.rainervana.flight_planner_backend.dto.SeatMapResponse;
 import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.service.BookingService;
+import com.rainervana.flight_planner_backend.service.FlightGrouping;
 import com.rainervana.flight_planner_backend.service.FlightService;
+import com.rainervana.flight_planner_backend.service.FlightSortOrder;
+import com.rainervana.flight_planner_backend.service.ItineraryService;
+import com.rainervana.flight_planner_backend.service.ItinerarySortOrder;
+import com.rainervana.flight_planner_backend.service.PartitionMap;
+import com.rainervana.flight_planner_backend.service.PartitionRouter;
+import com.rainervana.flight_planner_backend.service.SeatHoldService;
 import com.rainervana.flight_planner_backend.service.SeatService;
+import com.rainervana.flight_planner_backend.service.SeatUpdateService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/flights")
 public class FlightController {
     private static final Logger log = LoggerFactory.getLogger(FlightController.class);
+    private static final TypeReference<List<FlightSearchResult>> SEARCH_RESULTS = new TypeReference<>() {};
+    private static final int STREAM_BUFFER_SIZE = 16384;
 
     private final FlightService flightService;
     private final SeatService seatService;
-    private long currentBookingId = 0L;
+    private final BookingService bookingService;
+    private final SeatHoldService seatHoldService;
+    private final ItineraryService itineraryService;
+    private final SeatUpdateService seatUpdateService;
+    private final PartitionMap partitionMap;
+    private final PartitionRouter partitionRouter;
+    private final FlightJsonHttpMessageConverter flightJsonConverter;
+    // start time of this node, part of every seat map ETag.
+    private final String seatMapEpoch = Long.toString(System.currentTimeMillis(), 36);
 
-    public FlightController(FlightService flightService, SeatService seatService) {
+    public FlightController(FlightService flightService, SeatService seatService, BookingService bookingService, SeatHoldService seatHoldService, ItineraryService itineraryService, SeatUpdateService seatUpdateService, PartitionMap partitionMap, PartitionRouter partitionRouter, FlightJsonHttpMessageConverter flightJsonConverter) {
         this.flightService = flightService;
         this.seatService = seatService;
+        this.bookingService = bookingService;
+        this.seatHoldService = seatHoldService;
+        this.itineraryService = itineraryService;
+        this.seatUpdateService = seatUpdateService;
+        this.partitionMap = partitionMap;
+        this.partitionRouter = partitionRouter;
+        this.flightJsonConverter = flightJsonConverter;
     }
 
+    /**
+     * Finds flights with a summary of their free seats. {@code minAdjacentSeats} keeps only flights
+     * that can seat a group side by side in one row, the seat preferences narrow down which seats count.
+     * <p>
+     * With a partitioned inventory every node knows every flight, but only a flight's owner knows its
+     * free seats: each node answers for the flights it owns and the node the client asked merges them.
+     */
     @GetMapping
-    public List<Flight> getFlights(
+    public List<FlightSearchResult> getFlights(
             @RequestParam(required = false) String destination,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
             @RequestParam(required = false) Long maxDurationMinutes,
-            @RequestParam(required = false) BigDecimal maxPrice
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer minAdjacentSeats,
+            @RequestParam(required = false) Boolean preferWindow,
+            @RequestParam(required = false) Boolean preferExtraLegroom,
+            @RequestParam(required = false) Boolean preferNearExit,
+            @RequestHeader(value = PartitionRouter.FORWARDED_HEADER, required = false) String forwardedBy,
+            HttpServletRequest request
     ) {
         log.info("Fetching all flights.");
-        return flightService.findFlights(destination, date, maxDurationMinutes, maxPrice);
+        if (!partitionMap.isPartitioned()) {
+            return seatService.findFlightsWithAvailability(
+                    destination,
+                    date,
+                    maxDurationMinutes,
+                    maxPrice,
+                    minAdjacentSeats,
+                    Optional.ofNullable(preferWindow),
+                    Optional.ofNullable(preferExtraLegroom),
+                    Optional.ofNullable(preferNearExit)
+            );
+        }
+
+        Supplier<List<FlightSearchResult>> ownedFlights = () -> seatService.findFlightsWithAvailability(
+                destination,
+                date,
+                maxDurationMinutes,
+                maxPrice,
+                minAdjacentSeats,
+                Optional.ofNullable(preferWindow),
+                Optional.ofNullable(preferExtraLegroom),
+                Optional.ofNullable(preferNearExit),
+                partitionMap::ownsFlight
+        );
+        // only a peer's fan-out is answered with the owned share, any other caller gets the whole result.
+        if (partitionMap.isPeer(forwardedBy)) {
+            return ownedFlights.get();
+        }
+        String pathAndQuery = request.getQueryString() == null ? request.getRequestURI() : request.getRequestURI() + "?" + request.getQueryString();
+        List<FlightSearchResult> results = partitionRouter.fanOut(pathAndQuery, SEARCH_RESULTS, ownedFlights);
+        results.sort(Comparator.comparing(result -> result.getFlight().getId()));
+        return results;
+    }
+
+    @GetMapping("/page")
+    public FlightPageResponse getFlightsPage(
+            @RequestParam(required = false) String destination,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) Long maxDurationMinutes,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "DEPARTURE_TIME") FlightSortOrder sort,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        log.info("Fetching a page of flights sorted by {}.", sort);
+        return flightService.findFlightsPage(destination, date, maxDurationMinutes, maxPrice, sort, limit, cursor);
+    }
+
+    /**
+     * Streams matching flights as newline-delimited JSON while the search produces them,
+     * so broad searches never hold the full result in memory.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFlights(
+            @RequestParam(required = false) String destination,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) Long maxDurationMinutes,
+            @RequestParam(required = false) BigDecimal maxPrice
+    ) {
+        log.info("Streaming flights.");
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, STREAM_BUFFER_SIZE);
+            flightService.forEachFlight(destination, date, maxDurationMinutes, maxPrice, flight -> {
+                try {
+                    out.write(flightJsonConverter.flightJson(flight));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Searches a range of departure dates over several destinations at once and groups the
+     * matches, by default the cheapest flights of each day. Only the schedule is searched, which
+     * every node holds in full, so partitioned nodes answer it on their own.
+     */
+    @GetMapping("/flexible")
+    public FlexibleSearchResponse getFlexibleFlights(
+            @RequestParam(required = false) List<String> destinations,
+            @RequestParam(required = false) List<String> origins,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+            @RequestParam(required = false) Long maxDurationMinutes,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "DATE") FlightGrouping groupBy,
+            @RequestParam(defaultValue = "PRICE") FlightSortOrder sort,
+            @RequestParam(defaultValue = "5") int limit
+    ) {
+        log.info("Fetching flights to {} departing {} to {} grouped by {}.", destinations, dateFrom, dateTo, groupBy);
+        return flightService.findFlexibleFlights(new FlexibleSearchRequest(destinations, origins, dateFrom, dateTo, maxDurationMinutes, maxPrice, groupBy, sort, limit));
+    }
+
+    /**
+     * Finds direct and connecting itineraries, the first leg departs on the given date.
+     */
+    @GetMapping("/itineraries")
+    public List<ItineraryResponse> getItineraries(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "1") int maxStops,
+            @RequestParam(defaultValue = "PRICE") ItinerarySortOrder sort,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        log.info("Fetching itineraries from {} to {} with at most {} stops sorted by {}.", origin, destination, maxStops, sort);
+        return itineraryService.findItineraries(origin, destination, date, maxStops, sort, limit);
     }
 
     @GetMapping("/{flightId}")
@@ -57,13 +230,19 @@ public class FlightController {
             @RequestParam(defaultValue = "1") int numberOfPassengers,
             @RequestParam(required = false) Boolean preferWindow,
             @RequestParam(required = false) Boolean preferExtraLegroom,
-            @RequestParam(required = false) Boolean preferNearExit
+            @RequestParam(required = false) Boolean preferNearExit,
+            WebRequest request
     ) {
         log.info("Fetching seat map for flight with an ID: {}.", flightId);
 
         // find the flight.
         Flight flight = flightService.findFlightById(flightId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight not found with ID: " + flightId));
 
+        // nothing was booked since the client's copy, answer with 304.
+        if (request.checkNotModified(seatMapETag(flight))) {
+            return null;
+        }
+
         // get seat map and if possible recommendations.
         SeatMapResponse seatMapResponse = seatService.getSeatMapAndRecommendations(
                 flight,
@@ -73,59 +252,117 @@ public class FlightController {
                 Optional.ofNullable(preferNearExit)
         );
 
-        return ResponseEntity.ok(seatMapResponse);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(seatMapResponse);
     }
 
-    @PostMapping("/bookings")
-    public ResponseEntity<BookingResponse> createBooking(@RequestBody BookingRequest bookingRequest) {
-        log.info("Creating booking request.");
-        log.info("Booking request: {}", bookingRequest);
-
-        // Find the flight.
-        Flight flight = flightService.findFlightById(bookingRequest.getFlightId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight not found with ID: " + bookingRequest.getFlightId()));
+    @GetMapping("/{flightId}/seats/compact")
+    public ResponseEntity<CompactSeatMapResponse> getCompactSeatMap(
+            @PathVariable Long flightId,
+            @RequestParam(defaultValue = "1") int numberOfPassengers,
+            @RequestParam(required = false) Boolean preferWindow,
+            @RequestParam(required = false) Boolean preferExtraLegroom,
+            @RequestParam(required = false) Boolean preferNearExit,
+            WebRequest request
+    ) {
+        log.info("Fetching compact seat map for flight with an ID: {}.", flightId);
 
-        // Calculate the price.
-        BigDecimal pricePerPassenger = flight.getPrice();
+        Flight flight = flightService.findFlightById(flightId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight not found with ID: " + flightId));
 
-        if (pricePerPassenger == null || pricePerPassenger.compareTo(BigDecimal.ZERO) <= 0) {
-            log.error("Booking failed: Invalid base price found for flight ID: {}", flight.getId());
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Cannot process booking due to invalid flight price configuration.");
+        if (request.checkNotModified(seatMapETag(flight))) {
+            return null;
         }
 
+        CompactSeatMapResponse seatMapResponse = seatService.getCompactSeatMap(
+                flight,
+                numberOfPassengers,
+                Optional.ofNullable(preferWindow),
+                Optional.ofNullable(preferExtraLegroom),
+                Optional.ofNullable(preferNearExit)
+        );
 
-        BigDecimal totalPrice = pricePerPassenger.multiply(BigDecimal.valueOf(bookingRequest.getPassengers()));
-        log.debug("Base price calculated for {} passengers: {}", bookingRequest.getPassengers(), totalPrice);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(seatMapResponse);
+    }
 
-        for (String seatNr : bookingRequest.getSelectedSeats()) {
-            Optional<Boolean> isFirstClassOpt = seatService.isSeatFirstClass(flight.getId(), seatNr);
+    /**
+     * Streams seat map changes as server-sent events: a "seats" event with the current occupancy
+     * first, then a "seats-delta" event with the seats taken and freed per coalescing window.
+     * Clients apply the deltas to the seat map instead of polling it.
+     */
+    @GetMapping(value = "/{flightId}/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeatMap(@PathVariable Long flightId) {
+        log.info("Streaming seat map updates for flight with an ID: {}.", flightId);
+        return seatUpdateService.subscribe(flightId);
+    }
 
-            if (isFirstClassOpt.isEmpty()) {
-                log.warn("Booking failed: Invalid seat number {} provided for flight {}", seatNr, flight.getId());
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid seat number selected: " + seatNr);
-            }
+    /**
+     * Prices seats at the flight's current fares without booking them.
+     */
+    @GetMapping("/{flightId}/quote")
+    public FareQuoteResponse getQuote(
+            @PathVariable Long flightId,
+            @RequestParam(defaultValue = "1") int passengers,
+            @RequestParam List<String> seats
+    ) {
+        log.info("Quoting seats {} on flight with an ID: {}.", seats, flightId);
+        return bookingService.quote(flightId, passengers, seats);
+    }
 
-            // add to occupied seats.
-            List<String> occupiedSeats = flight.getOccupiedSeatNrs();
-            occupiedSeats.add(seatNr);
-            flight.setOccupiedSeatNrs(occupiedSeats);
+    @PostMapping("/bookings")
+    public ResponseEntity<BookingResponse> createBooking(@RequestBody BookingRequest bookingRequest) {
+        log.info("Creating booking request.");
+        log.info("Booking request: {}", bookingRequest);
+
+        return ResponseEntity.ok(bookingService.createBooking(bookingRequest));
+    }
 
-            if (isFirstClassOpt.get()) {
-                totalPrice = totalPrice.add(BigDecimal.valueOf(50));
-            }
+    /**
+     * Books many requests in one call, e.g. group bookings of travel agencies. Every booking
+     * succeeds or fails on its own, the per-booking results carry the status it would have gotten
+     * from {@code /bookings}.
+     */
+    @PostMapping("/bookings/batch")
+    public ResponseEntity<BatchBookingResponse> createBookings(
+            @RequestBody BatchBookingRequest batchBookingRequest,
+            @RequestHeader(value = PartitionRouter.FORWARDED_HEADER, required = false) String forwardedBy
+    ) {
+        log.info("Creating batch of {} bookings.", batchBookingRequest.getBookings() == null ? 0 : batchBookingRequest.getBookings().size());
+
+        if (batchBookingRequest.getBookings() == null || batchBookingRequest.getBookings().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one booking must be submitted");
         }
+        // bookings of other partitions' flights are booked by their owners. A forwarded share is booked
+        // here as it is, bookings of flights this node doesn't own are rejected one by one with 421.
+        if (partitionMap.isPartitioned() && !partitionMap.isPeer(forwardedBy)) {
+            return ResponseEntity.ok(partitionRouter.createBookings(batchBookingRequest.getBookings(), bookingService::createBookings));
+        }
+        return ResponseEntity.ok(bookingService.createBookings(batchBookingRequest.getBookings()));
+    }
 
-        log.info("Calculated price of the flight is {}", totalPrice);
-        currentBookingId += 1;
+    /**
+     * Holds seats for a limited time, book them by passing the hold id with the booking.
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<SeatHoldResponse> holdSeats(@RequestBody SeatHoldRequest seatHoldRequest) {
+        log.info("Holding seats: {}", seatHoldRequest);
 
+        return ResponseEntity.ok(seatHoldService.holdSeats(seatHoldRequest));
+    }
+
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(@PathVariable Long holdId) {
+        log.info("Releasing seat hold with an ID: {}.", holdId);
+
+        seatHoldService.releaseHold(holdId);
+        return ResponseEntity.noContent().build();
+    }
 
-        return ResponseEntity.ok(new BookingResponse(
-                currentBookingId,
-                flight.getId(),
-                flight.getFlightNr(),
-                bookingRequest.getPassengers(),
-                bookingRequest.getSelectedSeats(),
-                totalPrice,
-                LocalDateTime.now()
-        ));
+    /**
+     * Seat maps only change when the flight's inventory does, so the inventory version is the ETag.
+     * Versions start over when the node starts, after journal recovery or a restored occupancy row
+     * a version the client saw before can stand for other seats, so the node's start time is part of the tag.
+     * The query parameters are part of the URL and cached separately by clients.
+     */
+    private String seatMapETag(Flight flight) {
+        return "\"" + seatMapEpoch + "-" + flight.getId() + "-" + flight.getSeatInventory().version() + "\"";
     }
 }
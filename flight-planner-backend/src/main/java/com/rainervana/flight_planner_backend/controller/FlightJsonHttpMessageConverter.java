@@ -0,0 +1,161 @@
+package com.rainervana.flight_planner_backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rainervana.flight_planner_backend.dto.FlightPageResponse;
+import com.rainervana.flight_planner_backend.dto.FlightSearchResult;
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes flight responses from JSON that is encoded once per flight instead of once per response.
+ * <p>
+ * A flight's schedule doesn't change once it's in the catalog, yet every search used to format its
+ * dates, price and duration again. The first response that includes a flight encodes it with the
+ * application's {@link ObjectMapper} and keeps the bytes on the flight (see {@link Flight#cachedJson()}),
+ * later responses copy them into the output stream. Only what changes per response is encoded
+ * each time: the seat availability of search results and the cursor of a page. The output is the
+ * same JSON the Jackson converter writes for these types, which handles every other type.
+ * <p>
+ * Handles {@code Flight}, {@code Optional<Flight>}, {@code List<Flight>},
+ * {@code List<FlightSearchResult>} and {@link FlightPageResponse}. Picked up by Spring Boot ahead
+ * of the default converters.
+ */
+@Component
+public class FlightJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AVAILABILITY_FIELD = ",\"availability\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FLIGHTS_FIELD = "{\"flights\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEXT_CURSOR_FIELD = ",\"nextCursor\":".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper;
+
+    public FlightJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return  -   JSON of the flight, encoded on the first call after the flight was created or changed.
+     */
+    public byte[] flightJson(Flight flight) throws IOException {
+        byte[] json = flight.cachedJson();
+        if (json == null) {
+            json = objectMapper.writeValueAsBytes(flight);
+            flight.cacheJson(json);
+        }
+        return json;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isFlightResponse(type) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        // only types with their generics are known, see canWrite.
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        if (value instanceof Optional<?> optional) {
+            value = optional.orElse(null);
+        }
+
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof Flight flight) {
+            out.write(flightJson(flight));
+        } else if (value instanceof FlightPageResponse page) {
+            out.write(FLIGHTS_FIELD);
+            writeList(page.getFlights(), out);
+            out.write(NEXT_CURSOR_FIELD);
+            out.write(objectMapper.writeValueAsBytes(page.getNextCursor()));
+            out.write('}');
+        } else {
+            writeList((List<?>) value, out);
+        }
+    }
+
+    private void writeList(List<?> values, OutputStream out) throws IOException {
+        if (values == null) {
+            out.write(NULL);
+            return;
+        }
+        out.write('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = values.get(i);
+            if (value instanceof FlightSearchResult result) {
+                writeSearchResult(result, out);
+            } else if (value instanceof Flight flight) {
+                out.write(flightJson(flight));
+            } else {
+                out.write(objectMapper.writeValueAsBytes(value));
+            }
+        }
+        out.write(']');
+    }
+
+    /**
+     * The flight is unwrapped into the result, so the result is the flight's object with the
+     * availability added before the closing brace.
+     */
+    private void writeSearchResult(FlightSearchResult result, OutputStream out) throws IOException {
+        if (result.getFlight() == null) {
+            out.write(objectMapper.writeValueAsBytes(result));
+            return;
+        }
+        byte[] flight = flightJson(result.getFlight());
+        out.write(flight, 0, flight.length - 1);
+        out.write(AVAILABILITY_FIELD);
+        out.write(objectMapper.writeValueAsBytes(result.getAvailability()));
+        out.write('}');
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Flight responses are only written", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Flight responses are only written", inputMessage);
+    }
+
+    private static boolean isFlightResponse(Type type) {
+        if (type == Flight.class || type == FlightPageResponse.class) {
+            return true;
+        }
+        if (!(type instanceof ParameterizedType parameterized)) {
+            return false;
+        }
+        Type element = parameterized.getActualTypeArguments()[0];
+        if (parameterized.getRawType() == Optional.class) {
+            return element == Flight.class;
+        }
+        return parameterized.getRawType() == List.class && (element == Flight.class || element == FlightSearchResult.class);
+    }
+}
@@ -0,0 +1,50 @@
+package com.rainervana.flight_planner_backend.controller;
+
+import com.rainervana.flight_planner_backend.dto.SeatLayoutResponse;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import com.rainervana.flight_planner_backend.service.SeatLayoutRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/layouts")
+public class LayoutController {
+    private static final Logger log = LoggerFactory.getLogger(LayoutController.class);
+
+    private final SeatLayoutRegistry seatLayoutRegistry;
+
+    public LayoutController(SeatLayoutRegistry seatLayoutRegistry) {
+        this.seatLayoutRegistry = seatLayoutRegistry;
+    }
+
+    /**
+     * Static seat layout of an aircraft type, referenced by compact seat maps.
+     * Layouts don't change at runtime, so clients may cache them. Unknown types are 404.
+     */
+    @GetMapping("/{aircraftType}")
+    public ResponseEntity<SeatLayoutResponse> getLayout(@PathVariable String aircraftType) {
+        log.info("Fetching seat layout for aircraft type: {}.", aircraftType);
+
+        SeatLayout layout = seatLayoutRegistry.find(aircraftType)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown aircraft type: " + aircraftType));
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic())
+                .body(new SeatLayoutResponse(
+                        layout.getAircraftType(),
+                        layout.getTotalRows(),
+                        layout.getColumns(),
+                        layout.getWindowColumns(),
+                        layout.getFirstClassRows(),
+                        layout.getExitRows(),
+                        layout.getExtraLegroomRows()
+                ));
+    }
+}
@@ -0,0 +1,219 @@
+package com.rainervana.flight_planner_backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rainervana.flight_planner_backend.service.PartitionMap;
+import com.rainervana.flight_planner_backend.service.PartitionRouter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends requests about one flight to the node that owns the flight, when the inventory is
+ * partitioned over several nodes (see {@link PartitionMap}):
+ * <ul>
+ *     <li>{@code /api/flights/{flightId}/...}: seat maps, seat map streams and quotes.</li>
+ *     <li>{@code POST /api/flights/bookings} and {@code POST /api/flights/holds}: by the flight id in the body.</li>
+ *     <li>{@code DELETE /api/flights/holds/{holdId}}: by the node the hold id was numbered by.</li>
+ * </ul>
+ * The owner's response is streamed back as it is, status, body and caching headers included.
+ * Searches and batch bookings span partitions and are split up by {@link FlightController}.
+ * <p>
+ * Routing depends on the owner alone. The {@link PartitionRouter#FORWARDED_HEADER} only keeps a
+ * request to one hop: a forwarded request that reaches a node other than the owner, e.g. while
+ * the nodes' lists differ, is rejected with 421 instead of being passed on again. Clients can set
+ * the header as well, so the owner still checks ownership on every change, see {@link PartitionMap}.
+ */
+@Component
+public class PartitionRoutingFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(PartitionRoutingFilter.class);
+
+    private static final Pattern FLIGHT_PATH = Pattern.compile("/api/flights/(\\d{1,18})/.+");
+    private static final Pattern HOLD_PATH = Pattern.compile("/api/flights/holds/(\\d{1,18})");
+    private static final List<String> BODY_ROUTED_PATHS = List.of("/api/flights/bookings", "/api/flights/holds");
+    private static final List<String> REQUEST_HEADERS = List.of("Accept", "Content-Type", "If-None-Match", "Last-Event-ID");
+    private static final List<String> RESPONSE_HEADERS = List.of("Content-Type", "ETag", "Cache-Control");
+    private static final int BUFFER_SIZE = 8192;
+
+    private final PartitionMap partitionMap;
+    private final PartitionRouter partitionRouter;
+    private final ObjectMapper objectMapper;
+
+    public PartitionRoutingFilter(PartitionMap partitionMap, PartitionRouter partitionRouter, ObjectMapper objectMapper) {
+        this.partitionMap = partitionMap;
+        this.partitionRouter = partitionRouter;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Single nodes never route.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !partitionMap.isPartitioned() || !request.getRequestURI().startsWith("/api/flights/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI();
+        String owner = null;
+        byte[] body = null;
+
+        Matcher flightPath = FLIGHT_PATH.matcher(path);
+        Matcher holdPath = HOLD_PATH.matcher(path);
+        if (flightPath.matches()) {
+            owner = partitionMap.ownerOfFlight(Long.parseLong(flightPath.group(1)));
+        } else if ("DELETE".equals(request.getMethod()) && holdPath.matches()) {
+            owner = partitionMap.ownerOfHold(Long.parseLong(holdPath.group(1)));
+        } else if ("POST".equals(request.getMethod()) && BODY_ROUTED_PATHS.contains(path)) {
+            body = request.getInputStream().readAllBytes();
+            Long flightId = flightIdOf(body);
+            owner = flightId == null ? null : partitionMap.ownerOfFlight(flightId);
+            // the body is consumed, the controller reads the copy.
+            request = new CachedBodyRequest(request, body);
+        }
+
+        if (owner == null || owner.equals(partitionMap.self())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (request.getHeader(PartitionRouter.FORWARDED_HEADER) != null) {
+            log.warn("Rejecting {} {} forwarded by {}, it is owned by {}", request.getMethod(), path, request.getHeader(PartitionRouter.FORWARDED_HEADER), owner);
+            response.sendError(PartitionMap.MISDIRECTED_REQUEST.value(), "Owned by " + owner);
+            return;
+        }
+        forward(owner, request, body, response);
+    }
+
+    private void forward(String owner, HttpServletRequest request, byte[] body, HttpServletResponse response) throws IOException {
+        String pathAndQuery = request.getQueryString() == null ? request.getRequestURI() : request.getRequestURI() + "?" + request.getQueryString();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String header : REQUEST_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                headers.put(header, value);
+            }
+        }
+
+        HttpResponse<InputStream> forwarded;
+        try {
+            forwarded = partitionRouter.forward(owner, request.getMethod(), pathAndQuery, headers, body);
+        } catch (IOException e) {
+            log.warn("Forwarding {} {} to {} failed: {}", request.getMethod(), pathAndQuery, owner, e.getMessage());
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Partition unavailable: " + owner);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Partition unavailable: " + owner);
+            return;
+        }
+
+        response.setStatus(forwarded.statusCode());
+        for (String header : RESPONSE_HEADERS) {
+            forwarded.headers().firstValue(header).ifPresent(value -> response.setHeader(header, value));
+        }
+        // flushed per read, server-sent events reach the client as the owner sends them.
+        try (InputStream in = forwarded.body()) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * @return  -   the "flightId" of a JSON body, null if there is none, the controller then rejects the request.
+     */
+    private Long flightIdOf(byte[] body) {
+        try {
+            JsonNode flightId = objectMapper.readTree(body).path("flightId");
+            return flightId.canConvertToLong() ? flightId.asLong() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Request whose body was already read, serves the body again from memory.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * The whole body is in memory and always ready, the listener reads it in one go.
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException | RuntimeException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchBookingRequest {
+
+    @NotEmpty(message = "At least one booking must be submitted")
+    private List<BookingRequest> bookings;
+}
@@ -0,0 +1,17 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchBookingResponse {
+    private int confirmed;
+    private int rejected;
+    // one result per submitted booking, in request order.
+    private List<BatchBookingResult> results;
+}
@@ -0,0 +1,20 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one booking of a batch, {@code status} is the HTTP status the booking would have
+ * gotten on its own.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchBookingResult {
+    // position of the booking in the request.
+    private int index;
+    private int status;
+    private BookingResponse booking;
+    private String error;
+}
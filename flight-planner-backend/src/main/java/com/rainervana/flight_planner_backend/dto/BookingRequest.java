@@ -22,4 +22,11 @@ public class BookingRequest {
 
     @NotEmpty(message = "At least one seat must be selected")
     private List<String> selectedSeats;
+
+    // optional, books the seats of this hold.
+    private Long holdId;
+
+    public BookingRequest(Long flightId, int passengers, List<String> selectedSeats) {
+        this(flightId, passengers, selectedSeats, null);
+    }
 }
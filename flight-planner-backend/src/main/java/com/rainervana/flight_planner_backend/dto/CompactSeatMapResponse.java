@@ -0,0 +1,22 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Seat map without the static layout data. The layout is fetched once from
+ * {@code /api/layouts/{aircraftType}}, occupancy is a base64 bitmap where bit j of byte i
+ * is the seat with index {@code 8 * i + j}, seats indexed row by row. Held seats are set as well.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactSeatMapResponse {
+    private String aircraftType;
+    private long version;
+    private String occupancy;
+    private List<String> recommendedSeatNrs;
+}
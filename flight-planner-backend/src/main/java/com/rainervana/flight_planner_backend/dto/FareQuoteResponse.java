@@ -0,0 +1,20 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FareQuoteResponse {
+    private Long flightId;
+    private int passengers;
+    private List<String> selectedSeats;
+    // per passenger, at the flight's current load factor.
+    private BigDecimal baseFare;
+    private BigDecimal totalPrice;
+}
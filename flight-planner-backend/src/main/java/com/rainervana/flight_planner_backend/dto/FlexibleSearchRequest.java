@@ -0,0 +1,30 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import com.rainervana.flight_planner_backend.service.FlightGrouping;
+import com.rainervana.flight_planner_backend.service.FlightSortOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlexibleSearchRequest {
+    // null or empty for any destination or origin.
+    private List<String> destinations;
+    private List<String> origins;
+    // departure dates, both inclusive.
+    private LocalDate dateFrom;
+    private LocalDate dateTo;
+    private Long maxDurationMinutes;
+    private BigDecimal maxPrice;
+    private FlightGrouping groupBy;
+    // order of the flights within a group.
+    private FlightSortOrder sort;
+    // flights per group.
+    private int limit;
+}
@@ -0,0 +1,16 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlexibleSearchResponse {
+    private int matches;
+    // groups with at least one match, by date, then destination.
+    private List<FlightGroup> groups;
+}
@@ -0,0 +1,23 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightGroup {
+    // the group's departure date and destination, null if the search isn't grouped by it.
+    private LocalDate date;
+    private String destination;
+    // all matching flights of the group, not only the listed ones.
+    private int matches;
+    private Flight cheapest;
+    // the first "limit" flights of the group in the requested order.
+    private List<Flight> flights;
+}
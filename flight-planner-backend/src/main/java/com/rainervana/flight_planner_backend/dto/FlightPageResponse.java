@@ -0,0 +1,17 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightPageResponse {
+    private List<Flight> flights;
+    // pass back as "cursor" to get the next page, null on the last page.
+    private String nextCursor;
+}
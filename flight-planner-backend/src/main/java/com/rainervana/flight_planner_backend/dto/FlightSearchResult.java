@@ -0,0 +1,17 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.rainervana.flight_planner_backend.model.Flight;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightSearchResult {
+    // serialized with the flight's own fields at the top level, the availability is an extra field.
+    @JsonUnwrapped
+    private Flight flight;
+    private SeatAvailabilitySummary availability;
+}
@@ -0,0 +1,25 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItineraryResponse {
+    // flights in travel order, one more than the number of stops.
+    private List<Flight> legs;
+    private int stops;
+    private LocalDateTime departureTime;
+    private LocalDateTime arrivalTime;
+    // from the first departure to the last arrival, layovers included.
+    private long durationMinutes;
+    // sum of the legs' listed prices per passenger.
+    private BigDecimal totalPrice;
+}
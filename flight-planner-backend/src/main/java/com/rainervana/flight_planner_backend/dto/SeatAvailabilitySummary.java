@@ -0,0 +1,17 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatAvailabilitySummary {
+    // held seats are not free, same as in the seat map.
+    private int freeSeats;
+    private int freeFirstClassSeats;
+    private int freeEconomySeats;
+    // most adjacent free seats in one row, only counting seats that match the search's seat preferences.
+    private int largestFreeBlock;
+}
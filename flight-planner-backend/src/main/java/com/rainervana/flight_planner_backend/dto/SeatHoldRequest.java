@@ -0,0 +1,21 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatHoldRequest {
+
+    @NotNull(message = "Flight ID cannot be null")
+    private Long flightId;
+
+    @NotEmpty(message = "At least one seat must be selected")
+    private List<String> selectedSeats;
+}
@@ -0,0 +1,18 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatHoldResponse {
+    private Long holdId;
+    private Long flightId;
+    private List<String> heldSeats;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,20 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatLayoutResponse {
+    private String aircraftType;
+    private int totalRows;
+    private List<String> columns;
+    private List<String> windowColumns;
+    private List<Integer> firstClassRows;
+    private List<Integer> exitRows;
+    private List<Integer> extraLegroomRows;
+}
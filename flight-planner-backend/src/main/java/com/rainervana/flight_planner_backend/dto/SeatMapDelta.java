@@ -0,0 +1,21 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapDelta {
+    private Long flightId;
+    // the delta applies on top of this version, the client reloads if it has another one.
+    private long fromVersion;
+    private long version;
+    // seats that were booked or held since fromVersion.
+    private List<String> unavailableSeats;
+    // seats that were cancelled or whose hold ended since fromVersion.
+    private List<String> availableSeats;
+}
@@ -15,4 +15,5 @@ public class SeatMapResponse {
     private List<String> columns;
     private List<Seat> allSeats;
     private List<String> recommendedSeatNrs;
-}
\ No newline at end of file
+    private long version;
+}
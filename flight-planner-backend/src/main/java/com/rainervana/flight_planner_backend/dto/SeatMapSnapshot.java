@@ -0,0 +1,16 @@
+package com.rainervana.flight_planner_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapSnapshot {
+    private Long flightId;
+    private String aircraftType;
+    private long version;
+    // base64 bitmap of the occupied or held seats, encoded like in CompactSeatMapResponse.
+    private String occupancy;
+}
@@ -0,0 +1,333 @@
+package com.rainervana.flight_planner_backend.metrics;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import io.micrometer.core.instrument.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the search, seat map and booking hot paths, scraped through {@code /actuator/prometheus}.
+ * <p>
+ * All meters are registered once up front, so recording a value is a lookup-free call on a
+ * pre-built {@link Timer} or {@link Counter}. Timers publish percentile histograms, p50/p95/p99
+ * can be computed by the scraper across instances.
+ */
+@Component
+public class FlightPlannerMetrics {
+    private static final Duration MIN_EXPECTED_LATENCY = Duration.ofNanos(500);
+    private static final Duration MAX_EXPECTED_LATENCY = Duration.ofSeconds(5);
+
+    private final MeterRegistry registry;
+    private final boolean perFlightGauges;
+
+    private final Timer searchTimer;
+    private final Timer pageSearchTimer;
+    private final Timer streamSearchTimer;
+    private final Timer itinerarySearchTimer;
+    private final Timer flexibleSearchTimer;
+    private final Counter searchCacheHits;
+    private final Counter searchCacheMisses;
+    private final Timer seatMapTimer;
+    private final Timer compactSeatMapTimer;
+    private final Timer recommendationTimer;
+    private final Timer bookingTimer;
+    private final Timer batchBookingTimer;
+    private final Counter bookingConflicts;
+    private final Counter rejectedSeatsInvalid;
+    private final Counter rejectedSeatsDuplicate;
+    private final Counter rejectedSeatsOccupied;
+    private final DistributionSummary bookingBatchSize;
+    private final Counter holdsCreated;
+    private final Counter holdsConverted;
+    private final Counter holdsReleased;
+    private final Counter holdsExpired;
+    private final Counter holdConflicts;
+    private final Counter partitionForwarded;
+    private final Counter partitionFannedOut;
+    private final Counter partitionUnavailable;
+
+    /**
+     * @param registry          -   registry to publish the meters to.
+     * @param perFlightGauges   -   whether every flight gets its own load factor gauge, turn off for very large catalogs.
+     */
+    public FlightPlannerMetrics(MeterRegistry registry, @Value("${flight-planner.metrics.per-flight-gauges:true}") boolean perFlightGauges) {
+        this.registry = registry;
+        this.perFlightGauges = perFlightGauges;
+
+        this.searchTimer = latencyTimer("flight.search", "Flight search, list results", "operation", "list");
+        this.pageSearchTimer = latencyTimer("flight.search", "Flight search, paginated results", "operation", "page");
+        this.streamSearchTimer = latencyTimer("flight.search", "Flight search, streamed results including serialization", "operation", "stream");
+        this.itinerarySearchTimer = latencyTimer("flight.search", "Itinerary search over connecting flights", "operation", "itinerary");
+        this.flexibleSearchTimer = latencyTimer("flight.search", "Flight search over date ranges and destination sets, grouped results", "operation", "flexible");
+        this.searchCacheHits = searchCacheCounter("hit");
+        this.searchCacheMisses = searchCacheCounter("miss");
+        this.seatMapTimer = latencyTimer("seatmap.build", "Seat map and recommendations", "format", "full");
+        this.compactSeatMapTimer = latencyTimer("seatmap.build", "Seat map and recommendations", "format", "compact");
+        this.recommendationTimer = latencyTimer("seat.recommendation", "Seat recommendation only");
+        this.bookingTimer = latencyTimer("booking.create", "Booking including validation and seat claim");
+        this.batchBookingTimer = latencyTimer("booking.batch", "Batch of bookings including validation and seat claims");
+
+        this.bookingConflicts = Counter.builder("booking.conflicts")
+                .description("Bookings rejected because a selected seat was taken in the meantime")
+                .register(registry);
+        this.rejectedSeatsInvalid = rejectedSeatsCounter("invalid");
+        this.rejectedSeatsDuplicate = rejectedSeatsCounter("duplicate");
+        this.rejectedSeatsOccupied = rejectedSeatsCounter("occupied");
+
+        this.bookingBatchSize = DistributionSummary.builder("booking.engine.batch.size")
+                .description("Seat changes a booking shard applied per journal wait")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1024.0)
+                .register(registry);
+
+        this.holdsCreated = holdsCounter("created");
+        this.holdsConverted = holdsCounter("converted");
+        this.holdsReleased = holdsCounter("released");
+        this.holdsExpired = holdsCounter("expired");
+        this.holdConflicts = Counter.builder("seat.hold.conflicts")
+                .description("Seat holds rejected because a selected seat was taken or held")
+                .register(registry);
+
+        this.partitionForwarded = partitionCounter("forwarded");
+        this.partitionFannedOut = partitionCounter("fan-out");
+        this.partitionUnavailable = partitionCounter("unavailable");
+    }
+
+    /**
+     * Registers the catalog size gauge. The supplier is only called when the registry is scraped.
+     *
+     * @param catalogSize   -   returns the current number of flights.
+     */
+    public void registerCatalogSize(Supplier<Number> catalogSize) {
+        Gauge.builder("flight.catalog.size", catalogSize)
+                .description("Number of flights in the catalog")
+                .register(registry);
+    }
+
+    /**
+     * Registers the gauge of cached search results.
+     *
+     * @param cacheSize     -   returns the current number of cached results.
+     */
+    public void registerSearchCacheSize(Supplier<Number> cacheSize) {
+        Gauge.builder("flight.search.cache.size", cacheSize)
+                .description("Flight search results in the cache")
+                .register(registry);
+    }
+
+    /**
+     * Registers the gauge of seat changes waiting in the booking shards.
+     *
+     * @param queueDepth    -   returns the current number of queued changes.
+     */
+    public void registerBookingQueueDepth(Supplier<Number> queueDepth) {
+        Gauge.builder("booking.engine.queue.depth", queueDepth)
+                .description("Seat changes waiting in the booking shard queues")
+                .register(registry);
+    }
+
+    /**
+     * Registers the gauge of seat holds that are neither booked, released nor expired.
+     *
+     * @param activeHolds   -   returns the current number of holds.
+     */
+    public void registerActiveHolds(Supplier<Number> activeHolds) {
+        Gauge.builder("seat.holds.active", activeHolds)
+                .description("Seat holds waiting for a booking")
+                .register(registry);
+    }
+
+    /**
+     * Registers the gauge of clients listening to seat map updates.
+     *
+     * @param subscribers   -   returns the current number of open seat map streams.
+     */
+    public void registerSeatMapSubscribers(Supplier<Number> subscribers) {
+        Gauge.builder("seatmap.subscribers", subscribers)
+                .description("Clients listening to seat map updates")
+                .register(registry);
+    }
+
+    /**
+     * Registers the load factor gauge of a flight, the share of occupied seats between 0 and 1.
+     * The gauge reads the flight's inventory on scrape, bookings don't touch it. It reports NaN
+     * while the inventory is not loaded yet.
+     *
+     * @param flight    -   flight with id and flight number set.
+     */
+    public void registerFlight(Flight flight) {
+        if (!perFlightGauges) {
+            return;
+        }
+        Gauge.builder("flight.load.factor", flight, FlightPlannerMetrics::loadFactor)
+                .description("Share of occupied seats of a flight")
+                .tags(flightTags(flight))
+                .strongReference(false)
+                .register(registry);
+    }
+
+    /**
+     * Removes the load factor gauge of a flight that left the catalog.
+     */
+    public void unregisterFlight(Flight flight) {
+        if (!perFlightGauges) {
+            return;
+        }
+        Gauge gauge = registry.find("flight.load.factor").tags(flightTags(flight)).gauge();
+        if (gauge != null) {
+            registry.remove(gauge);
+        }
+    }
+
+    public Timer searchTimer() {
+        return searchTimer;
+    }
+
+    public Timer pageSearchTimer() {
+        return pageSearchTimer;
+    }
+
+    public Timer streamSearchTimer() {
+        return streamSearchTimer;
+    }
+
+    public Timer itinerarySearchTimer() {
+        return itinerarySearchTimer;
+    }
+
+    public Timer flexibleSearchTimer() {
+        return flexibleSearchTimer;
+    }
+
+    public void searchCacheHit() {
+        searchCacheHits.increment();
+    }
+
+    public void searchCacheMiss() {
+        searchCacheMisses.increment();
+    }
+
+    public Timer seatMapTimer() {
+        return seatMapTimer;
+    }
+
+    public Timer compactSeatMapTimer() {
+        return compactSeatMapTimer;
+    }
+
+    public Timer recommendationTimer() {
+        return recommendationTimer;
+    }
+
+    public Timer bookingTimer() {
+        return bookingTimer;
+    }
+
+    public Timer batchBookingTimer() {
+        return batchBookingTimer;
+    }
+
+    /**
+     * Counts a booking that lost the race for one of its seats.
+     */
+    public void bookingConflict() {
+        bookingConflicts.increment();
+        rejectedSeatsOccupied.increment();
+    }
+
+    public void recordBookingBatch(int size) {
+        bookingBatchSize.record(size);
+    }
+
+    public void holdCreated() {
+        holdsCreated.increment();
+    }
+
+    public void holdConverted() {
+        holdsConverted.increment();
+    }
+
+    public void holdReleased() {
+        holdsReleased.increment();
+    }
+
+    public void holdsExpired(int count) {
+        holdsExpired.increment(count);
+    }
+
+    public void holdConflict() {
+        holdConflicts.increment();
+    }
+
+    public void invalidSeatRejected() {
+        rejectedSeatsInvalid.increment();
+    }
+
+    public void duplicateSeatRejected() {
+        rejectedSeatsDuplicate.increment();
+    }
+
+    public void partitionForwarded() {
+        partitionForwarded.increment();
+    }
+
+    public void partitionFannedOut() {
+        partitionFannedOut.increment();
+    }
+
+    public void partitionUnavailable() {
+        partitionUnavailable.increment();
+    }
+
+    private Timer latencyTimer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_LATENCY)
+                .maximumExpectedValue(MAX_EXPECTED_LATENCY)
+                .register(registry);
+    }
+
+    private Counter rejectedSeatsCounter(String reason) {
+        return Counter.builder("booking.rejected.seats")
+                .description("Selected seats rejected during booking")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private Counter searchCacheCounter(String result) {
+        return Counter.builder("flight.search.cache")
+                .description("Flight searches answered from the cache or computed")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Counter holdsCounter(String outcome) {
+        return Counter.builder("seat.holds")
+                .description("Seat holds created and how they ended")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Counter partitionCounter(String outcome) {
+        return Counter.builder("partition.requests")
+                .description("Requests to other partitions, forwarded to the owner, fanned out to all, or failed on an unreachable node")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Tags flightTags(Flight flight) {
+        return Tags.of("flightId", String.valueOf(flight.getId()), "flightNr", String.valueOf(flight.getFlightNr()));
+    }
+
+    private static double loadFactor(Flight flight) {
+        SeatInventory inventory = flight.getSeatInventory();
+        return inventory == null ? Double.NaN : (double) inventory.occupiedCount() / inventory.capacity();
+    }
+}
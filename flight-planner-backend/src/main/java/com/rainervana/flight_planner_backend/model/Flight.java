@@ -1,20 +1,24 @@
 package com.rainervana.flight_planner_backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.ElementCollection;
-import jakarta.persistence.FetchType;
 import jakarta.persistence.GenerationType;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Transient;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
 
 @Entity
@@ -22,7 +26,9 @@ import java.util.List;
 @NoArgsConstructor
 public class Flight {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids come from a sequence in blocks, so batched inserts don't wait for each generated key.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flight_seq")
+    @SequenceGenerator(name = "flight_seq", sequenceName = "flight_seq", allocationSize = 50)
     private Long id;
 
     // flight information
@@ -34,9 +40,21 @@ public class Flight {
     private BigDecimal price;
     private String aircraftType;
 
-    // store occupied seat numbers for this specific flight
-    @ElementCollection(fetch = FetchType.EAGER)
-    private List<String> occupiedSeatNrs = new ArrayList<>();
+    // occupancy bitmap for this specific flight
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private SeatInventory seatInventory;
+
+    // the flight as API JSON, encoded on first use and reused by every response, cleared by the setters of the fields it holds.
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile byte[] json;
 
 
     public Flight(Long id, String flightNr, String origin, String destination, LocalDateTime departureTime, LocalDateTime arrivalTime, BigDecimal price, String aircraftType) {
@@ -50,6 +68,57 @@ public class Flight {
         this.aircraftType = aircraftType;
     }
 
+    /**
+     * @return  -   the cached JSON of the flight, null if it wasn't encoded since the last change.
+     */
+    public byte[] cachedJson() {
+        return json;
+    }
+
+    public void cacheJson(byte[] json) {
+        this.json = json;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+        this.json = null;
+    }
+
+    public void setFlightNr(String flightNr) {
+        this.flightNr = flightNr;
+        this.json = null;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+        this.json = null;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+        this.json = null;
+    }
+
+    public void setDepartureTime(LocalDateTime departureTime) {
+        this.departureTime = departureTime;
+        this.json = null;
+    }
+
+    public void setArrivalTime(LocalDateTime arrivalTime) {
+        this.arrivalTime = arrivalTime;
+        this.json = null;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+        this.json = null;
+    }
+
+    public void setAircraftType(String aircraftType) {
+        this.aircraftType = aircraftType;
+        this.json = null;
+    }
+
     /**
      * Calculates the duration between the arrival time and the departure time.
      *
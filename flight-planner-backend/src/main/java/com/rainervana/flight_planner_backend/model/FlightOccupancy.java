@@ -0,0 +1,31 @@
+package com.rainervana.flight_planner_backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persisted occupancy of a flight, one row per flight with the whole seat bitmap in one column.
+ * Kept apart from {@link Flight} so loading the catalog never reads seats.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightOccupancy {
+    // width of the occupancy column, enough for layouts of up to 2048 seats.
+    public static final int MAX_OCCUPANCY_BYTES = 256;
+
+    @Id
+    private Long flightId;
+
+    // bitmap in the format of SeatInventory.Snapshot#toByteArray()
+    @Column(nullable = false, length = MAX_OCCUPANCY_BYTES)
+    private byte[] occupancy;
+
+    // inventory version the bitmap was taken at
+    private long version;
+}
@@ -0,0 +1,20 @@
+package com.rainervana.flight_planner_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Seats of a flight reserved for a limited time, kept in memory only.
+ */
+@Data
+@AllArgsConstructor
+public class SeatHold {
+    private long holdId;
+    private long flightId;
+    private List<String> seatNrs;
+    // bit indexes of the seats in the flight's inventory, same order as seatNrs.
+    private int[] seatIndexes;
+    private long expiresAtMillis;
+}
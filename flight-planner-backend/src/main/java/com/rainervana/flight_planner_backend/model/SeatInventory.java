@@ -0,0 +1,513 @@
+package com.rainervana.flight_planner_backend.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compact occupancy bitmap for a single flight.
+ * <p>
+ * Every seat is one bit at index {@code (row - 1) * columns + column}, where rows are 1-based
+ * (like seat numbers) and columns are 0-based ("A" = 0). The backing {@code long[]} is never
+ * mutated after it has been published, writers copy it and swap it in, so readers can take a
+ * snapshot without copying or locking.
+ * <p>
+ * Next to the occupied seats the inventory tracks held seats in a second bitmap. A held seat is not
+ * occupied, but it can't be occupied or held by anyone else until the hold is converted with
+ * {@link #occupyHeld(int[])} or dropped with {@link #releaseHolds(int[])}. Holds are not part of
+ * {@link Snapshot#toByteArray()}, so they are never journaled or persisted.
+ */
+public class SeatInventory {
+    private final int totalRows;
+    private final int columns;
+    private final AtomicReference<Snapshot> current;
+
+    public SeatInventory(int totalRows, int columns) {
+        if (totalRows <= 0 || columns <= 0 || columns > Long.SIZE) {
+            throw new IllegalArgumentException("Invalid seat layout: " + totalRows + "x" + columns);
+        }
+        this.totalRows = totalRows;
+        this.columns = columns;
+        this.current = new AtomicReference<>(new Snapshot(totalRows, columns, new long[wordsFor(totalRows * columns)], new long[wordsFor(totalRows * columns)], 0L));
+    }
+
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int capacity() {
+        return totalRows * columns;
+    }
+
+    /**
+     * Returns the current immutable view of the inventory.
+     *
+     * @return  -   snapshot that will never change, even if seats are booked afterwards.
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public boolean isOccupied(int row, int column) {
+        return current.get().isOccupied(row, column);
+    }
+
+    public int occupiedCount() {
+        return current.get().occupiedCount();
+    }
+
+    public int freeSeatCount() {
+        return current.get().freeSeatCount();
+    }
+
+    /**
+     * @return  -   number of changes applied to the inventory so far.
+     */
+    public long version() {
+        return current.get().getVersion();
+    }
+
+    /**
+     * Marks a single seat as occupied.
+     *
+     * @param row       -   1-based row number.
+     * @param column    -   0-based column index.
+     * @return          -   true if the seat was free and is now taken, false if it was already occupied.
+     */
+    public boolean occupy(int row, int column) {
+        return occupy(indexOf(row, column));
+    }
+
+    /**
+     * Marks a single seat as occupied.
+     *
+     * @param index     -   bit index of the seat, see {@link #seatIndex(String)}.
+     * @return          -   true if the seat was free and is now taken, false if it was already occupied.
+     */
+    public boolean occupy(int index) {
+        checkIndex(index);
+        while (true) {
+            Snapshot before = current.get();
+            if (before.isSet(index) || before.isHeld(index)) {
+                return false;
+            }
+            long[] words = before.words.clone();
+            words[index >>> 6] |= 1L << index;
+            if (current.compareAndSet(before, new Snapshot(totalRows, columns, words, before.held, before.version + 1))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Marks all given seats as occupied in a single atomic step. Either every seat is claimed
+     * or, if any of them is already taken or held, none of them are.
+     *
+     * @param indexes   -   bit indexes of the seats to claim, must not contain duplicates.
+     * @return          -   -1 if all seats were claimed, otherwise the index of the first seat that was already occupied or held.
+     */
+    public int occupyAll(int[] indexes) {
+        for (int index : indexes) {
+            checkIndex(index);
+        }
+        while (true) {
+            Snapshot before = current.get();
+            long[] words = before.words.clone();
+            for (int index : indexes) {
+                long bit = 1L << index;
+                if (((words[index >>> 6] | before.held[index >>> 6]) & bit) != 0) {
+                    return index;
+                }
+                words[index >>> 6] |= bit;
+            }
+            if (current.compareAndSet(before, new Snapshot(totalRows, columns, words, before.held, before.version + 1))) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Marks a single seat as free again.
+     *
+     * @param row       -   1-based row number.
+     * @param column    -   0-based column index.
+     * @return          -   true if the seat was occupied before the call.
+     */
+    public boolean release(int row, int column) {
+        return release(indexOf(row, column));
+    }
+
+    /**
+     * Marks a single seat as free again.
+     *
+     * @param index     -   bit index of the seat, see {@link #seatIndex(String)}.
+     * @return          -   true if the seat was occupied before the call.
+     */
+    public boolean release(int index) {
+        checkIndex(index);
+        while (true) {
+            Snapshot before = current.get();
+            if (!before.isSet(index)) {
+                return false;
+            }
+            long[] words = before.words.clone();
+            words[index >>> 6] &= ~(1L << index);
+            if (current.compareAndSet(before, new Snapshot(totalRows, columns, words, before.held, before.version + 1))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Holds all given seats in a single atomic step. Either every seat is held or, if any of them
+     * is already occupied or held, none of them are.
+     *
+     * @param indexes   -   bit indexes of the seats to hold, must not contain duplicates.
+     * @return          -   -1 if all seats are held now, otherwise the index of the first seat that was not available.
+     */
+    public int holdAll(int[] indexes) {
+        for (int index : indexes) {
+            checkIndex(index);
+        }
+        while (true) {
+            Snapshot before = current.get();
+            long[] held = before.held.clone();
+            for (int index : indexes) {
+                long bit = 1L << index;
+                if (((before.words[index >>> 6] | held[index >>> 6]) & bit) != 0) {
+                    return index;
+                }
+                held[index >>> 6] |= bit;
+            }
+            if (current.compareAndSet(before, new Snapshot(totalRows, columns, before.words, held, before.version + 1))) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Claims several groups of seats in a single atomic step. Every group is all-or-nothing on its
+     * own and checked against the seats claimed by the groups before it, so the first group wins
+     * if two of them overlap.
+     *
+     * @param groups    -   bit indexes of the seats per group, a group must not contain duplicates.
+     * @return          -   per group -1 if its seats were claimed, otherwise the index of its first seat that was not available.
+     */
+    public int[] occupyEach(int[][] groups) {
+        for (int[] indexes : groups) {
+            for (int index : indexes) {
+                checkIndex(index);
+            }
+        }
+        int[] outcomes = new int[groups.length];
+        while (true) {
+            Snapshot before = current.get();
+            long[] words = before.words.clone();
+            boolean changed = false;
+            for (int g = 0; g < groups.length; g++) {
+                outcomes[g] = firstUnavailable(words, before.held, groups[g]);
+                if (outcomes[g] < 0) {
+                    for (int index : groups[g]) {
+                        words[index >>> 6] |= 1L << index;
+                    }
+                    changed = true;
+                }
+            }
+            if (!changed || current.compareAndSet(before, new Snapshot(totalRows, columns, words, before.held, before.version + 1))) {
+                return outcomes;
+            }
+        }
+    }
+
+    /**
+     * Turns held seats into occupied ones in a single atomic step, nothing changes unless every
+     * seat is currently held.
+     *
+     * @param indexes   -   bit indexes of the held seats.
+     * @return          -   -1 if all seats are occupied now, otherwise the index of the first seat that was not held.
+     */
+    public int occupyHeld(int[] indexes) {
+        for (int index : indexes) {
+            checkIndex(index);
+        }
+        while (true) {
+            Snapshot before = current.get();
+            long[] words = before.words.clone();
+            long[] held = before.held.clone();
+            for (int index : indexes) {
+                long bit = 1L << index;
+                if ((held[index >>> 6] & bit) == 0) {
+                    return index;
+                }
+                held[index >>> 6] &= ~bit;
+                words[index >>> 6] |= bit;
+            }
+            if (current.compareAndSet(before, new Snapshot(totalRows, columns, words, held, before.version + 1))) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Drops the hold of the given seats, seats that are not held are ignored.
+     *
+     * @param indexes   -   bit indexes of the held seats.
+     * @return          -   number of seats that were held before the call.
+     */
+    public int releaseHolds(int[] indexes) {
+        for (int index : indexes) {
+            checkIndex(index);
+        }
+        while (true) {
+            Snapshot before = current.get();
+            long[] held = before.held.clone();
+            int released = 0;
+            for (int index : indexes) {
+                long bit = 1L << index;
+                if ((held[index >>> 6] & bit) != 0) {
+                    held[index >>> 6] &= ~bit;
+                    released++;
+                }
+            }
+            if (released == 0) {
+                return 0;
+            }
+            if (current.compareAndSet(before, new Snapshot(totalRows, columns, before.words, held, before.version + 1))) {
+                return released;
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole occupancy, used when restoring a persisted snapshot.
+     *
+     * @param bitmap    -   occupancy in the format of {@link Snapshot#toByteArray()}.
+     * @param version   -   version the inventory had when the bitmap was taken.
+     */
+    public void restore(byte[] bitmap, long version) {
+        if (bitmap.length != (capacity() + 7) >>> 3) {
+            throw new IllegalArgumentException("Bitmap of " + bitmap.length + " bytes doesn't match " + totalRows + "x" + columns);
+        }
+        long[] words = new long[wordsFor(capacity())];
+        for (int i = 0; i < bitmap.length; i++) {
+            words[i >>> 3] |= (bitmap[i] & 0xFFL) << ((i & 7) << 3);
+        }
+        // holds are never persisted, the ones taken since startup stay in place.
+        while (true) {
+            Snapshot before = current.get();
+            if (current.compareAndSet(before, new Snapshot(totalRows, columns, words, before.held, version))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Resolves a seat number like "12C" to its bit index.
+     *
+     * @param seatNr    -   seat number, row digits followed by a single column letter.
+     * @return          -   bit index of the seat, or -1 if the seat number is malformed or outside the layout.
+     */
+    public int seatIndex(String seatNr) {
+        return seatIndex(seatNr, totalRows, columns);
+    }
+
+    /**
+     * Resolves a seat number like "12C" to its bit index in a layout of the given size.
+     *
+     * @param seatNr    -   seat number, row digits followed by a single column letter.
+     * @param totalRows -   number of rows in the layout.
+     * @param columns   -   number of columns in the layout.
+     * @return          -   bit index of the seat, or -1 if the seat number is malformed or outside the layout.
+     */
+    public static int seatIndex(String seatNr, int totalRows, int columns) {
+        if (seatNr == null || seatNr.length() < 2) {
+            return -1;
+        }
+        int last = seatNr.length() - 1;
+        int column = Character.toUpperCase(seatNr.charAt(last)) - 'A';
+        if (column < 0 || column >= columns) {
+            return -1;
+        }
+        int row = 0;
+        for (int i = 0; i < last; i++) {
+            char c = seatNr.charAt(i);
+            if (c < '0' || c > '9' || row > totalRows) {
+                return -1;
+            }
+            row = row * 10 + (c - '0');
+        }
+        if (row < 1 || row > totalRows) {
+            return -1;
+        }
+        return (row - 1) * columns + column;
+    }
+
+    private int indexOf(int row, int column) {
+        if (row < 1 || row > totalRows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Seat " + row + "/" + column + " is outside of " + totalRows + "x" + columns);
+        }
+        return (row - 1) * columns + column;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= capacity()) {
+            throw new IndexOutOfBoundsException("Seat index " + index + " is outside of " + totalRows + "x" + columns);
+        }
+    }
+
+    private static int firstUnavailable(long[] words, long[] held, int[] indexes) {
+        for (int index : indexes) {
+            if (((words[index >>> 6] | held[index >>> 6]) & (1L << index)) != 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + Long.SIZE - 1) >>> 6;
+    }
+
+    /**
+     * Immutable point-in-time copy of a flight's occupancy.
+     */
+    public static final class Snapshot {
+        private final int totalRows;
+        private final int columns;
+        private final long[] words;
+        private final long[] held;
+        private final long version;
+
+        private Snapshot(int totalRows, int columns, long[] words, long[] held, long version) {
+            this.totalRows = totalRows;
+            this.columns = columns;
+            this.words = words;
+            this.held = held;
+            this.version = version;
+        }
+
+        public int getTotalRows() {
+            return totalRows;
+        }
+
+        public int getColumns() {
+            return columns;
+        }
+
+        /**
+         * @return  -   inventory version this snapshot was taken at, increases with every change.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @param other -   another snapshot of the same inventory.
+         * @return      -   true if both have the same seats occupied, whatever is held in either.
+         */
+        public boolean sameOccupancy(Snapshot other) {
+            // holds swap in a new held bitmap and keep the occupied one.
+            return words == other.words || Arrays.equals(words, other.words);
+        }
+
+        public boolean isOccupied(int row, int column) {
+            return isSet((row - 1) * columns + column);
+        }
+
+        public boolean isSet(int index) {
+            return (words[index >>> 6] & (1L << index)) != 0;
+        }
+
+        public boolean isHeld(int index) {
+            return (held[index >>> 6] & (1L << index)) != 0;
+        }
+
+        /**
+         * @return  -   true if the seat is neither occupied nor held.
+         */
+        public boolean isAvailable(int index) {
+            return ((words[index >>> 6] | held[index >>> 6]) & (1L << index)) == 0;
+        }
+
+        public int heldCount() {
+            int count = 0;
+            for (long word : held) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        public int occupiedCount() {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        public int freeSeatCount() {
+            return totalRows * columns - occupiedCount();
+        }
+
+        /**
+         * Encodes the bitmap as bytes, bit j of byte i is the seat with index {@code 8 * i + j}.
+         *
+         * @return  -   occupancy bitmap, {@code ceil(capacity / 8)} bytes long.
+         */
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[(totalRows * columns + 7) >>> 3];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (words[i >>> 3] >>> ((i & 7) << 3));
+            }
+            return bytes;
+        }
+
+        /**
+         * Same as {@link #toByteArray()}, but with held seats set as well. Meant for clients, which
+         * can't book a held seat either.
+         *
+         * @return  -   bitmap of occupied or held seats, {@code ceil(capacity / 8)} bytes long.
+         */
+        public byte[] unavailableToByteArray() {
+            byte[] bytes = new byte[(totalRows * columns + 7) >>> 3];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) ((words[i >>> 3] | held[i >>> 3]) >>> ((i & 7) << 3));
+            }
+            return bytes;
+        }
+
+        /**
+         * Extracts the occupancy of a single row, bit i set means column i is occupied.
+         *
+         * @param row   -   1-based row number.
+         * @return      -   row bitmask in the lowest {@code columns} bits.
+         */
+        public long rowMask(int row) {
+            return rowBits(words, row);
+        }
+
+        /**
+         * Same as {@link #rowMask(int)}, but with held seats set as well.
+         *
+         * @param row   -   1-based row number.
+         * @return      -   bitmask of the seats in the row that are occupied or held.
+         */
+        public long unavailableRowMask(int row) {
+            return rowBits(words, row) | rowBits(held, row);
+        }
+
+        private long rowBits(long[] bitmap, int row) {
+            int start = (row - 1) * columns;
+            int word = start >>> 6;
+            int offset = start & 63;
+            long bits = bitmap[word] >>> offset;
+            if (offset + columns > Long.SIZE) {
+                bits |= bitmap[word + 1] << (Long.SIZE - offset);
+            }
+            return columns == Long.SIZE ? bits : bits & ((1L << columns) - 1);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.rainervana.flight_planner_backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable seat layout template of an aircraft type.
+ * <p>
+ * Everything that doesn't depend on bookings is computed once when the template is built: seat
+ * numbers, the window column bitmask, per-row exit / extra legroom / first class flags, and two prebuilt
+ * {@link Seat} instances per seat (free and occupied). A seat map request only overlays the
+ * occupancy snapshot and picks one of the two, so the shared {@link Seat} instances must never be
+ * modified.
+ */
+public class SeatLayout {
+    private final String aircraftType;
+    private final int totalRows;
+    private final List<String> columns;
+    private final List<String> windowColumns;
+    private final List<Integer> firstClassRows;
+    private final List<Integer> exitRows;
+    private final List<Integer> extraLegroomRows;
+    private final long windowColumnMask;
+    private final boolean[] firstClassRowFlags;
+    private final boolean[] exitRowFlags;
+    private final boolean[] extraLegroomRowFlags;
+    private final String[][] seatNrs;
+    private final Seat[] freeSeats;
+    private final Seat[] occupiedSeats;
+
+    public SeatLayout(
+            String aircraftType,
+            int totalRows,
+            List<String> columns,
+            List<String> windowColumns,
+            List<Integer> firstClassRows,
+            List<Integer> exitRows,
+            List<Integer> extraLegroomRows
+    ) {
+        this.aircraftType = aircraftType;
+        this.totalRows = totalRows;
+        this.columns = List.copyOf(columns);
+        this.windowColumns = List.copyOf(windowColumns);
+        this.firstClassRows = List.copyOf(firstClassRows);
+        this.exitRows = List.copyOf(exitRows);
+        this.extraLegroomRows = List.copyOf(extraLegroomRows);
+        this.windowColumnMask = columnMask(columns, windowColumns);
+        this.firstClassRowFlags = rowFlags(totalRows, firstClassRows);
+        this.exitRowFlags = rowFlags(totalRows, exitRows);
+        this.extraLegroomRowFlags = rowFlags(totalRows, extraLegroomRows);
+
+        int columnCount = columns.size();
+        this.seatNrs = new String[totalRows + 1][columnCount];
+        this.freeSeats = new Seat[totalRows * columnCount];
+        this.occupiedSeats = new Seat[totalRows * columnCount];
+        for (int row = 1; row <= totalRows; row++) {
+            for (int col = 0; col < columnCount; col++) {
+                String seatNr = row + columns.get(col);
+                boolean isWindow = (windowColumnMask & (1L << col)) != 0;
+                int index = (row - 1) * columnCount + col;
+
+                seatNrs[row][col] = seatNr;
+                freeSeats[index] = new Seat(seatNr, row, columns.get(col), isWindow, extraLegroomRowFlags[row], exitRowFlags[row], false, firstClassRowFlags[row]);
+                occupiedSeats[index] = new Seat(seatNr, row, columns.get(col), isWindow, extraLegroomRowFlags[row], exitRowFlags[row], true, firstClassRowFlags[row]);
+            }
+        }
+    }
+
+    public String getAircraftType() {
+        return aircraftType;
+    }
+
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public int capacity() {
+        return totalRows * columns.size();
+    }
+
+    /**
+     * @return  -   bitmask of the window columns, bit i is column i.
+     */
+    public long getWindowColumnMask() {
+        return windowColumnMask;
+    }
+
+    public List<String> getWindowColumns() {
+        return windowColumns;
+    }
+
+    public List<Integer> getFirstClassRows() {
+        return firstClassRows;
+    }
+
+    public List<Integer> getExitRows() {
+        return exitRows;
+    }
+
+    public List<Integer> getExtraLegroomRows() {
+        return extraLegroomRows;
+    }
+
+    public boolean isFirstClassRow(int row) {
+        return firstClassRowFlags[row];
+    }
+
+    public boolean isExitRow(int row) {
+        return exitRowFlags[row];
+    }
+
+    public boolean isExtraLegroomRow(int row) {
+        return extraLegroomRowFlags[row];
+    }
+
+    public String seatNr(int row, int column) {
+        return seatNrs[row][column];
+    }
+
+    /**
+     * Resolves a seat number like "12C" to its index in this layout.
+     *
+     * @param seatNr    -   seat number.
+     * @return          -   seat index, or -1 if the seat doesn't exist on this aircraft.
+     */
+    public int seatIndex(String seatNr) {
+        return SeatInventory.seatIndex(seatNr, totalRows, columns.size());
+    }
+
+    /**
+     * @return  -   a new, empty inventory sized for this layout.
+     */
+    public SeatInventory newInventory() {
+        return new SeatInventory(totalRows, columns.size());
+    }
+
+    /**
+     * Builds the full seat list of the layout with the occupancy of the snapshot applied.
+     * Held seats are listed as occupied, they can't be selected until the hold ends.
+     *
+     * @param occupancy     -   occupancy snapshot of a flight using this layout.
+     * @return              -   all seats ordered by row and column.
+     */
+    public List<Seat> seats(SeatInventory.Snapshot occupancy) {
+        List<Seat> seats = new ArrayList<>(freeSeats.length);
+        for (int index = 0; index < freeSeats.length; index++) {
+            seats.add(occupancy.isAvailable(index) ? freeSeats[index] : occupiedSeats[index]);
+        }
+        return seats;
+    }
+
+    private static long columnMask(List<String> columns, List<String> selected) {
+        long mask = 0L;
+        for (String column : selected) {
+            mask |= 1L << columns.indexOf(column);
+        }
+        return mask;
+    }
+
+    private static boolean[] rowFlags(int totalRows, List<Integer> rows) {
+        boolean[] flags = new boolean[totalRows + 1];
+        for (int row : rows) {
+            flags[row] = true;
+        }
+        return flags;
+    }
+
+    @Override
+    public String toString() {
+        return "SeatLayout{" + aircraftType + ", " + totalRows + "x" + columns.size() + "}";
+    }
+}
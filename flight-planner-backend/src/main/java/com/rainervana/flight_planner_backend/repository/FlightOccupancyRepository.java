@@ -0,0 +1,7 @@
+package com.rainervana.flight_planner_backend.repository;
+
+import com.rainervana.flight_planner_backend.model.FlightOccupancy;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FlightOccupancyRepository extends JpaRepository<FlightOccupancy, Long> {
+}
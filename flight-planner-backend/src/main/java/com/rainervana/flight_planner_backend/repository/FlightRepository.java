@@ -0,0 +1,7 @@
+package com.rainervana.flight_planner_backend.repository;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FlightRepository extends JpaRepository<Flight, Long> {
+}
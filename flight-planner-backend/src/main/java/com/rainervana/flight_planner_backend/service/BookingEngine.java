@@ -0,0 +1,477 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Applies seat changes through a single writer per flight.
+ * <p>
+ * Every flight is mapped to one of N shards by its id. A shard is a bounded queue drained by one
+ * writer thread, so changes of a flight are applied in submission order and never race each other
+ * on the inventory. The writer takes up to {@code maxBatchSize} queued changes at once, applies and
+ * journals all of them, waits for the journal a single time and then completes the callers' futures.
+ * Callers just block on the future, which is cheap when requests run on virtual threads.
+ * <p>
+ * Seat holds are applied by the writers too, though they are never journaled. A change lost in a
+ * failed journal flush is undone, and a hold applied in between could otherwise have taken a seat
+ * the undo has to occupy again. Dropping a hold needs no writer: only whoever owns the hold clears
+ * its seats, and a cleared hold never stands in the way of an undo.
+ */
+@Service
+public class BookingEngine {
+    private static final Logger log = LoggerFactory.getLogger(BookingEngine.class);
+
+    private final BookingJournal bookingJournal;
+    private final FlightPlannerMetrics metrics;
+    private final int shardCount;
+    private final int maxBatchSize;
+    private final int queueCapacity;
+    private Shard[] shards;
+
+    /**
+     * @param bookingJournal    -   journal every applied change is written to.
+     * @param metrics           -   metrics for batch sizes and queue depth.
+     * @param shardCount        -   number of shards, 0 for one per available processor.
+     * @param maxBatchSize      -   maximum number of changes a writer applies per journal wait.
+     * @param queueCapacity     -   maximum number of waiting changes per shard.
+     */
+    public BookingEngine(
+            BookingJournal bookingJournal,
+            FlightPlannerMetrics metrics,
+            @Value("${flight-planner.booking.shards:0}") int shardCount,
+            @Value("${flight-planner.booking.max-batch-size:256}") int maxBatchSize,
+            @Value("${flight-planner.booking.queue-capacity:10000}") int queueCapacity
+    ) {
+        this.bookingJournal = bookingJournal;
+        this.metrics = metrics;
+        this.shardCount = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.maxBatchSize = maxBatchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @PostConstruct
+    public void start() {
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            shards[i].writer.start();
+        }
+        metrics.registerBookingQueueDepth(() -> {
+            int depth = 0;
+            for (Shard shard : shards) {
+                depth += shard.queue.size();
+            }
+            return depth;
+        });
+        log.info("Booking engine started with {} shards", shardCount);
+    }
+
+    /**
+     * Stops accepting changes, lets every writer finish its queue and waits for them. Changes
+     * queued after their writer exited are rejected, so no caller waits forever.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // no interrupt, a writer could be waiting for the journal. idle writers notice within one poll.
+        for (Shard shard : shards) {
+            shard.running = false;
+        }
+        for (Shard shard : shards) {
+            shard.writer.join();
+            List<Change<?>> left = new ArrayList<>();
+            shard.queue.drainTo(left);
+            for (Change<?> change : left) {
+                shard.reject(change);
+            }
+        }
+    }
+
+    /**
+     * Claims all seats at once on the flight's shard.
+     *
+     * @param flight        -   flight with a loaded seat inventory.
+     * @param seatIndexes   -   seats to claim, without duplicates.
+     * @return              -   completes with -1 once the seats are claimed and journaled, with the index
+     *                          of the first already occupied seat if nothing was claimed, or exceptionally if
+     *                          the change could not be journaled or the shard is overloaded.
+     */
+    public CompletableFuture<Integer> occupy(Flight flight, int[] seatIndexes) {
+        return submit(new SeatChange(flight, seatIndexes, true, false));
+    }
+
+    /**
+     * Turns held seats into occupied ones on the flight's shard. If the change can't be journaled
+     * the seats end up free, not held.
+     *
+     * @param flight        -   flight with a loaded seat inventory.
+     * @param seatIndexes   -   held seats to claim.
+     * @return              -   completes like {@link #occupy}, with the index of the first seat that was not held on conflict.
+     */
+    public CompletableFuture<Integer> occupyHeld(Flight flight, int[] seatIndexes) {
+        return submit(new SeatChange(flight, seatIndexes, true, true));
+    }
+
+    /**
+     * Holds all seats at once on the flight's shard, nothing is journaled.
+     *
+     * @param flight        -   flight with a loaded seat inventory.
+     * @param seatIndexes   -   seats to hold, without duplicates.
+     * @return              -   completes with -1 once the seats are held, with the index of the first seat that
+     *                          was not available if nothing was held, or exceptionally if the shard is overloaded or
+     *                          the hold was undone with its batch.
+     */
+    public CompletableFuture<Integer> hold(Flight flight, int[] seatIndexes) {
+        return submit(new HoldChange(flight, seatIndexes));
+    }
+
+    /**
+     * Claims several groups of seats of one flight with a single queued change, every group on its
+     * own all-or-nothing. Earlier groups win if groups overlap.
+     *
+     * @param flight        -   flight with a loaded seat inventory.
+     * @param seatGroups    -   seats to claim per group, without duplicates within a group.
+     * @return              -   completes with -1 or the first unavailable seat per group once the
+     *                          claimed groups are journaled, or exceptionally like {@link #occupy}.
+     */
+    public CompletableFuture<int[]> occupyEach(Flight flight, int[][] seatGroups) {
+        return submit(new GroupChange(flight, seatGroups));
+    }
+
+    /**
+     * Frees the seats on the flight's shard.
+     *
+     * @param flight        -   flight with a loaded seat inventory.
+     * @param seatIndexes   -   seats to free.
+     * @return              -   completes with the number of seats that were occupied and are free now.
+     */
+    public CompletableFuture<Integer> release(Flight flight, int[] seatIndexes) {
+        return submit(new SeatChange(flight, seatIndexes, false, false));
+    }
+
+    private <T> CompletableFuture<T> submit(Change<T> change) {
+        Shard shard = shards[shardOf(change.flight.getId())];
+        if (!shard.running || !shard.queue.offer(change)) {
+            shard.reject(change);
+        } else if (!shard.running && shard.queue.remove(change)) {
+            // stopped while queueing, the writer may have exited already. if the change is gone, the
+            // writer or stop() took it and completes it.
+            shard.reject(change);
+        }
+        return change.result;
+    }
+
+    private int shardOf(long flightId) {
+        // fibonacci hashing, consecutive ids end up on different shards.
+        long hash = flightId * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 32) % shardCount);
+    }
+
+    private final class Shard {
+        private final int index;
+        private final BlockingQueue<Change<?>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Thread writer;
+        private volatile boolean running = true;
+
+        Shard(int index) {
+            this.index = index;
+            this.writer = new Thread(this::run, "booking-shard-" + index);
+            this.writer.setDaemon(true);
+        }
+
+        void reject(Change<?> change) {
+            change.result.completeExceptionally(new RejectedExecutionException("Booking shard " + index + " is not accepting changes"));
+        }
+
+        private void run() {
+            List<Change<?>> batch = new ArrayList<>(maxBatchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Change<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                queue.drainTo(batch, maxBatchSize - 1);
+                try {
+                    apply(batch);
+                } catch (RuntimeException e) {
+                    log.error("Booking shard {} failed to apply a batch", index, e);
+                    for (Change<?> change : batch) {
+                        change.result.completeExceptionally(e);
+                    }
+                }
+                batch.clear();
+            }
+        }
+
+        private void apply(List<Change<?>> batch) {
+            metrics.recordBookingBatch(batch.size());
+
+            long lastSequence = 0L;
+            for (Change<?> change : batch) {
+                change.apply(bookingJournal);
+                lastSequence = Math.max(lastSequence, change.sequence);
+            }
+
+            // one wait for the whole batch, the journal flushes it with a single sync.
+            if (lastSequence > 0) {
+                try {
+                    bookingJournal.awaitDurable(lastSequence);
+                } catch (RuntimeException e) {
+                    // a failed flush discards the records that weren't durable yet, the changes from the
+                    // first of them on are undone in reverse. the ones forced before are kept, replay
+                    // restores them too.
+                    int firstLost = 0;
+                    while (firstLost < batch.size() && (batch.get(firstLost).sequence == 0 || isDurable(batch.get(firstLost).sequence))) {
+                        firstLost++;
+                    }
+                    for (int i = batch.size() - 1; i >= firstLost; i--) {
+                        Change<?> change = batch.get(i);
+                        if (change.isUndoneWithBatch()) {
+                            change.undo();
+                            change.failure = e;
+                        }
+                    }
+                }
+            }
+
+            for (Change<?> change : batch) {
+                change.complete();
+            }
+        }
+    }
+
+    /**
+     * @return  -   whether the record is durable, after a failed flush the journal answers without waiting.
+     */
+    private boolean isDurable(long sequence) {
+        try {
+            bookingJournal.awaitDurable(sequence);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * One queued change of a flight's inventory, only touched by its shard's writer after it was queued.
+     *
+     * @param <T>   -   result type.
+     */
+    private abstract static class Change<T> {
+        final Flight flight;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        // sequence of the journal record, 0 if nothing was journaled.
+        long sequence;
+        RuntimeException failure;
+
+        Change(Flight flight) {
+            this.flight = flight;
+        }
+
+        /**
+         * Applies the change to the inventory and appends its journal record, undoing it again if
+         * the record can't be written.
+         */
+        abstract void apply(BookingJournal journal);
+
+        /**
+         * Reverts everything {@link #apply} changed in the inventory.
+         */
+        abstract void undo();
+
+        /**
+         * @return  -   whether the change is undone when an earlier change of its batch is lost.
+         */
+        boolean isUndoneWithBatch() {
+            return sequence > 0;
+        }
+
+        abstract T outcome();
+
+        void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(outcome());
+            }
+        }
+    }
+
+    /**
+     * A single occupy or release.
+     */
+    private static final class SeatChange extends Change<Integer> {
+        private final int[] seatIndexes;
+        private final boolean occupy;
+        private final boolean fromHold;
+        // seats actually changed, journaled and undone on failure.
+        private int[] changed = new int[0];
+        private int outcome;
+
+        SeatChange(Flight flight, int[] seatIndexes, boolean occupy, boolean fromHold) {
+            super(flight);
+            this.seatIndexes = seatIndexes;
+            this.occupy = occupy;
+            this.fromHold = fromHold;
+        }
+
+        @Override
+        void apply(BookingJournal journal) {
+            SeatInventory inventory = flight.getSeatInventory();
+            if (occupy) {
+                outcome = fromHold ? inventory.occupyHeld(seatIndexes) : inventory.occupyAll(seatIndexes);
+                if (outcome >= 0) {
+                    return;
+                }
+                changed = seatIndexes;
+            } else {
+                int[] released = new int[seatIndexes.length];
+                int count = 0;
+                for (int seatIndex : seatIndexes) {
+                    if (inventory.release(seatIndex)) {
+                        released[count++] = seatIndex;
+                    }
+                }
+                outcome = count;
+                if (count == 0) {
+                    return;
+                }
+                changed = count == released.length ? released : Arrays.copyOf(released, count);
+            }
+
+            try {
+                sequence = occupy ? journal.appendOccupied(flight.getId(), changed) : journal.appendReleased(flight.getId(), changed);
+            } catch (RuntimeException e) {
+                undo();
+                failure = e;
+            }
+        }
+
+        @Override
+        void undo() {
+            SeatInventory inventory = flight.getSeatInventory();
+            for (int seatIndex : changed) {
+                if (occupy) {
+                    inventory.release(seatIndex);
+                } else {
+                    inventory.occupy(seatIndex);
+                }
+            }
+            changed = new int[0];
+        }
+
+        @Override
+        Integer outcome() {
+            return outcome;
+        }
+    }
+
+    /**
+     * A seat hold. It isn't journaled, but it is undone with its batch: the seats may only have been
+     * free because of a change that is undone.
+     */
+    private static final class HoldChange extends Change<Integer> {
+        private final int[] seatIndexes;
+        private int outcome;
+
+        HoldChange(Flight flight, int[] seatIndexes) {
+            super(flight);
+            this.seatIndexes = seatIndexes;
+        }
+
+        @Override
+        void apply(BookingJournal journal) {
+            outcome = flight.getSeatInventory().holdAll(seatIndexes);
+        }
+
+        @Override
+        void undo() {
+            flight.getSeatInventory().releaseHolds(seatIndexes);
+        }
+
+        @Override
+        boolean isUndoneWithBatch() {
+            return outcome < 0;
+        }
+
+        @Override
+        Integer outcome() {
+            return outcome;
+        }
+    }
+
+    /**
+     * Several groups claimed in one inventory swap and journaled as a single record.
+     */
+    private static final class GroupChange extends Change<int[]> {
+        private final int[][] seatGroups;
+        private int[] changed = new int[0];
+        private int[] outcomes;
+
+        GroupChange(Flight flight, int[][] seatGroups) {
+            super(flight);
+            this.seatGroups = seatGroups;
+        }
+
+        @Override
+        void apply(BookingJournal journal) {
+            outcomes = flight.getSeatInventory().occupyEach(seatGroups);
+
+            int count = 0;
+            for (int g = 0; g < seatGroups.length; g++) {
+                if (outcomes[g] < 0) {
+                    count += seatGroups[g].length;
+                }
+            }
+            if (count == 0) {
+                return;
+            }
+            changed = new int[count];
+            int offset = 0;
+            for (int g = 0; g < seatGroups.length; g++) {
+                if (outcomes[g] < 0) {
+                    System.arraycopy(seatGroups[g], 0, changed, offset, seatGroups[g].length);
+                    offset += seatGroups[g].length;
+                }
+            }
+
+            try {
+                sequence = journal.appendOccupied(flight.getId(), changed);
+            } catch (RuntimeException e) {
+                undo();
+                failure = e;
+            }
+        }
+
+        @Override
+        void undo() {
+            SeatInventory inventory = flight.getSeatInventory();
+            for (int seatIndex : changed) {
+                inventory.release(seatIndex);
+            }
+            changed = new int[0];
+        }
+
+        @Override
+        int[] outcome() {
+            return outcomes;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.rainervana.flight_planner_backend.service;
+
+/**
+ * Durable log of seat inventory changes.
+ * <p>
+ * The append methods only write the record and return its sequence, {@link #awaitDurable(long)}
+ * waits until every record up to a sequence is persisted, so a caller applying several changes
+ * waits once for all of them. All methods throw {@link java.io.UncheckedIOException} if the
+ * journal can't be written.
+ */
+public interface BookingJournal {
+    long appendOccupied(long flightId, int[] seatIndexes);
+
+    long appendReleased(long flightId, int[] seatIndexes);
+
+    void awaitDurable(long sequence);
+
+    /**
+     * Reserves a block of booking ids and waits until the reservation is durable. Reserved ids are
+     * never handed out again, not even after a restart.
+     *
+     * @param count -   number of ids to reserve.
+     * @return      -   first id of the block.
+     */
+    long reserveBookingIds(int count);
+
+    default void recordOccupied(long flightId, int[] seatIndexes) {
+        awaitDurable(appendOccupied(flightId, seatIndexes));
+    }
+
+    default void recordReleased(long flightId, int[] seatIndexes) {
+        awaitDurable(appendReleased(flightId, seatIndexes));
+    }
+}
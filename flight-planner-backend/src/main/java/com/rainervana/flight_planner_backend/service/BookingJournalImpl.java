@@ -0,0 +1,738 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Append-only booking journal on memory-mapped segment files, with periodic snapshots.
+ * <p>
+ * Appending a record is a copy into the mapped segment under a short lock. A single flusher thread
+ * forces the segment to disk and wakes up every writer whose record is covered, so concurrent bookings
+ * share one {@code msync} (group commit). A snapshot rolls the journal to a new segment and compacts
+ * the previous snapshot and the segments before the roll into the seats every flight had occupied and
+ * released since the catalog was created, then deletes the files it covers. It is built from forced
+ * files only, never from the inventories, which may hold changes whose records aren't durable yet.
+ * On startup the latest valid snapshot is applied and the journal tail after it is replayed; replay
+ * stops at the first torn or corrupt record of a segment.
+ * <p>
+ * If a flush fails, the records that weren't forced yet are zeroed in the mapped segment before their
+ * writers are failed and undo their changes, so the pages the OS still writes back can't bring them
+ * back on the next start. The journal then rejects every further record until the node is restarted,
+ * a failed {@code msync} can't be retried reliably.
+ */
+@Service
+public class BookingJournalImpl implements BookingJournal {
+    private static final Logger log = LoggerFactory.getLogger(BookingJournalImpl.class);
+
+    private static final byte OCCUPIED = 1;
+    private static final byte RELEASED = 2;
+    // reserves booking ids, the flight id field holds the first id that isn't reserved yet.
+    private static final byte BOOKING_IDS = 3;
+    // record: length, crc32c of the body, body = sequence, flight id, type, seat count, seat indexes.
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int RECORD_BODY_SIZE = 2 * Long.BYTES + 1 + Short.BYTES;
+    private static final int SNAPSHOT_MAGIC = 0x464C5053;
+    private static final int SNAPSHOT_FORMAT = 2;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final FlightService flightService;
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean syncCommit;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private Segment segment;
+    private long nextSequence = 1;
+    // guarded by the append lock, set once by the first failed flush.
+    private IOException failure;
+    private boolean closed;
+
+    private final Object flushMonitor = new Object();
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException flushFailure;
+    private boolean stopped;
+    private volatile boolean running;
+    private Thread flusher;
+
+    private long snapshotSequence = 1;
+    private final AtomicLong nextBookingId = new AtomicLong(1);
+
+    /**
+     * @param flightService -   catalog the journal restores into and snapshots from.
+     * @param directory     -   directory of the segment and snapshot files.
+     * @param segmentSize   -   size of one memory-mapped segment in bytes.
+     * @param syncCommit    -   whether writers wait until their record is forced to disk.
+     */
+    public BookingJournalImpl(
+            FlightService flightService,
+            @Value("${flight-planner.journal.dir:data/journal}") Path directory,
+            @Value("${flight-planner.journal.segment-size:67108864}") int segmentSize,
+            @Value("${flight-planner.journal.sync-commit:true}") boolean syncCommit
+    ) {
+        this.flightService = flightService;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncCommit = syncCommit;
+    }
+
+    /**
+     * Restores the latest snapshot, replays the journal tail into the flight catalog and starts
+     * a fresh segment for new records.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        long firstSequence = recover();
+
+        appendLock.lock();
+        try {
+            nextSequence = firstSequence;
+            segment = Segment.create(directory, firstSequence, segmentSize);
+        } finally {
+            appendLock.unlock();
+        }
+        synchronized (flushMonitor) {
+            appendedSequence = firstSequence - 1;
+            durableSequence = firstSequence - 1;
+        }
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "booking-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public long appendOccupied(long flightId, int[] seatIndexes) {
+        return append(OCCUPIED, flightId, seatIndexes);
+    }
+
+    @Override
+    public long appendReleased(long flightId, int[] seatIndexes) {
+        return append(RELEASED, flightId, seatIndexes);
+    }
+
+    /**
+     * Reserves a block of booking ids with a record holding the end of the block, recovery continues
+     * after the highest reserved end.
+     */
+    @Override
+    public long reserveBookingIds(int count) {
+        long first = nextBookingId.getAndAdd(count);
+        awaitDurable(append(BOOKING_IDS, first + count, new int[0]));
+        return first;
+    }
+
+    /**
+     * Writes a snapshot of every flight's occupancy and drops the journal segments it covers.
+     * Skipped if nothing was journaled since the last snapshot.
+     */
+    @Scheduled(
+            initialDelayString = "${flight-planner.journal.snapshot-interval-ms:300000}",
+            fixedDelayString = "${flight-planner.journal.snapshot-interval-ms:300000}"
+    )
+    public synchronized void snapshot() {
+        long cutSequence;
+        appendLock.lock();
+        try {
+            if (segment == null || closed || failure != null || nextSequence == snapshotSequence) {
+                return;
+            }
+            // rolling forces every record before the cut to disk.
+            cutSequence = nextSequence;
+            roll();
+        } catch (UncheckedIOException e) {
+            log.error("Rolling the booking journal for a snapshot failed", e);
+            return;
+        } finally {
+            appendLock.unlock();
+        }
+
+        try {
+            long start = System.nanoTime();
+            int flights = writeSnapshot(compact(cutSequence));
+            snapshotSequence = cutSequence;
+            deleteCoveredFiles(cutSequence);
+            log.info("Wrote snapshot of {} flights at journal sequence {} in {} ms", flights, cutSequence, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Writing journal snapshot at sequence {} failed, keeping the journal", cutSequence, e);
+        }
+    }
+
+    /**
+     * Writes a final snapshot and stops the flusher. Records appended afterwards are rejected, the
+     * ones appended before are flushed, so their writers learn whether they are durable.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        snapshot();
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        synchronized (flushMonitor) {
+            running = false;
+            flushMonitor.notifyAll();
+        }
+        if (flusher != null) {
+            flusher.join();
+        }
+        if (segment != null) {
+            flush();
+        }
+        synchronized (flushMonitor) {
+            stopped = true;
+            flushMonitor.notifyAll();
+        }
+    }
+
+    private long append(byte type, long flightId, int[] seatIndexes) {
+        int bodySize = RECORD_BODY_SIZE + seatIndexes.length * Integer.BYTES;
+        ByteBuffer body = ByteBuffer.allocate(bodySize);
+        CRC32C crc = new CRC32C();
+        long sequence;
+
+        appendLock.lock();
+        try {
+            if (closed || segment == null) {
+                throw new IllegalStateException("Booking journal is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Booking journal failed, restart to recover", failure);
+            }
+            if (segment.remaining() < RECORD_HEADER_SIZE + bodySize) {
+                roll();
+            }
+            sequence = nextSequence++;
+            body.putLong(sequence).putLong(flightId).put(type).putShort((short) seatIndexes.length);
+            for (int seatIndex : seatIndexes) {
+                body.putInt(seatIndex);
+            }
+            crc.update(body.array(), 0, bodySize);
+            segment.write(body.array(), (int) crc.getValue());
+        } finally {
+            appendLock.unlock();
+        }
+
+        // hand the record to the flusher.
+        synchronized (flushMonitor) {
+            if (sequence > appendedSequence) {
+                appendedSequence = sequence;
+            }
+            flushMonitor.notifyAll();
+        }
+        return sequence;
+    }
+
+    /**
+     * With sync commit, waits until the flusher has forced every record up to the sequence to disk.
+     * Fails if the record was discarded by a failed flush, the writer then has to undo its change.
+     */
+    @Override
+    public void awaitDurable(long sequence) {
+        if (!syncCommit) {
+            return;
+        }
+        synchronized (flushMonitor) {
+            try {
+                while (durableSequence < sequence) {
+                    if (flushFailure != null) {
+                        throw new UncheckedIOException("Booking journal could not be flushed", flushFailure);
+                    }
+                    if (stopped) {
+                        throw new IllegalStateException("Booking journal is closed");
+                    }
+                    flushMonitor.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the booking journal"));
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (flushMonitor) {
+                try {
+                    while (running && flushFailure == null && appendedSequence <= durableSequence) {
+                        flushMonitor.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (flushFailure != null || appendedSequence <= durableSequence) {
+                    return;
+                }
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Forces everything written so far, or discards what isn't durable if that fails.
+     */
+    private void flush() {
+        // records up to the sequence are in this segment before the position, or in older ones, which were forced when rolled.
+        Segment current;
+        int position;
+        long sequence;
+        appendLock.lock();
+        try {
+            if (failure != null) {
+                return;
+            }
+            current = segment;
+            position = current.position;
+            sequence = nextSequence - 1;
+        } finally {
+            appendLock.unlock();
+        }
+
+        try {
+            force(current.buffer);
+        } catch (UncheckedIOException e) {
+            log.error("Flushing booking journal segment {} failed", current.path, e);
+            fail(e.getCause());
+            return;
+        }
+
+        // under the lock, a failure discards either all of these records or none of them.
+        appendLock.lock();
+        try {
+            if (failure == null) {
+                current.durablePosition = Math.max(current.durablePosition, position);
+                markDurable(sequence);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void markDurable(long sequence) {
+        synchronized (flushMonitor) {
+            if (sequence > durableSequence) {
+                durableSequence = sequence;
+            }
+            flushMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Zeroes the records of the current segment that aren't durable, so neither replay nor a snapshot
+     * ever sees them, and fails their writers and every later append.
+     */
+    private void fail(IOException cause) {
+        appendLock.lock();
+        try {
+            if (failure == null) {
+                failure = cause;
+                int discarded = segment.discardUndurable();
+                log.error("Booking journal failed, discarded {} bytes of records that weren't flushed and rejecting new records until restart", discarded);
+                try {
+                    force(segment.buffer);
+                } catch (UncheckedIOException e) {
+                    // the zeroed pages are still written back by the OS.
+                    log.warn("Forcing the discarded journal tail failed", e);
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        synchronized (flushMonitor) {
+            if (flushFailure == null) {
+                flushFailure = cause;
+            }
+            flushMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Forces a segment to disk. Package-private so tests can simulate a failing disk.
+     */
+    void force(MappedByteBuffer buffer) {
+        buffer.force();
+    }
+
+    /**
+     * Forces the current segment and starts a new one at the next sequence. Caller holds the append lock.
+     */
+    private void roll() {
+        try {
+            force(segment.buffer);
+        } catch (UncheckedIOException e) {
+            fail(e.getCause());
+            throw e;
+        }
+        segment.durablePosition = segment.position;
+        markDurable(nextSequence - 1);
+        try {
+            segment = Segment.create(directory, nextSequence, segmentSize);
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException("Could not start a new booking journal segment", e);
+        }
+    }
+
+    /**
+     * @return  -   sequence of the next record to write.
+     */
+    private long recover() throws IOException {
+        long start = System.nanoTime();
+        SnapshotState snapshot = readLatestSnapshot();
+        restore(snapshot);
+        long restoredUpTo = snapshot.cutSequence;
+        long next = restoredUpTo;
+        long bookingIds = snapshot.nextBookingId;
+        int replayed = 0;
+
+        for (Path path : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            for (Record record : readSegment(path)) {
+                if (record.sequence >= restoredUpTo) {
+                    if (record.type == BOOKING_IDS) {
+                        bookingIds = Math.max(bookingIds, record.flightId);
+                    } else {
+                        apply(record);
+                    }
+                    replayed++;
+                }
+                next = Math.max(next, record.sequence + 1);
+            }
+        }
+
+        snapshotSequence = restoredUpTo;
+        nextBookingId.set(bookingIds);
+        log.info("Recovered bookings from snapshot at sequence {} and {} journal records in {} ms", restoredUpTo, replayed, (System.nanoTime() - start) / 1_000_000);
+        return next;
+    }
+
+    private static List<Record> readSegment(Path path) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Record record;
+            while ((record = Record.read(buffer)) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private void apply(Record record) {
+        Optional<Flight> flight = flightService.findFlightById(record.flightId);
+        if (flight.isEmpty()) {
+            log.warn("Skipping journal record {} for unknown flight {}", record.sequence, record.flightId);
+            return;
+        }
+        SeatInventory inventory = flight.get().getSeatInventory();
+        for (int seatIndex : record.seatIndexes) {
+            if (seatIndex < 0 || seatIndex >= inventory.capacity()) {
+                log.warn("Skipping seat {} of journal record {}, flight {} has no such seat", seatIndex, record.sequence, record.flightId);
+            } else if (record.type == OCCUPIED) {
+                inventory.occupy(seatIndex);
+            } else {
+                inventory.release(seatIndex);
+            }
+        }
+    }
+
+    /**
+     * @return  -   the latest readable snapshot, an empty one at sequence 1 if there is none.
+     */
+    private SnapshotState readLatestSnapshot() throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        Collections.reverse(snapshots);
+        for (Path path : snapshots) {
+            try {
+                return readSnapshot(path);
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable snapshot {}", path, e);
+            }
+        }
+        return new SnapshotState(1, 1);
+    }
+
+    private static SnapshotState readSnapshot(Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(path)), crc))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+                throw new IOException("Not a snapshot file");
+            }
+            SnapshotState snapshot = new SnapshotState(in.readLong(), in.readLong());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long flightId = in.readLong();
+                byte[] occupied = new byte[in.readInt()];
+                in.readFully(occupied);
+                byte[] released = new byte[in.readInt()];
+                in.readFully(released);
+                snapshot.seats.put(flightId, new SeatChanges(BitSet.valueOf(occupied), BitSet.valueOf(released)));
+            }
+            long checksum = crc.getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Applies a snapshot to the catalog's inventories, only called once the whole file is known to be intact.
+     */
+    private void restore(SnapshotState snapshot) {
+        int skipped = 0;
+        for (Map.Entry<Long, SeatChanges> entry : snapshot.seats.entrySet()) {
+            SeatInventory inventory = flightService.findFlightById(entry.getKey()).map(Flight::getSeatInventory).orElse(null);
+            if (inventory == null) {
+                skipped++;
+                continue;
+            }
+            SeatChanges changes = entry.getValue();
+            for (int seatIndex = changes.occupied.nextSetBit(0); seatIndex >= 0 && seatIndex < inventory.capacity(); seatIndex = changes.occupied.nextSetBit(seatIndex + 1)) {
+                inventory.occupy(seatIndex);
+            }
+            for (int seatIndex = changes.released.nextSetBit(0); seatIndex >= 0 && seatIndex < inventory.capacity(); seatIndex = changes.released.nextSetBit(seatIndex + 1)) {
+                inventory.release(seatIndex);
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} flights of snapshot at sequence {} that are missing from the catalog", skipped, snapshot.cutSequence);
+        }
+    }
+
+    /**
+     * Folds the records before the cut into the latest snapshot. Only reads files, every record before
+     * the cut was forced by the roll.
+     */
+    private SnapshotState compact(long cutSequence) throws IOException {
+        SnapshotState base = readLatestSnapshot();
+        SnapshotState snapshot = new SnapshotState(cutSequence, base.nextBookingId);
+        snapshot.seats.putAll(base.seats);
+
+        for (Path path : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (sequenceOf(path, SEGMENT_PREFIX, SEGMENT_SUFFIX) >= cutSequence) {
+                continue;
+            }
+            for (Record record : readSegment(path)) {
+                if (record.sequence < base.cutSequence || record.sequence >= cutSequence) {
+                    continue;
+                }
+                if (record.type == BOOKING_IDS) {
+                    snapshot.nextBookingId = Math.max(snapshot.nextBookingId, record.flightId);
+                    continue;
+                }
+                SeatChanges changes = snapshot.seats.computeIfAbsent(record.flightId, flightId -> new SeatChanges(new BitSet(), new BitSet()));
+                for (int seatIndex : record.seatIndexes) {
+                    // the latest record of a seat wins, like on replay.
+                    changes.occupied.set(seatIndex, record.type == OCCUPIED);
+                    changes.released.set(seatIndex, record.type == RELEASED);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private int writeSnapshot(SnapshotState snapshot) throws IOException {
+        Path target = directory.resolve(fileName(SNAPSHOT_PREFIX, snapshot.cutSequence, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+
+        try (FileChannel channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), crc));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeLong(snapshot.cutSequence);
+            out.writeLong(snapshot.nextBookingId);
+            out.writeInt(snapshot.seats.size());
+            for (Map.Entry<Long, SeatChanges> entry : snapshot.seats.entrySet()) {
+                byte[] occupied = entry.getValue().occupied.toByteArray();
+                byte[] released = entry.getValue().released.toByteArray();
+                out.writeLong(entry.getKey());
+                out.writeInt(occupied.length);
+                out.write(occupied);
+                out.writeInt(released.length);
+                out.write(released);
+            }
+            out.writeLong(crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return snapshot.seats.size();
+    }
+
+    private void deleteCoveredFiles(long cutSequence) throws IOException {
+        for (Path path : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (sequenceOf(path, SEGMENT_PREFIX, SEGMENT_SUFFIX) < cutSequence) {
+                Files.deleteIfExists(path);
+            }
+        }
+        for (Path path : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (sequenceOf(path, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < cutSequence) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * @return  -   files with the prefix and suffix, ordered by the sequence in their name.
+     */
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted(Comparator.comparingLong(path -> sequenceOf(path, prefix, suffix)))
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path path, String prefix, String suffix) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static String fileName(String prefix, long sequence, String suffix) {
+        return String.format("%s%020d%s", prefix, sequence, suffix);
+    }
+
+    /**
+     * One memory-mapped journal file, named after the sequence of its first record.
+     * The unwritten rest of the file is zero, a zero length ends the segment.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int position;
+        // end of the records known to be forced to disk.
+        private int durablePosition;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path directory, long firstSequence, int size) throws IOException {
+            Path path = directory.resolve(fileName(SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+            try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+                return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        int remaining() {
+            return buffer.capacity() - position;
+        }
+
+        void write(byte[] body, int crc) {
+            if (remaining() < RECORD_HEADER_SIZE + body.length) {
+                throw new IllegalArgumentException("Journal record of " + body.length + " bytes doesn't fit into a segment");
+            }
+            // the length goes in last, a reader never sees a length without its body.
+            buffer.put(position + RECORD_HEADER_SIZE, body);
+            buffer.putInt(position + Integer.BYTES, crc);
+            buffer.putInt(position, body.length);
+            position += RECORD_HEADER_SIZE + body.length;
+        }
+
+        /**
+         * Zeroes the records after the durable position, a zero length ends the segment for readers.
+         *
+         * @return  -   number of bytes discarded.
+         */
+        int discardUndurable() {
+            int discarded = position - durablePosition;
+            buffer.put(durablePosition, new byte[discarded]);
+            position = durablePosition;
+            return discarded;
+        }
+    }
+
+    /**
+     * Seats of a flight whose latest journal record occupied or released them, every other seat is
+     * as the catalog created it.
+     */
+    private record SeatChanges(BitSet occupied, BitSet released) {
+    }
+
+    /**
+     * Contents of a snapshot file, everything journaled before the cut sequence.
+     */
+    private static final class SnapshotState {
+        private final long cutSequence;
+        private long nextBookingId;
+        private final Map<Long, SeatChanges> seats = new HashMap<>();
+
+        SnapshotState(long cutSequence, long nextBookingId) {
+            this.cutSequence = cutSequence;
+            this.nextBookingId = nextBookingId;
+        }
+    }
+
+    private record Record(long sequence, long flightId, byte type, int[] seatIndexes) {
+
+        /**
+         * @return  -   the next intact record, or null at the end of the segment or at a torn / corrupt record.
+         */
+        static Record read(ByteBuffer buffer) {
+            if (buffer.remaining() < RECORD_HEADER_SIZE) {
+                return null;
+            }
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length < RECORD_BODY_SIZE || length > buffer.remaining()) {
+                return null;
+            }
+            CRC32C actual = new CRC32C();
+            actual.update(buffer.slice(buffer.position(), length));
+            if ((int) actual.getValue() != crc) {
+                return null;
+            }
+
+            long sequence = buffer.getLong();
+            long flightId = buffer.getLong();
+            byte type = buffer.get();
+            int count = Short.toUnsignedInt(buffer.getShort());
+            if (RECORD_BODY_SIZE + count * Integer.BYTES != length || (type != OCCUPIED && type != RELEASED && type != BOOKING_IDS)) {
+                return null;
+            }
+            int[] seatIndexes = new int[count];
+            for (int i = 0; i < count; i++) {
+                seatIndexes[i] = buffer.getInt();
+            }
+            return new Record(sequence, flightId, type, seatIndexes);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.BatchBookingResponse;
+import com.rainervana.flight_planner_backend.dto.BookingRequest;
+import com.rainervana.flight_planner_backend.dto.BookingResponse;
+import com.rainervana.flight_planner_backend.dto.FareQuoteResponse;
+
+import java.util.List;
+
+public interface BookingService {
+    // most bookings of one batch, across all partitions.
+    int MAX_BATCH_BOOKINGS = 1000;
+
+    BookingResponse createBooking(BookingRequest bookingRequest);
+
+    BatchBookingResponse createBookings(List<BookingRequest> bookingRequests);
+
+    FareQuoteResponse quote(Long flightId, int passengers, List<String> selectedSeats);
+}
@@ -0,0 +1,400 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.BatchBookingResponse;
+import com.rainervana.flight_planner_backend.dto.BatchBookingResult;
+import com.rainervana.flight_planner_backend.dto.BookingRequest;
+import com.rainervana.flight_planner_backend.dto.BookingResponse;
+import com.rainervana.flight_planner_backend.dto.FareQuoteResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class BookingServiceImpl implements BookingService {
+    private static final Logger log = LoggerFactory.getLogger(BookingServiceImpl.class);
+
+    private final FlightService flightService;
+    private final SeatLayoutRegistry seatLayoutRegistry;
+    private final FareEngine fareEngine;
+    private final SeatHoldService seatHoldService;
+    private final BookingEngine bookingEngine;
+    private final BookingJournal bookingJournal;
+    private final PartitionMap partitionMap;
+    private final FlightPlannerMetrics metrics;
+
+    // booking ids are handed out from blocks reserved in the journal, so they stay unique across restarts.
+    private static final int BOOKING_ID_BLOCK = 1000;
+    private final ReentrantLock bookingIdLock = new ReentrantLock();
+    private long nextBookingId;
+    private long bookingIdLimit;
+
+    public BookingServiceImpl(FlightService flightService, SeatLayoutRegistry seatLayoutRegistry, FareEngine fareEngine, SeatHoldService seatHoldService, BookingEngine bookingEngine, BookingJournal bookingJournal, PartitionMap partitionMap, FlightPlannerMetrics metrics) {
+        this.flightService = flightService;
+        this.seatLayoutRegistry = seatLayoutRegistry;
+        this.fareEngine = fareEngine;
+        this.seatHoldService = seatHoldService;
+        this.bookingEngine = bookingEngine;
+        this.bookingJournal = bookingJournal;
+        this.partitionMap = partitionMap;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Books all selected seats of the request on the flight. Validation and pricing run on the
+     * caller's thread, the seats are then claimed by the flight's writer in the booking engine in a
+     * single step, so either every seat is booked or none is. The booking is confirmed only after it
+     * has been written to the booking journal. With a hold id the held seats are booked, the request
+     * has to select exactly the seats of the hold.
+     *
+     * @param bookingRequest    -   flight, passenger count and selected seats.
+     * @return                  -   confirmed booking with the calculated price.
+     */
+    @Override
+    public BookingResponse createBooking(BookingRequest bookingRequest) {
+        return metrics.bookingTimer().record(() -> book(bookingRequest));
+    }
+
+    /**
+     * Books many requests at once, each of them all-or-nothing on its own. Requests are grouped by
+     * flight, so the flight and its layout are looked up once per flight, and all valid requests of
+     * a flight are claimed with a single change in the booking engine and journaled as one record.
+     * Requests for a hold are booked one by one like {@link #createBooking}.
+     *
+     * @param bookingRequests   -   bookings in any order, over any number of flights.
+     * @return                  -   one result per request in request order, failed requests don't affect the others.
+     */
+    @Override
+    public BatchBookingResponse createBookings(List<BookingRequest> bookingRequests) {
+        return metrics.batchBookingTimer().record(() -> bookAll(bookingRequests));
+    }
+
+    /**
+     * Prices seats without booking them, with the same validation and fares as a booking.
+     *
+     * @param flightId          -   flight to price.
+     * @param passengers        -   number of passengers.
+     * @param selectedSeats     -   seats to price.
+     * @return                  -   base fare per passenger and total price at the flight's current load factor.
+     */
+    @Override
+    public FareQuoteResponse quote(Long flightId, int passengers, List<String> selectedSeats) {
+        Flight flight = findFlight(flightId);
+        SeatLayout layout = seatLayoutRegistry.layoutFor(flight.getAircraftType());
+        checkPrice(flight);
+
+        int[] seatIndexes = seatIndexes(flight, layout, selectedSeats);
+        return new FareQuoteResponse(
+                flight.getId(),
+                passengers,
+                selectedSeats,
+                FareEngine.toAmount(fareEngine.baseFare(flight)),
+                FareEngine.toAmount(fareEngine.quote(flight, passengers, seatIndexes))
+        );
+    }
+
+    private BookingResponse book(BookingRequest bookingRequest) {
+        Flight flight = findOwnedFlight(bookingRequest.getFlightId());
+        SeatLayout layout = seatLayoutRegistry.layoutFor(flight.getAircraftType());
+        checkPrice(flight);
+
+        // Validate every seat before claiming any of them.
+        List<String> selectedSeats = bookingRequest.getSelectedSeats();
+        int[] seatIndexes = seatIndexes(flight, layout, selectedSeats);
+        long totalPrice = fareEngine.quote(flight, bookingRequest.getPassengers(), seatIndexes);
+        // taken before the seats are claimed, a booking is never stored without an id to confirm it with.
+        long bookingId = nextBookingId(flight);
+
+        // Claim all seats at once on the flight's booking shard, nothing is written if any of them is already taken.
+        boolean fromHold = bookingRequest.getHoldId() != null;
+        if (fromHold) {
+            seatHoldService.claimHold(bookingRequest.getHoldId(), flight.getId(), seatIndexes);
+        }
+        int conflictingIndex = claimSeats(flight, seatIndexes, fromHold);
+        if (conflictingIndex >= 0) {
+            throw conflict(flight, selectedSeats.get(indexOf(seatIndexes, conflictingIndex)));
+        }
+
+        log.info("Calculated price of the flight is {}", FareEngine.toAmount(totalPrice));
+
+        return confirmation(bookingId, flight, bookingRequest, totalPrice);
+    }
+
+    private BatchBookingResponse bookAll(List<BookingRequest> bookingRequests) {
+        if (bookingRequests.size() > MAX_BATCH_BOOKINGS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BATCH_BOOKINGS + " bookings can be submitted at once.");
+        }
+        BatchBookingResult[] results = new BatchBookingResult[bookingRequests.size()];
+
+        // group by flight, keeping the request order within a flight.
+        Map<Long, List<Integer>> requestsByFlight = new LinkedHashMap<>();
+        for (int i = 0; i < bookingRequests.size(); i++) {
+            BookingRequest bookingRequest = bookingRequests.get(i);
+            if (bookingRequest == null || bookingRequest.getFlightId() == null || bookingRequest.getSelectedSeats() == null || bookingRequest.getSelectedSeats().isEmpty()) {
+                results[i] = new BatchBookingResult(i, HttpStatus.BAD_REQUEST.value(), null, "Flight and at least one seat must be selected.");
+            } else if (bookingRequest.getHoldId() != null) {
+                results[i] = bookSingle(i, bookingRequest);
+            } else {
+                requestsByFlight.computeIfAbsent(bookingRequest.getFlightId(), flightId -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // submit every flight first, the booking shards then work on different flights in parallel.
+        List<PendingFlight> pendingFlights = new ArrayList<>(requestsByFlight.size());
+        for (Map.Entry<Long, List<Integer>> entry : requestsByFlight.entrySet()) {
+            PendingFlight pendingFlight = submitFlight(entry.getKey(), entry.getValue(), bookingRequests, results);
+            if (pendingFlight != null) {
+                pendingFlights.add(pendingFlight);
+            }
+        }
+        for (PendingFlight pendingFlight : pendingFlights) {
+            completeFlight(pendingFlight, bookingRequests, results);
+        }
+
+        int confirmed = 0;
+        for (BatchBookingResult result : results) {
+            if (result.getBooking() != null) {
+                confirmed++;
+            }
+        }
+        log.info("Batch of {} bookings on {} flights: {} confirmed, {} rejected", results.length, requestsByFlight.size(), confirmed, results.length - confirmed);
+
+        return new BatchBookingResponse(confirmed, results.length - confirmed, Arrays.asList(results));
+    }
+
+    private BatchBookingResult bookSingle(int index, BookingRequest bookingRequest) {
+        try {
+            return new BatchBookingResult(index, HttpStatus.OK.value(), book(bookingRequest), null);
+        } catch (ResponseStatusException e) {
+            return rejected(index, e);
+        }
+    }
+
+    /**
+     * Validates and prices all requests of a flight and hands the valid ones to the booking engine.
+     *
+     * @return  -   the submitted requests, or null if none of them was valid.
+     */
+    private PendingFlight submitFlight(long flightId, List<Integer> requestIndexes, List<BookingRequest> bookingRequests, BatchBookingResult[] results) {
+        Flight flight;
+        SeatLayout layout;
+        try {
+            flight = findOwnedFlight(flightId);
+            layout = seatLayoutRegistry.layoutFor(flight.getAircraftType());
+            checkPrice(flight);
+        } catch (ResponseStatusException e) {
+            for (int i : requestIndexes) {
+                results[i] = rejected(i, e);
+            }
+            return null;
+        }
+
+        List<Integer> submitted = new ArrayList<>(requestIndexes.size());
+        List<int[]> seatGroups = new ArrayList<>(requestIndexes.size());
+        long[] prices = new long[requestIndexes.size()];
+        for (int i : requestIndexes) {
+            BookingRequest bookingRequest = bookingRequests.get(i);
+            try {
+                int[] seatIndexes = seatIndexes(flight, layout, bookingRequest.getSelectedSeats());
+                prices[submitted.size()] = fareEngine.quote(flight, bookingRequest.getPassengers(), seatIndexes);
+                seatGroups.add(seatIndexes);
+                submitted.add(i);
+            } catch (ResponseStatusException e) {
+                results[i] = rejected(i, e);
+            }
+        }
+        if (submitted.isEmpty()) {
+            return null;
+        }
+        long[] bookingIds = new long[submitted.size()];
+        try {
+            for (int k = 0; k < bookingIds.length; k++) {
+                bookingIds[k] = nextBookingId(flight);
+            }
+        } catch (ResponseStatusException e) {
+            for (int i : submitted) {
+                results[i] = rejected(i, e);
+            }
+            return null;
+        }
+
+        CompletableFuture<int[]> outcomes = bookingEngine.occupyEach(flight, seatGroups.toArray(new int[0][]));
+        return new PendingFlight(flight, submitted, seatGroups, prices, bookingIds, outcomes);
+    }
+
+    private void completeFlight(PendingFlight pendingFlight, List<BookingRequest> bookingRequests, BatchBookingResult[] results) {
+        Flight flight = pendingFlight.flight();
+        int[] outcomes;
+        try {
+            outcomes = pendingFlight.outcomes().join();
+        } catch (CompletionException e) {
+            ResponseStatusException failure = storeFailure(flight, e);
+            for (int i : pendingFlight.requestIndexes()) {
+                results[i] = rejected(i, failure);
+            }
+            return;
+        }
+
+        for (int k = 0; k < outcomes.length; k++) {
+            int i = pendingFlight.requestIndexes().get(k);
+            BookingRequest bookingRequest = bookingRequests.get(i);
+            if (outcomes[k] >= 0) {
+                String seatNr = bookingRequest.getSelectedSeats().get(indexOf(pendingFlight.seatGroups().get(k), outcomes[k]));
+                results[i] = rejected(i, conflict(flight, seatNr));
+            } else {
+                results[i] = new BatchBookingResult(i, HttpStatus.OK.value(), confirmation(pendingFlight.bookingIds()[k], flight, bookingRequest, pendingFlight.prices()[k]), null);
+            }
+        }
+    }
+
+    private Flight findFlight(Long flightId) {
+        return flightService.findFlightById(flightId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight not found with ID: " + flightId));
+    }
+
+    /**
+     * Finds a flight to book, only its owner books it when the inventory is partitioned.
+     */
+    private Flight findOwnedFlight(Long flightId) {
+        Flight flight = findFlight(flightId);
+        partitionMap.checkOwnsFlight(flight.getId());
+        return flight;
+    }
+
+    private void checkPrice(Flight flight) {
+        if (fareEngine.baseFare(flight) <= 0) {
+            log.error("Booking failed: Invalid base price found for flight ID: {}", flight.getId());
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Cannot process booking due to invalid flight price configuration.");
+        }
+    }
+
+    /**
+     * Resolves the selected seats against the flight's layout.
+     *
+     * @return  -   bit indexes of the seats in selection order.
+     */
+    private int[] seatIndexes(Flight flight, SeatLayout layout, List<String> selectedSeats) {
+        if (selectedSeats == null || selectedSeats.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one seat must be selected.");
+        }
+        int[] seatIndexes = new int[selectedSeats.size()];
+
+        for (int i = 0; i < selectedSeats.size(); i++) {
+            String seatNr = selectedSeats.get(i);
+            int seatIndex = layout.seatIndex(seatNr);
+
+            if (seatIndex < 0) {
+                log.warn("Booking failed: Invalid seat number {} provided for flight {}", seatNr, flight.getId());
+                metrics.invalidSeatRejected();
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid seat number selected: " + seatNr);
+            }
+            for (int j = 0; j < i; j++) {
+                if (seatIndexes[j] == seatIndex) {
+                    log.warn("Booking failed: Seat {} selected twice for flight {}", seatNr, flight.getId());
+                    metrics.duplicateSeatRejected();
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Seat selected more than once: " + seatNr);
+                }
+            }
+            seatIndexes[i] = seatIndex;
+        }
+        return seatIndexes;
+    }
+
+    /**
+     * Waits for the booking engine to claim and journal the seats, held ones if the booking is for a hold.
+     *
+     * @return  -   -1 if the seats are booked, otherwise the index of the first seat that was already occupied.
+     */
+    private int claimSeats(Flight flight, int[] seatIndexes, boolean fromHold) {
+        int conflictingIndex;
+        try {
+            conflictingIndex = (fromHold ? bookingEngine.occupyHeld(flight, seatIndexes) : bookingEngine.occupy(flight, seatIndexes)).join();
+        } catch (CompletionException e) {
+            if (fromHold) {
+                // the hold was claimed already, don't leave its seats blocked until restart.
+                flight.getSeatInventory().releaseHolds(seatIndexes);
+            }
+            throw storeFailure(flight, e);
+        }
+        if (conflictingIndex >= 0 && fromHold) {
+            // same for a hold that lost some of its seats, the rest of them would stay held.
+            flight.getSeatInventory().releaseHolds(seatIndexes);
+        }
+        return conflictingIndex;
+    }
+
+    private ResponseStatusException storeFailure(Flight flight, CompletionException e) {
+        if (e.getCause() instanceof RejectedExecutionException) {
+            log.warn("Booking failed: Booking shard of flight {} is overloaded", flight.getId());
+            return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many bookings at the moment, please try again.");
+        }
+        log.error("Booking failed: Could not store seats on flight {}", flight.getId(), e.getCause());
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Booking could not be stored, please try again.");
+    }
+
+    private ResponseStatusException conflict(Flight flight, String seatNr) {
+        log.info("Booking rejected: Seat {} on flight {} is already occupied", seatNr, flight.getId());
+        metrics.bookingConflict();
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Seat is already occupied: " + seatNr);
+    }
+
+    /**
+     * @return  -   the next unused booking id, reserving a new block in the journal when the current one is used up.
+     */
+    private long nextBookingId(Flight flight) {
+        bookingIdLock.lock();
+        try {
+            if (nextBookingId == bookingIdLimit) {
+                nextBookingId = bookingJournal.reserveBookingIds(BOOKING_ID_BLOCK);
+                bookingIdLimit = nextBookingId + BOOKING_ID_BLOCK;
+            }
+            return nextBookingId++;
+        } catch (RuntimeException e) {
+            log.error("Booking failed: Could not reserve booking ids for flight {}", flight.getId(), e);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Booking could not be stored, please try again.");
+        } finally {
+            bookingIdLock.unlock();
+        }
+    }
+
+    private BookingResponse confirmation(long bookingId, Flight flight, BookingRequest bookingRequest, long totalPrice) {
+        return new BookingResponse(
+                bookingId,
+                flight.getId(),
+                flight.getFlightNr(),
+                bookingRequest.getPassengers(),
+                bookingRequest.getSelectedSeats(),
+                FareEngine.toAmount(totalPrice),
+                LocalDateTime.now()
+        );
+    }
+
+    private static BatchBookingResult rejected(int index, ResponseStatusException e) {
+        return new BatchBookingResult(index, e.getStatusCode().value(), null, e.getReason());
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Requests of one flight waiting for the booking engine, the lists share their order. Prices are in minor units.
+     */
+    private record PendingFlight(Flight flight, List<Integer> requestIndexes, List<int[]> seatGroups, long[] prices, long[] bookingIds, CompletableFuture<int[]> outcomes) {
+    }
+}
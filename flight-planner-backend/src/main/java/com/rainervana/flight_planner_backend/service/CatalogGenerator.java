@@ -0,0 +1,215 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates synthetic flight catalogs of any size, with seat occupancy already filled in.
+ * <p>
+ * Every flight is derived from the seed and its index alone, so flights are generated in parallel
+ * and the same settings always give the same catalog. Traffic is skewed towards the first airports,
+ * which act as hubs, and departures bunch around a morning and an evening bank. A route's block time
+ * is fixed per airport pair, short routes are mostly flown by turboprops. Load factors are normally
+ * distributed around a mean that is higher for peak departures and weekends, and seats are taken by
+ * parties of one to four sitting together, so the seat maps fragment like real ones do.
+ */
+public class CatalogGenerator {
+    private static final String[] AIRPORTS = {
+            "TLL", "RIX", "HEL", "ARN", "OSL", "CPH", "WAW", "VNO", "BER", "FRA",
+            "AMS", "CDG", "LHR", "MUC", "VIE", "ZRH", "BRU", "DUB", "MAD", "BCN",
+            "FCO", "MXP", "LIS", "ATH", "PRG", "BUD", "OTP", "SOF", "IST", "KEF",
+            "GOT", "BLL", "TRD", "BGO", "TKU", "OUL", "KRK", "GDN", "HAM", "DUS"
+    };
+    private static final String TURBOPROP = "ATR 72";
+    private static final String[] JETS = {"Boeing 737", "Airbus A320"};
+    // cumulative share of bookings by party size, 1 to 4 passengers.
+    private static final double[] PARTY_SIZES = {0.5, 0.8, 0.9, 1.0};
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final SeatLayoutRegistry seatLayoutRegistry;
+    private final long seed;
+    private final LocalDate firstDay;
+    private final int days;
+    private final String[] airports;
+
+    /**
+     * @param seatLayoutRegistry    -   layouts of the generated flights' inventories.
+     * @param seed                  -   same seed, same catalog.
+     * @param firstDay              -   departure date of the earliest flights.
+     * @param days                  -   number of days the departures are spread over.
+     * @param airports              -   number of airports, real codes first, then synthetic ones.
+     */
+    public CatalogGenerator(SeatLayoutRegistry seatLayoutRegistry, long seed, LocalDate firstDay, int days, int airports) {
+        if (days < 1 || airports < 2 || airports > AIRPORTS.length + 26 * 26) {
+            throw new IllegalArgumentException("Invalid catalog dimensions: " + days + " days, " + airports + " airports");
+        }
+        this.seatLayoutRegistry = seatLayoutRegistry;
+        this.seed = seed;
+        this.firstDay = firstDay;
+        this.days = days;
+        this.airports = new String[airports];
+        for (int i = 0; i < airports; i++) {
+            int synthetic = i - AIRPORTS.length;
+            this.airports[i] = synthetic < 0 ? AIRPORTS[i] : "Z" + (char) ('A' + synthetic / 26) + (char) ('A' + synthetic % 26);
+        }
+    }
+
+    /**
+     * Generates flights on all cores. The flights have no id yet and are in index order.
+     *
+     * @param count -   number of flights.
+     * @return      -   the flights with their seat inventories.
+     */
+    public List<Flight> generate(int count) {
+        return IntStream.range(0, count).parallel().mapToObj(this::flight).toList();
+    }
+
+    /**
+     * @param index -   position of the flight in the catalog.
+     * @return      -   the flight at that position, the same on every call.
+     */
+    public Flight flight(int index) {
+        SplittableRandom random = new SplittableRandom(mix(seed + index * GOLDEN_GAMMA));
+        int origin = hubWeightedAirport(random);
+        int destination;
+        do {
+            destination = hubWeightedAirport(random);
+        } while (destination == origin);
+
+        int blockMinutes = blockMinutes(origin, destination);
+        LocalDate day = firstDay.plusDays(random.nextInt(days));
+        // departures bunch around the morning and the evening bank.
+        boolean morningBank = random.nextBoolean();
+        int minuteOfDay = (morningBank ? 7 * 60 : 18 * 60) + (int) (random.nextGaussian() * 90);
+        minuteOfDay = Math.max(5 * 60, Math.min(23 * 60 + 30, minuteOfDay));
+        boolean peak = Math.abs(minuteOfDay - (morningBank ? 7 * 60 : 18 * 60)) < 60;
+        boolean weekend = day.getDayOfWeek() == DayOfWeek.FRIDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+        LocalDateTime departure = day.atStartOfDay().plusMinutes(minuteOfDay);
+        LocalDateTime arrival = departure.plusMinutes(blockMinutes + random.nextInt(-5, 16));
+
+        String aircraftType = blockMinutes < 90 && random.nextInt(3) != 0 ? TURBOPROP : JETS[random.nextInt(JETS.length)];
+        double meanLoadFactor = (peak ? 0.82 : 0.68) + (weekend ? 0.05 : 0.0);
+        double loadFactor = Math.max(0.05, Math.min(1.0, meanLoadFactor + random.nextGaussian() * 0.12));
+
+        // fares follow the block time and the demand, ending in .99.
+        double fare = (2_500 + blockMinutes * 60L) * (0.7 + loadFactor * 0.6) * (0.9 + random.nextDouble() * 0.2);
+        long cents = Math.max(1L, (long) fare / 100) * 100 - 1;
+
+        Flight flight = new Flight(null, "FL" + (1000 + index), airports[origin], airports[destination],
+                departure, arrival, BigDecimal.valueOf(cents, 2), aircraftType);
+        SeatLayout layout = seatLayoutRegistry.layoutFor(aircraftType);
+        SeatInventory inventory = layout.newInventory();
+        inventory.restore(occupancy(layout, loadFactor, random), 0L);
+        flight.setSeatInventory(inventory);
+        return flight;
+    }
+
+    public String airport(int index) {
+        return airports[index];
+    }
+
+    public int airportCount() {
+        return airports.length;
+    }
+
+    /**
+     * Picks an airport with the low indexes, the hubs, a lot more likely than the rest.
+     */
+    private int hubWeightedAirport(SplittableRandom random) {
+        double u = random.nextDouble();
+        return (int) (airports.length * u * u);
+    }
+
+    /**
+     * Block time of a route between 45 and 300 minutes, the same in both directions.
+     */
+    private int blockMinutes(int origin, int destination) {
+        long pair = (long) Math.min(origin, destination) << 32 | Math.max(origin, destination);
+        return 45 + (int) ((mix(pair) >>> 1) % 256);
+    }
+
+    /**
+     * Seats parties until the load factor is reached. A party sits together in one row, a single
+     * traveller picks a window seat half of the time. Parties that don't fit the row they picked
+     * are dropped, so very full flights end a bit below their load factor, with scattered gaps.
+     *
+     * @return  -   occupancy bitmap in the format of {@link SeatInventory.Snapshot#toByteArray()}.
+     */
+    private static byte[] occupancy(SeatLayout layout, double loadFactor, SplittableRandom random) {
+        int rows = layout.getTotalRows();
+        int columns = layout.getColumnCount();
+        long fullRow = columns == Long.SIZE ? -1L : (1L << columns) - 1;
+        long[] rowMasks = new long[rows];
+
+        int target = (int) Math.round(layout.capacity() * loadFactor);
+        int occupied = 0;
+        for (int attempt = 0; occupied < target && attempt < layout.capacity() * 4; attempt++) {
+            int row = random.nextInt(rows);
+            // premium cabins sell slower.
+            if (layout.isFirstClassRow(row + 1) && random.nextInt(3) == 0) {
+                continue;
+            }
+            int party = Math.min(partySize(random), target - occupied);
+            long free = ~rowMasks[row] & fullRow;
+            // bit i stays set if seats i to i + party - 1 are all free.
+            long starts = free;
+            for (int k = 1; k < party; k++) {
+                starts &= free >>> k;
+            }
+            if (party == 1 && random.nextBoolean() && (starts & layout.getWindowColumnMask()) != 0) {
+                starts &= layout.getWindowColumnMask();
+            }
+            if (starts == 0) {
+                continue;
+            }
+            int start = nthSetBit(starts, random.nextInt(Long.bitCount(starts)));
+            rowMasks[row] |= ((1L << party) - 1) << start;
+            occupied += party;
+        }
+
+        byte[] bitmap = new byte[(layout.capacity() + 7) >>> 3];
+        for (int row = 0; row < rows; row++) {
+            long mask = rowMasks[row];
+            while (mask != 0) {
+                int index = row * columns + Long.numberOfTrailingZeros(mask);
+                bitmap[index >>> 3] |= (byte) (1 << (index & 7));
+                mask &= mask - 1;
+            }
+        }
+        return bitmap;
+    }
+
+    private static int partySize(SplittableRandom random) {
+        double u = random.nextDouble();
+        int size = 1;
+        while (u >= PARTY_SIZES[size - 1]) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int nthSetBit(long bits, int n) {
+        for (int i = 0; i < n; i++) {
+            bits &= bits - 1;
+        }
+        return Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Stafford's variant 13 of the MurmurHash3 finalizer, neighbouring inputs give unrelated outputs.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
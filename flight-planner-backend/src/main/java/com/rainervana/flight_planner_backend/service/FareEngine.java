@@ -0,0 +1,207 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import com.rainervana.flight_planner_backend.util.ConcurrentLongMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prices bookings in fixed-point minor units (cents).
+ * <p>
+ * Everything that doesn't change between quotes is precomputed: per aircraft type a table with the
+ * surcharge of every seat (class and seat attributes), per flight the base fare of every load
+ * factor tier and the occupied seat counts the tiers start at. The current tier is cached with the
+ * inventory version it was computed for and only recomputed after the inventory changed. Quoting
+ * is therefore a few array lookups and additions, {@link BigDecimal} is only used when configuring
+ * the engine and when an amount leaves the service.
+ */
+@Service
+public class FareEngine {
+    private static final int MINOR_UNIT_DIGITS = 2;
+    private static final long BASIS_POINTS = 10_000;
+
+    private final long firstClassSurcharge;
+    private final long windowSurcharge;
+    private final long extraLegroomSurcharge;
+    private final long exitRowSurcharge;
+    // load factor tiers, ascending. tier i applies from loadFactorThresholds[i], multipliers in basis points.
+    private final double[] loadFactorThresholds;
+    private final long[] tierMultipliers;
+
+    private final Map<String, long[]> seatSurcharges = new ConcurrentHashMap<>();
+    private final ConcurrentLongMap<FlightFares> flightFares = new ConcurrentLongMap<>();
+    private final SeatLayoutRegistry seatLayoutRegistry;
+
+    /**
+     * @param seatLayoutRegistry    -   layouts to build the seat surcharge tables from.
+     * @param firstClassSurcharge   -   surcharge per first class seat.
+     * @param windowSurcharge       -   surcharge per window seat.
+     * @param extraLegroomSurcharge -   surcharge per extra legroom seat.
+     * @param exitRowSurcharge      -   surcharge per exit row seat.
+     * @param loadFactorTiers       -   dynamic pricing as {@code loadFactor:multiplier} pairs, e.g. {@code 0.8:1.15,0.95:1.3},
+     *                                  the base fare is multiplied once the share of occupied seats reaches the load factor.
+     */
+    public FareEngine(
+            SeatLayoutRegistry seatLayoutRegistry,
+            @Value("${flight-planner.fares.first-class-surcharge:50.00}") BigDecimal firstClassSurcharge,
+            @Value("${flight-planner.fares.window-surcharge:0.00}") BigDecimal windowSurcharge,
+            @Value("${flight-planner.fares.extra-legroom-surcharge:0.00}") BigDecimal extraLegroomSurcharge,
+            @Value("${flight-planner.fares.exit-row-surcharge:0.00}") BigDecimal exitRowSurcharge,
+            @Value("${flight-planner.fares.load-factor-tiers:}") String loadFactorTiers
+    ) {
+        this.seatLayoutRegistry = seatLayoutRegistry;
+        this.firstClassSurcharge = toMinorUnits(firstClassSurcharge);
+        this.windowSurcharge = toMinorUnits(windowSurcharge);
+        this.extraLegroomSurcharge = toMinorUnits(extraLegroomSurcharge);
+        this.exitRowSurcharge = toMinorUnits(exitRowSurcharge);
+
+        String[] tiers = loadFactorTiers == null || loadFactorTiers.isBlank() ? new String[0] : loadFactorTiers.split(",");
+        this.loadFactorThresholds = new double[tiers.length];
+        this.tierMultipliers = new long[tiers.length];
+        for (int i = 0; i < tiers.length; i++) {
+            String[] tier = tiers[i].trim().split(":");
+            if (tier.length != 2) {
+                throw new IllegalArgumentException("Invalid load factor tier: " + tiers[i]);
+            }
+            loadFactorThresholds[i] = Double.parseDouble(tier[0].trim());
+            tierMultipliers[i] = new BigDecimal(tier[1].trim()).movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            if (i > 0 && loadFactorThresholds[i] <= loadFactorThresholds[i - 1]) {
+                throw new IllegalArgumentException("Load factor tiers must be ascending: " + loadFactorTiers);
+            }
+        }
+    }
+
+    /**
+     * Prices a booking.
+     *
+     * @param flight        -   flight with a loaded seat inventory.
+     * @param passengers    -   number of passengers paying the base fare.
+     * @param seatIndexes   -   seats of the booking, validated against the flight's layout.
+     * @return              -   total price in minor units.
+     */
+    public long quote(Flight flight, int passengers, int[] seatIndexes) {
+        FlightFares fares = faresFor(flight);
+        long total = fares.currentBaseFare(flight.getSeatInventory()) * passengers;
+        for (int seatIndex : seatIndexes) {
+            total += fares.seatSurcharges[seatIndex];
+        }
+        return total;
+    }
+
+    /**
+     * @return  -   the flight's base fare per passenger at its current load factor in minor units,
+     *              0 or less if the flight has no valid price.
+     */
+    public long baseFare(Flight flight) {
+        return faresFor(flight).currentBaseFare(flight.getSeatInventory());
+    }
+
+    /**
+     * @return  -   surcharge of a single seat in minor units.
+     */
+    public long seatSurcharge(Flight flight, int seatIndex) {
+        return faresFor(flight).seatSurcharges[seatIndex];
+    }
+
+    /**
+     * Converts an amount in minor units back to the API's decimal representation.
+     */
+    public static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, MINOR_UNIT_DIGITS);
+    }
+
+    private FlightFares faresFor(Flight flight) {
+        FlightFares fares = flightFares.get(flight.getId());
+        // a flight removed and added again under the same id or repriced gets new fares.
+        if (fares == null || fares.flight != flight || !fares.isPricedAt(flight.getPrice())) {
+            fares = new FlightFares(flight, seatSurcharges(seatLayoutRegistry.layoutFor(flight.getAircraftType())));
+            flightFares.put(flight.getId(), fares);
+        }
+        return fares;
+    }
+
+    private long[] seatSurcharges(SeatLayout layout) {
+        return seatSurcharges.computeIfAbsent(layout.getAircraftType(), type -> {
+            int columns = layout.getColumnCount();
+            long[] surcharges = new long[layout.capacity()];
+            for (int row = 1; row <= layout.getTotalRows(); row++) {
+                long rowSurcharge = (layout.isFirstClassRow(row) ? firstClassSurcharge : 0)
+                        + (layout.isExtraLegroomRow(row) ? extraLegroomSurcharge : 0)
+                        + (layout.isExitRow(row) ? exitRowSurcharge : 0);
+                for (int col = 0; col < columns; col++) {
+                    boolean window = (layout.getWindowColumnMask() & (1L << col)) != 0;
+                    surcharges[(row - 1) * columns + col] = rowSurcharge + (window ? windowSurcharge : 0);
+                }
+            }
+            return surcharges;
+        });
+    }
+
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount == null ? 0L : amount.movePointRight(MINOR_UNIT_DIGITS).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Precomputed fares of one flight.
+     */
+    private final class FlightFares {
+        private final Flight flight;
+        // price the tiers were built from.
+        private final BigDecimal price;
+        private final long[] seatSurcharges;
+        // base fare per tier, index 0 is the flight's own price.
+        private final long[] tierFares;
+        // occupied seats from which tier i + 1 applies.
+        private final int[] tierStarts;
+        private volatile CurrentFare current = new CurrentFare(-1L, 0L);
+
+        FlightFares(Flight flight, long[] seatSurcharges) {
+            this.flight = flight;
+            this.price = flight.getPrice();
+            this.seatSurcharges = seatSurcharges;
+
+            long baseFare = toMinorUnits(price);
+            this.tierFares = new long[tierMultipliers.length + 1];
+            this.tierStarts = new int[tierMultipliers.length];
+            tierFares[0] = baseFare;
+            for (int i = 0; i < tierMultipliers.length; i++) {
+                // round half up in fixed point.
+                tierFares[i + 1] = (baseFare * tierMultipliers[i] + BASIS_POINTS / 2) / BASIS_POINTS;
+                tierStarts[i] = (int) Math.ceil(loadFactorThresholds[i] * seatSurcharges.length);
+            }
+        }
+
+        boolean isPricedAt(BigDecimal flightPrice) {
+            return price == null ? flightPrice == null : flightPrice != null && price.compareTo(flightPrice) == 0;
+        }
+
+        long currentBaseFare(SeatInventory inventory) {
+            if (tierStarts.length == 0) {
+                return tierFares[0];
+            }
+            SeatInventory.Snapshot occupancy = inventory.snapshot();
+            CurrentFare fare = current;
+            if (fare.version == occupancy.getVersion()) {
+                return fare.baseFare;
+            }
+
+            int occupied = occupancy.occupiedCount();
+            int tier = 0;
+            while (tier < tierStarts.length && occupied >= tierStarts[tier]) {
+                tier++;
+            }
+            current = new CurrentFare(occupancy.getVersion(), tierFares[tier]);
+            return tierFares[tier];
+        }
+    }
+
+    private record CurrentFare(long version, long baseFare) {
+    }
+}
@@ -0,0 +1,183 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchRequest;
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchResponse;
+import com.rainervana.flight_planner_backend.dto.FlightGroup;
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Search over date ranges and destination sets, evaluated as one query over the catalog.
+ * <p>
+ * The query is split into the index's (destination, date) slices. Each slice is reduced on its
+ * own to a partial group: its match count, cheapest flight and first {@code limit} flights in the
+ * requested order. Partials of the same group are then merged, e.g. all destinations of a day
+ * for the cheapest flight per day. Slices share nothing, so large queries are evaluated on the
+ * common fork-join pool, small ones on the calling thread where the split wouldn't pay off.
+ */
+public class FlexibleFlightSearch {
+    // flights in the queried slices from which the slices are evaluated in parallel.
+    static final int PARALLEL_THRESHOLD = 8192;
+    static final int MAX_DAYS = 62;
+    static final int MAX_DESTINATIONS = 50;
+    static final int MAX_LIMIT = 100;
+
+    private static final Comparator<Flight> CHEAPEST = FlightSortOrder.PRICE.comparator();
+    private static final Comparator<GroupKey> GROUP_ORDER = Comparator
+            .comparing(GroupKey::date, Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()))
+            .thenComparing(GroupKey::destination, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    private final FlightSearchIndex searchIndex;
+
+    /**
+     * @param searchIndex   -   index of the catalog to search.
+     */
+    public FlexibleFlightSearch(FlightSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Finds the flights matching the request and groups them.
+     *
+     * @param request   -   date range, optional destination and origin sets, limits, grouping, order and group size.
+     * @return          -   the non-empty groups, by date, then destination.
+     */
+    public FlexibleSearchResponse search(FlexibleSearchRequest request) {
+        validate(request);
+        FlightGrouping grouping = request.getGroupBy() == null ? FlightGrouping.DATE : request.getGroupBy();
+        FlightSortOrder sortOrder = request.getSort() == null ? FlightSortOrder.PRICE : request.getSort();
+        Set<String> origins = normalize(request.getOrigins());
+
+        List<FlightSearchIndex.Slice> slices = searchIndex.slices(request.getDestinations(), request.getDateFrom(), request.getDateTo());
+        long flights = 0;
+        for (FlightSearchIndex.Slice slice : slices) {
+            flights += slice.size();
+        }
+        Stream<FlightSearchIndex.Slice> stream = flights >= PARALLEL_THRESHOLD ? slices.parallelStream() : slices.stream();
+
+        Map<GroupKey, PartialGroup> groups = stream
+                .map(slice -> evaluate(slice, request, origins, grouping, sortOrder))
+                .filter(partial -> partial.matches > 0)
+                .collect(Collectors.toMap(partial -> partial.key, partial -> partial, PartialGroup::merge, () -> new TreeMap<>(GROUP_ORDER)));
+
+        int matches = 0;
+        List<FlightGroup> result = new ArrayList<>(groups.size());
+        for (PartialGroup group : groups.values()) {
+            matches += group.matches;
+            result.add(group.toGroup(sortOrder));
+        }
+        return new FlexibleSearchResponse(matches, result);
+    }
+
+    private static PartialGroup evaluate(FlightSearchIndex.Slice slice, FlexibleSearchRequest request, Set<String> origins, FlightGrouping grouping, FlightSortOrder sortOrder) {
+        GroupKey key = new GroupKey(grouping.byDate() ? slice.date() : null, grouping.byDestination() ? slice.destination() : null);
+        PartialGroup partial = new PartialGroup(key, request.getLimit(), sortOrder.comparator());
+        slice.forEachMatch(request.getMaxDurationMinutes(), request.getMaxPrice(), flight -> {
+            if (origins == null || origins.contains(flight.getOrigin().toUpperCase(Locale.ROOT))) {
+                partial.add(flight);
+            }
+        });
+        return partial;
+    }
+
+    private static void validate(FlexibleSearchRequest request) {
+        LocalDate from = request.getDateFrom();
+        LocalDate to = request.getDateTo();
+        if (from == null || to == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "dateFrom and dateTo are required");
+        }
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "dateTo is before dateFrom");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_DAYS + " days can be searched at once");
+        }
+        if (request.getDestinations() != null && request.getDestinations().size() > MAX_DESTINATIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_DESTINATIONS + " destinations can be searched at once");
+        }
+        if (request.getLimit() < 1 || request.getLimit() > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+
+    /**
+     * @return  -   the values in upper case, null if there are none, which matches any value.
+     */
+    private static Set<String> normalize(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        Set<String> normalized = new HashSet<>();
+        for (String value : values) {
+            normalized.add(value.toUpperCase(Locale.ROOT));
+        }
+        return normalized;
+    }
+
+    /**
+     * Date and destination of a group, null for what the search isn't grouped by.
+     */
+    private record GroupKey(LocalDate date, String destination) {
+    }
+
+    /**
+     * A group's result over some of its slices, merged with the rest once they are evaluated.
+     */
+    private static final class PartialGroup {
+        private final GroupKey key;
+        private final int limit;
+        // the first limit flights, the last one in order on top.
+        private final PriorityQueue<Flight> top;
+        private int matches;
+        private Flight cheapest;
+
+        PartialGroup(GroupKey key, int limit, Comparator<Flight> order) {
+            this.key = key;
+            this.limit = limit;
+            this.top = new PriorityQueue<>(limit + 1, order.reversed());
+        }
+
+        void add(Flight flight) {
+            matches++;
+            if (cheapest == null || CHEAPEST.compare(flight, cheapest) < 0) {
+                cheapest = flight;
+            }
+            offer(flight);
+        }
+
+        PartialGroup merge(PartialGroup other) {
+            matches += other.matches;
+            if (cheapest == null || CHEAPEST.compare(other.cheapest, cheapest) < 0) {
+                cheapest = other.cheapest;
+            }
+            for (Flight flight : other.top) {
+                offer(flight);
+            }
+            return this;
+        }
+
+        private void offer(Flight flight) {
+            if (top.size() < limit) {
+                top.add(flight);
+            } else if (top.comparator().compare(flight, top.peek()) > 0) {
+                top.poll();
+                top.add(flight);
+            }
+        }
+
+        FlightGroup toGroup(FlightSortOrder sortOrder) {
+            List<Flight> flights = new ArrayList<>(top);
+            flights.sort(sortOrder.comparator());
+            // the catalog's spelling rather than the index's upper-case key.
+            String destination = key.destination() == null ? null : cheapest.getDestination();
+            return new FlightGroup(key.date(), destination, matches, cheapest, flights);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.rainervana.flight_planner_backend.service;
+
+/**
+ * How flexible search results are grouped, e.g. {@code DATE} for the cheapest flight per day.
+ */
+public enum FlightGrouping {
+    DATE(true, false),
+    DESTINATION(false, true),
+    DATE_AND_DESTINATION(true, true),
+    NONE(false, false);
+
+    private final boolean byDate;
+    private final boolean byDestination;
+
+    FlightGrouping(boolean byDate, boolean byDestination) {
+        this.byDate = byDate;
+        this.byDestination = byDestination;
+    }
+
+    public boolean byDate() {
+        return byDate;
+    }
+
+    public boolean byDestination() {
+        return byDestination;
+    }
+}
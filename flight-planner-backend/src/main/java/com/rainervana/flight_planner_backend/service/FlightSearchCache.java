@@ -0,0 +1,214 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded cache of flight search results, keyed by the normalized query.
+ * <p>
+ * Reads are a single map lookup and never lock. When the cache is full, entries are evicted in
+ * insertion order, but an entry that was read since it was last looked at gets a second chance,
+ * so the hot queries stay while one-off queries pass through. A catalog change only drops the
+ * entries whose query the changed flight matches, the rest of the cache stays warm. Entries are
+ * indexed by the destination and date of their query, so a change only looks at the queries of
+ * its own destination and date and at the ones that leave either open.
+ * <p>
+ * A result is only stored if no flight its query could match changed while it was computed, so a
+ * search that raced with a change can't put a stale result back after its invalidation. Changes
+ * are tracked per destination and date in a fixed number of stripes, a change elsewhere in the
+ * catalog doesn't keep unrelated results out.
+ */
+public class FlightSearchCache {
+    // stripes of the per destination and date change sequence, a power of two.
+    private static final int STAMP_STRIPES = 256;
+
+    private final int maxEntries;
+    private final ConcurrentMap<Query, Entry> entries = new ConcurrentHashMap<>();
+    // entries in insertion order for eviction, dropped ones are skipped, guarded by this.
+    private final ArrayDeque<Entry> evictionQueue = new ArrayDeque<>();
+    // live entries by the destination and date of their query, null for either left open, guarded by this.
+    private final Map<Slot, Set<Entry>> entriesBySlot = new HashMap<>();
+    // sequence number of the last change per stripe of destination and date, guarded by this.
+    private final long[] lastChanges = new long[STAMP_STRIPES];
+    private volatile long changes;
+
+    /**
+     * @param maxEntries    -   most results kept at a time.
+     */
+    public FlightSearchCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Search cache needs room for at least one entry, got: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return  -   the cached result of the query, or null if it has to be computed.
+     */
+    public List<Flight> get(Query query) {
+        Entry entry = entries.get(query);
+        if (entry == null) {
+            return null;
+        }
+        // only written once per eviction round, hot entries don't bounce the cache line.
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.flights;
+    }
+
+    /**
+     * @return  -   stamp to take before computing a result that is going to be put.
+     */
+    public long stamp() {
+        return changes;
+    }
+
+    /**
+     * Stores a computed result unless a flight the query could match changed since the stamp was taken.
+     *
+     * @param query     -   normalized query.
+     * @param flights   -   unmodifiable result of the query.
+     * @param stamp     -   value of {@link #stamp()} before the result was computed.
+     */
+    public synchronized void put(Query query, List<Flight> flights, long stamp) {
+        Slot slot = new Slot(query.destination(), query.date());
+        if (lastChanges[stripe(slot)] > stamp || entries.containsKey(query)) {
+            return;
+        }
+        Entry entry = new Entry(query, slot, flights);
+        entries.put(query, entry);
+        entriesBySlot.computeIfAbsent(slot, key -> new HashSet<>()).add(entry);
+        evictionQueue.add(entry);
+
+        while (entries.size() > maxEntries) {
+            Entry oldest = evictionQueue.poll();
+            if (oldest.dropped) {
+                continue;
+            }
+            if (oldest.referenced) {
+                oldest.referenced = false;
+                evictionQueue.add(oldest);
+            } else {
+                drop(oldest);
+            }
+        }
+        // invalidated entries stay queued until they are polled, don't let them pile up.
+        if (evictionQueue.size() > 2 * maxEntries) {
+            evictionQueue.removeIf(queued -> queued.dropped);
+        }
+    }
+
+    /**
+     * Drops every result the flight belongs or belonged to. Must be called after the flight was
+     * added to or removed from the search index.
+     *
+     * @param flight    -   flight that was added or removed.
+     */
+    public synchronized void invalidate(Flight flight) {
+        String destination = flight.getDestination().toUpperCase(Locale.ROOT);
+        LocalDate date = flight.getDepartureTime().toLocalDate();
+        long change = ++changes;
+        // the queries the flight can match: its own destination and date, and the ones leaving either open.
+        for (Slot slot : new Slot[]{new Slot(destination, date), new Slot(destination, null), new Slot(null, date), new Slot(null, null)}) {
+            lastChanges[stripe(slot)] = change;
+            Set<Entry> slotEntries = entriesBySlot.get(slot);
+            if (slotEntries == null) {
+                continue;
+            }
+            for (Entry entry : slotEntries.toArray(Entry[]::new)) {
+                if (entry.query.matches(flight)) {
+                    drop(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every result, for changes too large to invalidate flight by flight.
+     */
+    public synchronized void clear() {
+        Arrays.fill(lastChanges, ++changes);
+        evictionQueue.clear();
+        entriesBySlot.clear();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void drop(Entry entry) {
+        entry.dropped = true;
+        entries.remove(entry.query);
+        Set<Entry> slotEntries = entriesBySlot.get(entry.slot);
+        slotEntries.remove(entry);
+        if (slotEntries.isEmpty()) {
+            entriesBySlot.remove(entry.slot);
+        }
+    }
+
+    private static int stripe(Slot slot) {
+        int hash = slot.hashCode();
+        return (hash ^ (hash >>> 16)) & (STAMP_STRIPES - 1);
+    }
+
+    /**
+     * Search criteria in a canonical form, so equivalent queries share an entry. Any criterion may be null.
+     */
+    public record Query(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice) {
+
+        public static Query of(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice) {
+            return new Query(
+                    destination == null ? null : destination.toUpperCase(Locale.ROOT),
+                    date,
+                    maxDurationMinutes,
+                    // 150 and 150.00 are the same limit.
+                    maxPrice == null ? null : maxPrice.stripTrailingZeros()
+            );
+        }
+
+        /**
+         * @return  -   whether the flight is part of this query's result, the same test the search index applies.
+         */
+        boolean matches(Flight flight) {
+            return (destination == null || destination.equals(flight.getDestination().toUpperCase(Locale.ROOT)))
+                    && (date == null || date.equals(flight.getDepartureTime().toLocalDate()))
+                    && (maxDurationMinutes == null || flight.getDuration().toMinutes() <= maxDurationMinutes)
+                    && (maxPrice == null || flight.getPrice().compareTo(maxPrice) <= 0);
+        }
+    }
+
+    /**
+     * Destination and date of a query, null for what it leaves open.
+     */
+    private record Slot(String destination, LocalDate date) {
+    }
+
+    private static final class Entry {
+        private final Query query;
+        private final Slot slot;
+        private final List<Flight> flights;
+        private volatile boolean referenced;
+        // removed from the cache but maybe still in the eviction queue, guarded by the cache.
+        private boolean dropped;
+
+        Entry(Query query, Slot slot, List<Flight> flights) {
+            this.query = query;
+            this.slot = slot;
+            this.flights = flights;
+        }
+    }
+}
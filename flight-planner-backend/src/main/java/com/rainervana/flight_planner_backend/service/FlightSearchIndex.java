@@ -0,0 +1,305 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Search index over the flight catalog, keyed by destination and departure date.
+ * <p>
+ * Each (destination, date) bucket keeps its flights sorted by price and by duration, so
+ * {@code maxPrice} and {@code maxDurationMinutes} become binary-searched cut-offs instead of
+ * per-flight filters. Buckets are immutable and replaced on change, readers never lock.
+ */
+public class FlightSearchIndex {
+    private final ConcurrentMap<String, ConcurrentNavigableMap<LocalDate, Bucket>> byDestination = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a flight to the index.
+     *
+     * @param flight    -   flight with destination and departure time set.
+     */
+    public void add(Flight flight) {
+        destinationBuckets(flight.getDestination())
+                .compute(flight.getDepartureTime().toLocalDate(), (date, bucket) -> bucket == null ? Bucket.of(flight) : bucket.with(flight));
+    }
+
+    /**
+     * Adds many flights at once. Each bucket is sorted once for all of its new flights instead of
+     * once per flight, and the buckets are built in parallel.
+     *
+     * @param flights   -   flights with destination and departure time set.
+     */
+    public void addAll(Collection<Flight> flights) {
+        Map<String, Map<LocalDate, List<Flight>>> grouped = new HashMap<>();
+        for (Flight flight : flights) {
+            grouped.computeIfAbsent(normalize(flight.getDestination()), key -> new HashMap<>())
+                    .computeIfAbsent(flight.getDepartureTime().toLocalDate(), key -> new ArrayList<>())
+                    .add(flight);
+        }
+        grouped.forEach((destination, byDate) -> {
+            ConcurrentNavigableMap<LocalDate, Bucket> buckets = destinationBuckets(destination);
+            byDate.entrySet().parallelStream().forEach(added -> buckets.compute(added.getKey(),
+                    (date, bucket) -> bucket == null ? new Bucket(added.getValue().toArray(Flight[]::new)) : bucket.with(added.getValue())));
+        });
+    }
+
+    /**
+     * Removes a flight from the index, the flight must still have the values it was added with.
+     *
+     * @param flight    -   flight to remove.
+     */
+    public void remove(Flight flight) {
+        ConcurrentNavigableMap<LocalDate, Bucket> buckets = byDestination.get(normalize(flight.getDestination()));
+        if (buckets != null) {
+            buckets.computeIfPresent(flight.getDepartureTime().toLocalDate(), (date, bucket) -> bucket.without(flight));
+        }
+    }
+
+    /**
+     * Finds flights matching the criteria, any criterion may be null.
+     *
+     * @param destination           -   desired destination, case-insensitive.
+     * @param date                  -   desired departure date.
+     * @param maxDurationMinutes    -   maximum flight duration in minutes.
+     * @param maxPrice              -   maximum allowed price for the flight.
+     * @return                      -   matching flights ordered by id.
+     */
+    public List<Flight> find(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice) {
+        List<Flight> result = new ArrayList<>();
+        forEachMatch(destination, date, maxDurationMinutes, maxPrice, result::add);
+        result.sort(Comparator.comparing(Flight::getId));
+        return result;
+    }
+
+    /**
+     * Passes every flight matching the criteria to the action, in index order, without
+     * collecting them first.
+     *
+     * @param destination           -   desired destination, case-insensitive.
+     * @param date                  -   desired departure date.
+     * @param maxDurationMinutes    -   maximum flight duration in minutes.
+     * @param maxPrice              -   maximum allowed price for the flight.
+     * @param action                -   called once per matching flight.
+     */
+    public void forEachMatch(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice, Consumer<Flight> action) {
+        long durationLimit = maxDurationMinutes == null ? Long.MAX_VALUE : maxDurationMinutes;
+
+        if (destination != null) {
+            ConcurrentNavigableMap<LocalDate, Bucket> buckets = byDestination.get(normalize(destination));
+            if (buckets != null) {
+                visit(buckets, date, durationLimit, maxPrice, action);
+            }
+        } else {
+            for (ConcurrentNavigableMap<LocalDate, Bucket> buckets : byDestination.values()) {
+                visit(buckets, date, durationLimit, maxPrice, action);
+            }
+        }
+    }
+
+    /**
+     * Splits a search over several destinations and dates into its (destination, date) buckets,
+     * each of which can be searched on its own, e.g. in parallel.
+     *
+     * @param destinations  -   destinations, case-insensitive, null or empty for all.
+     * @param from          -   first departure date, inclusive.
+     * @param to            -   last departure date, inclusive.
+     * @return              -   the non-empty buckets in range, in no particular order.
+     */
+    public List<Slice> slices(Collection<String> destinations, LocalDate from, LocalDate to) {
+        List<Slice> slices = new ArrayList<>();
+        if (destinations == null || destinations.isEmpty()) {
+            byDestination.forEach((destination, buckets) -> addSlices(slices, destination, buckets, from, to));
+            return slices;
+        }
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String destination : destinations) {
+            normalized.add(normalize(destination));
+        }
+        for (String destination : normalized) {
+            ConcurrentNavigableMap<LocalDate, Bucket> buckets = byDestination.get(destination);
+            if (buckets != null) {
+                addSlices(slices, destination, buckets, from, to);
+            }
+        }
+        return slices;
+    }
+
+    private static void addSlices(List<Slice> slices, String destination, ConcurrentNavigableMap<LocalDate, Bucket> buckets, LocalDate from, LocalDate to) {
+        buckets.subMap(from, true, to, true).forEach((date, bucket) -> slices.add(new Slice(destination, date, bucket)));
+    }
+
+    private static void visit(ConcurrentNavigableMap<LocalDate, Bucket> buckets, LocalDate date, long durationLimit, BigDecimal maxPrice, Consumer<Flight> action) {
+        if (date != null) {
+            Bucket bucket = buckets.get(date);
+            if (bucket != null) {
+                bucket.visit(durationLimit, maxPrice, action);
+            }
+            return;
+        }
+        for (Bucket bucket : buckets.values()) {
+            bucket.visit(durationLimit, maxPrice, action);
+        }
+    }
+
+    private ConcurrentNavigableMap<LocalDate, Bucket> destinationBuckets(String destination) {
+        return byDestination.computeIfAbsent(normalize(destination), key -> new ConcurrentSkipListMap<>());
+    }
+
+    private static String normalize(String destination) {
+        return destination.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * The flights of one destination and date, as they were when the slice was taken.
+     */
+    public static final class Slice {
+        private final String destination;
+        private final LocalDate date;
+        private final Bucket bucket;
+
+        private Slice(String destination, LocalDate date, Bucket bucket) {
+            this.destination = destination;
+            this.date = date;
+            this.bucket = bucket;
+        }
+
+        /**
+         * @return  -   the destination, upper case.
+         */
+        public String destination() {
+            return destination;
+        }
+
+        public LocalDate date() {
+            return date;
+        }
+
+        public int size() {
+            return bucket.byPrice.length;
+        }
+
+        /**
+         * Passes the slice's flights within the limits to the action, either limit may be null.
+         */
+        public void forEachMatch(Long maxDurationMinutes, BigDecimal maxPrice, Consumer<Flight> action) {
+            bucket.visit(maxDurationMinutes == null ? Long.MAX_VALUE : maxDurationMinutes, maxPrice, action);
+        }
+    }
+
+    /**
+     * Immutable set of flights for one destination and date, held in two sort orders.
+     */
+    private static final class Bucket {
+        private final Flight[] byPrice;
+        private final BigDecimal[] prices;
+        private final long[] durationsByPrice;
+        private final Flight[] byDuration;
+        private final long[] durations;
+        private final BigDecimal[] pricesByDuration;
+
+        private Bucket(Flight[] flights) {
+            int size = flights.length;
+            byPrice = flights.clone();
+            Arrays.sort(byPrice, Comparator.comparing(Flight::getPrice).thenComparing(Flight::getId));
+            prices = new BigDecimal[size];
+            durationsByPrice = new long[size];
+            for (int i = 0; i < size; i++) {
+                prices[i] = byPrice[i].getPrice();
+                durationsByPrice[i] = byPrice[i].getDuration().toMinutes();
+            }
+
+            byDuration = flights.clone();
+            Arrays.sort(byDuration, Comparator.comparingLong((Flight f) -> f.getDuration().toMinutes()).thenComparing(Flight::getId));
+            durations = new long[size];
+            pricesByDuration = new BigDecimal[size];
+            for (int i = 0; i < size; i++) {
+                durations[i] = byDuration[i].getDuration().toMinutes();
+                pricesByDuration[i] = byDuration[i].getPrice();
+            }
+        }
+
+        static Bucket of(Flight flight) {
+            return new Bucket(new Flight[]{flight});
+        }
+
+        Bucket with(Flight flight) {
+            Flight[] flights = Arrays.copyOf(byPrice, byPrice.length + 1);
+            flights[byPrice.length] = flight;
+            return new Bucket(flights);
+        }
+
+        Bucket with(List<Flight> added) {
+            Flight[] flights = Arrays.copyOf(byPrice, byPrice.length + added.size());
+            for (int i = 0; i < added.size(); i++) {
+                flights[byPrice.length + i] = added.get(i);
+            }
+            return new Bucket(flights);
+        }
+
+        Bucket without(Flight flight) {
+            Flight[] flights = Arrays.stream(byPrice)
+                    .filter(f -> !f.getId().equals(flight.getId()))
+                    .toArray(Flight[]::new);
+            return flights.length == 0 ? null : new Bucket(flights);
+        }
+
+        /**
+         * Cuts both sort orders at their limits and walks the shorter prefix,
+         * checking only the other criterion.
+         */
+        void visit(long durationLimit, BigDecimal maxPrice, Consumer<Flight> action) {
+            int priceEnd = maxPrice == null ? prices.length : upperBound(prices, maxPrice);
+            int durationEnd = upperBound(durations, durationLimit);
+
+            if (priceEnd <= durationEnd) {
+                for (int i = 0; i < priceEnd; i++) {
+                    if (durationsByPrice[i] <= durationLimit) {
+                        action.accept(byPrice[i]);
+                    }
+                }
+            } else {
+                for (int i = 0; i < durationEnd; i++) {
+                    if (maxPrice == null || pricesByDuration[i].compareTo(maxPrice) <= 0) {
+                        action.accept(byDuration[i]);
+                    }
+                }
+            }
+        }
+
+        private static int upperBound(BigDecimal[] sorted, BigDecimal limit) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid].compareTo(limit) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static int upperBound(long[] sorted, long limit) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] <= limit) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -1,14 +1,62 @@
 package com.rainervana.flight_planner_backend.service;
 
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchRequest;
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchResponse;
+import com.rainervana.flight_planner_backend.dto.FlightPageResponse;
 import com.rainervana.flight_planner_backend.model.Flight;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FlightService {
     List<Flight> findFlights(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice);
 
+    FlightPageResponse findFlightsPage(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice, FlightSortOrder sortOrder, int limit, String cursor);
+
+    void forEachFlight(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice, Consumer<Flight> action);
+
+    FlexibleSearchResponse findFlexibleFlights(FlexibleSearchRequest request);
+
     Optional<Flight> findFlightById(Long id);
+
+    /**
+     * Makes sure the flights' seat inventories are in memory, loading the missing ones together
+     * rather than one lookup at a time.
+     *
+     * @param flights   -   flights of the catalog whose inventories are needed.
+     */
+    void loadSeatInventories(List<Flight> flights);
+
+    List<Flight> getAllFlights();
+
+    /**
+     * @return  -   a number that changes whenever a flight is added to or removed from the catalog,
+     *              structures derived from the whole catalog use it to know when to rebuild.
+     */
+    long catalogVersion();
+
+    /**
+     * @return  -   seat availability of the catalog's flights, a flight's entry is dropped when the flight is removed.
+     */
+    SeatAvailabilityIndex seatAvailability();
+
+    Flight addFlight(Flight flight);
+
+    void addFlights(List<Flight> flights);
+
+    /**
+     * Changes the schedule, route or price of a flight in place. The flight is taken out of the
+     * search index, changed and indexed again, cached results of its old and new destination and
+     * date are dropped.
+     *
+     * @param id        -   id of the flight to change.
+     * @param changes   -   new flight number, origin, destination, times and price, the aircraft type must stay the same.
+     * @return          -   "Optional" containing the changed Flight if it exists, otherwise empty "Optional"
+     */
+    Optional<Flight> updateFlight(Long id, Flight changes);
+
+    Optional<Flight> removeFlight(Long id);
 }
\ No newline at end of file
@@ -1,36 +1,79 @@
 package com.rainervana.flight_planner_backend.service;
 
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchRequest;
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchResponse;
+import com.rainervana.flight_planner_backend.dto.FlightPageResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
 import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.util.ConcurrentLongMap;
 
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
+@ConditionalOnProperty(name = "flight-planner.catalog", havingValue = "memory", matchIfMissing = true)
 public class FlightServiceImpl implements FlightService {
-    private final List<Flight> flights = new ArrayList<>();
+    private final ConcurrentLongMap<Flight> flightsById = new ConcurrentLongMap<>();
+    private final FlightSearchIndex searchIndex = new FlightSearchIndex();
+    private final FlexibleFlightSearch flexibleSearch = new FlexibleFlightSearch(searchIndex);
+    private final FlightSearchCache searchCache;
+    private final SeatAvailabilityIndex seatAvailability;
     private final AtomicLong idCounter = new AtomicLong();
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final SeatLayoutRegistry seatLayoutRegistry;
+    private final FlightPlannerMetrics metrics;
 
-    private static final int LAYOUT_TOTAL_ROWS = 25;
-    private static final List<String> LAYOUT_COLUMNS = List.of("A", "B", "C", "D", "E", "F");
     private static final double DEFAULT_OCCUPANCY_RATE = 0.4;
+    private static final int MAX_PAGE_SIZE = 500;
 
+    /**
+     * @param seatLayoutRegistry    -   layouts of new flights' seat inventories.
+     * @param metrics               -   search latency and catalog meters.
+     * @param searchCacheSize       -   most search results kept in the cache, 0 turns the cache off.
+     */
+    public FlightServiceImpl(
+            SeatLayoutRegistry seatLayoutRegistry,
+            FlightPlannerMetrics metrics,
+            @Value("${flight-planner.search-cache.max-entries:1024}") int searchCacheSize
+    ) {
+        this.seatLayoutRegistry = seatLayoutRegistry;
+        this.metrics = metrics;
+        this.searchCache = searchCacheSize > 0 ? new FlightSearchCache(searchCacheSize) : null;
+        this.seatAvailability = new SeatAvailabilityIndex(seatLayoutRegistry);
+        metrics.registerCatalogSize(flightsById::size);
+        if (searchCache != null) {
+            metrics.registerSearchCacheSize(searchCache::size);
+        }
+    }
+
+    /**
+     * Fills the catalog on startup, the in-memory catalog starts with generated sample flights.
+     */
     @PostConstruct
-    private void initSampleFlights() {  // generates random flights.
+    protected void loadFlights() {
+        initSampleFlights();
+    }
+
+    protected void initSampleFlights() {  // generates random flights.
         LocalDateTime baseTime = LocalDateTime.of(2025, 4, 1, 10, 30);
         String[] destinations = {"WAW", "RIX", "HEL", "ARN", "OSL"};
         String[] origins = {"TLL", "RIX"};
         String[] aircraft = {"Boeing 737", "Airbus A320", "ATR 72"};
 
         for (int i = 0; i < 20; i++) {
-            long currentId = idCounter.incrementAndGet();
             LocalDateTime departure = baseTime.plusDays(i % 5).plusHours(i % 3);
             LocalDateTime arrival = departure.plusMinutes(70 + (i * 3 % 55));
             BigDecimal price = new BigDecimal("95.00").add(BigDecimal.valueOf(i * 2.5));
@@ -39,64 +82,168 @@ public class FlightServiceImpl implements FlightService {
             String dest = destinations[i % destinations.length];
             String craft = aircraft[i % aircraft.length];
 
-            // Create flight instance using the constructor
-            Flight flight = new Flight(currentId, flightNr, origin, dest, departure, arrival, price, craft);
-
-            // Generate and set occupied seats specifically for this flight
-            List<String> occupiedSeats = generateRandomOccupiedSeatsForFlight();
-            flight.setOccupiedSeatNrs(occupiedSeats);
+            // Create flight instance using the constructor, the id is assigned when it is added
+            Flight flight = addFlight(new Flight(null, flightNr, origin, dest, departure, arrival, price, craft));
 
-            flights.add(flight);
+            // Occupy random seats specifically for this flight
+            occupyRandomSeats(flight.getSeatInventory(), flight.getId());
         }
 
         // Add the specific test flight with potentially different occupancy
-        Flight specificFlight = new Flight(
-                idCounter.incrementAndGet(), "BT123", "TLL", "WAW",
+        Flight specificFlight = addFlight(new Flight(
+                null, "BT123", "TLL", "WAW",
                 LocalDateTime.of(2025, 5, 10, 10, 0),
                 LocalDateTime.of(2025, 5, 10, 11, 30),
                 new BigDecimal("150.00"), "Boeing 737"
-        );
-        specificFlight.setOccupiedSeatNrs(generateRandomOccupiedSeatsForFlight(
         ));
-        flights.add(specificFlight);
+        occupyRandomSeats(specificFlight.getSeatInventory(), specificFlight.getId());
     }
 
     /**
-     * Helper method to generate a list of random seat numbers based on layout and rate.
+     * Helper method to mark random seats of an inventory as occupied based on the default rate.
+     * The random seed is fixed per flight, so the booking journal replays onto the same sample occupancy after a restart.
      *
-     * @return List<String> containing randomly chosen seat numbers.
+     * @param inventory -   empty seat inventory of the flight.
+     * @param seed      -   random seed, the flight id.
      */
-    private List<String> generateRandomOccupiedSeatsForFlight() {
-        List<String> allPossibleSeatNrs = new ArrayList<>();
-        for (int row = 1; row <= FlightServiceImpl.LAYOUT_TOTAL_ROWS; row++) {
-            for (String col : FlightServiceImpl.LAYOUT_COLUMNS) {
-                allPossibleSeatNrs.add(row + col);
-            }
+    private static void occupyRandomSeats(SeatInventory inventory, long seed) {
+        int capacity = inventory.capacity();
+        int numberToOccupy = (int) (capacity * DEFAULT_OCCUPANCY_RATE);
+
+        // partial Fisher-Yates shuffle over seat indexes, only the first numberToOccupy are needed.
+        int[] seatIndexes = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            seatIndexes[i] = i;
         }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < numberToOccupy; i++) {
+            int j = i + random.nextInt(capacity - i);
+            inventory.occupy(seatIndexes[j]);
+            seatIndexes[j] = seatIndexes[i];
+        }
+    }
 
-        int numberToOccupy = (int) (allPossibleSeatNrs.size() * FlightServiceImpl.DEFAULT_OCCUPANCY_RATE);
-        Collections.shuffle(allPossibleSeatNrs, ThreadLocalRandom.current());
+    /**
+     * Finds flights matching the specified criteria. Results of repeated queries come from the
+     * search cache until a flight matching the query is added or removed.
+     *
+     * @param destination           -   desired destination.
+     * @param date                  -   desired departure date.
+     * @param maxDurationMinutes    -   maximum flight duration in minutes.
+     * @param maxPrice              -   maximum allowed price for the flight.
+     * @return                      -   unmodifiable list of Flight objects matching the criteria, ordered by id.
+     */
+    @Override
+    public List<Flight> findFlights(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice) {
+        return metrics.searchTimer().record(() -> findCached(destination, date, maxDurationMinutes, maxPrice));
+    }
 
-        return new ArrayList<>(allPossibleSeatNrs.subList(0, Math.min(numberToOccupy, allPossibleSeatNrs.size())));
+    private List<Flight> findCached(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice) {
+        if (searchCache == null) {
+            return Collections.unmodifiableList(searchIndex.find(destination, date, maxDurationMinutes, maxPrice));
+        }
+        FlightSearchCache.Query query = FlightSearchCache.Query.of(destination, date, maxDurationMinutes, maxPrice);
+        List<Flight> flights = searchCache.get(query);
+        if (flights != null) {
+            metrics.searchCacheHit();
+            return flights;
+        }
+        metrics.searchCacheMiss();
+        // the stamp is taken before the index is read, a change in between keeps the result out of the cache.
+        long stamp = searchCache.stamp();
+        flights = Collections.unmodifiableList(searchIndex.find(destination, date, maxDurationMinutes, maxPrice));
+        searchCache.put(query, flights, stamp);
+        return flights;
     }
 
     /**
-     * Finds flights matching the specified criteria.
+     * Finds one page of flights matching the criteria in a stable sort order. Only the flights after
+     * the cursor are considered, and the top {@code limit} of them are kept in a bounded heap instead
+     * of sorting every match.
      *
      * @param destination           -   desired destination.
      * @param date                  -   desired departure date.
      * @param maxDurationMinutes    -   maximum flight duration in minutes.
      * @param maxPrice              -   maximum allowed price for the flight.
-     * @return                      -   list of Flight objects matching the criteria.
+     * @param sortOrder             -   order of the results, ties broken by id.
+     * @param limit                 -   page size, capped at MAX_PAGE_SIZE.
+     * @param cursor                -   "nextCursor" of the previous page, null for the first page.
+     * @return                      -   the page and the cursor of the next one.
      */
     @Override
-    public List<Flight> findFlights(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice) {
-        return flights.stream()
-                .filter(flight -> destination == null || flight.getDestination().equalsIgnoreCase(destination))
-                .filter(flight -> date == null || flight.getDepartureTime().toLocalDate().equals(date))
-                .filter(flight -> maxDurationMinutes == null || flight.getDuration().toMinutes() <= maxDurationMinutes)
-                .filter(flight -> maxPrice == null || flight.getPrice().compareTo(maxPrice) <= 0)
-                .collect(Collectors.toList());
+    public FlightPageResponse findFlightsPage(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice, FlightSortOrder sortOrder, int limit, String cursor) {
+        return metrics.pageSearchTimer().record(() -> findPage(destination, date, maxDurationMinutes, maxPrice, sortOrder, limit, cursor));
+    }
+
+    private FlightPageResponse findPage(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice, FlightSortOrder sortOrder, int limit, String cursor) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Comparator<Flight> comparator = sortOrder.comparator();
+
+        // decode the position of the last flight of the previous page.
+        Comparable<?> cursorKey = null;
+        long cursorId = 0L;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+                if (parts.length != 3 || !parts[0].equals(sortOrder.name())) {
+                    throw new IllegalArgumentException("Cursor does not match the sort order");
+                }
+                cursorKey = sortOrder.parseKey(parts[1]);
+                cursorId = Long.parseLong(parts[2]);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+            }
+        }
+
+        // keep the smallest pageSize + 1 flights, the extra one tells if there is a next page.
+        PriorityQueue<Flight> heap = new PriorityQueue<>(pageSize + 1, comparator.reversed());
+        Comparable<?> afterKey = cursorKey;
+        long afterId = cursorId;
+        searchIndex.forEachMatch(destination, date, maxDurationMinutes, maxPrice, flight -> {
+            if (afterKey != null && sortOrder.compareToCursor(flight, afterKey, afterId) <= 0) {
+                return;
+            }
+            if (heap.size() <= pageSize) {
+                heap.add(flight);
+            } else if (comparator.compare(flight, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(flight);
+            }
+        });
+
+        List<Flight> page = new ArrayList<>(heap);
+        page.sort(comparator);
+
+        String nextCursor = null;
+        if (page.size() > pageSize) {
+            page.remove(pageSize);
+            Flight last = page.get(pageSize - 1);
+            String position = sortOrder.name() + "|" + sortOrder.formatKey(last) + "|" + last.getId();
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new FlightPageResponse(page, nextCursor);
+    }
+
+    /**
+     * Streams all flights matching the criteria to the action as the index produces them,
+     * without collecting or sorting them. The recorded latency includes the time spent in the action.
+     */
+    @Override
+    public void forEachFlight(String destination, LocalDate date, Long maxDurationMinutes, BigDecimal maxPrice, Consumer<Flight> action) {
+        metrics.streamSearchTimer().record(() -> searchIndex.forEachMatch(destination, date, maxDurationMinutes, maxPrice, action));
+    }
+
+    /**
+     * Searches date ranges and destination sets at once and groups the matches, e.g. the cheapest
+     * flight per day. Large searches are evaluated in parallel, see {@link FlexibleFlightSearch}.
+     *
+     * @param request   -   dates, destinations, origins, limits, grouping, order and group size.
+     * @return          -   the non-empty groups, by date, then destination.
+     */
+    @Override
+    public FlexibleSearchResponse findFlexibleFlights(FlexibleSearchRequest request) {
+        return metrics.flexibleSearchTimer().record(() -> flexibleSearch.search(request));
     }
 
     /**
@@ -107,8 +254,179 @@ public class FlightServiceImpl implements FlightService {
      */
     @Override
     public Optional<Flight> findFlightById(Long id) {
-        return flights.stream()
-                .filter(flight -> flight.getId().equals(id))
-                .findFirst();
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(flightsById.get(id));
+    }
+
+    /**
+     * Flights of the in-memory catalog get their inventory when they are added, nothing to load.
+     */
+    @Override
+    public void loadSeatInventories(List<Flight> flights) {
+    }
+
+    /**
+     * @return  -   a point-in-time copy of every flight in the catalog, in no particular order.
+     */
+    @Override
+    public List<Flight> getAllFlights() {
+        return flightsById.values();
+    }
+
+    @Override
+    public long catalogVersion() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * Adds a flight to the catalog and to the search index.
+     * Assigns a new id and an empty seat inventory if the flight has none.
+     *
+     * @param flight    -   flight to add.
+     * @return          -   the added flight.
+     */
+    @Override
+    public Flight addFlight(Flight flight) {
+        if (flight.getId() == null) {
+            flight.setId(idCounter.incrementAndGet());
+        }
+        if (flight.getSeatInventory() == null) {
+            flight.setSeatInventory(seatLayoutRegistry.layoutFor(flight.getAircraftType()).newInventory());
+        }
+        cacheFlight(flight);
+        return flight;
+    }
+
+    /**
+     * Adds many flights at once, like {@link #addFlight(Flight)} for each of them. The search index
+     * is bulk loaded and the search cache is cleared once instead of per flight. Either all flights
+     * are added or, if an id is taken, none of them.
+     *
+     * @param flights   -   flights to add, in the order they get their ids.
+     */
+    @Override
+    public void addFlights(List<Flight> flights) {
+        // check the given ids before anything is changed, against the catalog and within the batch.
+        Set<Long> ids = new HashSet<>(flights.size() * 2);
+        for (Flight flight : flights) {
+            if (flight.getId() != null && (!ids.add(flight.getId()) || flightsById.containsKey(flight.getId()))) {
+                throw new IllegalArgumentException("Flight already exists with ID: " + flight.getId());
+            }
+        }
+        for (Flight flight : flights) {
+            if (flight.getId() == null) {
+                flight.setId(idCounter.incrementAndGet());
+            }
+            if (flight.getSeatInventory() == null) {
+                flight.setSeatInventory(seatLayoutRegistry.layoutFor(flight.getAircraftType()).newInventory());
+            }
+        }
+        for (int i = 0; i < flights.size(); i++) {
+            Flight flight = flights.get(i);
+            if (flightsById.putIfAbsent(flight.getId(), flight) != null) {
+                // taken by a concurrent add since the check, take the batch back out.
+                for (int j = 0; j < i; j++) {
+                    flightsById.remove(flights.get(j).getId());
+                }
+                throw new IllegalArgumentException("Flight already exists with ID: " + flight.getId());
+            }
+        }
+        for (Flight flight : flights) {
+            metrics.registerFlight(flight);
+        }
+        searchIndex.addAll(flights);
+        if (searchCache != null) {
+            searchCache.clear();
+        }
+        catalogVersion.incrementAndGet();
+    }
+
+    /**
+     * Puts a flight with an id into the catalog and the search index as it is.
+     *
+     * @param flight    -   flight to cache, its seat inventory may still be unset.
+     */
+    protected void cacheFlight(Flight flight) {
+        if (flightsById.putIfAbsent(flight.getId(), flight) != null) {
+            throw new IllegalArgumentException("Flight already exists with ID: " + flight.getId());
+        }
+        searchIndex.add(flight);
+        invalidateSearchCache(flight);
+        catalogVersion.incrementAndGet();
+        metrics.registerFlight(flight);
+    }
+
+    @Override
+    public SeatAvailabilityIndex seatAvailability() {
+        return seatAvailability;
+    }
+
+    /**
+     * Removes a flight from the catalog, the search index and the seat availability index.
+     *
+     * @param id    -   id of the flight to remove.
+     * @return      -   "Optional" containing the removed Flight if it existed, otherwise empty "Optional"
+     */
+    @Override
+    public Optional<Flight> removeFlight(Long id) {
+        Flight flight = id == null ? null : flightsById.remove(id);
+        if (flight == null) {
+            return Optional.empty();
+        }
+        // an updateFlight in progress must finish first, the index is keyed by the flight's values.
+        synchronized (flight) {
+            searchIndex.remove(flight);
+            invalidateSearchCache(flight);
+        }
+        seatAvailability.remove(flight.getId());
+        catalogVersion.incrementAndGet();
+        metrics.unregisterFlight(flight);
+        return Optional.of(flight);
+    }
+
+    /**
+     * Changes a flight in place, the seat inventory is kept. The cache is invalidated for the old
+     * values once the flight left the index and for the new ones once it is back, a search running
+     * in between can't cache a result without it.
+     */
+    @Override
+    public Optional<Flight> updateFlight(Long id, Flight changes) {
+        Flight flight = id == null ? null : flightsById.get(id);
+        if (flight == null) {
+            return Optional.empty();
+        }
+        if (!Objects.equals(flight.getAircraftType(), changes.getAircraftType())) {
+            throw new IllegalArgumentException("The aircraft type of flight " + id + " can't change, its seats are booked on " + flight.getAircraftType());
+        }
+        synchronized (flight) {
+            searchIndex.remove(flight);
+            invalidateSearchCache(flight);
+            metrics.unregisterFlight(flight);
+
+            flight.setFlightNr(changes.getFlightNr());
+            flight.setOrigin(changes.getOrigin());
+            flight.setDestination(changes.getDestination());
+            flight.setDepartureTime(changes.getDepartureTime());
+            flight.setArrivalTime(changes.getArrivalTime());
+            flight.setPrice(changes.getPrice());
+
+            // a concurrent removeFlight took it out of the index before we did, don't bring it back.
+            if (flightsById.get(id) != flight) {
+                return Optional.empty();
+            }
+            searchIndex.add(flight);
+            invalidateSearchCache(flight);
+            metrics.registerFlight(flight);
+        }
+        catalogVersion.incrementAndGet();
+        return Optional.of(flight);
+    }
+
+    private void invalidateSearchCache(Flight flight) {
+        if (searchCache != null) {
+            searchCache.invalidate(flight);
+        }
     }
 }
@@ -0,0 +1,83 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Sort orders for paginated flight search. Every order breaks ties by flight id, so pages are stable.
+ */
+public enum FlightSortOrder {
+    DEPARTURE_TIME {
+        @Override
+        Comparable<?> key(Flight flight) {
+            return flight.getDepartureTime();
+        }
+
+        @Override
+        Comparable<?> parseKey(String key) {
+            return LocalDateTime.parse(key);
+        }
+    },
+    PRICE {
+        @Override
+        Comparable<?> key(Flight flight) {
+            return flight.getPrice();
+        }
+
+        @Override
+        Comparable<?> parseKey(String key) {
+            return new BigDecimal(key);
+        }
+
+        @Override
+        String formatKey(Flight flight) {
+            return flight.getPrice().toPlainString();
+        }
+    },
+    DURATION {
+        @Override
+        Comparable<?> key(Flight flight) {
+            return flight.getDuration().toMinutes();
+        }
+
+        @Override
+        Comparable<?> parseKey(String key) {
+            return Long.parseLong(key);
+        }
+    };
+
+    private final Comparator<Flight> comparator = (a, b) -> {
+        int byKey = compareKeys(key(a), key(b));
+        return byKey != 0 ? byKey : a.getId().compareTo(b.getId());
+    };
+
+    abstract Comparable<?> key(Flight flight);
+
+    abstract Comparable<?> parseKey(String key);
+
+    String formatKey(Flight flight) {
+        return String.valueOf(key(flight));
+    }
+
+    public Comparator<Flight> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Compares a flight with a cursor position taken from {@link #formatKey} and the flight id.
+     *
+     * @return  -   negative, zero or positive like {@link Comparator#compare}.
+     */
+    int compareToCursor(Flight flight, Comparable<?> cursorKey, long cursorId) {
+        int byKey = compareKeys(key(flight), cursorKey);
+        return byKey != 0 ? byKey : Long.compare(flight.getId(), cursorId);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareKeys(Comparable a, Comparable b) {
+        return a.compareTo(b);
+    }
+}
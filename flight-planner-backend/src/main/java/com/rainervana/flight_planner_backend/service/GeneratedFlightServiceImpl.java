@@ -0,0 +1,58 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * In-memory flight catalog filled by the {@link CatalogGenerator} on startup, to run the
+ * application locally against production-sized data. The catalog is the same on every start,
+ * so the booking journal replays onto the same flights.
+ */
+@Service
+@ConditionalOnProperty(name = "flight-planner.catalog", havingValue = "generated")
+public class GeneratedFlightServiceImpl extends FlightServiceImpl {
+    private static final Logger log = LoggerFactory.getLogger(GeneratedFlightServiceImpl.class);
+
+    private final CatalogGenerator catalogGenerator;
+    private final int flights;
+
+    /**
+     * @param flights   -   number of flights to generate.
+     * @param seed      -   same seed, same catalog.
+     * @param firstDay  -   departure date of the earliest flights, ISO format.
+     * @param days      -   number of days the departures are spread over.
+     * @param airports  -   number of airports the routes connect.
+     */
+    public GeneratedFlightServiceImpl(
+            SeatLayoutRegistry seatLayoutRegistry,
+            FlightPlannerMetrics metrics,
+            @Value("${flight-planner.search-cache.max-entries:1024}") int searchCacheSize,
+            @Value("${flight-planner.generator.flights:1000000}") int flights,
+            @Value("${flight-planner.generator.seed:42}") long seed,
+            @Value("${flight-planner.generator.first-day:2025-04-01}") String firstDay,
+            @Value("${flight-planner.generator.days:60}") int days,
+            @Value("${flight-planner.generator.airports:40}") int airports
+    ) {
+        super(seatLayoutRegistry, metrics, searchCacheSize);
+        this.catalogGenerator = new CatalogGenerator(seatLayoutRegistry, seed, LocalDate.parse(firstDay), days, airports);
+        this.flights = flights;
+    }
+
+    @Override
+    protected void loadFlights() {
+        long start = System.nanoTime();
+        List<Flight> generated = catalogGenerator.generate(flights);
+        long generatedAt = System.nanoTime();
+        addFlights(generated);
+        log.info("Generated {} flights in {} ms, indexed them in {} ms", generated.size(),
+                (generatedAt - start) / 1_000_000, (System.nanoTime() - generatedAt) / 1_000_000);
+    }
+}
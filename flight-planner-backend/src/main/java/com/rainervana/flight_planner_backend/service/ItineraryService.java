@@ -0,0 +1,10 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.ItineraryResponse;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ItineraryService {
+    List<ItineraryResponse> findItineraries(String origin, String destination, LocalDate date, int maxStops, ItinerarySortOrder sortOrder, int limit);
+}
@@ -0,0 +1,461 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.ItineraryResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Finds direct, one-stop and two-stop itineraries between two airports.
+ * <p>
+ * The catalog is turned into an immutable route graph that is rebuilt whenever the catalog version
+ * changes. Flights are grouped by origin airport and sorted by departure time, so the onward
+ * flights of a connection are a binary-searched window between the minimum connection time and
+ * the longest allowed layover. A second ordering groups flights by origin and destination, the
+ * last leg to the destination is looked up directly, and its cheapest and shortest flight bound
+ * every partial itinerary from below. Only the best {@code limit} itineraries are kept, and a
+ * partial itinerary whose bound is already worse than all of them is dropped without expanding it.
+ */
+@Service
+public class ItineraryServiceImpl implements ItineraryService {
+    private static final Logger log = LoggerFactory.getLogger(ItineraryServiceImpl.class);
+
+    private static final int MAX_STOPS = 2;
+    private static final int MAX_RESULTS = 200;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final FlightService flightService;
+    private final FlightPlannerMetrics metrics;
+    private final long minConnectionMinutes;
+    private final Map<String, Long> airportMinConnectionMinutes = new HashMap<>();
+    private final long maxConnectionMinutes;
+    private volatile RouteGraph graph;
+
+    /**
+     * @param flightService                 -   catalog to build the route graph from.
+     * @param metrics                       -   search latency timer.
+     * @param minConnectionMinutes          -   minimum connection time at airports without a rule of their own.
+     * @param airportMinConnectionMinutes   -   minimum connection times per airport as {@code airport:minutes} pairs, e.g. {@code RIX:35,HEL:40}.
+     * @param maxConnectionMinutes          -   longest layover between two legs.
+     */
+    public ItineraryServiceImpl(
+            FlightService flightService,
+            FlightPlannerMetrics metrics,
+            @Value("${flight-planner.itineraries.min-connection-minutes:45}") long minConnectionMinutes,
+            @Value("${flight-planner.itineraries.airport-min-connection-minutes:}") String airportMinConnectionMinutes,
+            @Value("${flight-planner.itineraries.max-connection-minutes:1440}") long maxConnectionMinutes
+    ) {
+        this.flightService = flightService;
+        this.metrics = metrics;
+        this.minConnectionMinutes = minConnectionMinutes;
+        this.maxConnectionMinutes = maxConnectionMinutes;
+
+        if (airportMinConnectionMinutes != null && !airportMinConnectionMinutes.isBlank()) {
+            for (String rule : airportMinConnectionMinutes.split(",")) {
+                String[] parts = rule.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid minimum connection time: " + rule);
+                }
+                this.airportMinConnectionMinutes.put(normalize(parts[0].trim()), Long.parseLong(parts[1].trim()));
+            }
+        }
+        if (minConnectionMinutes < 0 || maxConnectionMinutes < minConnectionMinutes) {
+            throw new IllegalArgumentException("Maximum connection time must not be shorter than the minimum connection time");
+        }
+    }
+
+    /**
+     * Finds the best itineraries from an origin to a destination.
+     *
+     * @param origin        -   departure airport, case-insensitive.
+     * @param destination   -   arrival airport, case-insensitive.
+     * @param date          -   departure date of the first leg, null for any date.
+     * @param maxStops      -   0 for direct flights only, at most 2.
+     * @param sortOrder     -   ranking of the itineraries, by total price or by total travel time.
+     * @param limit         -   number of itineraries to return, capped at MAX_RESULTS.
+     * @return              -   the best itineraries, best first.
+     */
+    @Override
+    public List<ItineraryResponse> findItineraries(String origin, String destination, LocalDate date, int maxStops, ItinerarySortOrder sortOrder, int limit) {
+        if (origin == null || origin.isBlank() || destination == null || destination.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Origin and destination are required");
+        }
+        if (normalize(origin).equals(normalize(destination))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Origin and destination must differ");
+        }
+        if (maxStops < 0 || maxStops > MAX_STOPS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Number of stops must be between 0 and " + MAX_STOPS);
+        }
+        ItinerarySortOrder order = sortOrder == null ? ItinerarySortOrder.PRICE : sortOrder;
+        int resultSize = Math.max(1, Math.min(limit, MAX_RESULTS));
+
+        return metrics.itinerarySearchTimer().record(() -> search(normalize(origin), normalize(destination), date, maxStops, order, resultSize));
+    }
+
+    private List<ItineraryResponse> search(String origin, String destination, LocalDate date, int maxStops, ItinerarySortOrder sortOrder, int limit) {
+        RouteGraph routeGraph = currentGraph();
+        Integer from = routeGraph.airportIds.get(origin);
+        Integer to = routeGraph.airportIds.get(destination);
+        if (from == null || to == null) {
+            return List.of();
+        }
+
+        long windowStart = date == null ? Long.MIN_VALUE : toMinutes(date.atStartOfDay());
+        long windowEnd = date == null ? Long.MAX_VALUE : windowStart + MINUTES_PER_DAY;
+
+        Search search = new Search(routeGraph, from, to, sortOrder, limit);
+        search.direct(windowStart, windowEnd);
+        // fewer stops first, their results make the bounds for the longer itineraries tight early.
+        for (int stops = 1; stops <= maxStops; stops++) {
+            search.connecting(windowStart, windowEnd, stops);
+        }
+        return search.results();
+    }
+
+    /**
+     * @return  -   the route graph of the current catalog, rebuilt if flights were added or removed since the last search.
+     */
+    private RouteGraph currentGraph() {
+        long version = flightService.catalogVersion();
+        RouteGraph current = graph;
+        if (current != null && current.version == version) {
+            return current;
+        }
+        synchronized (this) {
+            current = graph;
+            if (current == null || current.version != version) {
+                // the version is read before the flights, a change during the build triggers another one.
+                current = buildGraph(version, flightService.getAllFlights());
+                graph = current;
+                log.info("Built route graph of {} flights between {} airports.", current.flights.length, current.airportIds.size());
+            }
+            return current;
+        }
+    }
+
+    private RouteGraph buildGraph(long version, List<Flight> catalog) {
+        Map<String, Integer> airportIds = new HashMap<>();
+        List<Leg> usable = new ArrayList<>(catalog.size());
+        for (Flight flight : catalog) {
+            if (flight.getOrigin() == null || flight.getDestination() == null || flight.getDepartureTime() == null
+                    || flight.getArrivalTime() == null || flight.getPrice() == null
+                    || normalize(flight.getOrigin()).equals(normalize(flight.getDestination()))
+                    || flight.getArrivalTime().isBefore(flight.getDepartureTime())) {
+                continue;
+            }
+            int origin = airportIds.computeIfAbsent(normalize(flight.getOrigin()), airport -> airportIds.size());
+            int destination = airportIds.computeIfAbsent(normalize(flight.getDestination()), airport -> airportIds.size());
+            usable.add(new Leg(origin, destination, toMinutes(flight.getDepartureTime()), flight));
+        }
+        usable.sort(Comparator.comparingInt(Leg::origin).thenComparingLong(Leg::departure).thenComparing(leg -> leg.flight().getId()));
+
+        long[] minConnection = new long[airportIds.size()];
+        for (Map.Entry<String, Integer> airport : airportIds.entrySet()) {
+            minConnection[airport.getValue()] = airportMinConnectionMinutes.getOrDefault(airport.getKey(), minConnectionMinutes);
+        }
+        return new RouteGraph(version, airportIds, usable.toArray(Leg[]::new), minConnection);
+    }
+
+    private static String normalize(String airport) {
+        return airport.toUpperCase(Locale.ROOT);
+    }
+
+    private static long toMinutes(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * @return  -   the first index in [from, to) whose value is at least the key.
+     */
+    private static int lowerBound(long[] sorted, int from, int to, long key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long routeKey(int origin, int destination) {
+        return ((long) origin << 32) | destination;
+    }
+
+    /**
+     * Immutable, time-indexed route graph of one catalog version. Airports are numbered, flights are
+     * referred to by their index in {@code flights}, which is ordered by origin, departure time and id.
+     */
+    private static final class RouteGraph {
+        private final long version;
+        private final Map<String, Integer> airportIds;
+        private final Flight[] flights;
+        private final int[] destinations;
+        // minutes since the epoch.
+        private final long[] departures;
+        private final long[] arrivals;
+        // listed prices in minor units.
+        private final long[] prices;
+        // the flights from airport a are flights[airportStart[a]] until flights[airportStart[a + 1] - 1].
+        private final int[] airportStart;
+        private final long[] minConnection;
+        // flight indexes ordered by origin, destination and departure time, with their departure times.
+        private final int[] routeFlights;
+        private final long[] routeDepartures;
+        private final Map<Long, Route> routes = new HashMap<>();
+
+        RouteGraph(long version, Map<String, Integer> airportIds, Leg[] legs, long[] minConnection) {
+            this.version = version;
+            this.airportIds = airportIds;
+            this.minConnection = minConnection;
+
+            int size = legs.length;
+            flights = new Flight[size];
+            int[] origins = new int[size];
+            destinations = new int[size];
+            departures = new long[size];
+            arrivals = new long[size];
+            prices = new long[size];
+            airportStart = new int[airportIds.size() + 1];
+            for (int i = 0; i < size; i++) {
+                Flight flight = legs[i].flight();
+                flights[i] = flight;
+                origins[i] = legs[i].origin();
+                destinations[i] = legs[i].destination();
+                departures[i] = legs[i].departure();
+                arrivals[i] = toMinutes(flight.getArrivalTime());
+                prices[i] = toMinorUnits(flight.getPrice());
+                airportStart[origins[i] + 1]++;
+            }
+            for (int a = 0; a < airportIds.size(); a++) {
+                airportStart[a + 1] += airportStart[a];
+            }
+
+            // within each origin, order by destination while keeping the departure order.
+            routeFlights = new int[size];
+            routeDepartures = new long[size];
+            for (int a = 0; a < airportIds.size(); a++) {
+                int start = airportStart[a];
+                int end = airportStart[a + 1];
+                long[] keys = new long[end - start];
+                for (int i = start; i < end; i++) {
+                    keys[i - start] = ((long) destinations[i] << 32) | (i - start);
+                }
+                Arrays.sort(keys);
+                for (int i = start; i < end; i++) {
+                    routeFlights[i] = start + (int) keys[i - start];
+                    routeDepartures[i] = departures[routeFlights[i]];
+                }
+            }
+
+            for (int i = 0; i < size; ) {
+                int flight = routeFlights[i];
+                int end = i;
+                long minPrice = Long.MAX_VALUE;
+                long minDuration = Long.MAX_VALUE;
+                while (end < size && origins[routeFlights[end]] == origins[flight] && destinations[routeFlights[end]] == destinations[flight]) {
+                    int f = routeFlights[end];
+                    minPrice = Math.min(minPrice, prices[f]);
+                    minDuration = Math.min(minDuration, arrivals[f] - departures[f]);
+                    end++;
+                }
+                routes.put(routeKey(origins[flight], destinations[flight]), new Route(i, end, minPrice, minDuration));
+                i = end;
+            }
+        }
+    }
+
+    /**
+     * The flights between two airports, routeFlights[start] until routeFlights[end - 1], and their
+     * cheapest price and shortest duration as lower bounds for any itinerary ending with one of them.
+     */
+    private record Route(int start, int end, long minPrice, long minDuration) {
+    }
+
+    /**
+     * A catalog flight with its airport ids and departure in minutes, while the graph is built.
+     */
+    private record Leg(int origin, int destination, long departure, Flight flight) {
+    }
+
+    private record Candidate(int[] legs, long price, long duration, long departure) {
+    }
+
+    /**
+     * State of a single search, keeps the best itineraries found so far in a bounded heap with the worst on top.
+     */
+    private final class Search {
+        private final RouteGraph g;
+        private final int from;
+        private final int to;
+        private final ItinerarySortOrder sortOrder;
+        private final int limit;
+        private final Comparator<Candidate> comparator;
+        private final PriorityQueue<Candidate> best;
+        private final int[] legs = new int[MAX_STOPS + 1];
+
+        Search(RouteGraph g, int from, int to, ItinerarySortOrder sortOrder, int limit) {
+            this.g = g;
+            this.from = from;
+            this.to = to;
+            this.sortOrder = sortOrder;
+            this.limit = limit;
+            Comparator<Candidate> byPrice = Comparator.comparingLong(Candidate::price);
+            Comparator<Candidate> byDuration = Comparator.comparingLong(Candidate::duration);
+            this.comparator = (sortOrder == ItinerarySortOrder.PRICE ? byPrice.thenComparing(byDuration) : byDuration.thenComparing(byPrice))
+                    .thenComparingLong(Candidate::departure)
+                    .thenComparing(Candidate::legs, Arrays::compare);
+            this.best = new PriorityQueue<>(limit + 1, comparator.reversed());
+        }
+
+        void direct(long windowStart, long windowEnd) {
+            Route route = g.routes.get(routeKey(from, to));
+            if (route == null) {
+                return;
+            }
+            for (int i = lowerBound(g.routeDepartures, route.start(), route.end(), windowStart); i < route.end() && g.routeDepartures[i] < windowEnd; i++) {
+                int flight = g.routeFlights[i];
+                legs[0] = flight;
+                offer(1, g.departures[flight], g.prices[flight], g.arrivals[flight]);
+            }
+        }
+
+        void connecting(long windowStart, long windowEnd, int stops) {
+            int end = g.airportStart[from + 1];
+            for (int flight = lowerBound(g.departures, g.airportStart[from], end, windowStart); flight < end && g.departures[flight] < windowEnd; flight++) {
+                int hub = g.destinations[flight];
+                if (hub == to || isPruned(flight, g.departures[flight], 0L, stops)) {
+                    continue;
+                }
+                legs[0] = flight;
+                extend(1, g.departures[flight], g.prices[flight], stops);
+            }
+        }
+
+        /**
+         * Adds the next leg after legs[legCount - 1], the itinerary has exactly {@code stopsLeft} more connections.
+         */
+        private void extend(int legCount, long firstDeparture, long price, int stopsLeft) {
+            int previous = legs[legCount - 1];
+            int hub = g.destinations[previous];
+            long earliest = g.arrivals[previous] + g.minConnection[hub];
+            long latest = g.arrivals[previous] + maxConnectionMinutes;
+
+            if (stopsLeft == 1) {
+                Route route = g.routes.get(routeKey(hub, to));
+                for (int i = lowerBound(g.routeDepartures, route.start(), route.end(), earliest); i < route.end() && g.routeDepartures[i] <= latest; i++) {
+                    int flight = g.routeFlights[i];
+                    legs[legCount] = flight;
+                    offer(legCount + 1, firstDeparture, price + g.prices[flight], g.arrivals[flight]);
+                }
+                return;
+            }
+
+            int end = g.airportStart[hub + 1];
+            for (int flight = lowerBound(g.departures, g.airportStart[hub], end, earliest); flight < end && g.departures[flight] <= latest; flight++) {
+                int next = g.destinations[flight];
+                if (next == to || visited(legCount, next) || isPruned(flight, firstDeparture, price, stopsLeft - 1)) {
+                    continue;
+                }
+                legs[legCount] = flight;
+                extend(legCount + 1, firstDeparture, price + g.prices[flight], stopsLeft - 1);
+            }
+        }
+
+        /**
+         * Checks if taking a flight can still lead to one of the best itineraries. With one connection
+         * left the last leg must fly to the destination, so its route has to exist and its cheapest and
+         * shortest flight are added to the bound.
+         */
+        private boolean isPruned(int flight, long firstDeparture, long price, int stopsLeft) {
+            long priceBound = price + g.prices[flight];
+            long durationBound = g.arrivals[flight] - firstDeparture;
+            if (stopsLeft == 1) {
+                int hub = g.destinations[flight];
+                Route route = g.routes.get(routeKey(hub, to));
+                if (route == null) {
+                    return true;
+                }
+                priceBound += route.minPrice();
+                durationBound += g.minConnection[hub] + route.minDuration();
+            }
+            if (best.size() < limit) {
+                return false;
+            }
+            Candidate worst = best.peek();
+            return sortOrder == ItinerarySortOrder.PRICE ? priceBound > worst.price() : durationBound > worst.duration();
+        }
+
+        private boolean visited(int legCount, int airport) {
+            if (airport == from) {
+                return true;
+            }
+            for (int i = 0; i < legCount; i++) {
+                if (g.destinations[legs[i]] == airport) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void offer(int legCount, long firstDeparture, long price, long arrival) {
+            long duration = arrival - firstDeparture;
+            if (best.size() >= limit) {
+                Candidate worst = best.peek();
+                long key = sortOrder == ItinerarySortOrder.PRICE ? price : duration;
+                long worstKey = sortOrder == ItinerarySortOrder.PRICE ? worst.price() : worst.duration();
+                if (key > worstKey) {
+                    return;
+                }
+            }
+            Candidate candidate = new Candidate(Arrays.copyOf(legs, legCount), price, duration, firstDeparture);
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (comparator.compare(candidate, best.peek()) < 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+
+        List<ItineraryResponse> results() {
+            List<Candidate> candidates = new ArrayList<>(best);
+            candidates.sort(comparator);
+
+            List<ItineraryResponse> itineraries = new ArrayList<>(candidates.size());
+            for (Candidate candidate : candidates) {
+                List<Flight> flights = new ArrayList<>(candidate.legs().length);
+                for (int leg : candidate.legs()) {
+                    flights.add(g.flights[leg]);
+                }
+                itineraries.add(new ItineraryResponse(
+                        flights,
+                        flights.size() - 1,
+                        flights.get(0).getDepartureTime(),
+                        flights.get(flights.size() - 1).getArrivalTime(),
+                        candidate.duration(),
+                        FareEngine.toAmount(candidate.price())
+                ));
+            }
+            return itineraries;
+        }
+    }
+}
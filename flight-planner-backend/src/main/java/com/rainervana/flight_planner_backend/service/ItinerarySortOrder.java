@@ -0,0 +1,9 @@
+package com.rainervana.flight_planner_backend.service;
+
+/**
+ * Ranking of itinerary search results. Ties are broken by the other criterion, then by departure time.
+ */
+public enum ItinerarySortOrder {
+    PRICE,
+    DURATION
+}
@@ -0,0 +1,152 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.util.ConsistentHashRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Which backend instance owns which flights when the inventory is partitioned over several nodes.
+ * <p>
+ * Every node loads the same flight catalog, but only the owner of a flight keeps its seat
+ * inventory current: seat maps, quotes, holds and bookings of a flight are all served by its
+ * owner, so bookings never need a lock across nodes. Flight ids are assigned to nodes by a
+ * {@link ConsistentHashRing} over the node list, which must be the same on every node. Seat hold
+ * ids are numbered per node so that the owner of a hold is known from its id alone. Every node
+ * enforces its ownership itself and rejects changes of other nodes' flights and holds with
+ * {@link #MISDIRECTED_REQUEST}, whichever way the request reached it.
+ * <p>
+ * With no nodes configured the application runs as a single node that owns every flight.
+ */
+@Service
+public class PartitionMap {
+    public static final HttpStatusCode MISDIRECTED_REQUEST = HttpStatusCode.valueOf(421);
+
+    private final List<String> nodes;
+    private final String self;
+    private final int selfIndex;
+    private final ConsistentHashRing ring;
+
+    /**
+     * @param nodes         -   base URLs of all nodes, comma separated, e.g. {@code http://backend-1:8080,http://backend-2:8080}.
+     *                          Empty for a single node.
+     * @param self          -   base URL of this node, one of the nodes.
+     * @param virtualNodes  -   ring points per node.
+     */
+    public PartitionMap(
+            @Value("${flight-planner.cluster.nodes:}") String nodes,
+            @Value("${flight-planner.cluster.self:}") String self,
+            @Value("${flight-planner.cluster.virtual-nodes:128}") int virtualNodes
+    ) {
+        this.nodes = nodes == null || nodes.isBlank() ? List.of() : Arrays.stream(nodes.split(","))
+                .map(PartitionMap::normalize)
+                .toList();
+        if (this.nodes.isEmpty()) {
+            this.self = "";
+            this.selfIndex = 0;
+            this.ring = null;
+            return;
+        }
+
+        this.self = normalize(self == null ? "" : self);
+        this.selfIndex = this.nodes.indexOf(this.self);
+        if (selfIndex < 0) {
+            throw new IllegalArgumentException("flight-planner.cluster.self must be one of the nodes " + this.nodes + ", got: " + self);
+        }
+        this.ring = new ConsistentHashRing(this.nodes, virtualNodes);
+    }
+
+    public static PartitionMap singleNode() {
+        return new PartitionMap("", "", 1);
+    }
+
+    public boolean isPartitioned() {
+        return ring != null;
+    }
+
+    /**
+     * @return  -   base URL of this node, empty for a single node.
+     */
+    public String self() {
+        return self;
+    }
+
+    /**
+     * @return  -   base URLs of all other nodes.
+     */
+    public List<String> peers() {
+        return nodes.stream().filter(node -> !node.equals(self)).toList();
+    }
+
+    /**
+     * @param node  -   base URL a request claims to come from, may be null.
+     * @return      -   whether it is one of the other nodes of the cluster.
+     */
+    public boolean isPeer(String node) {
+        if (node == null || ring == null) {
+            return false;
+        }
+        String normalized = normalize(node);
+        return !normalized.equals(self) && nodes.contains(normalized);
+    }
+
+    public boolean ownsFlight(long flightId) {
+        return ring == null || ring.nodeIndexFor(flightId) == selfIndex;
+    }
+
+    /**
+     * @return  -   base URL of the flight's owner.
+     */
+    public String ownerOfFlight(long flightId) {
+        return ring == null ? self : ring.nodeFor(flightId);
+    }
+
+    /**
+     * Hold ids of node {@code i} of {@code n} are {@code i, i + n, i + 2n, ...}, the sequence starts at 1.
+     *
+     * @param sequence  -   per-node hold counter.
+     * @return          -   cluster-wide unique hold id.
+     */
+    public long holdId(long sequence) {
+        return ring == null ? sequence : sequence * nodes.size() + selfIndex;
+    }
+
+    /**
+     * @return  -   base URL of the node that created the hold.
+     */
+    public String ownerOfHold(long holdId) {
+        return ring == null ? self : nodes.get((int) Math.floorMod(holdId, (long) nodes.size()));
+    }
+
+    /**
+     * Rejects a change of a flight another node owns. This node's copy of its inventory isn't kept
+     * current, a booking or hold made on it would be lost or collide with the owner's.
+     *
+     * @param flightId  -   flight to change.
+     */
+    public void checkOwnsFlight(long flightId) {
+        if (!ownsFlight(flightId)) {
+            throw new ResponseStatusException(MISDIRECTED_REQUEST, "Flight " + flightId + " is owned by " + ownerOfFlight(flightId));
+        }
+    }
+
+    /**
+     * Rejects a change of a hold another node created, only that node has it.
+     *
+     * @param holdId    -   hold to change.
+     */
+    public void checkOwnsHold(long holdId) {
+        if (ring != null && !ownerOfHold(holdId).equals(self)) {
+            throw new ResponseStatusException(MISDIRECTED_REQUEST, "Seat hold " + holdId + " is owned by " + ownerOfHold(holdId));
+        }
+    }
+
+    private static String normalize(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
@@ -0,0 +1,222 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rainervana.flight_planner_backend.dto.BatchBookingRequest;
+import com.rainervana.flight_planner_backend.dto.BatchBookingResponse;
+import com.rainervana.flight_planner_backend.dto.BatchBookingResult;
+import com.rainervana.flight_planner_backend.dto.BookingRequest;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Sends requests to the other nodes of a partitioned deployment, see {@link PartitionMap}.
+ * <p>
+ * Requests between nodes carry the {@link #FORWARDED_HEADER}, a node never passes those on, so a
+ * request takes at most one hop. The header grants nothing: a node only changes flights and holds
+ * it owns, however the request reached it. Nodes talk plain HTTP to each other's public API, there
+ * is no service outside the nodes themselves.
+ */
+@Service
+public class PartitionRouter {
+    private static final Logger log = LoggerFactory.getLogger(PartitionRouter.class);
+
+    public static final String FORWARDED_HEADER = "X-Flight-Planner-Forwarded";
+    private static final String BATCH_BOOKINGS_PATH = "/api/flights/bookings/batch";
+    private static final TypeReference<BatchBookingResponse> BATCH_BOOKING_RESPONSE = new TypeReference<>() {};
+
+    private final PartitionMap partitionMap;
+    private final ObjectMapper objectMapper;
+    private final FlightPlannerMetrics metrics;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+
+    /**
+     * @param partitionMap      -   nodes and the flights they own.
+     * @param objectMapper      -   reads the other nodes' responses.
+     * @param metrics           -   forwarded, fanned out and failed requests.
+     * @param timeoutMillis     -   connect timeout and how long to wait for another node's response headers.
+     */
+    public PartitionRouter(
+            PartitionMap partitionMap,
+            ObjectMapper objectMapper,
+            FlightPlannerMetrics metrics,
+            @Value("${flight-planner.cluster.timeout-ms:2000}") long timeoutMillis
+    ) {
+        this.partitionMap = partitionMap;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Sends a request to another node as it is. The response body is streamed, so server-sent
+     * events are passed on as the node sends them.
+     *
+     * @param node          -   base URL of the node.
+     * @param method        -   HTTP method.
+     * @param pathAndQuery  -   path and query string of the original request.
+     * @param headers       -   request headers to pass on.
+     * @param body          -   request body, null for none.
+     * @return              -   the node's response, the caller closes its body.
+     */
+    public HttpResponse<InputStream> forward(String node, String method, String pathAndQuery, Map<String, String> headers, byte[] body) throws IOException, InterruptedException {
+        metrics.partitionForwarded();
+        HttpRequest.Builder request = request(node, pathAndQuery)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach(request::header);
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * Runs a search on every partition: the same request goes to all other nodes while this node
+     * computes its own part, then the parts are concatenated. A search is only complete with every
+     * partition, so an unreachable node fails it instead of silently leaving out its flights.
+     *
+     * @param pathAndQuery  -   path and query string of the search.
+     * @param type          -   type of the other nodes' results.
+     * @param local         -   computes this node's part.
+     * @return              -   results of all partitions, local ones first, in no particular order.
+     */
+    public <T> List<T> fanOut(String pathAndQuery, TypeReference<List<T>> type, Supplier<List<T>> local) {
+        metrics.partitionFannedOut();
+        List<String> peers = partitionMap.peers();
+        List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<>(peers.size());
+        for (String peer : peers) {
+            responses.add(httpClient.sendAsync(request(peer, pathAndQuery).GET().build(), HttpResponse.BodyHandlers.ofByteArray()));
+        }
+
+        List<T> results = new ArrayList<>(local.get());
+        for (int i = 0; i < peers.size(); i++) {
+            String peer = peers.get(i);
+            try {
+                HttpResponse<byte[]> response = responses.get(i).join();
+                if (response.statusCode() != HttpStatus.OK.value()) {
+                    throw unavailable(peer, "status " + response.statusCode());
+                }
+                results.addAll(objectMapper.readValue(response.body(), type));
+            } catch (CompletionException | IOException e) {
+                throw unavailable(peer, e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Books a batch across partitions: every owner books its flights' share of the batch, this
+     * node's share is booked locally. Bookings on an unreachable node fail with 503 on their own,
+     * like any other failed booking of a batch.
+     *
+     * @param bookingRequests   -   bookings in request order.
+     * @param local             -   books this node's share.
+     * @return                  -   the results of all bookings, in request order.
+     */
+    public BatchBookingResponse createBookings(List<BookingRequest> bookingRequests, Function<List<BookingRequest>, BatchBookingResponse> local) {
+        if (bookingRequests.size() > BookingService.MAX_BATCH_BOOKINGS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + BookingService.MAX_BATCH_BOOKINGS + " bookings can be submitted at once.");
+        }
+        // request indexes per owner, invalid bookings are rejected locally.
+        Map<String, List<Integer>> indexesByNode = new LinkedHashMap<>();
+        for (int i = 0; i < bookingRequests.size(); i++) {
+            Long flightId = bookingRequests.get(i) == null ? null : bookingRequests.get(i).getFlightId();
+            String owner = flightId == null ? partitionMap.self() : partitionMap.ownerOfFlight(flightId);
+            indexesByNode.computeIfAbsent(owner, node -> new ArrayList<>()).add(i);
+        }
+        List<Integer> localIndexes = indexesByNode.remove(partitionMap.self());
+        if (indexesByNode.isEmpty()) {
+            return local.apply(bookingRequests);
+        }
+
+        metrics.partitionFannedOut();
+        Map<String, CompletableFuture<HttpResponse<byte[]>>> responses = new LinkedHashMap<>();
+        indexesByNode.forEach((node, indexes) -> {
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(new BatchBookingRequest(select(bookingRequests, indexes)));
+                responses.put(node, httpClient.sendAsync(request(node, BATCH_BOOKINGS_PATH)
+                        .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                        .build(), HttpResponse.BodyHandlers.ofByteArray()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not serialize bookings for " + node, e);
+            }
+        });
+
+        List<BatchBookingResult> results = new ArrayList<>(bookingRequests.size());
+        if (localIndexes != null) {
+            addResults(results, local.apply(select(bookingRequests, localIndexes)), localIndexes);
+        }
+        responses.forEach((node, response) -> {
+            List<Integer> indexes = indexesByNode.get(node);
+            try {
+                HttpResponse<byte[]> received = response.join();
+                if (received.statusCode() != HttpStatus.OK.value()) {
+                    throw new IOException("status " + received.statusCode());
+                }
+                addResults(results, objectMapper.readValue(received.body(), BATCH_BOOKING_RESPONSE), indexes);
+            } catch (CompletionException | IOException e) {
+                metrics.partitionUnavailable();
+                log.warn("Partition {} is unavailable, rejecting {} bookings: {}", node, indexes.size(), e.getMessage());
+                for (int index : indexes) {
+                    results.add(new BatchBookingResult(index, HttpStatus.SERVICE_UNAVAILABLE.value(), null, "Partition unavailable: " + node));
+                }
+            }
+        });
+
+        results.sort(Comparator.comparingInt(BatchBookingResult::getIndex));
+        int confirmed = (int) results.stream().filter(result -> result.getBooking() != null).count();
+        return new BatchBookingResponse(confirmed, results.size() - confirmed, results);
+    }
+
+    private HttpRequest.Builder request(String node, String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(node + pathAndQuery))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, partitionMap.self());
+    }
+
+    private ResponseStatusException unavailable(String node, String reason) {
+        metrics.partitionUnavailable();
+        log.warn("Partition {} is unavailable: {}", node, reason);
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Partition unavailable: " + node);
+    }
+
+    /**
+     * Adds a share's results with their indexes mapped back from the share to the whole batch.
+     */
+    private static void addResults(List<BatchBookingResult> results, BatchBookingResponse share, List<Integer> indexes) {
+        for (BatchBookingResult result : share.getResults()) {
+            result.setIndex(indexes.get(result.getIndex()));
+            results.add(result);
+        }
+    }
+
+    private static List<BookingRequest> select(List<BookingRequest> bookingRequests, List<Integer> indexes) {
+        List<BookingRequest> selected = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            selected.add(bookingRequests.get(index));
+        }
+        return selected;
+    }
+}
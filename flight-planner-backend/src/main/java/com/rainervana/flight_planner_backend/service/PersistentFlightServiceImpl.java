@@ -0,0 +1,312 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.FlightOccupancy;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.repository.FlightOccupancyRepository;
+import com.rainervana.flight_planner_backend.repository.FlightRepository;
+import com.rainervana.flight_planner_backend.util.ConcurrentLongMap;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Flight catalog backed by the database.
+ * <p>
+ * All flights are read with a single query on startup and from then on served from the in-memory
+ * catalog and search index of {@link FlightServiceImpl}. A flight's occupancy is a single
+ * {@link FlightOccupancy} row that is only loaded the first time the flight is looked up by id.
+ * Bookings never touch the database: a scheduled flush writes the bitmaps of all flights whose
+ * occupied seats changed since their last flush, in batches of one transaction each. Holds change
+ * the inventory version but not the bitmap, so they don't make a flight dirty.
+ */
+@Service
+@ConditionalOnProperty(name = "flight-planner.catalog", havingValue = "jpa")
+public class PersistentFlightServiceImpl extends FlightServiceImpl {
+    private static final Logger log = LoggerFactory.getLogger(PersistentFlightServiceImpl.class);
+
+    private final SeatLayoutRegistry seatLayoutRegistry;
+    private final FlightRepository flightRepository;
+    private final FlightOccupancyRepository occupancyRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean seedSampleFlights;
+    private final int flushBatchSize;
+    private final ConcurrentLongMap<LoadedOccupancy> loadedOccupancies = new ConcurrentLongMap<>();
+
+    public PersistentFlightServiceImpl(
+            SeatLayoutRegistry seatLayoutRegistry,
+            FlightPlannerMetrics metrics,
+            FlightRepository flightRepository,
+            FlightOccupancyRepository occupancyRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${flight-planner.persistence.seed-sample-flights:true}") boolean seedSampleFlights,
+            @Value("${flight-planner.persistence.flush-batch-size:200}") int flushBatchSize,
+            @Value("${flight-planner.search-cache.max-entries:1024}") int searchCacheSize
+    ) {
+        super(seatLayoutRegistry, metrics, searchCacheSize);
+        this.seatLayoutRegistry = seatLayoutRegistry;
+        this.flightRepository = flightRepository;
+        this.occupancyRepository = occupancyRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.seedSampleFlights = seedSampleFlights;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    /**
+     * Loads every flight without its occupancy. An empty database is seeded with the sample flights.
+     */
+    @Override
+    protected void loadFlights() {
+        long start = System.nanoTime();
+        List<Flight> flights = flightRepository.findAll();
+        if (flights.isEmpty() && seedSampleFlights) {
+            log.info("No flights in the database, adding the sample flights.");
+            initSampleFlights();
+            return;
+        }
+        for (Flight flight : flights) {
+            checkOccupancyFits(flight);
+            cacheFlight(flight);
+        }
+        log.info("Loaded {} flights from the database in {} ms", flights.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Finds a flight by id from the catalog and loads its occupancy if this is the first lookup.
+     */
+    @Override
+    public Optional<Flight> findFlightById(Long id) {
+        Optional<Flight> flight = super.findFlightById(id);
+        flight.ifPresent(this::loadOccupancy);
+        return flight;
+    }
+
+    /**
+     * Loads the occupancy of every flight that wasn't looked up yet with a single query.
+     */
+    @Override
+    public void loadSeatInventories(List<Flight> flights) {
+        List<Long> missing = new ArrayList<>();
+        for (Flight flight : flights) {
+            if (flight.getSeatInventory() == null) {
+                missing.add(flight.getId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<Long, FlightOccupancy> rows = new HashMap<>(missing.size() * 2);
+        for (FlightOccupancy row : occupancyRepository.findAllById(missing)) {
+            rows.put(row.getFlightId(), row);
+        }
+        for (Flight flight : flights) {
+            if (flight.getSeatInventory() == null) {
+                loadOccupancy(flight, Optional.ofNullable(rows.get(flight.getId())));
+            }
+        }
+    }
+
+    /**
+     * Inserts a new flight, the database assigns its id. Its occupancy row is written by the next flush.
+     */
+    @Override
+    public Flight addFlight(Flight flight) {
+        if (flight.getId() != null) {
+            throw new IllegalArgumentException("Flight ids are assigned by the database, got: " + flight.getId());
+        }
+        checkOccupancyFits(flight);
+        Flight saved = flightRepository.save(flight);
+        super.addFlight(saved);
+        loadedOccupancies.put(saved.getId(), new LoadedOccupancy(saved, false, null));
+        return saved;
+    }
+
+    /**
+     * Inserts new flights in one transaction, the database assigns their ids.
+     */
+    @Override
+    public void addFlights(List<Flight> flights) {
+        for (Flight flight : flights) {
+            if (flight.getId() != null) {
+                throw new IllegalArgumentException("Flight ids are assigned by the database, got: " + flight.getId());
+            }
+            checkOccupancyFits(flight);
+        }
+        List<Flight> saved = transactionTemplate.execute(status -> flightRepository.saveAll(flights));
+        super.addFlights(saved);
+        for (Flight flight : saved) {
+            loadedOccupancies.put(flight.getId(), new LoadedOccupancy(flight, false, null));
+        }
+    }
+
+    /**
+     * Changes the flight in memory, then writes its row.
+     */
+    @Override
+    public Optional<Flight> updateFlight(Long id, Flight changes) {
+        Optional<Flight> updated = super.updateFlight(id, changes);
+        updated.ifPresent(flight -> transactionTemplate.executeWithoutResult(status -> flightRepository.save(flight)));
+        return updated;
+    }
+
+    @Override
+    public Optional<Flight> removeFlight(Long id) {
+        Optional<Flight> removed = super.removeFlight(id);
+        removed.ifPresent(flight -> {
+            loadedOccupancies.remove(flight.getId());
+            transactionTemplate.executeWithoutResult(status -> {
+                occupancyRepository.deleteById(flight.getId());
+                flightRepository.deleteById(flight.getId());
+            });
+        });
+        return removed;
+    }
+
+    /**
+     * Writes the occupancy of every flight that changed since its last flush.
+     */
+    @Scheduled(
+            initialDelayString = "${flight-planner.persistence.flush-interval-ms:1000}",
+            fixedDelayString = "${flight-planner.persistence.flush-interval-ms:1000}"
+    )
+    @PreDestroy
+    public synchronized void flushOccupancy() {
+        List<LoadedOccupancy> dirty = new ArrayList<>();
+        loadedOccupancies.forEachValue(occupancy -> {
+            if (occupancy.isDirty()) {
+                dirty.add(occupancy);
+            }
+        });
+
+        for (int from = 0; from < dirty.size(); from += flushBatchSize) {
+            flushBatch(dirty.subList(from, Math.min(dirty.size(), from + flushBatchSize)));
+        }
+        if (!dirty.isEmpty()) {
+            log.debug("Flushed occupancy of {} flights", dirty.size());
+        }
+    }
+
+    /**
+     * Writes one batch in a single transaction: one select for the existing rows, then batched
+     * updates and inserts on commit. Failed batches stay dirty and are retried by the next flush.
+     */
+    private void flushBatch(List<LoadedOccupancy> batch) {
+        // take the snapshots first, bookings keep going while the transaction runs.
+        Map<Long, SeatInventory.Snapshot> snapshots = new HashMap<>(batch.size() * 2);
+        List<Long> storedIds = new ArrayList<>(batch.size());
+        for (LoadedOccupancy occupancy : batch) {
+            snapshots.put(occupancy.flight.getId(), occupancy.flight.getSeatInventory().snapshot());
+            if (occupancy.stored) {
+                storedIds.add(occupancy.flight.getId());
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, FlightOccupancy> rows = new HashMap<>(storedIds.size() * 2);
+                for (FlightOccupancy row : occupancyRepository.findAllById(storedIds)) {
+                    rows.put(row.getFlightId(), row);
+                }
+                for (Map.Entry<Long, SeatInventory.Snapshot> entry : snapshots.entrySet()) {
+                    FlightOccupancy row = rows.get(entry.getKey());
+                    if (row == null) {
+                        entityManager.persist(new FlightOccupancy(entry.getKey(), entry.getValue().toByteArray(), entry.getValue().getVersion()));
+                    } else {
+                        row.setOccupancy(entry.getValue().toByteArray());
+                        row.setVersion(entry.getValue().getVersion());
+                    }
+                }
+            });
+        } catch (DataAccessException | TransactionException e) {
+            log.error("Flushing occupancy of {} flights failed, retrying with the next flush", batch.size(), e);
+            return;
+        }
+
+        for (LoadedOccupancy occupancy : batch) {
+            occupancy.stored = true;
+            occupancy.persisted = snapshots.get(occupancy.flight.getId());
+        }
+    }
+
+    private void loadOccupancy(Flight flight) {
+        if (flight.getSeatInventory() != null) {
+            return;
+        }
+        loadOccupancy(flight, occupancyRepository.findById(flight.getId()));
+    }
+
+    /**
+     * @param row   -   the flight's stored occupancy, ignored if another thread loaded the flight first.
+     */
+    private void loadOccupancy(Flight flight, Optional<FlightOccupancy> row) {
+        synchronized (flight) {
+            if (flight.getSeatInventory() != null) {
+                return;
+            }
+            SeatInventory inventory = seatLayoutRegistry.layoutFor(flight.getAircraftType()).newInventory();
+            SeatInventory.Snapshot persisted = null;
+            if (row.isPresent()) {
+                try {
+                    inventory.restore(row.get().getOccupancy(), row.get().getVersion());
+                    persisted = inventory.snapshot();
+                } catch (IllegalArgumentException e) {
+                    log.warn("Stored occupancy of flight {} doesn't fit aircraft {}, starting with an empty one", flight.getId(), flight.getAircraftType());
+                }
+            }
+            loadedOccupancies.put(flight.getId(), new LoadedOccupancy(flight, row.isPresent(), persisted));
+            flight.setSeatInventory(inventory);
+        }
+    }
+
+    /**
+     * Rejects flights whose seat bitmap wouldn't fit the occupancy column.
+     */
+    private void checkOccupancyFits(Flight flight) {
+        int bytes = (seatLayoutRegistry.layoutFor(flight.getAircraftType()).capacity() + 7) >>> 3;
+        if (bytes > FlightOccupancy.MAX_OCCUPANCY_BYTES) {
+            throw new IllegalArgumentException("Occupancy of aircraft " + flight.getAircraftType() + " needs " + bytes
+                    + " bytes, at most " + FlightOccupancy.MAX_OCCUPANCY_BYTES + " can be stored");
+        }
+    }
+
+    /**
+     * Flush state of a flight whose occupancy is in memory.
+     */
+    private static final class LoadedOccupancy {
+        private final Flight flight;
+        // whether the flight has an occupancy row, only written by the flush.
+        private volatile boolean stored;
+        // the last snapshot written, null until the stored row matches the inventory.
+        private volatile SeatInventory.Snapshot persisted;
+
+        LoadedOccupancy(Flight flight, boolean stored, SeatInventory.Snapshot persisted) {
+            this.flight = flight;
+            this.stored = stored;
+            this.persisted = persisted;
+        }
+
+        boolean isDirty() {
+            SeatInventory inventory = flight.getSeatInventory();
+            if (inventory == null) {
+                return false;
+            }
+            SeatInventory.Snapshot last = persisted;
+            return last == null || !inventory.snapshot().sameOccupancy(last);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.rainervana.flight_planner_backend.service;
+
+/**
+ * How seat recommendations pick a block of free seats for a group.
+ */
+public enum SeatAllocationStrategy {
+    /**
+     * The first row, front to back, with enough adjacent free seats.
+     */
+    FIRST_FIT,
+    /**
+     * The smallest block of adjacent free seats the group fits in, taken from one of its ends, so
+     * large blocks are kept for large groups. See {@link SeatAvailabilityIndex}.
+     */
+    BEST_FIT
+}
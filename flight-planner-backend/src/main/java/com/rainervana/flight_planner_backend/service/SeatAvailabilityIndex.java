@@ -0,0 +1,388 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.SeatAvailabilitySummary;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import com.rainervana.flight_planner_backend.util.ConcurrentLongMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Seat availability of flights: the summaries of search results, so they can tell if a group fits
+ * without building a seat map per flight, and the blocks of adjacent free seats that best-fit seat
+ * allocation picks from.
+ * <p>
+ * A flight's availability is kept with the inventory version it was computed for. Once the version
+ * moved, the free seat mask of every row is compared with the previous one, and only the rows that
+ * changed are re-indexed. For every block length a bitset holds the rows that have a free block of
+ * exactly that length, once over all seats and once over the window seats only:
+ * <ul>
+ *     <li>the largest block for a combination of seat preferences is the longest length with an
+ *     eligible row.</li>
+ *     <li>a group of {@code n} gets the first row of the shortest length {@code >= n}, a few word
+ *     scans no matter how full the flight is. Placing a group at one end of a block of length
+ *     {@code L} leaves one block of {@code L - n}: of all placements this keeps the most contiguous
+ *     capacity (the sum of the squared block lengths), which is why families still find seats
+ *     together late in the sale.</li>
+ * </ul>
+ * Availability is immutable and replaced on change, readers never lock. The catalog evicts a
+ * flight's entry when the flight is removed, see {@link FlightService#seatAvailability()}.
+ */
+public class SeatAvailabilityIndex {
+    // preference combinations are indexed by these bits, the row preferences alone by the lower two.
+    private static final int EXTRA_LEGROOM = 1;
+    private static final int NEAR_EXIT = 2;
+    private static final int WINDOW = 4;
+    private static final int ROW_PREFERENCE_COMBINATIONS = 4;
+    private static final int PREFERENCE_COMBINATIONS = 8;
+
+    private final ConcurrentLongMap<FlightAvailability> flightAvailability = new ConcurrentLongMap<>();
+    private final SeatLayoutRegistry seatLayoutRegistry;
+
+    public SeatAvailabilityIndex(SeatLayoutRegistry seatLayoutRegistry) {
+        this.seatLayoutRegistry = seatLayoutRegistry;
+    }
+
+    /**
+     * Summarizes the current availability of a flight.
+     *
+     * @param flight                -   flight with a loaded seat inventory.
+     * @param preferWindow          -   only window seats count towards the largest block.
+     * @param preferExtraLegroom    -   only extra legroom rows count towards the largest block.
+     * @param preferNearExit        -   only exit rows count towards the largest block.
+     * @return                      -   free seats per class and the largest block of adjacent free seats.
+     */
+    public SeatAvailabilitySummary summary(Flight flight, boolean preferWindow, boolean preferExtraLegroom, boolean preferNearExit) {
+        Availability availability = availabilityOf(flight, flight.getSeatInventory().snapshot());
+        return new SeatAvailabilitySummary(
+                availability.freeSeats,
+                availability.freeFirstClassSeats,
+                availability.freeSeats - availability.freeFirstClassSeats,
+                availability.largestBlocks[preferences(preferWindow, preferExtraLegroom, preferNearExit)]
+        );
+    }
+
+    /**
+     * @return  -   the most adjacent free seats in one row of the flight that match the preferences.
+     */
+    public int largestFreeBlock(Flight flight, boolean preferWindow, boolean preferExtraLegroom, boolean preferNearExit) {
+        return availabilityOf(flight, flight.getSeatInventory().snapshot()).largestBlocks[preferences(preferWindow, preferExtraLegroom, preferNearExit)];
+    }
+
+    /**
+     * Finds the best fitting block in a single row.
+     *
+     * @param flight                -   flight with a loaded seat inventory.
+     * @param occupancy             -   snapshot of the flight's inventory to allocate from.
+     * @param passengers            -   size of the group.
+     * @param preferWindow          -   only window seats.
+     * @param preferExtraLegroom    -   only extra legroom rows.
+     * @param preferNearExit        -   only exit rows.
+     * @return                      -   seat numbers of the placement, empty if no row fits the group.
+     */
+    public List<String> bestFit(Flight flight, SeatInventory.Snapshot occupancy, int passengers, boolean preferWindow, boolean preferExtraLegroom, boolean preferNearExit) {
+        FlightAvailability flightAvailability = flightAvailabilityOf(flight);
+        SeatLayout layout = flightAvailability.layout;
+        Availability availability = flightAvailability.current(occupancy);
+        long[][] rowsByLength = preferWindow ? availability.windowRowsByLength : availability.rowsByLength;
+        long[] eligibleRows = flightAvailability.eligibleRows[rowPreferences(preferExtraLegroom, preferNearExit)];
+
+        for (int length = passengers; length < rowsByLength.length; length++) {
+            long[] rows = rowsByLength[length];
+            for (int word = 0; word < rows.length; word++) {
+                long candidates = rows[word] & eligibleRows[word];
+                if (candidates == 0) {
+                    continue;
+                }
+                int row = (word << 6) + Long.numberOfTrailingZeros(candidates) + 1;
+                long free = availability.rowFree[row - 1] & (preferWindow ? layout.getWindowColumnMask() : -1L);
+                int start = blockStart(free, length);
+                return seatNrs(layout, row, edge(start, length, passengers, layout.getColumnCount()), passengers);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Fallback for groups that can't sit together: seats them in as few blocks as possible. Each
+     * step takes the best fitting block for the rest of the group, or the longest block if none
+     * fits, preferring blocks close to the group's first row.
+     *
+     * @return  -   seat numbers of the placement, empty if the flight has fewer matching free seats than passengers.
+     */
+    public List<String> fewestBlocks(Flight flight, SeatInventory.Snapshot occupancy, int passengers, boolean preferWindow, boolean preferExtraLegroom, boolean preferNearExit) {
+        FlightAvailability flightAvailability = flightAvailabilityOf(flight);
+        SeatLayout layout = flightAvailability.layout;
+        Availability availability = flightAvailability.current(occupancy);
+        long[] eligibleRows = flightAvailability.eligibleRows[rowPreferences(preferExtraLegroom, preferNearExit)];
+        long columnMask = preferWindow ? layout.getWindowColumnMask() : -1L;
+
+        int totalRows = layout.getTotalRows();
+        long[] free = new long[totalRows];
+        int freeSeats = 0;
+        for (int row = 1; row <= totalRows; row++) {
+            if ((eligibleRows[(row - 1) >>> 6] & (1L << (row - 1))) != 0) {
+                free[row - 1] = availability.rowFree[row - 1] & columnMask;
+                freeSeats += Long.bitCount(free[row - 1]);
+            }
+        }
+        if (freeSeats < passengers) {
+            return Collections.emptyList();
+        }
+
+        List<String> seatNrs = new ArrayList<>(passengers);
+        int remaining = passengers;
+        int firstRow = -1;
+        while (remaining > 0) {
+            int bestRow = -1;
+            int bestStart = 0;
+            int bestLength = 0;
+            for (int row = 1; row <= totalRows; row++) {
+                long mask = free[row - 1];
+                while (mask != 0) {
+                    int start = Long.numberOfTrailingZeros(mask);
+                    int length = Long.numberOfTrailingZeros(~(mask >>> start));
+                    mask &= ~(runMask(length) << start);
+                    if (bestRow < 0 || isBetterBlock(length, row, bestLength, bestRow, remaining, firstRow)) {
+                        bestRow = row;
+                        bestStart = start;
+                        bestLength = length;
+                    }
+                }
+            }
+
+            int take = Math.min(bestLength, remaining);
+            int firstColumn = edge(bestStart, bestLength, take, layout.getColumnCount());
+            seatNrs.addAll(seatNrs(layout, bestRow, firstColumn, take));
+            free[bestRow - 1] &= ~(runMask(take) << firstColumn);
+            remaining -= take;
+            if (firstRow < 0) {
+                firstRow = bestRow;
+            }
+        }
+        return seatNrs;
+    }
+
+    /**
+     * Drops a removed flight's availability.
+     *
+     * @param flightId  -   id of the removed flight.
+     */
+    public void remove(long flightId) {
+        flightAvailability.remove(flightId);
+    }
+
+    public int size() {
+        return flightAvailability.size();
+    }
+
+    private Availability availabilityOf(Flight flight, SeatInventory.Snapshot occupancy) {
+        return flightAvailabilityOf(flight).current(occupancy);
+    }
+
+    private FlightAvailability flightAvailabilityOf(Flight flight) {
+        FlightAvailability availability = flightAvailability.get(flight.getId());
+        // a flight removed and added again under the same id starts over.
+        if (availability == null || availability.flight != flight) {
+            availability = new FlightAvailability(flight, seatLayoutRegistry.layoutFor(flight.getAircraftType()));
+            flightAvailability.put(flight.getId(), availability);
+        }
+        return availability;
+    }
+
+    private static int preferences(boolean preferWindow, boolean preferExtraLegroom, boolean preferNearExit) {
+        return (preferWindow ? WINDOW : 0) | rowPreferences(preferExtraLegroom, preferNearExit);
+    }
+
+    private static int rowPreferences(boolean preferExtraLegroom, boolean preferNearExit) {
+        return (preferExtraLegroom ? EXTRA_LEGROOM : 0) | (preferNearExit ? NEAR_EXIT : 0);
+    }
+
+    /**
+     * A block that fits the rest of the group beats one that doesn't, a shorter fitting block beats
+     * a longer one, and of blocks that don't fit the longer one wins. Ties go to the row closer to
+     * the group's first row, then to the front.
+     */
+    private static boolean isBetterBlock(int length, int row, int bestLength, int bestRow, int remaining, int firstRow) {
+        boolean fits = length >= remaining;
+        boolean bestFits = bestLength >= remaining;
+        if (fits != bestFits) {
+            return fits;
+        }
+        if (length != bestLength) {
+            return fits ? length < bestLength : length > bestLength;
+        }
+        return firstRow >= 0 && Math.abs(row - firstRow) < Math.abs(bestRow - firstRow);
+    }
+
+    /**
+     * First column of a group placed at one end of a block: the end at the cabin wall if the block
+     * reaches it, otherwise the left end. The rest of the block stays in one piece either way.
+     */
+    private static int edge(int start, int length, int passengers, int columns) {
+        return start + length == columns ? start + length - passengers : start;
+    }
+
+    /**
+     * Start column of a block of exactly the given length in the mask, which must have one.
+     */
+    private static int blockStart(long mask, int length) {
+        while (true) {
+            int start = Long.numberOfTrailingZeros(mask);
+            int blockLength = Long.numberOfTrailingZeros(~(mask >>> start));
+            if (blockLength == length) {
+                return start;
+            }
+            mask &= ~(runMask(blockLength) << start);
+        }
+    }
+
+    private static long runMask(int length) {
+        return length == Long.SIZE ? -1L : (1L << length) - 1;
+    }
+
+    private static List<String> seatNrs(SeatLayout layout, int row, int firstColumn, int count) {
+        List<String> seatNrs = new ArrayList<>(count);
+        for (int col = firstColumn; col < firstColumn + count; col++) {
+            seatNrs.add(layout.seatNr(row, col));
+        }
+        return seatNrs;
+    }
+
+    private static final class FlightAvailability {
+        private final Flight flight;
+        private final SeatLayout layout;
+        // rows matching each combination of row preferences.
+        private final long[][] eligibleRows = new long[ROW_PREFERENCE_COMBINATIONS][];
+        private volatile Availability current;
+
+        FlightAvailability(Flight flight, SeatLayout layout) {
+            this.flight = flight;
+            this.layout = layout;
+            int words = (layout.getTotalRows() + 63) >>> 6;
+            for (int preferences = 0; preferences < eligibleRows.length; preferences++) {
+                eligibleRows[preferences] = new long[words];
+                for (int row = 1; row <= layout.getTotalRows(); row++) {
+                    if ((preferences & EXTRA_LEGROOM) != 0 && !layout.isExtraLegroomRow(row)
+                            || (preferences & NEAR_EXIT) != 0 && !layout.isExitRow(row)) {
+                        continue;
+                    }
+                    eligibleRows[preferences][(row - 1) >>> 6] |= 1L << (row - 1);
+                }
+            }
+        }
+
+        /**
+         * Availability of the snapshot's version, built from the latest known version. Concurrent
+         * builders compute the same availability, only a newer version replaces the published one.
+         */
+        Availability current(SeatInventory.Snapshot occupancy) {
+            Availability availability = current;
+            if (availability != null && availability.version == occupancy.getVersion()) {
+                return availability;
+            }
+            Availability built = new Availability(layout, occupancy, availability, eligibleRows);
+            if (availability == null || built.version > availability.version) {
+                current = built;
+            }
+            return built;
+        }
+    }
+
+    /**
+     * Availability of one inventory version.
+     */
+    private static final class Availability {
+        private final long version;
+        // free seats of each row, index 0 is row 1.
+        private final long[] rowFree;
+        // [length][word], bit i set if row i + 1 has a free block of exactly that length.
+        private final long[][] rowsByLength;
+        private final long[][] windowRowsByLength;
+        private final int freeSeats;
+        private final int freeFirstClassSeats;
+        private final int[] largestBlocks = new int[PREFERENCE_COMBINATIONS];
+
+        Availability(SeatLayout layout, SeatInventory.Snapshot occupancy, Availability previous, long[][] eligibleRows) {
+            int totalRows = layout.getTotalRows();
+            int columns = layout.getColumnCount();
+            long windowMask = layout.getWindowColumnMask();
+
+            this.version = occupancy.getVersion();
+            this.rowFree = new long[totalRows];
+            this.rowsByLength = previous == null ? new long[columns + 1][(totalRows + 63) >>> 6] : copy(previous.rowsByLength);
+            this.windowRowsByLength = previous == null ? new long[columns + 1][(totalRows + 63) >>> 6] : copy(previous.windowRowsByLength);
+
+            int free = previous == null ? 0 : previous.freeSeats;
+            int freeFirstClass = previous == null ? 0 : previous.freeFirstClassSeats;
+            for (int row = 1; row <= totalRows; row++) {
+                long rowFreeMask = ~occupancy.unavailableRowMask(row) & runMask(columns);
+                rowFree[row - 1] = rowFreeMask;
+                long previousMask = previous == null ? 0L : previous.rowFree[row - 1];
+                if (previous != null && rowFreeMask == previousMask) {
+                    continue;
+                }
+
+                int delta = Long.bitCount(rowFreeMask) - Long.bitCount(previousMask);
+                free += delta;
+                if (layout.isFirstClassRow(row)) {
+                    freeFirstClass += delta;
+                }
+                if (previous != null) {
+                    mark(rowsByLength, previousMask, row, false);
+                    mark(windowRowsByLength, previousMask & windowMask, row, false);
+                }
+                mark(rowsByLength, rowFreeMask, row, true);
+                mark(windowRowsByLength, rowFreeMask & windowMask, row, true);
+            }
+            this.freeSeats = free;
+            this.freeFirstClassSeats = freeFirstClass;
+
+            for (int preferences = 0; preferences < PREFERENCE_COMBINATIONS; preferences++) {
+                long[][] byLength = (preferences & WINDOW) != 0 ? windowRowsByLength : rowsByLength;
+                largestBlocks[preferences] = longestLength(byLength, eligibleRows[preferences & (ROW_PREFERENCE_COMBINATIONS - 1)]);
+            }
+        }
+
+        /**
+         * @return  -   the longest block length that one of the rows has, 0 if they are full.
+         */
+        private static int longestLength(long[][] rowsByLength, long[] rows) {
+            for (int length = rowsByLength.length - 1; length > 0; length--) {
+                long[] withLength = rowsByLength[length];
+                for (int word = 0; word < withLength.length; word++) {
+                    if ((withLength[word] & rows[word]) != 0) {
+                        return length;
+                    }
+                }
+            }
+            return 0;
+        }
+
+        private static void mark(long[][] rowsByLength, long free, int row, boolean set) {
+            long bit = 1L << (row - 1);
+            int word = (row - 1) >>> 6;
+            while (free != 0) {
+                int start = Long.numberOfTrailingZeros(free);
+                int length = Long.numberOfTrailingZeros(~(free >>> start));
+                free &= ~(runMask(length) << start);
+                if (set) {
+                    rowsByLength[length][word] |= bit;
+                } else {
+                    rowsByLength[length][word] &= ~bit;
+                }
+            }
+        }
+
+        private static long[][] copy(long[][] rowsByLength) {
+            long[][] copy = new long[rowsByLength.length][];
+            for (int i = 0; i < rowsByLength.length; i++) {
+                copy[i] = rowsByLength[i].clone();
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.SeatHoldRequest;
+import com.rainervana.flight_planner_backend.dto.SeatHoldResponse;
+import com.rainervana.flight_planner_backend.model.SeatHold;
+
+public interface SeatHoldService {
+    SeatHoldResponse holdSeats(SeatHoldRequest seatHoldRequest);
+
+    void releaseHold(long holdId);
+
+    SeatHold claimHold(long holdId, long flightId, int[] seatIndexes);
+}
@@ -0,0 +1,246 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.SeatHoldRequest;
+import com.rainervana.flight_planner_backend.dto.SeatHoldResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatHold;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.util.ConcurrentLongMap;
+import com.rainervana.flight_planner_backend.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reserves seats for a limited time between picking them on the seat map and booking them.
+ * <p>
+ * A hold marks its seats in the flight's {@link SeatInventory}, so they are left out of everybody
+ * else's recommendations and bookings, and is turned into a booking by {@link BookingService}.
+ * Holds are not journaled, they are short-lived and simply gone after a restart. Expiry is driven
+ * by a single {@link TimingWheel} advanced once per tick, so there is no scheduled task per hold
+ * and booked or released holds cost nothing when their deadline comes.
+ */
+@Service
+public class SeatHoldServiceImpl implements SeatHoldService {
+    private static final Logger log = LoggerFactory.getLogger(SeatHoldServiceImpl.class);
+    private static final int TICKS_PER_WHEEL = 1024;
+
+    private final FlightService flightService;
+    private final BookingEngine bookingEngine;
+    private final FlightPlannerMetrics metrics;
+    private final PartitionMap partitionMap;
+    private final long ttlMillis;
+    private final ConcurrentLongMap<SeatHold> holds = new ConcurrentLongMap<>();
+    private final TimingWheel<SeatHold> expiryWheel;
+    private final AtomicLong holdIdCounter = new AtomicLong();
+
+    /**
+     * @param flightService     -   flights to hold seats on.
+     * @param bookingEngine     -   applies holds on the flights' booking shards.
+     * @param metrics           -   metrics for created, converted and expired holds.
+     * @param partitionMap      -   numbers hold ids so that they are unique across nodes, only flights and holds owned here are changed.
+     * @param ttlSeconds        -   how long a hold lasts.
+     * @param tickMillis        -   expiry precision, holds end at most one tick late.
+     */
+    public SeatHoldServiceImpl(
+            FlightService flightService,
+            BookingEngine bookingEngine,
+            FlightPlannerMetrics metrics,
+            PartitionMap partitionMap,
+            @Value("${flight-planner.holds.ttl-seconds:600}") long ttlSeconds,
+            @Value("${flight-planner.holds.tick-ms:1000}") long tickMillis
+    ) {
+        this.flightService = flightService;
+        this.bookingEngine = bookingEngine;
+        this.metrics = metrics;
+        this.partitionMap = partitionMap;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.expiryWheel = new TimingWheel<>(tickMillis, TICKS_PER_WHEEL, System.currentTimeMillis());
+        metrics.registerActiveHolds(holds::size);
+    }
+
+    /**
+     * Holds all selected seats at once, either every seat is held or none is.
+     *
+     * @param seatHoldRequest   -   flight and seats to hold.
+     * @return                  -   the hold with its id and expiry time.
+     */
+    @Override
+    public SeatHoldResponse holdSeats(SeatHoldRequest seatHoldRequest) {
+        Flight flight = flightService.findFlightById(seatHoldRequest.getFlightId()).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight not found with ID: " + seatHoldRequest.getFlightId()));
+        partitionMap.checkOwnsFlight(flight.getId());
+
+        // Validate every seat before holding any of them.
+        if (seatHoldRequest.getSelectedSeats() == null || seatHoldRequest.getSelectedSeats().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one seat must be selected.");
+        }
+        SeatInventory inventory = flight.getSeatInventory();
+        List<String> selectedSeats = List.copyOf(seatHoldRequest.getSelectedSeats());
+        int[] seatIndexes = new int[selectedSeats.size()];
+
+        for (int i = 0; i < selectedSeats.size(); i++) {
+            String seatNr = selectedSeats.get(i);
+            int seatIndex = inventory.seatIndex(seatNr);
+
+            if (seatIndex < 0) {
+                log.warn("Hold failed: Invalid seat number {} provided for flight {}", seatNr, flight.getId());
+                metrics.invalidSeatRejected();
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid seat number selected: " + seatNr);
+            }
+            for (int j = 0; j < i; j++) {
+                if (seatIndexes[j] == seatIndex) {
+                    log.warn("Hold failed: Seat {} selected twice for flight {}", seatNr, flight.getId());
+                    metrics.duplicateSeatRejected();
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Seat selected more than once: " + seatNr);
+                }
+            }
+            seatIndexes[i] = seatIndex;
+        }
+
+        // Hold on the flight's booking shard, ordered with its bookings and releases.
+        int conflictingIndex;
+        try {
+            conflictingIndex = bookingEngine.hold(flight, seatIndexes).join();
+        } catch (CompletionException e) {
+            log.warn("Hold failed: Seats on flight {} could not be held: {}", flight.getId(), e.getCause().toString());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Seats could not be held at the moment, please try again.");
+        }
+        if (conflictingIndex >= 0) {
+            String seatNr = selectedSeats.get(indexOf(seatIndexes, conflictingIndex));
+            log.info("Hold rejected: Seat {} on flight {} is not available", seatNr, flight.getId());
+            metrics.holdConflict();
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Seat is not available: " + seatNr);
+        }
+
+        SeatHold hold = new SeatHold(partitionMap.holdId(holdIdCounter.incrementAndGet()), flight.getId(), selectedSeats, seatIndexes, System.currentTimeMillis() + ttlMillis);
+        holds.put(hold.getHoldId(), hold);
+        expiryWheel.schedule(hold, hold.getExpiresAtMillis());
+        metrics.holdCreated();
+        log.info("Held seats {} on flight {} as hold {}", selectedSeats, flight.getId(), hold.getHoldId());
+
+        return new SeatHoldResponse(
+                hold.getHoldId(),
+                flight.getId(),
+                selectedSeats,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(hold.getExpiresAtMillis()), ZoneId.systemDefault())
+        );
+    }
+
+    /**
+     * Frees the seats of a hold before it expires.
+     *
+     * @param holdId    -   id of the hold.
+     */
+    @Override
+    public void releaseHold(long holdId) {
+        partitionMap.checkOwnsHold(holdId);
+        SeatHold hold = holds.remove(holdId);
+        if (hold == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Seat hold not found with ID: " + holdId);
+        }
+        releaseSeats(hold);
+        metrics.holdReleased();
+        log.info("Released hold {} on flight {}", holdId, hold.getFlightId());
+    }
+
+    /**
+     * Takes a hold out of the expiry so its seats can be booked. The seats stay held in the
+     * inventory, the caller turns them into occupied seats.
+     *
+     * @param holdId        -   id of the hold.
+     * @param flightId      -   flight the booking is for.
+     * @param seatIndexes   -   seats the booking is for, must be exactly the held seats.
+     * @return              -   the claimed hold.
+     */
+    @Override
+    public SeatHold claimHold(long holdId, long flightId, int[] seatIndexes) {
+        SeatHold hold = holds.get(holdId);
+        if (hold == null) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Seat hold has expired or doesn't exist: " + holdId);
+        }
+        if (hold.getFlightId() != flightId || !sameSeats(hold.getSeatIndexes(), seatIndexes)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Selected seats don't match seat hold " + holdId);
+        }
+        // whoever removes the hold from the map owns it, the expiry only frees holds it removed itself.
+        if (holds.remove(holdId) == null) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Seat hold has expired or doesn't exist: " + holdId);
+        }
+        if (hold.getExpiresAtMillis() <= System.currentTimeMillis()) {
+            releaseSeats(hold);
+            metrics.holdsExpired(1);
+            throw new ResponseStatusException(HttpStatus.GONE, "Seat hold has expired or doesn't exist: " + holdId);
+        }
+        metrics.holdConverted();
+        return hold;
+    }
+
+    /**
+     * Frees the seats of every hold whose time is up.
+     */
+    @Scheduled(
+            initialDelayString = "${flight-planner.holds.tick-ms:1000}",
+            fixedDelayString = "${flight-planner.holds.tick-ms:1000}"
+    )
+    public void expireHolds() {
+        expireHolds(System.currentTimeMillis());
+    }
+
+    /**
+     * @param nowMillis     -   current time.
+     * @return              -   number of holds that expired.
+     */
+    synchronized int expireHolds(long nowMillis) {
+        int[] expired = new int[1];
+        expiryWheel.advance(nowMillis, hold -> {
+            // booked and released holds are no longer in the map and are skipped.
+            if (holds.remove(hold.getHoldId()) != null) {
+                releaseSeats(hold);
+                expired[0]++;
+            }
+        });
+        if (expired[0] > 0) {
+            metrics.holdsExpired(expired[0]);
+            log.debug("Expired {} seat holds", expired[0]);
+        }
+        return expired[0];
+    }
+
+    /**
+     * Frees the seats of a hold removed from the map. Only the remover clears them, so this needs no
+     * booking shard, see {@link BookingEngine}.
+     */
+    private void releaseSeats(SeatHold hold) {
+        flightService.findFlightById(hold.getFlightId())
+                .ifPresent(flight -> flight.getSeatInventory().releaseHolds(hold.getSeatIndexes()));
+    }
+
+    private static boolean sameSeats(int[] held, int[] selected) {
+        int[] sortedHeld = held.clone();
+        int[] sortedSelected = selected.clone();
+        Arrays.sort(sortedHeld);
+        Arrays.sort(sortedSelected);
+        return Arrays.equals(sortedHeld, sortedSelected);
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,69 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds one immutable {@link SeatLayout} per aircraft type. Templates are built on first use
+ * and shared by every flight of that type.
+ */
+@Service
+public class SeatLayoutRegistry {
+    private static final Logger log = LoggerFactory.getLogger(SeatLayoutRegistry.class);
+
+    public static final String DEFAULT_AIRCRAFT_TYPE = "Boeing 737";
+
+    private static final List<String> SIX_ABREAST = List.of("A", "B", "C", "D", "E", "F");
+    private static final List<String> FOUR_ABREAST = List.of("A", "B", "C", "D");
+
+    // cabin definitions, add new aircraft types here.
+    private static final Map<String, Supplier<SeatLayout>> DEFINITIONS = Map.of(
+            "Boeing 737", () -> new SeatLayout("Boeing 737", 25, SIX_ABREAST, List.of("A", "F"),
+                    List.of(1, 2), List.of(1, 12, 24), List.of(10, 11, 12)),
+            "Airbus A320", () -> new SeatLayout("Airbus A320", 27, SIX_ABREAST, List.of("A", "F"),
+                    List.of(1, 2, 3), List.of(1, 10, 11, 27), List.of(1, 10, 11)),
+            "ATR 72", () -> new SeatLayout("ATR 72", 18, FOUR_ABREAST, List.of("A", "D"),
+                    List.of(), List.of(1, 18), List.of(1))
+    );
+
+    private final Map<String, SeatLayout> layouts = new ConcurrentHashMap<>();
+    // unknown types already warned about, flights of a type share one warning.
+    private final Set<String> unknownTypes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Returns the layout template of an aircraft type.
+     *
+     * @param aircraftType  -   aircraft type to look up.
+     * @return              -   cached layout, empty for unknown types.
+     */
+    public Optional<SeatLayout> find(String aircraftType) {
+        if (aircraftType == null || !DEFINITIONS.containsKey(aircraftType)) {
+            return Optional.empty();
+        }
+        return Optional.of(layouts.computeIfAbsent(aircraftType, key -> DEFINITIONS.get(key).get()));
+    }
+
+    /**
+     * Returns the layout a flight's seats are booked on.
+     *
+     * @param aircraftType  -   aircraft type of the flight.
+     * @return              -   cached layout, the default aircraft's layout for unknown types.
+     */
+    public SeatLayout layoutFor(String aircraftType) {
+        return find(aircraftType).orElseGet(() -> {
+            if (unknownTypes.add(String.valueOf(aircraftType))) {
+                log.warn("Unknown aircraft type {}, its flights use the {} layout", aircraftType, DEFAULT_AIRCRAFT_TYPE);
+            }
+            return find(DEFAULT_AIRCRAFT_TYPE).orElseThrow();
+        });
+    }
+}
@@ -1,9 +1,15 @@
 package com.rainervana.flight_planner_backend.service;
 
+import com.rainervana.flight_planner_backend.dto.CompactSeatMapResponse;
+import com.rainervana.flight_planner_backend.dto.FlightSearchResult;
 import com.rainervana.flight_planner_backend.dto.SeatMapResponse;
 import com.rainervana.flight_planner_backend.model.Flight;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.LongPredicate;
 
 public interface SeatService {
     SeatMapResponse getSeatMapAndRecommendations(
@@ -14,5 +20,36 @@ public interface SeatService {
             Optional<Boolean> preferNearExit
     );
 
+    CompactSeatMapResponse getCompactSeatMap(
+            Flight flight,
+            int numberOfPassengers,
+            Optional<Boolean> preferWindow,
+            Optional<Boolean> preferExtraLegroom,
+            Optional<Boolean> preferNearExit
+    );
+
+    List<FlightSearchResult> findFlightsWithAvailability(
+            String destination,
+            LocalDate date,
+            Long maxDurationMinutes,
+            BigDecimal maxPrice,
+            Integer minAdjacentSeats,
+            Optional<Boolean> preferWindow,
+            Optional<Boolean> preferExtraLegroom,
+            Optional<Boolean> preferNearExit
+    );
+
+    List<FlightSearchResult> findFlightsWithAvailability(
+            String destination,
+            LocalDate date,
+            Long maxDurationMinutes,
+            BigDecimal maxPrice,
+            Integer minAdjacentSeats,
+            Optional<Boolean> preferWindow,
+            Optional<Boolean> preferExtraLegroom,
+            Optional<Boolean> preferNearExit,
+            LongPredicate includeFlight
+    );
+
     Optional<Boolean> isSeatFirstClass(Long flightId, String seatNr);
 }
\ No newline at end of file
@@ -1,23 +1,49 @@
 package com.rainervana.flight_planner_backend.service;
 
+import com.rainervana.flight_planner_backend.dto.CompactSeatMapResponse;
+import com.rainervana.flight_planner_backend.dto.FlightSearchResult;
 import com.rainervana.flight_planner_backend.dto.SeatMapResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
 import com.rainervana.flight_planner_backend.model.Flight;
 import com.rainervana.flight_planner_backend.model.Seat;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
 
-import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
 
 
 @Service
 public class SeatServiceImpl implements SeatService {
-    public static final int DEFAULT_TOTAL_ROWS = 25;
-    public static final List<String> DEFAULT_COLUMNS = List.of("A", "B", "C", "D", "E", "F");
-    private static final List<Integer> EXIT_ROWS = List.of(1, 12, 24);
-    private static final List<Integer> EXTRA_LEG_ROWS = List.of(10, 11, 12);
-    private static final List<String> WINDOW_COLUMNS = List.of("A", "F");
+    private static final int SPLIT_ROW_PENALTY = 100;
+
+    private final FlightService flightService;
+    private final SeatLayoutRegistry seatLayoutRegistry;
+    private final FlightPlannerMetrics metrics;
+    private final SeatAvailabilityIndex availabilityIndex;
+    private final SeatAllocationStrategy allocationStrategy;
+
+    /**
+     * @param allocationStrategy    -   how recommendations pick seats for a group.
+     */
+    public SeatServiceImpl(
+            FlightService flightService,
+            SeatLayoutRegistry seatLayoutRegistry,
+            FlightPlannerMetrics metrics,
+            @Value("${flight-planner.seats.allocation-strategy:BEST_FIT}") SeatAllocationStrategy allocationStrategy
+    ) {
+        this.flightService = flightService;
+        this.seatLayoutRegistry = seatLayoutRegistry;
+        this.metrics = metrics;
+        this.availabilityIndex = flightService.seatAvailability();
+        this.allocationStrategy = allocationStrategy;
+    }
 
     @Override
     public SeatMapResponse getSeatMapAndRecommendations(
@@ -27,140 +53,339 @@ public class SeatServiceImpl implements SeatService {
             Optional<Boolean> preferExtraLegroom,
             Optional<Boolean> preferNearExit
     ) {
+        long start = System.nanoTime();
         if (numberOfPassengers <= 0) {
             numberOfPassengers = 1;
         }
 
-        // get the pre-defined occupied seats and generate the full layout
-        Set<String> occupiedForThisFlight = new HashSet<>(flight.getOccupiedSeatNrs());
-        List<Seat> allSeats = generateSeatLayout(
-                occupiedForThisFlight
-        );
-
-        // filter available seats
-        List<Seat> availableSeats = allSeats.stream()
-                .filter(seat -> !seat.isOccupied())
-                .collect(Collectors.toList());
+        // take a snapshot of the occupied seats and overlay it on the aircraft's layout template
+        SeatLayout layout = seatLayoutRegistry.layoutFor(flight.getAircraftType());
+        SeatInventory.Snapshot occupancy = flight.getSeatInventory().snapshot();
+        List<Seat> allSeats = layout.seats(occupancy);
 
-        // find recommendations based on available seats.
-        List<Seat> recommendedSeats = findRecommendedSeats(
-                availableSeats,
+        // find recommendations based on the free seats of the same snapshot.
+        List<String> recommendedSeatNrs = findRecommendedSeats(
+                flight,
+                layout,
+                occupancy,
                 numberOfPassengers,
                 preferWindow.orElse(false),
                 preferExtraLegroom.orElse(false),
                 preferNearExit.orElse(false)
         );
 
-        List<String> recommendedSeatNrs = recommendedSeats.stream().map(Seat::getSeatNr).collect(Collectors.toList());
-
         // return the response DTO
-        return new SeatMapResponse(DEFAULT_TOTAL_ROWS, DEFAULT_COLUMNS, allSeats, recommendedSeatNrs);
+        SeatMapResponse response = new SeatMapResponse(layout.getTotalRows(), layout.getColumns(), allSeats, recommendedSeatNrs, occupancy.getVersion());
+        metrics.seatMapTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return response;
     }
 
     /**
-     * Generates the full seat layout for a plane, marking seats as occupied
-     * based on the provided set of occupied seat numbers.
+     * Same as {@link #getSeatMapAndRecommendations}, but only references the layout by aircraft type
+     * and sends the occupancy as a bitmap.
      */
-    private List<Seat> generateSeatLayout(Set<String> occupiedSeatNrs) {
-        List<Seat> seats = new ArrayList<>();
-        for (int row = 1; row <= SeatServiceImpl.DEFAULT_TOTAL_ROWS; row++) {
-            for (String col : SeatServiceImpl.DEFAULT_COLUMNS) {
-                String seatNr = row + col;
-
-                boolean isWindow = WINDOW_COLUMNS.contains(col);
-                boolean hasExtraLegroom = EXTRA_LEG_ROWS.contains(row);
-                boolean isNearExit = EXIT_ROWS.contains(row);
-                boolean isOccupied = occupiedSeatNrs.contains(seatNr);
-                boolean isFirstClass = (row == 1 || row == 2);
-
-                seats.add(new Seat(seatNr, row, col, isWindow, hasExtraLegroom, isNearExit, isOccupied, isFirstClass));
-            }
+    @Override
+    public CompactSeatMapResponse getCompactSeatMap(
+            Flight flight,
+            int numberOfPassengers,
+            Optional<Boolean> preferWindow,
+            Optional<Boolean> preferExtraLegroom,
+            Optional<Boolean> preferNearExit
+    ) {
+        long start = System.nanoTime();
+        if (numberOfPassengers <= 0) {
+            numberOfPassengers = 1;
         }
 
-        // sort for consistent order
-        seats.sort(Comparator.comparingInt(Seat::getRow).thenComparing(Seat::getColumn));
+        SeatLayout layout = seatLayoutRegistry.layoutFor(flight.getAircraftType());
+        SeatInventory.Snapshot occupancy = flight.getSeatInventory().snapshot();
+
+        List<String> recommendedSeatNrs = findRecommendedSeats(
+                flight,
+                layout,
+                occupancy,
+                numberOfPassengers,
+                preferWindow.orElse(false),
+                preferExtraLegroom.orElse(false),
+                preferNearExit.orElse(false)
+        );
 
-        return seats;
+        String encodedOccupancy = Base64.getEncoder().encodeToString(occupancy.unavailableToByteArray());
+        CompactSeatMapResponse response = new CompactSeatMapResponse(layout.getAircraftType(), occupancy.getVersion(), encodedOccupancy, recommendedSeatNrs);
+        metrics.compactSeatMapTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return response;
     }
 
     /**
      * Finds a recommended group of seats based on availability, number of passengers, and preferences.
+     * Works on per-row bitmasks of free seats that match the preferences. With {@link SeatAllocationStrategy#FIRST_FIT}
+     * the first row with a run of {@code numberOfPassengers} consecutive bits wins, with
+     * {@link SeatAllocationStrategy#BEST_FIT} the shortest such run, see {@link SeatAvailabilityIndex}. If no
+     * single row can seat the group, it is split across adjacent rows, see {@link #splitAcrossRows}.
+     * Best fit finally seats a group that can't sit together in as few blocks as possible.
      *
-     * @param availableSeats        -   list of all currently available seats on the flight.
+     * @param flight                -   flight the occupancy belongs to.
+     * @param layout                -   seat layout of the flight's aircraft.
+     * @param occupancy             -   occupancy snapshot of the flight.
      * @param numberOfPassengers    -   number of seats required for the group.
      * @param preferWindow          -   true / false based on is window seats are preferred.
      * @param preferExtraLegroom    -   true / false based on if extra legroom is preferred.
      * @param preferNearExit        -   true / false based on if near exit seats are preffered.
-     * @return                      -   a list containing recommended seats.
+     * @return                      -   a list containing recommended seat numbers.
      */
-    private List<Seat> findRecommendedSeats(
-            List<Seat> availableSeats,
+    private List<String> findRecommendedSeats(
+            Flight flight,
+            SeatLayout layout,
+            SeatInventory.Snapshot occupancy,
             int numberOfPassengers,
             boolean preferWindow,
             boolean preferExtraLegroom,
             boolean preferNearExit
     ) {
-        // filter by preferences.
-        List<Seat> potentialSeats = availableSeats.stream()
-                .filter(seat -> !preferWindow || seat.isWindow())
-                .filter(seat -> !preferExtraLegroom || seat.isHasExtraLegroom())
-                .filter(seat -> !preferNearExit || seat.isNearExit())
-                .toList();
-
-        if (potentialSeats.isEmpty() && availableSeats.isEmpty()) {
-            return Collections.emptyList();
-        } else if (potentialSeats.isEmpty()) {
-            return Collections.emptyList();
+        long start = System.nanoTime();
+        try {
+            if (allocationStrategy == SeatAllocationStrategy.BEST_FIT) {
+                return recommendBestFit(flight, layout, occupancy, numberOfPassengers, preferWindow, preferExtraLegroom, preferNearExit);
+            }
+            return recommend(layout, occupancy, numberOfPassengers, preferWindow, preferExtraLegroom, preferNearExit);
+        } finally {
+            metrics.recommendationTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+    }
+
+    private List<String> recommend(
+            SeatLayout layout,
+            SeatInventory.Snapshot occupancy,
+            int numberOfPassengers,
+            boolean preferWindow,
+            boolean preferExtraLegroom,
+            boolean preferNearExit
+    ) {
+        int columns = layout.getColumnCount();
+        long columnMask = preferWindow ? layout.getWindowColumnMask() : fullRowMask(columns);
 
-        // group by row and search for consecutive blocks.
-        Map<Integer, List<Seat>> seatsByRow = potentialSeats.stream()
-                .sorted(Comparator.comparing(Seat::getColumn))
-                .collect(Collectors.groupingBy(Seat::getRow));
+        if (numberOfPassengers <= columns) {
+            for (int row = 1; row <= layout.getTotalRows(); row++) {
+                long free = candidateMask(layout, occupancy, row, columnMask, preferExtraLegroom, preferNearExit);
+                if (Long.bitCount(free) < numberOfPassengers) {
+                    continue;
+                }
+                long runStarts = runStarts(free, numberOfPassengers);
+                if (runStarts != 0) {
+                    return seatNrs(layout, row, Long.numberOfTrailingZeros(runStarts), numberOfPassengers);
+                }
+            }
+        }
 
-        for (int rowNum : seatsByRow.keySet().stream().sorted().toList()) {
-            List<Seat> rowSeats = seatsByRow.get(rowNum);
-            if (rowSeats.size() < numberOfPassengers) {
-                continue;
+        return splitAcrossRows(layout, occupancy, numberOfPassengers, columnMask, preferExtraLegroom, preferNearExit);
+    }
+
+    private List<String> recommendBestFit(
+            Flight flight,
+            SeatLayout layout,
+            SeatInventory.Snapshot occupancy,
+            int numberOfPassengers,
+            boolean preferWindow,
+            boolean preferExtraLegroom,
+            boolean preferNearExit
+    ) {
+        if (numberOfPassengers <= layout.getColumnCount()) {
+            List<String> seatNrs = availabilityIndex.bestFit(flight, occupancy, numberOfPassengers, preferWindow, preferExtraLegroom, preferNearExit);
+            if (!seatNrs.isEmpty()) {
+                return seatNrs;
             }
-            for (int i = 0; i <= rowSeats.size() - numberOfPassengers; i++) {
-                List<Seat> potentialGroup = rowSeats.subList(i, i + numberOfPassengers);
-                if (areSeatsConsecutive(potentialGroup)) {
-                    return potentialGroup;
+        }
+        long columnMask = preferWindow ? layout.getWindowColumnMask() : fullRowMask(layout.getColumnCount());
+        List<String> seatNrs = splitAcrossRows(layout, occupancy, numberOfPassengers, columnMask, preferExtraLegroom, preferNearExit);
+        if (!seatNrs.isEmpty()) {
+            return seatNrs;
+        }
+        return availabilityIndex.fewestBlocks(flight, occupancy, numberOfPassengers, preferWindow, preferExtraLegroom, preferNearExit);
+    }
+
+    /**
+     * Fallback for groups that don't fit into a single row. For every starting row it fills the
+     * following rows with their longest free run until the group is seated, and scores the placement
+     * by the number of rows used and how far the blocks are shifted from each other. The best scoring
+     * placement wins, an empty list is returned if no adjacent rows can seat the group.
+     */
+    private List<String> splitAcrossRows(
+            SeatLayout layout,
+            SeatInventory.Snapshot occupancy,
+            int numberOfPassengers,
+            long columnMask,
+            boolean preferExtraLegroom,
+            boolean preferNearExit
+    ) {
+        int totalRows = layout.getTotalRows();
+        int bestStartRow = -1;
+        int bestScore = Integer.MAX_VALUE;
+
+        for (int startRow = 1; startRow <= totalRows; startRow++) {
+            int remaining = numberOfPassengers;
+            int score = 0;
+            int previousStart = -1;
+
+            for (int row = startRow; row <= totalRows && remaining > 0 && score < bestScore; row++) {
+                long free = candidateMask(layout, occupancy, row, columnMask, preferExtraLegroom, preferNearExit);
+                if (free == 0) {
+                    break;
                 }
+                long longest = longestRunStarts(free);
+                int runStart = Long.numberOfTrailingZeros(longest);
+                remaining -= Math.min(runLength(free, runStart), remaining);
+                score += SPLIT_ROW_PENALTY + (previousStart < 0 ? 0 : Math.abs(runStart - previousStart));
+                previousStart = runStart;
+            }
+
+            if (remaining == 0 && score < bestScore) {
+                bestScore = score;
+                bestStartRow = startRow;
             }
         }
 
-        // For a single passanger return the first matching seat
-        if (numberOfPassengers == 1) {
-            return List.of(potentialSeats.getFirst());
-        } else {
+        if (bestStartRow < 0) {
             return Collections.emptyList();
         }
+
+        List<String> seatNrs = new ArrayList<>(numberOfPassengers);
+        int remaining = numberOfPassengers;
+        for (int row = bestStartRow; remaining > 0; row++) {
+            long free = candidateMask(layout, occupancy, row, columnMask, preferExtraLegroom, preferNearExit);
+            int runStart = Long.numberOfTrailingZeros(longestRunStarts(free));
+            int take = Math.min(runLength(free, runStart), remaining);
+            for (int col = runStart; col < runStart + take; col++) {
+                seatNrs.add(layout.seatNr(row, col));
+            }
+            remaining -= take;
+        }
+        return seatNrs;
     }
 
     /**
-     * Checks if the seats in the provided list are consecutive based on their column character.
-     * Assumes seats are within the same row.
-     *
-     * @param seats     -   list of Seat objects.
-     * @return          -   true / false based on if seats are consecutive.
+     * Bitmask of the free seats in a row that match the preferences, bit i is column i. Held seats
+     * don't count as free, so a hold never shows up in someone else's recommendation.
      */
-    private boolean areSeatsConsecutive(List<Seat> seats) {
-        if (seats == null || seats.size() < 2) {
-            return true;
+    private static long candidateMask(SeatLayout layout, SeatInventory.Snapshot occupancy, int row, long columnMask, boolean preferExtraLegroom, boolean preferNearExit) {
+        if ((preferExtraLegroom && !layout.isExtraLegroomRow(row)) || (preferNearExit && !layout.isExitRow(row))) {
+            return 0L;
         }
+        return ~occupancy.unavailableRowMask(row) & columnMask;
+    }
 
-        seats.sort(Comparator.comparing(s -> s.getColumn().charAt(0)));
+    /**
+     * Keeps bit i only if bits i .. i + length - 1 are all set, by and-ing the mask with shifted
+     * copies of itself, doubling the covered length every step.
+     */
+    private static long runStarts(long mask, int length) {
+        long runs = mask;
+        int covered = 1;
+        while (covered < length && runs != 0) {
+            int shift = Math.min(covered, length - covered);
+            runs &= runs >>> shift;
+            covered += shift;
+        }
+        return runs;
+    }
+
+    /**
+     * Start bits of the longest runs in the mask.
+     */
+    private static long longestRunStarts(long mask) {
+        long runs = mask;
+        long previous = mask;
+        while (runs != 0) {
+            previous = runs;
+            runs &= runs >>> 1;
+        }
+        return previous;
+    }
+
+    private static int runLength(long mask, int start) {
+        return Long.numberOfTrailingZeros(~(mask >>> start));
+    }
+
+    private static List<String> seatNrs(SeatLayout layout, int row, int firstColumn, int count) {
+        List<String> seatNrs = new ArrayList<>(count);
+        for (int col = firstColumn; col < firstColumn + count; col++) {
+            seatNrs.add(layout.seatNr(row, col));
+        }
+        return seatNrs;
+    }
 
-        for (int i = 0; i < seats.size() - 1; i++) {
-            char currentCol = seats.get(i).getColumn().charAt(0);
-            char nextCol = seats.get(i + 1).getColumn().charAt(0);
-            if (nextCol != currentCol + 1) {
-                return false;
+    private static long fullRowMask(int columns) {
+        return columns == Long.SIZE ? -1L : (1L << columns) - 1;
+    }
+
+    /**
+     * Finds flights matching the criteria together with a summary of their free seats, so a search
+     * page can show which flights fit a group without requesting every seat map.
+     *
+     * @param destination           -   desired destination.
+     * @param date                  -   desired departure date.
+     * @param maxDurationMinutes    -   maximum flight duration in minutes.
+     * @param maxPrice              -   maximum allowed price for the flight.
+     * @param minAdjacentSeats      -   only flights with at least this many adjacent free seats in one row, null for any.
+     * @param preferWindow          -   only window seats count as adjacent seats.
+     * @param preferExtraLegroom    -   only extra legroom rows count as adjacent seats.
+     * @param preferNearExit        -   only exit rows count as adjacent seats.
+     * @return                      -   matching flights ordered by id, each with its availability.
+     */
+    @Override
+    public List<FlightSearchResult> findFlightsWithAvailability(
+            String destination,
+            LocalDate date,
+            Long maxDurationMinutes,
+            BigDecimal maxPrice,
+            Integer minAdjacentSeats,
+            Optional<Boolean> preferWindow,
+            Optional<Boolean> preferExtraLegroom,
+            Optional<Boolean> preferNearExit
+    ) {
+        return findFlightsWithAvailability(destination, date, maxDurationMinutes, maxPrice, minAdjacentSeats,
+                preferWindow, preferExtraLegroom, preferNearExit, flightId -> true);
+    }
+
+    /**
+     * Like {@link #findFlightsWithAvailability(String, LocalDate, Long, BigDecimal, Integer, Optional, Optional, Optional)},
+     * but only for some of the flights, e.g. the ones whose inventory this node owns. Other flights
+     * are skipped before their availability is looked at.
+     *
+     * @param includeFlight     -   ids of the flights to include.
+     */
+    @Override
+    public List<FlightSearchResult> findFlightsWithAvailability(
+            String destination,
+            LocalDate date,
+            Long maxDurationMinutes,
+            BigDecimal maxPrice,
+            Integer minAdjacentSeats,
+            Optional<Boolean> preferWindow,
+            Optional<Boolean> preferExtraLegroom,
+            Optional<Boolean> preferNearExit,
+            LongPredicate includeFlight
+    ) {
+        boolean window = preferWindow.orElse(false);
+        boolean extraLegroom = preferExtraLegroom.orElse(false);
+        boolean nearExit = preferNearExit.orElse(false);
+
+        List<Flight> flights = new ArrayList<>();
+        for (Flight flight : flightService.findFlights(destination, date, maxDurationMinutes, maxPrice)) {
+            if (includeFlight.test(flight.getId())) {
+                flights.add(flight);
+            }
+        }
+        // a catalog loaded from the database reads the occupancies it hasn't seen yet in one query.
+        flightService.loadSeatInventories(flights);
+
+        List<FlightSearchResult> results = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            if (minAdjacentSeats != null && availabilityIndex.largestFreeBlock(flight, window, extraLegroom, nearExit) < minAdjacentSeats) {
+                continue;
             }
+            results.add(new FlightSearchResult(flight, availabilityIndex.summary(flight, window, extraLegroom, nearExit)));
         }
-        return true;
+        return results;
     }
 
     /**
@@ -170,22 +395,20 @@ public class SeatServiceImpl implements SeatService {
      * @return - true / false based on if the seat is first class or not.
      */
     @Override
-    @Transactional()
     public Optional<Boolean> isSeatFirstClass(Long flightId, String seatNr) {
-        try {
-            String rowString = seatNr.replaceAll("[^\\d]", "");
-            if (rowString.isEmpty()) {
-                return Optional.empty();
-            }
-            int row = Integer.parseInt(rowString);
-
-            boolean isFirst = (row == 1 || row == 2);
-
-            return Optional.of(isFirst);
+        Optional<Flight> flight = flightService.findFlightById(flightId);
+        if (flight.isEmpty()) {
+            return Optional.empty();
+        }
 
-        } catch (NumberFormatException e) {
+        SeatLayout layout = seatLayoutRegistry.layoutFor(flight.get().getAircraftType());
+        int seatIndex = layout.seatIndex(seatNr);
+        if (seatIndex < 0) {
             return Optional.empty();
         }
+
+        int row = seatIndex / layout.getColumnCount() + 1;
+        return Optional.of(layout.isFirstClassRow(row));
     }
 
 }
@@ -0,0 +1,7 @@
+package com.rainervana.flight_planner_backend.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface SeatUpdateService {
+    SseEmitter subscribe(Long flightId);
+}
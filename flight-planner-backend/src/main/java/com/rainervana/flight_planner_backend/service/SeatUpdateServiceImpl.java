@@ -0,0 +1,308 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rainervana.flight_planner_backend.dto.SeatMapDelta;
+import com.rainervana.flight_planner_backend.dto.SeatMapSnapshot;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import com.rainervana.flight_planner_backend.util.ConcurrentLongMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes seat map changes to clients as server-sent events.
+ * <p>
+ * Every flight with subscribers has a channel holding its latest publication. Once per coalescing
+ * window the channels compare their flight's inventory version with the published one, and a
+ * changed flight gets one publication for all bookings, cancellations and holds since the last one:
+ * the seats that became unavailable or available, serialized once and shared by every subscriber
+ * of the flight. Each subscriber is sent to on its own virtual thread, at most one at a time. A
+ * subscriber that is still busy with an older event skips the deltas in between and continues with
+ * a snapshot of the latest version, so a slow client never holds up the others.
+ */
+@Service
+public class SeatUpdateServiceImpl implements SeatUpdateService {
+    private static final Logger log = LoggerFactory.getLogger(SeatUpdateServiceImpl.class);
+
+    static final String SNAPSHOT_EVENT = "seats";
+    static final String DELTA_EVENT = "seats-delta";
+
+    private final ConcurrentLongMap<Channel> channels = new ConcurrentLongMap<>();
+    private final FlightService flightService;
+    private final SeatLayoutRegistry seatLayoutRegistry;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final long timeoutMillis;
+
+    /**
+     * @param flightService         -   catalog of the flights to stream.
+     * @param seatLayoutRegistry    -   layouts to name the changed seats with.
+     * @param objectMapper          -   serializes each event once for all subscribers.
+     * @param metrics               -   subscriber gauge.
+     * @param executor              -   runs the sends, virtual threads when enabled.
+     * @param timeoutMillis         -   how long a stream stays open, clients reconnect after it.
+     */
+    public SeatUpdateServiceImpl(
+            FlightService flightService,
+            SeatLayoutRegistry seatLayoutRegistry,
+            ObjectMapper objectMapper,
+            FlightPlannerMetrics metrics,
+            @Qualifier("applicationTaskExecutor") Executor executor,
+            @Value("${flight-planner.seat-updates.timeout-ms:1800000}") long timeoutMillis
+    ) {
+        this.flightService = flightService;
+        this.seatLayoutRegistry = seatLayoutRegistry;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        metrics.registerSeatMapSubscribers(this::subscriberCount);
+    }
+
+    /**
+     * Opens a seat map stream. The first event is a snapshot of the current occupancy, deltas follow.
+     *
+     * @param flightId  -   flight to follow.
+     * @return          -   emitter of the stream.
+     */
+    @Override
+    public SseEmitter subscribe(Long flightId) {
+        Flight flight = flightService.findFlightById(flightId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flight not found with ID: " + flightId));
+
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber = new Subscriber(emitter);
+        Channel channel = join(flight, subscriber);
+        emitter.onCompletion(() -> channel.subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> channel.subscribers.remove(subscriber));
+
+        deliver(channel, subscriber);
+        return emitter;
+    }
+
+    protected SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    /**
+     * Publishes the changes of every followed flight since its last publication.
+     */
+    @Scheduled(
+            initialDelayString = "${flight-planner.seat-updates.coalesce-ms:250}",
+            fixedDelayString = "${flight-planner.seat-updates.coalesce-ms:250}"
+    )
+    public void publishUpdates() {
+        for (Channel channel : channels.values()) {
+            if (channel.subscribers.isEmpty() && close(channel, true)) {
+                continue;
+            }
+            Flight current = flightService.findFlightById(channel.flight.getId()).orElse(null);
+            if (current != channel.flight) {
+                // the flight left the catalog, its streams end.
+                close(channel, false);
+                continue;
+            }
+            publish(channel);
+        }
+    }
+
+    private Channel join(Flight flight, Subscriber subscriber) {
+        while (true) {
+            Channel channel = channels.get(flight.getId());
+            if (channel == null || channel.flight != flight) {
+                channel = openChannel(flight);
+            }
+            synchronized (channel) {
+                // the channel may have been closed since it was looked up.
+                if (!channel.closed) {
+                    channel.subscribers.add(subscriber);
+                    return channel;
+                }
+            }
+        }
+    }
+
+    private Channel openChannel(Flight flight) {
+        Channel stale;
+        Channel channel;
+        synchronized (this) {
+            stale = channels.get(flight.getId());
+            if (stale != null && stale.flight == flight) {
+                return stale;
+            }
+            channel = new Channel(flight, seatLayoutRegistry.layoutFor(flight.getAircraftType()));
+            SeatInventory.Snapshot occupancy = flight.getSeatInventory().snapshot();
+            byte[] unavailable = occupancy.unavailableToByteArray();
+            channel.latest = new Publication(-1L, occupancy.getVersion(), unavailable, snapshotJson(channel, occupancy.getVersion(), unavailable), null);
+            channels.put(flight.getId(), channel);
+        }
+        // a flight added again under the same id, the streams of the old one end.
+        if (stale != null) {
+            close(stale, false);
+        }
+        return channel;
+    }
+
+    /**
+     * Removes a channel and ends its streams. Channels are locked after the map, so a subscriber
+     * either joins before the channel is closed or finds it closed and opens a new one.
+     *
+     * @param channel       -   channel to close.
+     * @param onlyIfEmpty   -   keep the channel if a subscriber joined in the meantime.
+     * @return              -   whether the channel was closed.
+     */
+    private boolean close(Channel channel, boolean onlyIfEmpty) {
+        synchronized (this) {
+            synchronized (channel) {
+                if (onlyIfEmpty && !channel.subscribers.isEmpty()) {
+                    return false;
+                }
+                channel.closed = true;
+                if (channels.get(channel.flight.getId()) == channel) {
+                    channels.remove(channel.flight.getId());
+                }
+            }
+        }
+        channel.subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        return true;
+    }
+
+    private void publish(Channel channel) {
+        SeatInventory.Snapshot occupancy = channel.flight.getSeatInventory().snapshot();
+        Publication previous = channel.latest;
+        if (occupancy.getVersion() == previous.version) {
+            return;
+        }
+
+        byte[] unavailable = occupancy.unavailableToByteArray();
+        SeatLayout layout = channel.layout;
+        List<String> unavailableSeats = new ArrayList<>();
+        List<String> availableSeats = new ArrayList<>();
+        for (int i = 0; i < unavailable.length; i++) {
+            int changed = (unavailable[i] ^ previous.unavailable[i]) & 0xFF;
+            while (changed != 0) {
+                int bit = Integer.numberOfTrailingZeros(changed);
+                int index = (i << 3) + bit;
+                String seatNr = layout.seatNr(index / layout.getColumnCount() + 1, index % layout.getColumnCount());
+                ((unavailable[i] & (1 << bit)) != 0 ? unavailableSeats : availableSeats).add(seatNr);
+                changed &= changed - 1;
+            }
+        }
+
+        SeatMapDelta delta = new SeatMapDelta(channel.flight.getId(), previous.version, occupancy.getVersion(), unavailableSeats, availableSeats);
+        channel.latest = new Publication(previous.version, occupancy.getVersion(), unavailable,
+                snapshotJson(channel, occupancy.getVersion(), unavailable), toJson(delta));
+
+        for (Subscriber subscriber : channel.subscribers) {
+            deliver(channel, subscriber);
+        }
+    }
+
+    private String snapshotJson(Channel channel, long version, byte[] unavailable) {
+        return toJson(new SeatMapSnapshot(channel.flight.getId(), channel.layout.getAircraftType(), version, Base64.getEncoder().encodeToString(unavailable)));
+    }
+
+    /**
+     * Sends the latest publication to a subscriber unless a send to it is already running, which
+     * picks the publication up when it is done.
+     */
+    private void deliver(Channel channel, Subscriber subscriber) {
+        if (!subscriber.sending.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                Publication publication;
+                while ((publication = channel.latest).version != subscriber.deliveredVersion) {
+                    boolean isDelta = publication.delta != null && publication.fromVersion == subscriber.deliveredVersion;
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(Long.toString(publication.version))
+                            .name(isDelta ? DELTA_EVENT : SNAPSHOT_EVENT)
+                            .data(isDelta ? publication.delta : publication.snapshot, MediaType.APPLICATION_JSON));
+                    subscriber.deliveredVersion = publication.version;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client disconnected or the stream ended, the container completes the emitter.
+                log.debug("Seat map stream of flight {} closed: {}", channel.flight.getId(), e.getMessage());
+                channel.subscribers.remove(subscriber);
+                return;
+            } finally {
+                subscriber.sending.set(false);
+            }
+            // a publication that came in after the last check found the subscriber still sending.
+            if (channel.latest.version != subscriber.deliveredVersion) {
+                deliver(channel, subscriber);
+            }
+        });
+    }
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int subscriberCount() {
+        int[] count = new int[1];
+        channels.forEachValue(channel -> count[0] += channel.subscribers.size());
+        return count[0];
+    }
+
+    /**
+     * Subscribers of one flight and the latest publication sent to them.
+     */
+    private static final class Channel {
+        private final Flight flight;
+        private final SeatLayout layout;
+        // iterated on every publication. a concurrent set, so a popular flight's clients coming and
+        // going don't copy the whole subscriber list each time.
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private volatile Publication latest;
+        private boolean closed;
+
+        Channel(Flight flight, SeatLayout layout) {
+            this.flight = flight;
+            this.layout = layout;
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long deliveredVersion = Long.MIN_VALUE;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * One inventory version of a flight, with its events serialized for all subscribers. The delta
+     * leads from {@code fromVersion} to {@code version} and is null for the channel's first publication.
+     */
+    private record Publication(long fromVersion, long version, byte[] unavailable, String snapshot, String delta) {
+    }
+}
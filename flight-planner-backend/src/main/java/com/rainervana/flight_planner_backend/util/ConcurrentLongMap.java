@@ -0,0 +1,311 @@
+package com.rainervana.flight_planner_backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent hash map with primitive {@code long} keys.
+ * <p>
+ * Keys are spread over lock-striped segments, each an open-addressing table with linear probing
+ * and backward-shift deletion, so there are no boxed keys or per-entry nodes. Reads are
+ * optimistic (a {@link StampedLock} stamp validated after the probe) and only fall back to a
+ * read lock if a writer touched the same segment in the meantime.
+ *
+ * @param <V>   -   value type.
+ */
+public class ConcurrentLongMap<V> {
+    private static final int DEFAULT_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+
+    public ConcurrentLongMap() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap(int concurrencyLevel) {
+        int count = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1) << 1);
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>();
+        }
+        segmentMask = count - 1;
+    }
+
+    public V get(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Associates the value with the key.
+     *
+     * @param key       -   key.
+     * @param value     -   non-null value.
+     * @return          -   previous value, or null if there was none.
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        long hash = mix(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * Associates the value with the key only if the key is not mapped yet.
+     *
+     * @return  -   the existing value, or null if the value was inserted.
+     */
+    public V putIfAbsent(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        long hash = mix(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    public V remove(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Visits every value, segment by segment. Each segment is visited under its read lock,
+     * so the iteration is weakly consistent across segments.
+     *
+     * @param action    -   action to run for each value.
+     */
+    public void forEachValue(Consumer<? super V> action) {
+        for (Segment<V> segment : segments) {
+            segment.forEachValue(action);
+        }
+    }
+
+    /**
+     * @return  -   a point-in-time copy of all values.
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        forEachValue(values::add);
+        return values;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> 32) & segmentMask];
+    }
+
+    static long mix(long key) {
+        // murmur3 finalizer, sequential ids would otherwise cluster in the probe sequence.
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * One open-addressing table. A null value marks a free slot.
+     */
+    private static final class Segment<V> extends StampedLock {
+        private volatile Table table = new Table(MIN_SEGMENT_CAPACITY);
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        V get(long key, long hash) {
+            long stamp = tryOptimisticRead();
+            Object value = table.find(key, hash);
+            if (!validate(stamp)) {
+                stamp = readLock();
+                try {
+                    value = table.find(key, hash);
+                } finally {
+                    unlockRead(stamp);
+                }
+            }
+            return (V) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, long hash, V value, boolean onlyIfAbsent) {
+            long stamp = writeLock();
+            try {
+                Table current = table;
+                int mask = current.keys.length - 1;
+                int slot = (int) hash & mask;
+                while (current.values[slot] != null) {
+                    if (current.keys[slot] == key) {
+                        Object previous = current.values[slot];
+                        if (!onlyIfAbsent) {
+                            current.values[slot] = value;
+                        }
+                        return (V) previous;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                if ((size + 1) * 2 > current.keys.length) {
+                    table = current = current.resized(current.keys.length << 1);
+                    slot = current.freeSlot(hash);
+                }
+                current.keys[slot] = key;
+                current.values[slot] = value;
+                size++;
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, long hash) {
+            long stamp = writeLock();
+            try {
+                Table current = table;
+                int mask = current.keys.length - 1;
+                int slot = (int) hash & mask;
+                while (current.values[slot] != null) {
+                    if (current.keys[slot] == key) {
+                        Object previous = current.values[slot];
+                        current.shiftBack(slot);
+                        size--;
+                        return (V) previous;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = tryOptimisticRead();
+            int result = size;
+            if (!validate(stamp)) {
+                stamp = readLock();
+                try {
+                    result = size;
+                } finally {
+                    unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEachValue(Consumer<? super V> action) {
+            List<Object> copy = new ArrayList<>();
+            long stamp = readLock();
+            try {
+                for (Object value : table.values) {
+                    if (value != null) {
+                        copy.add(value);
+                    }
+                }
+            } finally {
+                unlockRead(stamp);
+            }
+            // run the action outside of the lock, it may call back into the map.
+            for (Object value : copy) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        Object find(long key, long hash) {
+            long[] k = keys;
+            Object[] v = values;
+            int mask = k.length - 1;
+            int slot = (int) hash & mask;
+            // bounded, a concurrent writer can leave the table inconsistent for an optimistic reader.
+            for (int probes = 0; probes < k.length; probes++) {
+                Object value = v[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (k[slot] == key) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        int freeSlot(long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        Table resized(int capacity) {
+            Table resized = new Table(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) {
+                    int slot = resized.freeSlot(mix(keys[i]));
+                    resized.keys[slot] = keys[i];
+                    resized.values[slot] = values[i];
+                }
+            }
+            return resized;
+        }
+
+        /**
+         * Backward-shift deletion: moves following entries of the probe run into the gap,
+         * so lookups never need tombstones.
+         */
+        void shiftBack(int gap) {
+            int mask = keys.length - 1;
+            int slot = gap;
+            while (true) {
+                slot = (slot + 1) & mask;
+                if (values[slot] == null) {
+                    break;
+                }
+                int home = (int) mix(keys[slot]) & mask;
+                // move the entry if its home slot is not in the cyclic range (gap, slot].
+                boolean movable = gap <= slot ? (home <= gap || home > slot) : (home <= gap && home > slot);
+                if (movable) {
+                    keys[gap] = keys[slot];
+                    values[gap] = values[slot];
+                    gap = slot;
+                }
+            }
+            keys[gap] = 0L;
+            values[gap] = null;
+        }
+    }
+}
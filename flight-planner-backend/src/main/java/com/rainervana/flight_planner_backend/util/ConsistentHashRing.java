@@ -0,0 +1,106 @@
+package com.rainervana.flight_planner_backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hash ring that maps {@code long} keys to one of a fixed list of nodes.
+ * <p>
+ * Every node is placed on the ring at a number of virtual points, and a key belongs to the first
+ * point at or after its hash. Virtual points even out the share of keys per node, and adding or
+ * removing a node only moves the keys next to its points. Points are hashed from the node names
+ * alone, so every process built from the same node list agrees on every key's owner. Lookups are
+ * a binary search over a sorted {@code long[]}.
+ */
+public class ConsistentHashRing {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<String> nodes;
+    // sorted ring positions, owners[i] is the index of the node at points[i].
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * @param nodes         -   distinct node names, e.g. base URLs.
+     * @param virtualNodes  -   points per node, more points spread the keys more evenly.
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("The ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Every node needs at least one virtual node, got " + virtualNodes);
+        }
+        if (nodes.stream().distinct().count() != nodes.size()) {
+            throw new IllegalArgumentException("Duplicate node in " + nodes);
+        }
+        this.nodes = List.copyOf(nodes);
+
+        int count = nodes.size() * virtualNodes;
+        long[] hashes = new long[count];
+        Integer[] order = new Integer[count];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                int i = node * virtualNodes + v;
+                hashes[i] = hash(nodes.get(node) + "#" + v);
+                order[i] = i;
+            }
+        }
+        // ties (practically never) go to the lower node index.
+        Arrays.sort(order, (a, b) -> {
+            int byHash = Long.compare(hashes[a], hashes[b]);
+            return byHash != 0 ? byHash : Integer.compare(a, b);
+        });
+        this.points = new long[count];
+        this.owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    /**
+     * @param key   -   key to place, e.g. a flight id.
+     * @return      -   index of the owning node in the node list.
+     */
+    public int nodeIndexFor(long key) {
+        int i = Arrays.binarySearch(points, mix(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        // past the last point wraps around to the first one.
+        return owners[i == points.length ? 0 : i];
+    }
+
+    public String nodeFor(long key) {
+        return nodes.get(nodeIndexFor(key));
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, finished with {@link #mix(long)}. Unlike
+     * {@link String#hashCode()} it uses the whole 64-bit ring.
+     */
+    private static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads sequential keys over the whole ring.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,106 @@
+package com.rainervana.flight_planner_backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for many short-lived deadlines that expire in bulk.
+ * <p>
+ * Time is cut into ticks of {@code tickMillis}. A deadline is put into the bucket of its tick
+ * modulo the wheel size, so scheduling is O(1) and advancing the wheel only looks at the buckets
+ * of the ticks that passed, no matter how many deadlines are pending. Deadlines more than a full
+ * turn ahead simply stay in their bucket until their tick comes round.
+ * <p>
+ * Any thread may schedule, but only one thread at a time may advance the wheel. New deadlines go
+ * through a lock-free queue and are moved into the buckets by the advancing thread. There is no
+ * cancellation, callers skip items that are no longer relevant when they expire.
+ *
+ * @param <T>   -   item type.
+ */
+public class TimingWheel<T> {
+    private final long tickMillis;
+    private final long startMillis;
+    private final List<Entry<T>>[] buckets;
+    private final int mask;
+    private final Queue<Entry<T>> pending = new ConcurrentLinkedQueue<>();
+    // next tick to expire, only touched by the advancing thread.
+    private long currentTick;
+
+    /**
+     * @param tickMillis    -   length of a tick, deadlines expire at most one tick late.
+     * @param ticksPerWheel -   number of buckets, rounded up to a power of two.
+     * @param startMillis   -   time of tick 0.
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int ticksPerWheel, long startMillis) {
+        if (tickMillis <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("Invalid timing wheel: " + ticksPerWheel + " ticks of " + tickMillis + " ms");
+        }
+        int size = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1) << 1);
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedules an item to expire at the given time.
+     *
+     * @param item              -   item handed to the expiry callback.
+     * @param deadlineMillis    -   time the item expires at.
+     */
+    public void schedule(T item, long deadlineMillis) {
+        // round up, an item never expires before its deadline.
+        long deadlineTick = Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis);
+        pending.add(new Entry<>(item, deadlineTick));
+    }
+
+    /**
+     * Expires every item whose deadline is not after the given time.
+     *
+     * @param nowMillis     -   current time.
+     * @param expired       -   called for every expired item, on the calling thread.
+     * @return              -   number of expired items.
+     */
+    public int advance(long nowMillis, Consumer<? super T> expired) {
+        long nowTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+
+        Entry<T> entry;
+        while ((entry = pending.poll()) != null) {
+            // already overdue items go into the current bucket and expire right below.
+            buckets[(int) Math.max(entry.deadlineTick, currentTick) & mask].add(entry);
+        }
+
+        if (nowTick < currentTick) {
+            return 0;
+        }
+
+        // after a stall one full turn visits every bucket, there's no need to go round again.
+        long lastTick = Math.min(nowTick, currentTick + buckets.length - 1);
+        int count = 0;
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            List<Entry<T>> bucket = buckets[(int) tick & mask];
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                Entry<T> candidate = bucket.get(i);
+                if (candidate.deadlineTick <= nowTick) {
+                    // swap-remove, the order within a bucket doesn't matter.
+                    bucket.set(i, bucket.get(bucket.size() - 1));
+                    bucket.remove(bucket.size() - 1);
+                    expired.accept(candidate.item);
+                    count++;
+                }
+            }
+        }
+        currentTick = nowTick + 1;
+        return count;
+    }
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.rainervana.flight_planner_backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rainervana.flight_planner_backend.dto.FlightPageResponse;
+import com.rainervana.flight_planner_backend.dto.FlightSearchResult;
+import com.rainervana.flight_planner_backend.dto.SeatAvailabilitySummary;
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightJsonHttpMessageConverterTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2025, 4, 1, 10, 30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final FlightJsonHttpMessageConverter converter = new FlightJsonHttpMessageConverter(objectMapper);
+
+    // declared only for their generic types.
+    private List<FlightSearchResult> searchResults;
+    private Optional<Flight> optionalFlight;
+
+    @Test
+    void writesTheSameJsonAsJackson() throws Exception {
+        Flight first = flight(1L, "FL100", "129.50");
+        Flight second = flight(2L, "FL200", "80.00");
+        List<FlightSearchResult> results = List.of(
+                new FlightSearchResult(first, new SeatAvailabilitySummary(120, 8, 112, 6)),
+                new FlightSearchResult(second, new SeatAvailabilitySummary(0, 0, 0, 0))
+        );
+        FlightPageResponse page = new FlightPageResponse(List.of(first, second), "next");
+
+        assertSameJson(write(results, type("searchResults")), objectMapper.writeValueAsBytes(results));
+        assertSameJson(write(page, FlightPageResponse.class), objectMapper.writeValueAsBytes(page));
+        assertSameJson(write(Optional.of(first), type("optionalFlight")), objectMapper.writeValueAsBytes(first));
+        assertThat(new String(write(Optional.empty(), type("optionalFlight")))).isEqualTo("null");
+        assertThat(converter.canWrite(type("searchResults"), List.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(List.class, List.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    void changedFlightsAreEncodedAgain() throws Exception {
+        Flight flight = flight(1L, "FL100", "129.50");
+        byte[] cached = converter.flightJson(flight);
+        assertThat(converter.flightJson(flight)).isSameAs(cached);
+
+        flight.setPrice(new BigDecimal("99.00"));
+        assertThat(flight.cachedJson()).isNull();
+        assertThat(objectMapper.readTree(converter.flightJson(flight)).get("price").decimalValue()).isEqualByComparingTo("99.00");
+    }
+
+    private byte[] write(Object value, Type type) throws IOException {
+        BufferedMessage message = new BufferedMessage();
+        converter.write(value, type, MediaType.APPLICATION_JSON, message);
+        return message.body.toByteArray();
+    }
+
+    private void assertSameJson(byte[] actual, byte[] expected) throws IOException {
+        assertThat(objectMapper.readTree(actual)).isEqualTo(objectMapper.readTree(expected));
+    }
+
+    private static Type type(String field) throws NoSuchFieldException {
+        return FlightJsonHttpMessageConverterTest.class.getDeclaredField(field).getGenericType();
+    }
+
+    private static Flight flight(long id, String flightNr, String price) {
+        return new Flight(id, flightNr, "TLL", "WAW", DEPARTURE, DEPARTURE.plusMinutes(95), new BigDecimal(price), "Boeing 737");
+    }
+
+    private static final class BufferedMessage implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.rainervana.flight_planner_backend.controller;
+
+import com.rainervana.flight_planner_backend.service.SeatLayoutRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LayoutControllerTest {
+    private final SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+    private final LayoutController layoutController = new LayoutController(seatLayoutRegistry);
+
+    @Test
+    void knownTypesAreServedAndUnknownOnesAreNotFound() {
+        assertThat(layoutController.getLayout("ATR 72").getBody().getAircraftType()).isEqualTo("ATR 72");
+        assertThatThrownBy(() -> layoutController.getLayout("Concorde"))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        // flights of unknown types are still booked on the default layout.
+        assertThat(seatLayoutRegistry.find("Concorde")).isEmpty();
+        assertThat(seatLayoutRegistry.layoutFor("Concorde")).isSameAs(seatLayoutRegistry.layoutFor(SeatLayoutRegistry.DEFAULT_AIRCRAFT_TYPE));
+        assertThat(seatLayoutRegistry.layoutFor(null).getAircraftType()).isEqualTo(SeatLayoutRegistry.DEFAULT_AIRCRAFT_TYPE);
+    }
+}
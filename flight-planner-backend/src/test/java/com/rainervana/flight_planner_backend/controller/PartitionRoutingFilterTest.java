@@ -0,0 +1,206 @@
+package com.rainervana.flight_planner_backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.service.PartitionMap;
+import com.rainervana.flight_planner_backend.service.PartitionRouter;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionRoutingFilterTest {
+    private static final String SELF = "http://127.0.0.1:1";
+
+    // method, path, forwarded header and body of every request the peer received.
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private HttpServer peer;
+    private String peerUrl;
+    private PartitionMap partitionMap;
+    private PartitionRoutingFilter filter;
+
+    @BeforeEach
+    void startPeer() throws IOException {
+        peer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        peer.createContext("/", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            received.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+                    + exchange.getRequestHeaders().getFirst(PartitionRouter.FORWARDED_HEADER) + " " + new String(body, StandardCharsets.UTF_8));
+            byte[] response = "served by the owner".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", "\"7-3\"");
+            exchange.getResponseHeaders().set("X-Internal", "not passed on");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        peer.start();
+
+        peerUrl = "http://127.0.0.1:" + peer.getAddress().getPort();
+        partitionMap = new PartitionMap(SELF + "," + peerUrl, SELF, 128);
+        ObjectMapper objectMapper = new ObjectMapper();
+        PartitionRouter partitionRouter = new PartitionRouter(partitionMap, objectMapper, new FlightPlannerMetrics(new SimpleMeterRegistry(), false), 2000);
+        filter = new PartitionRoutingFilter(partitionMap, partitionRouter, objectMapper);
+    }
+
+    @AfterEach
+    void stopPeer() {
+        peer.stop(0);
+    }
+
+    @Test
+    void flightRequestsAreStreamedFromTheOwner() throws Exception {
+        long flightId = flightOwnedBy(peerUrl);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/flights/" + flightId + "/seats");
+        request.setQueryString("passengers=2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"7-3\"");
+        assertThat(response.getHeader("X-Internal")).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("served by the owner");
+        assertThat(received).containsExactly("GET /api/flights/" + flightId + "/seats?passengers=2 " + SELF + " ");
+    }
+
+    @Test
+    void ownedFlightsAreServedHere() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/flights/" + flightOwnedBy(SELF) + "/seats");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void bookingsAndHoldsAreRoutedByTheFlightInTheBody() throws Exception {
+        String remote = "{\"flightId\":" + flightOwnedBy(peerUrl) + ",\"selectedSeats\":[\"1A\"]}";
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/flights/bookings");
+        request.setContent(remote.getBytes(StandardCharsets.UTF_8));
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(received).containsExactly("POST /api/flights/bookings " + SELF + " " + remote);
+
+        // the local request's body was read for routing, the controller still gets all of it.
+        String local = "{\"flightId\":" + flightOwnedBy(SELF) + ",\"selectedSeats\":[\"1A\"]}";
+        request = new MockHttpServletRequest("POST", "/api/flights/holds");
+        request.setContent(local.getBytes(StandardCharsets.UTF_8));
+        chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(local);
+        assertThat(received).hasSize(1);
+
+        // and can read it asynchronously.
+        ServletInputStream in = chain.getRequest().getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] buffer = new byte[8];
+                while (in.isReady() && !in.isFinished()) {
+                    read.write(buffer, 0, in.read(buffer, 0, buffer.length));
+                }
+                events.add("data");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("error");
+            }
+        });
+        assertThat(events).containsExactly("data", "done");
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo(local);
+    }
+
+    @Test
+    void holdsAreReleasedOnTheNodeThatNumberedThem() throws Exception {
+        PartitionMap peerMap = new PartitionMap(SELF + "," + peerUrl, peerUrl, 128);
+        long remoteHold = peerMap.holdId(5);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("DELETE", "/api/flights/holds/" + remoteHold), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(received).containsExactly("DELETE /api/flights/holds/" + remoteHold + " " + SELF + " ");
+
+        chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("DELETE", "/api/flights/holds/" + partitionMap.holdId(5)), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(received).hasSize(1);
+    }
+
+    @Test
+    void forwardedHeaderDoesNotBypassRouting() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/flights/bookings");
+        request.setContent(("{\"flightId\":" + flightOwnedBy(peerUrl) + "}").getBytes(StandardCharsets.UTF_8));
+        request.addHeader(PartitionRouter.FORWARDED_HEADER, "http://client:1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        // neither booked on a copy of the inventory nor passed on a second time.
+        assertThat(response.getStatus()).isEqualTo(421);
+        assertThat(chain.getRequest()).isNull();
+        assertThat(received).isEmpty();
+
+        request = new MockHttpServletRequest("GET", "/api/flights/" + flightOwnedBy(SELF) + "/seats");
+        request.addHeader(PartitionRouter.FORWARDED_HEADER, peerUrl);
+        chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    void unreachableOwnerIsUnavailable() throws Exception {
+        peer.stop(0);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/flights/" + flightOwnedBy(peerUrl) + "/quote"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getErrorMessage()).isEqualTo("Partition unavailable: " + peerUrl);
+    }
+
+    private long flightOwnedBy(String node) {
+        long flightId = 1;
+        while (!partitionMap.ownerOfFlight(flightId).equals(node)) {
+            flightId++;
+        }
+        return flightId;
+    }
+}
@@ -0,0 +1,114 @@
+package com.rainervana.flight_planner_backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Seat map caching over HTTP, on the sample catalog of the in-memory flight service.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class SeatMapETagTest {
+    private static final String SEATS = "/api/flights/{flightId}/seats";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void unchangedSeatMapsAreNotModified() throws Exception {
+        for (String path : List.of(SEATS, SEATS + "/compact")) {
+            MvcResult first = mockMvc.perform(get(path, 1L))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(HttpHeaders.ETAG))
+                    .andReturn();
+            String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get(path, 1L).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        }
+    }
+
+    @Test
+    void bookingsAndHoldsChangeTheETag() throws Exception {
+        String eTag = seatMapETag(2L);
+        List<String> freeSeats = freeSeats(2L);
+
+        mockMvc.perform(post("/api/flights/bookings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"flightId\":2,\"passengers\":1,\"selectedSeats\":[\"" + freeSeats.get(0) + "\"]}"))
+                .andExpect(status().isOk());
+        String booked = seatMapETag(2L);
+        assertThat(booked).isNotEqualTo(eTag);
+        mockMvc.perform(get(SEATS, 2L).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/flights/holds")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"flightId\":2,\"selectedSeats\":[\"" + freeSeats.get(1) + "\"]}"))
+                .andExpect(status().isOk());
+        String held = seatMapETag(2L);
+        assertThat(held).isNotEqualTo(booked).isNotEqualTo(eTag);
+        mockMvc.perform(get(SEATS, 2L).header(HttpHeaders.IF_NONE_MATCH, booked)).andExpect(status().isOk());
+        mockMvc.perform(get(SEATS, 2L).header(HttpHeaders.IF_NONE_MATCH, held)).andExpect(status().isNotModified());
+    }
+
+    @Test
+    void compactBitmapMatchesTheSeatMap() throws Exception {
+        mockMvc.perform(post("/api/flights/holds")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"flightId\":3,\"selectedSeats\":[\"" + freeSeats(3L).get(0) + "\"]}"))
+                .andExpect(status().isOk());
+
+        JsonNode seatMap = json(mockMvc.perform(get(SEATS, 3L)).andExpect(status().isOk()).andReturn());
+        JsonNode compact = json(mockMvc.perform(get(SEATS + "/compact", 3L)).andExpect(status().isOk()).andReturn());
+        assertThat(compact.path("version").asLong()).isEqualTo(seatMap.path("version").asLong());
+
+        // bit j of byte i is the seat with index 8 * i + j, seats are listed in index order.
+        byte[] bitmap = Base64.getDecoder().decode(compact.path("occupancy").asText());
+        JsonNode seats = seatMap.path("allSeats");
+        assertThat(bitmap.length).isEqualTo((seats.size() + 7) / 8);
+        for (int index = 0; index < seats.size(); index++) {
+            boolean unavailable = (bitmap[index >>> 3] & (1 << (index & 7))) != 0;
+            assertThat(unavailable).as("seat %s", seats.get(index).path("seatNr").asText())
+                    .isEqualTo(seats.get(index).path("occupied").asBoolean());
+        }
+    }
+
+    private String seatMapETag(long flightId) throws Exception {
+        return mockMvc.perform(get(SEATS, flightId)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private List<String> freeSeats(long flightId) throws Exception {
+        List<String> free = new ArrayList<>();
+        for (JsonNode seat : json(mockMvc.perform(get(SEATS, flightId)).andReturn()).path("allSeats")) {
+            if (!seat.path("occupied").asBoolean()) {
+                free.add(seat.path("seatNr").asText());
+            }
+        }
+        return free;
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsByteArray());
+    }
+}
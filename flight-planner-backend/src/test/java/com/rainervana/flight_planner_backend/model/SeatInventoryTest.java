@@ -0,0 +1,182 @@
+package com.rainervana.flight_planner_backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeatInventoryTest {
+
+    @Test
+    void versionMovesOnlyWhenSeatsChange() {
+        SeatInventory inventory = new SeatInventory(25, 6);
+
+        assertThat(inventory.occupy(1, 0)).isTrue();
+        assertThat(inventory.occupy(1, 0)).isFalse();
+        assertThat(inventory.release(2, 0)).isFalse();
+        assertThat(inventory.version()).isEqualTo(1);
+
+        // all or nothing, the conflicting seat is reported and the free one stays free.
+        assertThat(inventory.occupyAll(new int[]{1, 0})).isEqualTo(0);
+        assertThat(inventory.isOccupied(1, 1)).isFalse();
+        assertThat(inventory.version()).isEqualTo(1);
+
+        assertThat(inventory.occupyAll(new int[]{1, 2})).isEqualTo(-1);
+        assertThat(inventory.release(1, 0)).isTrue();
+        assertThat(inventory.version()).isEqualTo(3);
+        assertThat(inventory.occupiedCount()).isEqualTo(2);
+        assertThat(inventory.freeSeatCount()).isEqualTo(148);
+
+        assertThat(inventory.occupyEach(new int[][]{{3}, {4}})).containsExactly(-1, -1);
+        assertThat(inventory.occupyEach(new int[][]{{3}, {4}})).containsExactly(3, 4);
+        assertThat(inventory.version()).isEqualTo(4);
+    }
+
+    @Test
+    void heldSeatsAreUnavailableButNotOccupied() {
+        SeatInventory inventory = new SeatInventory(2, 4);
+        assertThat(inventory.holdAll(new int[]{1, 2})).isEqualTo(-1);
+
+        assertThat(inventory.occupy(1)).isFalse();
+        assertThat(inventory.occupyAll(new int[]{0, 2})).isEqualTo(2);
+        assertThat(inventory.holdAll(new int[]{3, 1})).isEqualTo(1);
+        assertThat(inventory.occupyEach(new int[][]{{0, 1}, {3}})).containsExactly(1, -1);
+
+        SeatInventory.Snapshot snapshot = inventory.snapshot();
+        assertThat(snapshot.heldCount()).isEqualTo(2);
+        assertThat(snapshot.occupiedCount()).isEqualTo(1);
+        assertThat(snapshot.isAvailable(0)).isTrue();
+        assertThat(snapshot.isAvailable(1)).isFalse();
+        assertThat(snapshot.rowMask(1)).isEqualTo(0b1000);
+        assertThat(snapshot.unavailableRowMask(1)).isEqualTo(0b1110);
+        // holds are never persisted, clients see them as taken.
+        assertThat(snapshot.toByteArray()).containsExactly((byte) 0b1000);
+        assertThat(snapshot.unavailableToByteArray()).containsExactly((byte) 0b1110);
+
+        // converting needs every seat held, otherwise nothing changes.
+        assertThat(inventory.occupyHeld(new int[]{1, 0})).isEqualTo(0);
+        assertThat(inventory.snapshot()).isSameAs(snapshot);
+        assertThat(inventory.occupyHeld(new int[]{1})).isEqualTo(-1);
+        assertThat(inventory.releaseHolds(new int[]{1, 2, 5})).isEqualTo(1);
+        assertThat(inventory.releaseHolds(new int[]{2})).isZero();
+
+        assertThat(inventory.snapshot().heldCount()).isZero();
+        assertThat(inventory.snapshot().rowMask(1)).isEqualTo(0b1010);
+    }
+
+    @Test
+    void rowMasksAcrossWordBoundaries() {
+        Random random = new Random(42L);
+        // rows of 10 straddle words at rows 7, 13 and 20; rows of 64 fill a word each.
+        for (int columns : new int[]{10, 64, 7}) {
+            SeatInventory inventory = new SeatInventory(23, columns);
+            for (int i = 0; i < inventory.capacity() / 2; i++) {
+                inventory.occupy(random.nextInt(inventory.capacity()));
+            }
+            SeatInventory.Snapshot snapshot = inventory.snapshot();
+            for (int row = 1; row <= 23; row++) {
+                long expected = 0L;
+                for (int column = 0; column < columns; column++) {
+                    if (snapshot.isOccupied(row, column)) {
+                        expected |= 1L << column;
+                    }
+                }
+                assertThat(snapshot.rowMask(row)).as("row %s of %s", row, columns).isEqualTo(expected);
+            }
+
+            SeatInventory restored = new SeatInventory(23, columns);
+            restored.restore(snapshot.toByteArray(), snapshot.getVersion());
+            assertThat(restored.snapshot().sameOccupancy(snapshot)).isTrue();
+            assertThat(restored.version()).isEqualTo(snapshot.getVersion());
+        }
+    }
+
+    @Test
+    void seatsOutsideTheLayoutAreRejected() {
+        SeatInventory inventory = new SeatInventory(25, 6);
+
+        assertThat(inventory.seatIndex("1A")).isZero();
+        assertThat(inventory.seatIndex("25f")).isEqualTo(149);
+        assertThat(inventory.seatIndex("0A")).isEqualTo(-1);
+        assertThat(inventory.seatIndex("26A")).isEqualTo(-1);
+        assertThat(inventory.seatIndex("1G")).isEqualTo(-1);
+        assertThat(inventory.seatIndex("99999999999A")).isEqualTo(-1);
+        assertThat(inventory.seatIndex("A")).isEqualTo(-1);
+        assertThat(inventory.seatIndex(null)).isEqualTo(-1);
+
+        assertThatThrownBy(() -> inventory.occupy(150)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> inventory.occupy(26, 0)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> inventory.holdAll(new int[]{0, -1})).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> inventory.restore(new byte[18], 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(inventory.snapshot().heldCount()).isZero();
+    }
+
+    @Test
+    void concurrentClaimsOfTheSameSeatsHaveOneWinner() throws Exception {
+        int threads = 8;
+        SeatInventory inventory = new SeatInventory(25, 6);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                int claimed = 0;
+                start.await();
+                // every thread walks all seats, single seats and pairs, each starting elsewhere.
+                for (int i = 0; i < inventory.capacity(); i++) {
+                    int index = (i + offset * 19) % inventory.capacity();
+                    boolean won = index % 2 == 0
+                            ? inventory.occupy(index)
+                            : index + 1 < inventory.capacity() && inventory.occupyAll(new int[]{index, index + 1}) < 0;
+                    if (won) {
+                        claimed += index % 2 == 0 ? 1 : 2;
+                    }
+                }
+                return claimed;
+            }));
+        }
+
+        start.countDown();
+        int claimed = 0;
+        for (Future<Integer> future : futures) {
+            claimed += future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(claimed).isEqualTo(inventory.occupiedCount());
+        assertThat(inventory.version()).isLessThanOrEqualTo(inventory.capacity());
+    }
+
+    @Test
+    void holdsMoveTheVersionButNotTheOccupancy() {
+        SeatInventory inventory = new SeatInventory(25, 6);
+        inventory.occupy(3, 2);
+        SeatInventory.Snapshot persisted = inventory.snapshot();
+
+        assertThat(inventory.holdAll(new int[]{0, 1})).isEqualTo(-1);
+        assertThat(inventory.releaseHolds(new int[]{0})).isEqualTo(1);
+
+        assertThat(inventory.version()).isGreaterThan(persisted.getVersion());
+        assertThat(inventory.snapshot().sameOccupancy(persisted)).isTrue();
+
+        // a booking that is released again leaves the same seats occupied.
+        inventory.occupy(5, 0);
+        assertThat(inventory.snapshot().sameOccupancy(persisted)).isFalse();
+        inventory.release(5, 0);
+        assertThat(inventory.snapshot().sameOccupancy(persisted)).isTrue();
+
+        assertThat(inventory.occupyHeld(new int[]{1})).isEqualTo(-1);
+        assertThat(inventory.snapshot().sameOccupancy(persisted)).isFalse();
+    }
+}
@@ -0,0 +1,145 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookingEngineTest {
+
+    @Test
+    void holdOfASeatFreedByALostChangeIsUndoneWithIt() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch flushed = new CountDownLatch(1);
+        // the first record is durable once the test lets it be, every later flush fails.
+        BookingJournal journal = new BookingJournal() {
+            private final AtomicLong sequence = new AtomicLong();
+
+            @Override
+            public long appendOccupied(long flightId, int[] seatIndexes) {
+                return sequence.incrementAndGet();
+            }
+
+            @Override
+            public long appendReleased(long flightId, int[] seatIndexes) {
+                return sequence.incrementAndGet();
+            }
+
+            @Override
+            public void awaitDurable(long sequence) {
+                if (sequence > 1) {
+                    throw new UncheckedIOException(new IOException("flush failed"));
+                }
+                flushing.countDown();
+                try {
+                    flushed.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public long reserveBookingIds(int count) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        BookingEngine engine = new BookingEngine(journal, new FlightPlannerMetrics(new SimpleMeterRegistry(), false), 1, 16, 64);
+        engine.start();
+        Flight flight = new Flight(1L, "FL100", "TLL", "WAW", LocalDateTime.of(2025, 4, 1, 10, 30), LocalDateTime.of(2025, 4, 1, 12, 0), new BigDecimal("100.00"), "Boeing 737");
+        flight.setSeatInventory(new SeatInventory(10, 6));
+        int[] seat = {7};
+
+        CompletableFuture<Integer> occupied = engine.occupy(flight, seat);
+        flushing.await();
+        // queued while the writer waits, so they are applied as one batch: the release frees the seat, the hold takes it.
+        CompletableFuture<Integer> released = engine.release(flight, seat);
+        CompletableFuture<Integer> held = engine.hold(flight, seat);
+        flushed.countDown();
+
+        assertThat(occupied.join()).isEqualTo(-1);
+        assertThatThrownBy(released::join).isInstanceOf(CompletionException.class).hasCauseInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(held::join).isInstanceOf(CompletionException.class).hasCauseInstanceOf(UncheckedIOException.class);
+        // the seat is occupied again, as the journal has it, and not held by anyone.
+        assertThat(flight.getSeatInventory().snapshot().isSet(7)).isTrue();
+        assertThat(flight.getSeatInventory().snapshot().isHeld(7)).isFalse();
+        engine.stop();
+    }
+
+    @Test
+    void changesSubmittedWhileStoppingAreCompleted() throws Exception {
+        BookingJournal journal = new BookingJournal() {
+            private final AtomicLong sequence = new AtomicLong();
+
+            @Override
+            public long appendOccupied(long flightId, int[] seatIndexes) {
+                return sequence.incrementAndGet();
+            }
+
+            @Override
+            public long appendReleased(long flightId, int[] seatIndexes) {
+                return sequence.incrementAndGet();
+            }
+
+            @Override
+            public void awaitDurable(long sequence) {
+            }
+
+            @Override
+            public long reserveBookingIds(int count) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        BookingEngine engine = new BookingEngine(journal, new FlightPlannerMetrics(new SimpleMeterRegistry(), false), 2, 16, 100_000);
+        engine.start();
+        Flight flight = new Flight(1L, "FL100", "TLL", "WAW", LocalDateTime.of(2025, 4, 1, 10, 30), LocalDateTime.of(2025, 4, 1, 12, 0), new BigDecimal("100.00"), "Boeing 737");
+        flight.setSeatInventory(new SeatInventory(10, 6));
+
+        // submitters keep going while the engine stops, every one of their changes has to complete.
+        List<List<CompletableFuture<Integer>>> futures = new ArrayList<>();
+        CountDownLatch submitting = new CountDownLatch(4);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            List<CompletableFuture<Integer>> submitted = new ArrayList<>();
+            futures.add(submitted);
+            Thread submitter = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    submitted.add(i % 2 == 0 ? engine.hold(flight, new int[]{i % 60}) : engine.release(flight, new int[]{i % 60}));
+                    if (i == 100) {
+                        submitting.countDown();
+                    }
+                }
+            });
+            submitter.start();
+            submitters.add(submitter);
+        }
+        submitting.await();
+        engine.stop();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        for (List<CompletableFuture<Integer>> submitted : futures) {
+            CompletableFuture.allOf(submitted.toArray(CompletableFuture[]::new)).handle((outcome, failure) -> null).get(10, TimeUnit.SECONDS);
+        }
+        CompletableFuture<Integer> late = engine.occupy(flight, new int[]{0});
+        assertThat(late.isCompletedExceptionally()).isTrue();
+        assertThatThrownBy(late::join).isInstanceOf(CompletionException.class).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
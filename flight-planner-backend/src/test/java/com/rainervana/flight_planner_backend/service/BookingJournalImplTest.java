@@ -0,0 +1,212 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookingJournalImplTest {
+    private static final int SEGMENT_SIZE = 1 << 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void journalIsReplayedAfterCrash() throws IOException {
+        FlightService flightService = catalog();
+        BookingJournalImpl journal = new BookingJournalImpl(flightService, directory, SEGMENT_SIZE, true);
+        journal.open();
+        occupy(flightService, journal, 1L, 0, 1, 2);
+        release(flightService, journal, 1L, 1);
+        occupy(flightService, journal, 2L, 5);
+
+        // no close, the process "crashes" here.
+        FlightService restarted = catalog();
+        BookingJournalImpl recovered = new BookingJournalImpl(restarted, directory, SEGMENT_SIZE, true);
+        recovered.open();
+
+        assertThat(occupiedSeats(restarted, 1L)).containsExactly(0, 2);
+        assertThat(occupiedSeats(restarted, 2L)).containsExactly(5);
+
+        // new records continue after the replayed ones.
+        occupy(restarted, recovered, 1L, 7);
+        FlightService restartedAgain = catalog();
+        new BookingJournalImpl(restartedAgain, directory, SEGMENT_SIZE, true).open();
+
+        assertThat(occupiedSeats(restartedAgain, 1L)).containsExactly(0, 2, 7);
+    }
+
+    @Test
+    void snapshotIsRestoredAndTailReplayed() throws IOException {
+        FlightService flightService = catalog();
+        BookingJournalImpl journal = new BookingJournalImpl(flightService, directory, SEGMENT_SIZE, true);
+        journal.open();
+        occupy(flightService, journal, 1L, 3, 4);
+        journal.snapshot();
+        occupy(flightService, journal, 1L, 10);
+        release(flightService, journal, 1L, 3);
+
+        assertThat(files("snapshot-")).hasSize(1);
+        assertThat(files("journal-")).hasSize(1);
+
+        FlightService restarted = catalog();
+        new BookingJournalImpl(restarted, directory, SEGMENT_SIZE, true).open();
+
+        assertThat(occupiedSeats(restarted, 1L)).containsExactly(4, 10);
+    }
+
+    @Test
+    void replayStopsAtCorruptRecord() throws IOException {
+        FlightService flightService = catalog();
+        BookingJournalImpl journal = new BookingJournalImpl(flightService, directory, SEGMENT_SIZE, false);
+        journal.open();
+        occupy(flightService, journal, 1L, 0);
+        occupy(flightService, journal, 1L, 1);
+        occupy(flightService, journal, 1L, 2);
+
+        // overwrite the seat index of the second record, a one seat record is 8 header + 23 body bytes.
+        Path segment = files("journal-").get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), 31 + 8 + 19);
+        }
+
+        FlightService restarted = catalog();
+        new BookingJournalImpl(restarted, directory, SEGMENT_SIZE, true).open();
+
+        assertThat(occupiedSeats(restarted, 1L)).containsExactly(0);
+    }
+
+    @Test
+    void failedFlushDiscardsTheRecordsItDidNotForce() throws Exception {
+        FlightService flightService = catalog();
+        AtomicBoolean diskFailing = new AtomicBoolean();
+        BookingJournalImpl journal = new BookingJournalImpl(flightService, directory, SEGMENT_SIZE, true) {
+            @Override
+            void force(MappedByteBuffer buffer) {
+                if (diskFailing.get()) {
+                    throw new UncheckedIOException(new IOException("Disk failed"));
+                }
+                super.force(buffer);
+            }
+        };
+        journal.open();
+        BookingEngine engine = new BookingEngine(journal, new FlightPlannerMetrics(new SimpleMeterRegistry(), false), 1, 16, 64);
+        engine.start();
+        Flight flight = flightService.findFlightById(1L).orElseThrow();
+        try {
+            assertThat(engine.occupy(flight, new int[]{0, 1}).join()).isEqualTo(-1);
+
+            diskFailing.set(true);
+            assertThatThrownBy(() -> engine.occupy(flight, new int[]{2}).join()).isInstanceOf(CompletionException.class);
+            assertThat(flight.getSeatInventory().snapshot().isSet(2)).isFalse();
+            assertThatThrownBy(() -> journal.appendOccupied(1L, new int[]{3})).isInstanceOf(UncheckedIOException.class);
+            journal.snapshot();
+            assertThat(files("snapshot-")).isEmpty();
+        } finally {
+            engine.stop();
+        }
+
+        // the discarded record is gone from the segment, the booking before it is kept.
+        FlightService restarted = catalog();
+        new BookingJournalImpl(restarted, directory, SEGMENT_SIZE, true).open();
+        assertThat(occupiedSeats(restarted, 1L)).containsExactly(0, 1);
+    }
+
+    @Test
+    void snapshotOnlyHoldsJournaledChanges() throws IOException {
+        FlightService flightService = catalog();
+        BookingJournalImpl journal = new BookingJournalImpl(flightService, directory, SEGMENT_SIZE, true);
+        journal.open();
+        occupy(flightService, journal, 1L, 3);
+        // claimed in memory, its record isn't written yet when the snapshot is taken.
+        flightService.findFlightById(1L).orElseThrow().getSeatInventory().occupy(4);
+        journal.snapshot();
+        release(flightService, journal, 1L, 3);
+        journal.snapshot();
+
+        FlightService restarted = catalog();
+        new BookingJournalImpl(restarted, directory, SEGMENT_SIZE, true).open();
+
+        assertThat(occupiedSeats(restarted, 1L)).isEmpty();
+        assertThat(files("snapshot-")).hasSize(1);
+    }
+
+    @Test
+    void bookingIdsAreNotReusedAfterRestart() throws IOException {
+        BookingJournalImpl journal = new BookingJournalImpl(catalog(), directory, SEGMENT_SIZE, true);
+        journal.open();
+        assertThat(journal.reserveBookingIds(100)).isEqualTo(1L);
+        assertThat(journal.reserveBookingIds(100)).isEqualTo(101L);
+        journal.snapshot();
+        assertThat(journal.reserveBookingIds(100)).isEqualTo(201L);
+
+        BookingJournalImpl recovered = new BookingJournalImpl(catalog(), directory, SEGMENT_SIZE, true);
+        recovered.open();
+        assertThat(recovered.reserveBookingIds(100)).isEqualTo(301L);
+        recovered.snapshot();
+
+        BookingJournalImpl recoveredAgain = new BookingJournalImpl(catalog(), directory, SEGMENT_SIZE, true);
+        recoveredAgain.open();
+        assertThat(recoveredAgain.reserveBookingIds(100)).isEqualTo(401L);
+    }
+
+    private static FlightService catalog() {
+        FlightService flightService = new FlightServiceImpl(new SeatLayoutRegistry(), new FlightPlannerMetrics(new SimpleMeterRegistry(), false), 0);
+        for (long id = 1; id <= 2; id++) {
+            flightService.addFlight(new Flight(id, "FL" + id, "TLL", "WAW",
+                    LocalDateTime.of(2025, 4, 1, 10, 30),
+                    LocalDateTime.of(2025, 4, 1, 12, 0),
+                    new BigDecimal("100.00"), "Boeing 737"));
+        }
+        return flightService;
+    }
+
+    private static void occupy(FlightService flightService, BookingJournal journal, long flightId, int... seatIndexes) {
+        SeatInventory inventory = flightService.findFlightById(flightId).orElseThrow().getSeatInventory();
+        assertThat(inventory.occupyAll(seatIndexes)).isEqualTo(-1);
+        journal.recordOccupied(flightId, seatIndexes);
+    }
+
+    private static void release(FlightService flightService, BookingJournal journal, long flightId, int... seatIndexes) {
+        SeatInventory inventory = flightService.findFlightById(flightId).orElseThrow().getSeatInventory();
+        for (int seatIndex : seatIndexes) {
+            inventory.release(seatIndex);
+        }
+        journal.recordReleased(flightId, seatIndexes);
+    }
+
+    private static List<Integer> occupiedSeats(FlightService flightService, long flightId) {
+        SeatInventory.Snapshot snapshot = flightService.findFlightById(flightId).orElseThrow().getSeatInventory().snapshot();
+        return IntStream.range(0, snapshot.getTotalRows() * snapshot.getColumns())
+                .filter(snapshot::isSet)
+                .boxed()
+                .toList();
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).toList();
+        }
+    }
+}
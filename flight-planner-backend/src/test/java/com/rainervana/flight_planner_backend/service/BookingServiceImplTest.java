@@ -0,0 +1,184 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.BatchBookingResponse;
+import com.rainervana.flight_planner_backend.dto.BatchBookingResult;
+import com.rainervana.flight_planner_backend.dto.BookingRequest;
+import com.rainervana.flight_planner_backend.dto.BookingResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookingServiceImplTest {
+    private static final List<String> COLUMNS = List.of("A", "B", "C", "D", "E", "F");
+    private static final int ROWS = 25;
+
+    private Flight flight;
+    private BookingServiceImpl bookingService;
+    private SimpleMeterRegistry meterRegistry;
+    private BookingJournalImpl bookingJournal;
+    private BookingEngine bookingEngine;
+
+    @TempDir
+    Path journalDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        flight = new Flight(1L, "FL100", "TLL", "WAW",
+                LocalDateTime.of(2025, 4, 1, 10, 30),
+                LocalDateTime.of(2025, 4, 1, 12, 0),
+                new BigDecimal("100.00"), "Boeing 737");
+
+        meterRegistry = new SimpleMeterRegistry();
+        FlightPlannerMetrics metrics = new FlightPlannerMetrics(meterRegistry, true);
+        SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+        FlightService flightService = new FlightServiceImpl(seatLayoutRegistry, metrics, 0);
+        flightService.addFlight(flight);
+        bookingJournal = new BookingJournalImpl(flightService, journalDirectory, 1 << 20, true);
+        bookingJournal.open();
+        bookingEngine = new BookingEngine(bookingJournal, metrics, 4, 64, 1024);
+        bookingEngine.start();
+        bookingService = new BookingServiceImpl(flightService, seatLayoutRegistry, new FareEngine(seatLayoutRegistry, new BigDecimal("50.00"), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, ""), new SeatHoldServiceImpl(flightService, bookingEngine, metrics, PartitionMap.singleNode(), 600, 1000), bookingEngine, bookingJournal, PartitionMap.singleNode(), metrics);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        bookingEngine.stop();
+        bookingJournal.close();
+    }
+
+    @Test
+    void bookingIsAllOrNothing() {
+        bookingService.createBooking(new BookingRequest(1L, 1, List.of("5C")));
+
+        assertThatThrownBy(() -> bookingService.createBooking(new BookingRequest(1L, 3, List.of("5A", "5B", "5C"))))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        assertThat(flight.getSeatInventory().isOccupied(5, 0)).isFalse();
+        assertThat(flight.getSeatInventory().isOccupied(5, 1)).isFalse();
+        assertThat(flight.getSeatInventory().occupiedCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("booking.conflicts").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("booking.create").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("flight.load.factor").tag("flightNr", "FL100").gauge().value()).isEqualTo(1.0 / 150);
+    }
+
+    @Test
+    void duplicateSeatsAreRejected() {
+        assertThatThrownBy(() -> bookingService.createBooking(new BookingRequest(1L, 2, List.of("7A", "7A"))))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+
+        assertThat(flight.getSeatInventory().occupiedCount()).isZero();
+        assertThat(meterRegistry.get("booking.rejected.seats").tag("reason", "duplicate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void bookingsWithoutSeatsAreRejected() {
+        for (List<String> selectedSeats : Arrays.asList(null, List.<String>of())) {
+            assertThatThrownBy(() -> bookingService.createBooking(new BookingRequest(1L, 1, selectedSeats)))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                    .isEqualTo(HttpStatus.BAD_REQUEST);
+        }
+        assertThat(flight.getSeatInventory().occupiedCount()).isZero();
+    }
+
+    @Test
+    void batchBookingsSucceedOrFailOneByOne() {
+        bookingService.createBooking(new BookingRequest(1L, 1, List.of("9F")));
+
+        BatchBookingResponse response = bookingService.createBookings(Arrays.asList(
+                new BookingRequest(1L, 2, List.of("1A", "1B")),
+                new BookingRequest(2L, 1, List.of("3A")),
+                new BookingRequest(1L, 2, List.of("1B", "1C")),
+                new BookingRequest(1L, 1, List.of("99Z")),
+                new BookingRequest(1L, 2, List.of("9E", "9F")),
+                new BookingRequest(1L, 3, List.of("10A", "10B", "10C"))
+        ));
+
+        assertThat(response.getResults().stream().map(BatchBookingResult::getStatus).toList())
+                .containsExactly(200, 404, 409, 400, 409, 200);
+        assertThat(response.getConfirmed()).isEqualTo(2);
+        assertThat(response.getRejected()).isEqualTo(4);
+        // first class surcharge for row 1, none for row 10.
+        assertThat(response.getResults().get(0).getBooking().getTotalPrice()).isEqualByComparingTo("300.00");
+        assertThat(response.getResults().get(5).getBooking().getTotalPrice()).isEqualByComparingTo("300.00");
+        assertThat(flight.getSeatInventory().occupiedCount()).isEqualTo(6);
+        assertThat(flight.getSeatInventory().isOccupied(1, 2)).isFalse();
+        assertThat(meterRegistry.get("booking.conflicts").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentBookingsNeverDoubleBookOrLoseSeats() throws Exception {
+        int threads = 32;
+        int attemptsPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<BookingResponse>>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                List<BookingResponse> confirmed = new ArrayList<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    // a small group of adjacent seats in a random row, so attempts overlap heavily.
+                    int groupSize = 1 + random.nextInt(3);
+                    int row = 1 + random.nextInt(ROWS);
+                    int firstColumn = random.nextInt(COLUMNS.size() - groupSize + 1);
+                    List<String> seats = new ArrayList<>();
+                    for (int c = firstColumn; c < firstColumn + groupSize; c++) {
+                        seats.add(row + COLUMNS.get(c));
+                    }
+                    try {
+                        confirmed.add(bookingService.createBooking(new BookingRequest(1L, groupSize, seats)));
+                    } catch (ResponseStatusException e) {
+                        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                    }
+                }
+                return confirmed;
+            }));
+        }
+
+        start.countDown();
+        List<BookingResponse> allConfirmed = new ArrayList<>();
+        for (Future<List<BookingResponse>> future : futures) {
+            allConfirmed.addAll(future.get(1, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+
+        Set<String> bookedSeats = new HashSet<>();
+        Set<Long> bookingIds = new HashSet<>();
+        for (BookingResponse booking : allConfirmed) {
+            assertThat(bookingIds.add(booking.getBookingId())).isTrue();
+            for (String seatNr : booking.getConfirmedSeats()) {
+                assertThat(bookedSeats.add(seatNr)).as("seat %s booked twice", seatNr).isTrue();
+            }
+        }
+
+        SeatInventory inventory = flight.getSeatInventory();
+        assertThat(inventory.occupiedCount()).isEqualTo(bookedSeats.size());
+        for (String seatNr : bookedSeats) {
+            assertThat(inventory.snapshot().isSet(inventory.seatIndex(seatNr))).isTrue();
+        }
+    }
+}
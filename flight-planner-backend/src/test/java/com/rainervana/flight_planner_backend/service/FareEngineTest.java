@@ -0,0 +1,87 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FareEngineTest {
+    private Flight flight;
+    private FareEngine fareEngine;
+
+    @BeforeEach
+    void setUp() {
+        flight = new Flight(1L, "FL100", "TLL", "WAW",
+                LocalDateTime.of(2025, 4, 1, 10, 30),
+                LocalDateTime.of(2025, 4, 1, 12, 0),
+                new BigDecimal("99.99"), "Boeing 737");
+
+        SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+        new FlightServiceImpl(seatLayoutRegistry, new FlightPlannerMetrics(new SimpleMeterRegistry(), false), 0).addFlight(flight);
+        fareEngine = new FareEngine(seatLayoutRegistry, new BigDecimal("50.00"), new BigDecimal("5.00"),
+                new BigDecimal("15.00"), new BigDecimal("10.00"), "0.5:1.1,0.9:1.25");
+    }
+
+    @Test
+    void seatSurchargesAddUp() {
+        SeatInventory inventory = flight.getSeatInventory();
+
+        // 1A: first class, window, exit row. 12C: extra legroom and exit row. 5C: nothing.
+        assertThat(fareEngine.seatSurcharge(flight, inventory.seatIndex("1A"))).isEqualTo(6_500L);
+        assertThat(fareEngine.seatSurcharge(flight, inventory.seatIndex("12C"))).isEqualTo(2_500L);
+        assertThat(fareEngine.seatSurcharge(flight, inventory.seatIndex("5C"))).isEqualTo(0L);
+        assertThat(fareEngine.quote(flight, 2, new int[]{inventory.seatIndex("1A"), inventory.seatIndex("5C")}))
+                .isEqualTo(2 * 9_999L + 6_500L);
+        assertThat(FareEngine.toAmount(fareEngine.quote(flight, 1, new int[]{inventory.seatIndex("12C")})))
+                .isEqualTo(new BigDecimal("124.99"));
+    }
+
+    @Test
+    void baseFareFollowsLoadFactor() {
+        SeatInventory inventory = flight.getSeatInventory();
+        assertThat(fareEngine.baseFare(flight)).isEqualTo(9_999L);
+
+        // 150 seats, the first tier starts at 75 occupied seats.
+        for (int i = 0; i < 74; i++) {
+            inventory.occupy(i);
+        }
+        assertThat(fareEngine.baseFare(flight)).isEqualTo(9_999L);
+        inventory.occupy(74);
+        assertThat(fareEngine.baseFare(flight)).isEqualTo(10_999L);
+
+        for (int i = 75; i < 135; i++) {
+            inventory.occupy(i);
+        }
+        assertThat(fareEngine.baseFare(flight)).isEqualTo(12_499L);
+
+        // cancellations move the fare back down.
+        for (int i = 0; i < 100; i++) {
+            inventory.release(i);
+        }
+        assertThat(fareEngine.baseFare(flight)).isEqualTo(9_999L);
+    }
+
+    @Test
+    void repricedFlightGetsNewFares() {
+        SeatInventory inventory = flight.getSeatInventory();
+        for (int i = 0; i < 75; i++) {
+            inventory.occupy(i);
+        }
+        assertThat(fareEngine.baseFare(flight)).isEqualTo(10_999L);
+
+        flight.setPrice(new BigDecimal("120.00"));
+        assertThat(fareEngine.baseFare(flight)).isEqualTo(13_200L);
+        assertThat(fareEngine.quote(flight, 1, new int[]{inventory.seatIndex("5C")})).isEqualTo(13_200L);
+
+        // same amount at another scale keeps the fares.
+        flight.setPrice(new BigDecimal("120.0"));
+        assertThat(fareEngine.baseFare(flight)).isEqualTo(13_200L);
+    }
+}
@@ -0,0 +1,116 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchRequest;
+import com.rainervana.flight_planner_backend.dto.FlexibleSearchResponse;
+import com.rainervana.flight_planner_backend.dto.FlightGroup;
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlexibleFlightSearchTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 4, 1);
+
+    private final FlightSearchIndex index = new FlightSearchIndex();
+    private final FlexibleFlightSearch search = new FlexibleFlightSearch(index);
+    private long nextId = 1;
+
+    @Test
+    void cheapestFlightOfEachDayOverADestinationSet() {
+        Flight firstDay = add("TLL", "WAW", DAY, 8, "90.00");
+        add("TLL", "RIX", DAY, 9, "120.00");
+        add("TLL", "HEL", DAY, 10, "40.00");
+        Flight secondDay = add("TLL", "RIX", DAY.plusDays(1), 9, "70.00");
+        add("TLL", "WAW", DAY.plusDays(1), 12, "95.00");
+        add("TLL", "WAW", DAY.plusDays(3), 12, "60.00");
+
+        FlexibleSearchResponse response = search.search(request(List.of("waw", "RIX"), null, DAY, DAY.plusDays(2), FlightGrouping.DATE, 1));
+
+        assertThat(response.getMatches()).isEqualTo(4);
+        assertThat(response.getGroups()).extracting(FlightGroup::getDate).containsExactly(DAY, DAY.plusDays(1));
+        assertThat(response.getGroups()).extracting(FlightGroup::getCheapest).containsExactly(firstDay, secondDay);
+        assertThat(response.getGroups()).extracting(FlightGroup::getMatches).containsExactly(2, 2);
+        assertThat(response.getGroups().get(0).getFlights()).containsExactly(firstDay);
+        assertThat(response.getGroups().get(0).getDestination()).isNull();
+    }
+
+    @Test
+    void filtersOriginsAndGroupsByDestination() {
+        add("TLL", "WAW", DAY, 8, "90.00");
+        Flight fromRiga = add("RIX", "WAW", DAY, 9, "50.00");
+        Flight later = add("RIX", "WAW", DAY.plusDays(1), 7, "80.00");
+        add("HEL", "WAW", DAY, 9, "30.00");
+
+        FlexibleSearchRequest request = request(null, List.of("rix", "TLL"), DAY, DAY.plusDays(1), FlightGrouping.DESTINATION, 2);
+        request.setSort(FlightSortOrder.DEPARTURE_TIME);
+        FlexibleSearchResponse response = search.search(request);
+
+        assertThat(response.getGroups()).hasSize(1);
+        FlightGroup warsaw = response.getGroups().get(0);
+        assertThat(warsaw.getDestination()).isEqualTo("WAW");
+        assertThat(warsaw.getMatches()).isEqualTo(3);
+        assertThat(warsaw.getCheapest()).isEqualTo(fromRiga);
+        assertThat(warsaw.getFlights()).extracting(Flight::getFlightNr).containsExactly("FL1", "FL2");
+        assertThat(warsaw.getFlights()).doesNotContain(later);
+    }
+
+    @Test
+    void parallelEvaluationMatchesAPlainScan() {
+        Random random = new Random(42L);
+        List<String> destinations = List.of("WAW", "RIX", "HEL", "ARN", "CPH", "BER");
+        List<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < FlexibleFlightSearch.PARALLEL_THRESHOLD * 2; i++) {
+            flights.add(flight("TLL", destinations.get(random.nextInt(destinations.size())), DAY.plusDays(random.nextInt(14)),
+                    random.nextInt(24), BigDecimal.valueOf(2000 + random.nextInt(50000), 2)));
+        }
+        index.addAll(flights);
+
+        FlexibleSearchResponse response = search.search(request(null, null, DAY, DAY.plusDays(13), FlightGrouping.DATE_AND_DESTINATION, 3));
+
+        assertThat(response.getMatches()).isEqualTo(flights.size());
+        for (FlightGroup group : response.getGroups()) {
+            List<Flight> expected = flights.stream()
+                    .filter(flight -> flight.getDestination().equals(group.getDestination()) && flight.getDepartureTime().toLocalDate().equals(group.getDate()))
+                    .sorted(FlightSortOrder.PRICE.comparator())
+                    .toList();
+            assertThat(group.getMatches()).isEqualTo(expected.size());
+            assertThat(group.getFlights()).containsExactlyElementsOf(expected.subList(0, Math.min(3, expected.size())));
+            assertThat(group.getCheapest()).isEqualTo(expected.get(0));
+        }
+        assertThat(response.getGroups()).isSortedAccordingTo(Comparator.comparing(FlightGroup::getDate).thenComparing(FlightGroup::getDestination));
+    }
+
+    @Test
+    void rejectsUnboundedQueries() {
+        assertThatThrownBy(() -> search.search(request(null, null, DAY, null, FlightGrouping.DATE, 5))).isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> search.search(request(null, null, DAY, DAY.minusDays(1), FlightGrouping.DATE, 5))).isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> search.search(request(null, null, DAY, DAY.plusDays(FlexibleFlightSearch.MAX_DAYS), FlightGrouping.DATE, 5))).isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> search.search(request(null, null, DAY, DAY, FlightGrouping.DATE, 0))).isInstanceOf(ResponseStatusException.class);
+    }
+
+    private static FlexibleSearchRequest request(List<String> destinations, List<String> origins, LocalDate from, LocalDate to, FlightGrouping groupBy, int limit) {
+        return new FlexibleSearchRequest(destinations, origins, from, to, null, null, groupBy, FlightSortOrder.PRICE, limit);
+    }
+
+    private Flight add(String origin, String destination, LocalDate date, int departureHour, String price) {
+        Flight flight = flight(origin, destination, date, departureHour, new BigDecimal(price));
+        index.add(flight);
+        return flight;
+    }
+
+    private Flight flight(String origin, String destination, LocalDate date, int departureHour, BigDecimal price) {
+        long id = nextId++;
+        LocalDateTime departure = date.atTime(departureHour, 0);
+        return new Flight(id, "FL" + id, origin, destination, departure, departure.plusMinutes(90), price, "Boeing 737");
+    }
+}
@@ -0,0 +1,104 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightSearchCacheTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 4, 1);
+
+    private final FlightSearchCache cache = new FlightSearchCache(16);
+
+    @Test
+    void changesElsewhereDontKeepResultsOut() {
+        FlightSearchCache.Query warsaw = FlightSearchCache.Query.of("waw", DAY, null, null);
+        FlightSearchCache.Query anyDestination = FlightSearchCache.Query.of(null, DAY, null, null);
+        FlightSearchCache.Query nextDay = FlightSearchCache.Query.of("WAW", DAY.plusDays(1), null, null);
+        long stamp = cache.stamp();
+
+        cache.invalidate(flight("RIX", DAY.plusDays(1), "90.00"));
+        cache.put(warsaw, List.of(), stamp);
+        assertThat(cache.get(warsaw)).isNotNull();
+
+        // a change that any of these queries could match keeps their results out.
+        stamp = cache.stamp();
+        cache.invalidate(flight("WAW", DAY.plusDays(1), "90.00"));
+        cache.put(nextDay, List.of(), stamp);
+        cache.put(FlightSearchCache.Query.of("WAW", null, null, null), List.of(), stamp);
+        cache.put(FlightSearchCache.Query.of(null, null, null, null), List.of(), stamp);
+        cache.put(anyDestination, List.of(), stamp);
+        assertThat(cache.get(nextDay)).isNull();
+        assertThat(cache.get(FlightSearchCache.Query.of("WAW", null, null, null))).isNull();
+        assertThat(cache.get(FlightSearchCache.Query.of(null, null, null, null))).isNull();
+        assertThat(cache.get(anyDestination)).isNotNull();
+
+        stamp = cache.stamp();
+        cache.clear();
+        cache.put(warsaw, List.of(), stamp);
+        assertThat(cache.get(warsaw)).isNull();
+    }
+
+    @Test
+    void invalidationDropsTheMatchingQueriesOfEverySlot() {
+        List<FlightSearchCache.Query> matching = List.of(
+                FlightSearchCache.Query.of("WAW", DAY, null, new BigDecimal("100")),
+                FlightSearchCache.Query.of("WAW", null, 120L, null),
+                FlightSearchCache.Query.of(null, DAY, null, null),
+                FlightSearchCache.Query.of(null, null, null, null));
+        List<FlightSearchCache.Query> other = List.of(
+                FlightSearchCache.Query.of("WAW", DAY, null, new BigDecimal("50")),
+                FlightSearchCache.Query.of("WAW", null, 60L, null),
+                FlightSearchCache.Query.of("RIX", DAY, null, null),
+                FlightSearchCache.Query.of(null, DAY.plusDays(1), null, null));
+        for (FlightSearchCache.Query query : matching) {
+            cache.put(query, List.of(), cache.stamp());
+        }
+        for (FlightSearchCache.Query query : other) {
+            cache.put(query, List.of(), cache.stamp());
+        }
+
+        cache.invalidate(flight("waw", DAY, "90.00"));
+
+        assertThat(matching).allMatch(query -> cache.get(query) == null);
+        assertThat(other).allMatch(query -> cache.get(query) != null);
+        assertThat(cache.size()).isEqualTo(other.size());
+    }
+
+    @Test
+    void invalidatedEntriesDontCountTowardsEviction() {
+        FlightSearchCache small = new FlightSearchCache(2);
+        FlightSearchCache.Query riga = FlightSearchCache.Query.of("RIX", DAY, null, null);
+        small.put(riga, List.of(), small.stamp());
+        small.get(riga);
+
+        for (int i = 0; i < 100; i++) {
+            FlightSearchCache.Query warsaw = FlightSearchCache.Query.of("WAW", DAY, null, BigDecimal.valueOf(100 + i));
+            small.put(warsaw, List.of(), small.stamp());
+            assertThat(small.get(warsaw)).isNotNull();
+            small.invalidate(flight("WAW", DAY, "90.00"));
+            assertThat(small.get(warsaw)).isNull();
+        }
+
+        FlightSearchCache.Query first = FlightSearchCache.Query.of("HEL", DAY, null, null);
+        FlightSearchCache.Query second = FlightSearchCache.Query.of("ARN", DAY, null, null);
+        small.put(first, List.of(), small.stamp());
+        small.put(second, List.of(), small.stamp());
+
+        // riga was read, so it gets a second chance and the oldest unread entry goes.
+        assertThat(small.size()).isEqualTo(2);
+        assertThat(small.get(riga)).isNotNull();
+        assertThat(small.get(first)).isNull();
+        assertThat(small.get(second)).isNotNull();
+    }
+
+    private static Flight flight(String destination, LocalDate date, String price) {
+        LocalDateTime departure = date.atTime(10, 0);
+        return new Flight(1L, "FL1", "TLL", destination, departure, departure.plusMinutes(90), new BigDecimal(price), "Boeing 737");
+    }
+}
@@ -0,0 +1,124 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.model.Flight;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightSearchIndexTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 4, 1);
+
+    private final FlightSearchIndex index = new FlightSearchIndex();
+    private long nextId = 1;
+
+    @Test
+    void cutOffsIncludeTheLimitItself() {
+        Flight short90 = add("WAW", DAY, 90, "100.00");
+        Flight long120 = add("WAW", DAY, 120, "80.00");
+        Flight long121 = add("WAW", DAY, 121, "100.01");
+
+        assertThat(index.find("WAW", DAY, 120L, null)).containsExactly(short90, long120);
+        assertThat(index.find("WAW", DAY, 119L, null)).containsExactly(short90);
+        assertThat(index.find("WAW", DAY, 89L, null)).isEmpty();
+        assertThat(index.find("WAW", DAY, 0L, null)).isEmpty();
+        assertThat(index.find("WAW", DAY, Long.MAX_VALUE, null)).containsExactly(short90, long120, long121);
+
+        // prices compare by value, not by scale.
+        assertThat(index.find("WAW", DAY, null, new BigDecimal("100"))).containsExactly(short90, long120);
+        assertThat(index.find("WAW", DAY, null, new BigDecimal("100.000"))).containsExactly(short90, long120);
+        assertThat(index.find("WAW", DAY, null, new BigDecimal("99.99"))).containsExactly(long120);
+        assertThat(index.find("WAW", DAY, null, new BigDecimal("79.99"))).isEmpty();
+        assertThat(index.find("WAW", DAY, null, BigDecimal.ZERO)).isEmpty();
+
+        assertThat(index.find("WAW", DAY, 120L, new BigDecimal("80"))).containsExactly(long120);
+        assertThat(index.find("WAW", DAY, 90L, new BigDecimal("80"))).isEmpty();
+    }
+
+    @Test
+    void equalKeysAreAllInsideOrAllOutsideTheCutOff() {
+        List<Flight> samePrice = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            samePrice.add(add("WAW", DAY, 60 + i, "50.00"));
+        }
+        Flight pricier = add("WAW", DAY, 60, "50.01");
+
+        assertThat(index.find("WAW", DAY, null, new BigDecimal("50"))).containsExactlyElementsOf(samePrice);
+        assertThat(index.find("WAW", DAY, null, new BigDecimal("49.99"))).isEmpty();
+        // the duration order has ten flights at 60 minutes or less, two of them with the same duration.
+        assertThat(index.find("WAW", DAY, 60L, null)).containsExactly(samePrice.get(0), pricier);
+        assertThat(index.find("WAW", DAY, 60L, new BigDecimal("50.00"))).containsExactly(samePrice.get(0));
+    }
+
+    @Test
+    void bucketsAreKeyedByDestinationAndDepartureDate() {
+        Flight lastMinute = add("waw", DAY, DAY.atTime(23, 59), 60, "100.00");
+        Flight nextDay = add("WAW", DAY.plusDays(1), DAY.plusDays(1).atStartOfDay(), 60, "100.00");
+        Flight riga = add("RIX", DAY, 60, "100.00");
+
+        assertThat(index.find("Waw", DAY, null, null)).containsExactly(lastMinute);
+        assertThat(index.find("WAW", DAY.plusDays(1), null, null)).containsExactly(nextDay);
+        assertThat(index.find("WAW", null, null, null)).containsExactly(lastMinute, nextDay);
+        assertThat(index.find(null, DAY, null, null)).containsExactly(lastMinute, riga);
+        assertThat(index.find("HEL", DAY, null, null)).isEmpty();
+        assertThat(index.slices(List.of("waw", "WAW"), DAY, DAY.plusDays(1))).hasSize(2);
+        assertThat(index.slices(null, DAY.plusDays(1), DAY.plusDays(1))).extracting(FlightSearchIndex.Slice::destination).containsExactly("WAW");
+
+        index.remove(lastMinute);
+        index.remove(riga);
+
+        assertThat(index.find(null, DAY, null, null)).isEmpty();
+        assertThat(index.slices(null, DAY, DAY)).isEmpty();
+        assertThat(index.find(null, null, null, null)).containsExactly(nextDay);
+    }
+
+    @Test
+    void cutOffsMatchAPlainScan() {
+        Random random = new Random(42L);
+        List<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // few distinct values, so limits keep landing on runs of equal keys.
+            LocalDateTime departure = DAY.atTime(random.nextInt(24), 0);
+            flights.add(flight("WAW", departure, 30 + 15 * random.nextInt(20), BigDecimal.valueOf(5000 + 500 * random.nextInt(30), 2)));
+        }
+        index.addAll(flights.subList(0, 250));
+        for (Flight flight : flights.subList(250, flights.size())) {
+            index.add(flight);
+        }
+
+        for (int i = 0; i < 300; i++) {
+            Long maxDuration = random.nextInt(5) == 0 ? null : (long) (15 + random.nextInt(330));
+            BigDecimal maxPrice = random.nextInt(5) == 0 ? null : BigDecimal.valueOf(4500 + 50 * random.nextInt(320), 2);
+            List<Flight> expected = flights.stream()
+                    .filter(flight -> maxDuration == null || flight.getDuration().toMinutes() <= maxDuration)
+                    .filter(flight -> maxPrice == null || flight.getPrice().compareTo(maxPrice) <= 0)
+                    .sorted(Comparator.comparing(Flight::getId))
+                    .toList();
+
+            assertThat(index.find("WAW", DAY, maxDuration, maxPrice)).as("%s minutes, %s", maxDuration, maxPrice).containsExactlyElementsOf(expected);
+        }
+    }
+
+    private Flight add(String destination, LocalDate date, int minutes, String price) {
+        return add(destination, date, date.atTime(10, 0), minutes, price);
+    }
+
+    private Flight add(String destination, LocalDate date, LocalDateTime departure, int minutes, String price) {
+        Flight flight = flight(destination, departure, minutes, new BigDecimal(price));
+        assertThat(departure.toLocalDate()).isEqualTo(date);
+        index.add(flight);
+        return flight;
+    }
+
+    private Flight flight(String destination, LocalDateTime departure, int minutes, BigDecimal price) {
+        long id = nextId++;
+        return new Flight(id, "FL" + id, "TLL", destination, departure, departure.plusMinutes(minutes), price, "Boeing 737");
+    }
+}
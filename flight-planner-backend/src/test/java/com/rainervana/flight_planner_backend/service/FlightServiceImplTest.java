@@ -0,0 +1,204 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.FlightPageResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlightServiceImplTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 4, 1);
+
+    private SimpleMeterRegistry meterRegistry;
+    private FlightServiceImpl flightService;
+    private Flight cheap;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        flightService = new FlightServiceImpl(new SeatLayoutRegistry(), new FlightPlannerMetrics(meterRegistry, false), 2);
+        cheap = flightService.addFlight(flight("FL100", "WAW", 8, "90.00"));
+        flightService.addFlight(flight("FL200", "WAW", 12, "150.00"));
+        flightService.addFlight(flight("FL300", "RIX", 9, "80.00"));
+    }
+
+    @Test
+    void equivalentQueriesShareACachedResult() {
+        List<Flight> first = flightService.findFlights("waw", DAY, null, new BigDecimal("100"));
+        List<Flight> second = flightService.findFlights("WAW", DAY, null, new BigDecimal("100.00"));
+        assertThat(second).isSameAs(first).containsExactly(cheap);
+        assertThat(cacheCount("hit")).isEqualTo(1.0);
+        assertThat(cacheCount("miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void changesOnlyDropTheResultsTheyMatch() {
+        List<Flight> cheapWarsaw = flightService.findFlights("WAW", DAY, null, new BigDecimal("100"));
+        List<Flight> riga = flightService.findFlights("RIX", DAY, null, null);
+
+        // too expensive for the first query, a different destination than the second.
+        flightService.addFlight(flight("FL400", "WAW", 15, "120.00"));
+        assertThat(flightService.findFlights("WAW", DAY, null, new BigDecimal("100"))).isSameAs(cheapWarsaw);
+        assertThat(flightService.findFlights("RIX", DAY, null, null)).isSameAs(riga);
+
+        Flight cheaper = flightService.addFlight(flight("FL500", "WAW", 16, "70.00"));
+        assertThat(flightService.findFlights("WAW", DAY, null, new BigDecimal("100"))).containsExactly(cheap, cheaper);
+        assertThat(flightService.findFlights("RIX", DAY, null, null)).isSameAs(riga);
+
+        flightService.removeFlight(cheap.getId());
+        assertThat(flightService.findFlights("WAW", DAY, null, new BigDecimal("100"))).containsExactly(cheaper);
+    }
+
+    @Test
+    void updatedFlightsLeaveAndEnterCachedResults() {
+        List<Flight> cheapWarsaw = flightService.findFlights("WAW", DAY, null, new BigDecimal("100"));
+        assertThat(cheapWarsaw).containsExactly(cheap);
+
+        // repriced above the limit, then back under it.
+        flightService.updateFlight(cheap.getId(), flight("FL100", "WAW", 8, "110.00"));
+        assertThat(flightService.findFlights("WAW", DAY, null, new BigDecimal("100"))).isEmpty();
+        flightService.updateFlight(cheap.getId(), flight("FL100", "WAW", 8, "95.00"));
+        assertThat(flightService.findFlights("WAW", DAY, null, new BigDecimal("100"))).containsExactly(cheap);
+        assertThat(cheap.getPrice()).isEqualByComparingTo("95.00");
+
+        // moved to another destination, both the old and the new slot change.
+        List<Flight> riga = flightService.findFlights("RIX", DAY, null, null);
+        flightService.updateFlight(cheap.getId(), flight("FL100", "RIX", 8, "95.00"));
+        assertThat(flightService.findFlights("WAW", DAY, null, new BigDecimal("100"))).isEmpty();
+        assertThat(flightService.findFlights("RIX", DAY, null, null)).isNotSameAs(riga).hasSize(2).contains(cheap);
+
+        assertThat(flightService.updateFlight(-1L, flight("FL100", "RIX", 8, "95.00"))).isEmpty();
+        Flight otherAircraft = flight("FL100", "RIX", 8, "95.00");
+        otherAircraft.setAircraftType("ATR 72");
+        assertThatThrownBy(() -> flightService.updateFlight(cheap.getId(), otherAircraft)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void batchWithATakenIdAddsNothing() {
+        long catalogVersion = flightService.catalogVersion();
+        List<Flight> warsaw = flightService.findFlights("WAW", DAY, null, null);
+
+        Flight taken = flight("FL400", "WAW", 14, "100.00");
+        taken.setId(cheap.getId());
+        Flight fresh = flight("FL500", "WAW", 15, "100.00");
+        assertThatThrownBy(() -> flightService.addFlights(List.of(fresh, taken))).isInstanceOf(IllegalArgumentException.class);
+
+        Flight first = flight("FL600", "HEL", 14, "100.00");
+        first.setId(1000L);
+        Flight second = flight("FL700", "HEL", 15, "100.00");
+        second.setId(1000L);
+        assertThatThrownBy(() -> flightService.addFlights(List.of(first, second))).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(flightService.getAllFlights()).hasSize(3);
+        assertThat(flightService.findFlightById(cheap.getId()).orElseThrow()).isSameAs(cheap);
+        assertThat(flightService.findFlightById(1000L)).isEmpty();
+        assertThat(fresh.getId()).isNull();
+        assertThat(flightService.findFlights("WAW", DAY, null, null)).isSameAs(warsaw);
+        assertThat(flightService.catalogVersion()).isEqualTo(catalogVersion);
+    }
+
+    @Test
+    void hotQueriesOutliveOneOffQueries() {
+        List<Flight> hot = flightService.findFlights("WAW", DAY, null, null);
+        flightService.findFlights("RIX", DAY, null, null);
+        flightService.findFlights("WAW", DAY, null, null);
+
+        // the cache holds two results, the one read since it was stored gets a second chance.
+        flightService.findFlights(null, DAY, null, null);
+        assertThat(flightService.findFlights("WAW", DAY, null, null)).isSameAs(hot);
+        assertThat(cacheCount("miss")).isEqualTo(3.0);
+    }
+
+    @Test
+    void pagesSplitTiesByIdInEveryOrder() {
+        // ten flights share a price, departure and duration, pages of three end inside the tie.
+        List<Flight> added = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            added.add(flightService.addFlight(flight("FL6" + i, "HEL", 7, "55.00")));
+        }
+        added.add(flightService.addFlight(flight("FL700", "HEL", 6, "55")));
+        added.add(flightService.addFlight(flight("FL800", "HEL", 8, "54.99")));
+
+        for (FlightSortOrder sortOrder : FlightSortOrder.values()) {
+            List<Flight> expected = added.stream().sorted(sortOrder.comparator()).toList();
+            assertThat(allPages("HEL", sortOrder, 3)).as("%s", sortOrder).containsExactlyElementsOf(expected);
+        }
+        assertThat(allPages("HEL", FlightSortOrder.PRICE, 3).get(0).getFlightNr()).isEqualTo("FL800");
+    }
+
+    @Test
+    void cursorAtATieResumesAfterItsFlight() {
+        List<Flight> tied = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tied.add(flightService.addFlight(flight("FL6" + i, "HEL", 7, "55.00")));
+        }
+
+        FlightPageResponse first = flightService.findFlightsPage("HEL", DAY, null, null, FlightSortOrder.PRICE, 2, null);
+        assertThat(first.getFlights()).containsExactly(tied.get(0), tied.get(1));
+
+        // the cursor is a position, not a flight, so removing its flight doesn't skip or repeat any.
+        flightService.removeFlight(tied.get(1).getId());
+        Flight late = flightService.addFlight(flight("FL700", "HEL", 7, "55.00"));
+        FlightPageResponse second = flightService.findFlightsPage("HEL", DAY, null, null, FlightSortOrder.PRICE, 2, first.getNextCursor());
+        assertThat(second.getFlights()).containsExactly(tied.get(2), tied.get(3));
+
+        FlightPageResponse third = flightService.findFlightsPage("HEL", DAY, null, null, FlightSortOrder.PRICE, 2, second.getNextCursor());
+        assertThat(third.getFlights()).containsExactly(late);
+        assertThat(third.getNextCursor()).isNull();
+    }
+
+    @Test
+    void pagesAreBoundedAndCursorsChecked() {
+        for (int i = 0; i < 520; i++) {
+            flightService.addFlight(flight("FL" + (1000 + i), "HEL", i % 24, "60.00"));
+        }
+
+        FlightPageResponse capped = flightService.findFlightsPage("HEL", DAY, null, null, FlightSortOrder.DEPARTURE_TIME, 10_000, null);
+        assertThat(capped.getFlights()).hasSize(500);
+        assertThat(capped.getNextCursor()).isNotNull();
+        assertThat(flightService.findFlightsPage("HEL", DAY, null, null, FlightSortOrder.DEPARTURE_TIME, 10_000, capped.getNextCursor()).getFlights()).hasSize(20);
+        assertThat(flightService.findFlightsPage("HEL", DAY, null, null, FlightSortOrder.DEPARTURE_TIME, 0, null).getFlights()).hasSize(1);
+
+        // a page that holds exactly the rest has no next page.
+        FlightPageResponse exact = flightService.findFlightsPage("WAW", DAY, null, null, FlightSortOrder.PRICE, 2, null);
+        assertThat(exact.getFlights()).hasSize(2);
+        assertThat(exact.getNextCursor()).isNull();
+
+        assertThatThrownBy(() -> flightService.findFlightsPage("HEL", DAY, null, null, FlightSortOrder.PRICE, 10, capped.getNextCursor()))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> flightService.findFlightsPage("HEL", DAY, null, null, FlightSortOrder.PRICE, 10, "not a cursor"))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    private List<Flight> allPages(String destination, FlightSortOrder sortOrder, int limit) {
+        List<Flight> flights = new ArrayList<>();
+        String cursor = null;
+        do {
+            FlightPageResponse page = flightService.findFlightsPage(destination, DAY, null, null, sortOrder, limit, cursor);
+            assertThat(page.getFlights().size()).isLessThanOrEqualTo(limit);
+            flights.addAll(page.getFlights());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return flights;
+    }
+
+    private double cacheCount(String result) {
+        return meterRegistry.get("flight.search.cache").tag("result", result).counter().count();
+    }
+
+    private static Flight flight(String flightNr, String destination, int departureHour, String price) {
+        LocalDateTime departure = DAY.atTime(departureHour, 0);
+        return new Flight(null, flightNr, "TLL", destination, departure, departure.plusMinutes(90), new BigDecimal(price), "Boeing 737");
+    }
+}
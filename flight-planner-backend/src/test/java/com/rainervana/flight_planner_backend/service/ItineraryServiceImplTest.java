@@ -0,0 +1,86 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.ItineraryResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItineraryServiceImplTest {
+    private static final LocalDate DATE = LocalDate.of(2025, 4, 1);
+
+    private FlightPlannerMetrics metrics;
+    private FlightService flightService;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new FlightPlannerMetrics(new SimpleMeterRegistry(), false);
+        flightService = new FlightServiceImpl(new SeatLayoutRegistry(), metrics, 0);
+        addFlight("DIRECT", "TLL", "WAW", "10:00", "11:30", "200.00");
+        addFlight("TLL-RIX", "TLL", "RIX", "08:00", "09:00", "60.00");
+        // 30 minutes after TLL-RIX lands, shorter than the default minimum connection time.
+        addFlight("RIX-WAW-1", "RIX", "WAW", "09:30", "10:45", "50.00");
+        addFlight("RIX-WAW-2", "RIX", "WAW", "10:00", "11:15", "70.00");
+        addFlight("TLL-HEL", "TLL", "HEL", "07:00", "07:40", "40.00");
+        addFlight("HEL-TLL", "HEL", "TLL", "08:30", "09:10", "10.00");
+        addFlight("HEL-ARN", "HEL", "ARN", "08:30", "09:30", "30.00");
+        addFlight("ARN-WAW", "ARN", "WAW", "10:30", "12:00", "40.00");
+    }
+
+    @Test
+    void connectionsRespectMinimumConnectionTimes() {
+        ItineraryService itineraryService = new ItineraryServiceImpl(flightService, metrics, 45, "", 1440);
+
+        List<ItineraryResponse> byPrice = itineraryService.findItineraries("tll", "WAW", DATE, 1, ItinerarySortOrder.PRICE, 20);
+        assertThat(byPrice.stream().map(ItineraryServiceImplTest::flightNrs).toList())
+                .containsExactly(List.of("TLL-RIX", "RIX-WAW-2"), List.of("DIRECT"));
+        assertThat(byPrice.get(0).getTotalPrice()).isEqualByComparingTo("130.00");
+        assertThat(byPrice.get(0).getDurationMinutes()).isEqualTo(195L);
+        assertThat(byPrice.get(0).getStops()).isEqualTo(1);
+
+        // a shorter minimum connection time at RIX makes the earlier connection possible.
+        ItineraryService shortConnections = new ItineraryServiceImpl(flightService, metrics, 45, "RIX:30", 1440);
+        assertThat(flightNrs(shortConnections.findItineraries("TLL", "WAW", DATE, 1, ItinerarySortOrder.PRICE, 1).get(0)))
+                .containsExactly("TLL-RIX", "RIX-WAW-1");
+
+        assertThat(itineraryService.findItineraries("TLL", "WAW", DATE, 0, ItinerarySortOrder.PRICE, 20)).hasSize(1);
+        assertThat(itineraryService.findItineraries("TLL", "WAW", DATE.plusDays(1), 1, ItinerarySortOrder.PRICE, 20)).isEmpty();
+    }
+
+    @Test
+    void twoStopItinerariesAreRankedWithTheRest() {
+        ItineraryService itineraryService = new ItineraryServiceImpl(flightService, metrics, 45, "", 1440);
+
+        assertThat(itineraryService.findItineraries("TLL", "WAW", DATE, 2, ItinerarySortOrder.PRICE, 20).stream().map(ItineraryServiceImplTest::flightNrs).toList())
+                .containsExactly(List.of("TLL-HEL", "HEL-ARN", "ARN-WAW"), List.of("TLL-RIX", "RIX-WAW-2"), List.of("DIRECT"));
+        assertThat(itineraryService.findItineraries("TLL", "WAW", DATE, 2, ItinerarySortOrder.DURATION, 20).stream().map(ItineraryServiceImplTest::flightNrs).toList())
+                .containsExactly(List.of("DIRECT"), List.of("TLL-RIX", "RIX-WAW-2"), List.of("TLL-HEL", "HEL-ARN", "ARN-WAW"));
+        assertThat(itineraryService.findItineraries("TLL", "WAW", DATE, 2, ItinerarySortOrder.DURATION, 1).stream().map(ItineraryServiceImplTest::flightNrs).toList())
+                .containsExactly(List.of("DIRECT"));
+
+        // the route graph follows the catalog.
+        addFlight("HEL-WAW", "HEL", "WAW", "09:00", "10:30", "45.00");
+        assertThat(flightNrs(itineraryService.findItineraries("TLL", "WAW", DATE, 2, ItinerarySortOrder.PRICE, 1).get(0)))
+                .containsExactly("TLL-HEL", "HEL-WAW");
+    }
+
+    private void addFlight(String flightNr, String origin, String destination, String departure, String arrival, String price) {
+        flightService.addFlight(new Flight(null, flightNr, origin, destination,
+                LocalDateTime.of(DATE, LocalTime.parse(departure)),
+                LocalDateTime.of(DATE, LocalTime.parse(arrival)),
+                new BigDecimal(price), "Boeing 737"));
+    }
+
+    private static List<String> flightNrs(ItineraryResponse itinerary) {
+        return itinerary.getLegs().stream().map(Flight::getFlightNr).toList();
+    }
+}
@@ -0,0 +1,104 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.util.ConsistentHashRing;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionMapTest {
+    private static final String NODES = "http://backend-1:8080,http://backend-2:8080,http://backend-3:8080";
+    private static final int FLIGHTS = 30_000;
+
+    @Test
+    void everyNodeAgreesOnTheOwnerAndOwnsItsShare() {
+        List<PartitionMap> cluster = List.of(
+                new PartitionMap(NODES, "http://backend-1:8080", 128),
+                new PartitionMap(NODES, "http://backend-2:8080/", 128),
+                new PartitionMap(NODES, "http://backend-3:8080", 128)
+        );
+
+        int[] owned = new int[cluster.size()];
+        for (long flightId = 1; flightId <= FLIGHTS; flightId++) {
+            String owner = cluster.get(0).ownerOfFlight(flightId);
+            int owners = 0;
+            for (int node = 0; node < cluster.size(); node++) {
+                assertThat(cluster.get(node).ownerOfFlight(flightId)).isEqualTo(owner);
+                if (cluster.get(node).ownsFlight(flightId)) {
+                    owned[node]++;
+                    owners++;
+                }
+            }
+            assertThat(owners).isEqualTo(1);
+        }
+        for (int count : owned) {
+            assertThat(count).isBetween(FLIGHTS / 4, FLIGHTS / 2);
+        }
+        assertThat(cluster.get(1).peers()).containsExactly("http://backend-1:8080", "http://backend-3:8080");
+    }
+
+    @Test
+    void onlyOtherNodesArePeers() {
+        PartitionMap second = new PartitionMap(NODES, "http://backend-2:8080", 128);
+        assertThat(second.isPeer("http://backend-1:8080")).isTrue();
+        assertThat(second.isPeer(" http://backend-3:8080/")).isTrue();
+        assertThat(second.isPeer("http://backend-2:8080")).isFalse();
+        assertThat(second.isPeer("http://attacker:8080")).isFalse();
+        assertThat(second.isPeer("")).isFalse();
+        assertThat(second.isPeer(null)).isFalse();
+        assertThat(PartitionMap.singleNode().isPeer("")).isFalse();
+    }
+
+    @Test
+    void addingANodeOnlyMovesFlightsToIt() {
+        ConsistentHashRing three = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        ConsistentHashRing four = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+
+        int moved = 0;
+        for (long flightId = 1; flightId <= FLIGHTS; flightId++) {
+            if (!three.nodeFor(flightId).equals(four.nodeFor(flightId))) {
+                assertThat(four.nodeFor(flightId)).isEqualTo("d");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(FLIGHTS / 8, FLIGHTS * 3 / 8);
+    }
+
+    @Test
+    void holdIdsTellTheirNode() {
+        PartitionMap second = new PartitionMap(NODES, "http://backend-2:8080", 128);
+        for (long sequence = 1; sequence <= 10; sequence++) {
+            assertThat(second.ownerOfHold(second.holdId(sequence))).isEqualTo("http://backend-2:8080");
+        }
+
+        PartitionMap single = PartitionMap.singleNode();
+        assertThat(single.isPartitioned()).isFalse();
+        assertThat(single.ownsFlight(42L)).isTrue();
+        assertThat(single.holdId(7L)).isEqualTo(7L);
+        assertThatThrownBy(() -> new PartitionMap(NODES, "http://backend-4:8080", 128)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void changesOfOtherNodesFlightsAndHoldsAreMisdirected() {
+        PartitionMap first = new PartitionMap(NODES, "http://backend-1:8080", 128);
+        PartitionMap second = new PartitionMap(NODES, "http://backend-2:8080", 128);
+        long flightId = 1;
+        while (!first.ownsFlight(flightId)) {
+            flightId++;
+        }
+        long foreignFlight = flightId;
+
+        first.checkOwnsFlight(foreignFlight);
+        first.checkOwnsHold(first.holdId(3));
+        assertThatThrownBy(() -> second.checkOwnsFlight(foreignFlight))
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(PartitionMap.MISDIRECTED_REQUEST);
+        assertThatThrownBy(() -> second.checkOwnsHold(first.holdId(3)))
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(PartitionMap.MISDIRECTED_REQUEST);
+        PartitionMap.singleNode().checkOwnsHold(first.holdId(3));
+    }
+}
@@ -0,0 +1,160 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rainervana.flight_planner_backend.dto.BatchBookingRequest;
+import com.rainervana.flight_planner_backend.dto.BatchBookingResponse;
+import com.rainervana.flight_planner_backend.dto.BatchBookingResult;
+import com.rainervana.flight_planner_backend.dto.BookingRequest;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionRouterTest {
+    private static final String SELF = "http://127.0.0.1:1";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // method, path, forwarded header and body of every request the peer received.
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private HttpServer peer;
+    private String peerUrl;
+    private PartitionMap partitionMap;
+    private PartitionRouter partitionRouter;
+
+    @BeforeEach
+    void startPeer() throws IOException {
+        peer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        peer.createContext("/", exchange -> {
+            byte[] body = record(exchange);
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        // the peer rejects every booking of its share, naming the flight, so the results tell who booked what.
+        peer.createContext("/api/flights/bookings/batch", exchange -> {
+            BatchBookingRequest share = objectMapper.readValue(record(exchange), BatchBookingRequest.class);
+            byte[] body = objectMapper.writeValueAsBytes(rejectAll(share.getBookings(), "peer"));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        peer.start();
+
+        peerUrl = "http://127.0.0.1:" + peer.getAddress().getPort();
+        partitionMap = new PartitionMap(SELF + "," + peerUrl, SELF, 128);
+        partitionRouter = new PartitionRouter(partitionMap, objectMapper, new FlightPlannerMetrics(new SimpleMeterRegistry(), false), 2000);
+    }
+
+    @AfterEach
+    void stopPeer() {
+        peer.stop(0);
+    }
+
+    @Test
+    void forwardsTheRequestAsItIsAndMarksIt() throws Exception {
+        byte[] body = "{\"flightId\":7}".getBytes(StandardCharsets.UTF_8);
+        HttpResponse<InputStream> response = partitionRouter.forward(peerUrl, "POST", "/api/flights/holds?seats=2", Map.of("Content-Type", "application/json"), body);
+
+        try (InputStream in = response.body()) {
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("{\"flightId\":7}");
+        }
+        assertThat(received).containsExactly("POST /api/flights/holds?seats=2 " + SELF + " {\"flightId\":7}");
+    }
+
+    @Test
+    void batchIsSplitByOwnerAndMergedInRequestOrder() {
+        List<BookingRequest> bookingRequests = new ArrayList<>();
+        for (long flightId = 1; flightId <= 12; flightId++) {
+            bookingRequests.add(new BookingRequest(flightId, 1, List.of("1A")));
+        }
+        List<List<BookingRequest>> localShares = new ArrayList<>();
+
+        BatchBookingResponse response = partitionRouter.createBookings(bookingRequests, share -> {
+            localShares.add(share);
+            return rejectAll(share, "local");
+        });
+
+        assertThat(response.getConfirmed()).isZero();
+        assertThat(response.getRejected()).isEqualTo(bookingRequests.size());
+        assertThat(response.getResults()).extracting(BatchBookingResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+        for (BatchBookingResult result : response.getResults()) {
+            long flightId = bookingRequests.get(result.getIndex()).getFlightId();
+            String bookedBy = partitionMap.ownsFlight(flightId) ? "local" : "peer";
+            assertThat(result.getError()).isEqualTo(bookedBy + " " + flightId);
+        }
+        // one share per node, the peer's sent once and marked as forwarded.
+        assertThat(localShares).hasSize(1);
+        assertThat(localShares.get(0)).allMatch(bookingRequest -> partitionMap.ownsFlight(bookingRequest.getFlightId()));
+        assertThat(received).hasSize(1);
+        assertThat(received.get(0)).startsWith("POST /api/flights/bookings/batch " + SELF + " ");
+    }
+
+    @Test
+    void bookingsOfAnUnreachableNodeFailOnTheirOwn() {
+        peer.stop(0);
+        List<BookingRequest> bookingRequests = new ArrayList<>();
+        for (long flightId = 1; flightId <= 12; flightId++) {
+            bookingRequests.add(new BookingRequest(flightId, 1, List.of("1A")));
+        }
+
+        BatchBookingResponse response = partitionRouter.createBookings(bookingRequests, share -> rejectAll(share, "local"));
+
+        assertThat(response.getResults()).hasSize(bookingRequests.size());
+        for (BatchBookingResult result : response.getResults()) {
+            long flightId = bookingRequests.get(result.getIndex()).getFlightId();
+            if (partitionMap.ownsFlight(flightId)) {
+                assertThat(result.getError()).isEqualTo("local " + flightId);
+            } else {
+                assertThat(result.getStatus()).isEqualTo(503);
+                assertThat(result.getError()).isEqualTo("Partition unavailable: " + peerUrl);
+            }
+        }
+    }
+
+    @Test
+    void batchOfOwnedFlightsStaysLocal() {
+        List<BookingRequest> bookingRequests = new ArrayList<>();
+        for (long flightId = 1; bookingRequests.size() < 3; flightId++) {
+            if (partitionMap.ownsFlight(flightId)) {
+                bookingRequests.add(new BookingRequest(flightId, 1, List.of("1A")));
+            }
+        }
+
+        BatchBookingResponse response = partitionRouter.createBookings(bookingRequests, share -> rejectAll(share, "local"));
+
+        assertThat(response.getResults()).extracting(BatchBookingResult::getError).allMatch(error -> error.startsWith("local "));
+        assertThat(received).isEmpty();
+    }
+
+    private byte[] record(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        received.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+                + exchange.getRequestHeaders().getFirst(PartitionRouter.FORWARDED_HEADER) + " " + new String(body, StandardCharsets.UTF_8));
+        return body;
+    }
+
+    private static BatchBookingResponse rejectAll(List<BookingRequest> share, String bookedBy) {
+        List<BatchBookingResult> results = new ArrayList<>();
+        for (int i = 0; i < share.size(); i++) {
+            results.add(new BatchBookingResult(i, 409, null, bookedBy + " " + share.get(i).getFlightId()));
+        }
+        return new BatchBookingResponse(0, results.size(), results);
+    }
+}
@@ -0,0 +1,153 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.FlightOccupancy;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.repository.FlightOccupancyRepository;
+import com.rainervana.flight_planner_backend.repository.FlightRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against an in-memory H2 database. The tests commit for real, a second service has to see
+ * what the first one flushed.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PersistentFlightServiceImplTest {
+    @Autowired
+    private FlightRepository flightRepository;
+    @Autowired
+    private FlightOccupancyRepository occupancyRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+
+    @AfterEach
+    void tearDown() {
+        occupancyRepository.deleteAll();
+        flightRepository.deleteAll();
+    }
+
+    @Test
+    void flushedOccupancyIsLoadedByTheNextService() {
+        PersistentFlightServiceImpl flightService = newService(transactionManager);
+        Flight flight = flightService.addFlight(flight("FL100"));
+        SeatInventory inventory = flight.getSeatInventory();
+        int[] booked = {inventory.seatIndex("1A"), inventory.seatIndex("7C"), inventory.seatIndex("25F")};
+        for (int seatIndex : booked) {
+            inventory.occupy(seatIndex);
+        }
+        flightService.flushOccupancy();
+
+        PersistentFlightServiceImpl restarted = newService(transactionManager);
+        Flight loaded = restarted.findFlightById(flight.getId()).orElseThrow();
+        assertThat(loaded).isNotSameAs(flight);
+        SeatInventory.Snapshot restored = loaded.getSeatInventory().snapshot();
+        assertThat(restored.toByteArray()).isEqualTo(inventory.snapshot().toByteArray());
+        assertThat(restored.occupiedCount()).isEqualTo(booked.length);
+        for (int seatIndex : booked) {
+            assertThat(restored.isSet(seatIndex)).isTrue();
+        }
+    }
+
+    @Test
+    void cleanFlightsAreNotWrittenAgain() {
+        PersistentFlightServiceImpl flightService = newService(transactionManager);
+        Flight flight = flightService.addFlight(flight("FL100"));
+        flight.getSeatInventory().occupy(0);
+        flightService.flushOccupancy();
+
+        // a row changed behind the service's back shows whether the next flush writes it.
+        FlightOccupancy row = occupancyRepository.findById(flight.getId()).orElseThrow();
+        row.setVersion(-1L);
+        occupancyRepository.save(row);
+
+        flightService.flushOccupancy();
+        assertThat(occupancyRepository.findById(flight.getId()).orElseThrow().getVersion()).isEqualTo(-1L);
+
+        flight.getSeatInventory().occupy(1);
+        flightService.flushOccupancy();
+        assertThat(occupancyRepository.findById(flight.getId()).orElseThrow().getVersion())
+                .isEqualTo(flight.getSeatInventory().snapshot().getVersion());
+    }
+
+    @Test
+    void failedBatchesStayDirty() {
+        FailingTransactionManager failing = new FailingTransactionManager(transactionManager);
+        PersistentFlightServiceImpl flightService = newService(failing);
+        Flight flight = flightService.addFlight(flight("FL100"));
+        flight.getSeatInventory().occupy(0);
+
+        failing.failing = true;
+        flightService.flushOccupancy();
+        assertThat(occupancyRepository.findById(flight.getId())).isEmpty();
+
+        failing.failing = false;
+        flightService.flushOccupancy();
+        assertThat(occupancyRepository.findById(flight.getId()).orElseThrow().getOccupancy())
+                .isEqualTo(flight.getSeatInventory().snapshot().toByteArray());
+    }
+
+    private PersistentFlightServiceImpl newService(PlatformTransactionManager transactionManager) {
+        PersistentFlightServiceImpl flightService = new PersistentFlightServiceImpl(seatLayoutRegistry,
+                new FlightPlannerMetrics(new SimpleMeterRegistry(), false), flightRepository, occupancyRepository,
+                entityManager, transactionManager, false, 200, 0);
+        flightService.loadFlights();
+        return flightService;
+    }
+
+    private static Flight flight(String flightNr) {
+        LocalDateTime departure = LocalDateTime.of(2025, 4, 1, 10, 30);
+        return new Flight(null, flightNr, "TLL", "WAW", departure, departure.plusMinutes(90), new BigDecimal("99.99"), "Boeing 737");
+    }
+
+    /**
+     * Lets transactions through until told to fail, like a database that went away.
+     */
+    private static final class FailingTransactionManager implements PlatformTransactionManager {
+        private final PlatformTransactionManager delegate;
+        private volatile boolean failing;
+
+        FailingTransactionManager(PlatformTransactionManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            if (failing) {
+                throw new CannotCreateTransactionException("Database unavailable");
+            }
+            return delegate.getTransaction(definition);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            delegate.commit(status);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            delegate.rollback(status);
+        }
+    }
+}
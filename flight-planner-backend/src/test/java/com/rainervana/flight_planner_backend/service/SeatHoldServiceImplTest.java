@@ -0,0 +1,153 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.BookingRequest;
+import com.rainervana.flight_planner_backend.dto.SeatHoldRequest;
+import com.rainervana.flight_planner_backend.dto.SeatHoldResponse;
+import com.rainervana.flight_planner_backend.dto.SeatMapResponse;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeatHoldServiceImplTest {
+    private static final long TTL_SECONDS = 600;
+
+    private Flight flight;
+    private SimpleMeterRegistry meterRegistry;
+    private SeatServiceImpl seatService;
+    private SeatHoldServiceImpl seatHoldService;
+    private BookingServiceImpl bookingService;
+    private BookingJournalImpl bookingJournal;
+    private BookingEngine bookingEngine;
+
+    @TempDir
+    Path journalDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        flight = new Flight(1L, "FL100", "TLL", "WAW",
+                LocalDateTime.of(2025, 4, 1, 10, 30),
+                LocalDateTime.of(2025, 4, 1, 12, 0),
+                new BigDecimal("100.00"), "Boeing 737");
+
+        meterRegistry = new SimpleMeterRegistry();
+        FlightPlannerMetrics metrics = new FlightPlannerMetrics(meterRegistry, true);
+        SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+        FlightService flightService = new FlightServiceImpl(seatLayoutRegistry, metrics, 0);
+        flightService.addFlight(flight);
+        bookingJournal = new BookingJournalImpl(flightService, journalDirectory, 1 << 20, true);
+        bookingJournal.open();
+        bookingEngine = new BookingEngine(bookingJournal, metrics, 2, 64, 1024);
+        bookingEngine.start();
+        seatService = new SeatServiceImpl(flightService, seatLayoutRegistry, metrics, SeatAllocationStrategy.BEST_FIT);
+        seatHoldService = new SeatHoldServiceImpl(flightService, bookingEngine, metrics, PartitionMap.singleNode(), TTL_SECONDS, 1000);
+        bookingService = new BookingServiceImpl(flightService, seatLayoutRegistry, new FareEngine(seatLayoutRegistry, new BigDecimal("50.00"), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, ""), seatHoldService, bookingEngine, bookingJournal, PartitionMap.singleNode(), metrics);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        bookingEngine.stop();
+        bookingJournal.close();
+    }
+
+    @Test
+    void heldSeatsAreLeftOutOfRecommendationsAndBookings() {
+        seatHoldService.holdSeats(new SeatHoldRequest(1L, List.of("1A", "1B", "1C", "1D", "1E", "1F")));
+
+        SeatMapResponse seatMap = seatService.getSeatMapAndRecommendations(flight, 6, Optional.empty(), Optional.empty(), Optional.empty());
+        assertThat(seatMap.getRecommendedSeatNrs()).containsExactly("2A", "2B", "2C", "2D", "2E", "2F");
+        assertThat(seatMap.getAllSeats().get(0).isOccupied()).isTrue();
+
+        assertThatThrownBy(() -> bookingService.createBooking(new BookingRequest(1L, 1, List.of("1C"))))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+        assertThatThrownBy(() -> seatHoldService.holdSeats(new SeatHoldRequest(1L, List.of("2A", "1F"))))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        // held seats are never journaled or persisted.
+        assertThat(flight.getSeatInventory().occupiedCount()).isZero();
+        assertThat(flight.getSeatInventory().snapshot().heldCount()).isEqualTo(6);
+    }
+
+    @Test
+    void holdsWithoutSeatsAreRejected() {
+        for (List<String> selectedSeats : Arrays.asList(null, List.<String>of())) {
+            assertThatThrownBy(() -> seatHoldService.holdSeats(new SeatHoldRequest(1L, selectedSeats)))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                    .isEqualTo(HttpStatus.BAD_REQUEST);
+        }
+        assertThat(flight.getSeatInventory().snapshot().heldCount()).isZero();
+    }
+
+    @Test
+    void holdIsBookedOnlyOnce() {
+        SeatHoldResponse hold = seatHoldService.holdSeats(new SeatHoldRequest(1L, List.of("4A", "4B")));
+
+        bookingService.createBooking(new BookingRequest(1L, 2, List.of("4B", "4A"), hold.getHoldId()));
+
+        assertThat(flight.getSeatInventory().isOccupied(4, 0)).isTrue();
+        assertThat(flight.getSeatInventory().isOccupied(4, 1)).isTrue();
+        assertThat(flight.getSeatInventory().snapshot().heldCount()).isZero();
+        assertThatThrownBy(() -> bookingService.createBooking(new BookingRequest(1L, 2, List.of("4A", "4B"), hold.getHoldId())))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.GONE);
+        assertThat(meterRegistry.get("seat.holds").tag("outcome", "converted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredHoldsFreeTheirSeats() {
+        SeatHoldResponse expiring = seatHoldService.holdSeats(new SeatHoldRequest(1L, List.of("6A")));
+        SeatHoldResponse released = seatHoldService.holdSeats(new SeatHoldRequest(1L, List.of("6B")));
+        SeatHoldResponse booked = seatHoldService.holdSeats(new SeatHoldRequest(1L, List.of("6C")));
+        seatHoldService.releaseHold(released.getHoldId());
+        bookingService.createBooking(new BookingRequest(1L, 1, List.of("6C"), booked.getHoldId()));
+
+        assertThat(seatHoldService.expireHolds(System.currentTimeMillis())).isZero();
+        assertThat(seatHoldService.expireHolds(System.currentTimeMillis() + (TTL_SECONDS + 2) * 1000)).isEqualTo(1);
+
+        assertThat(flight.getSeatInventory().snapshot().heldCount()).isZero();
+        assertThat(flight.getSeatInventory().occupiedCount()).isEqualTo(1);
+        assertThatThrownBy(() -> bookingService.createBooking(new BookingRequest(1L, 1, List.of("6A"), expiring.getHoldId())))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.GONE);
+        assertThat(meterRegistry.get("seat.holds").tag("outcome", "expired").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void claimedHoldIsFreedWhenItsBookingConflicts() {
+        SeatHoldResponse hold = seatHoldService.holdSeats(new SeatHoldRequest(1L, List.of("8A", "8B")));
+        // a seat that is no longer held, e.g. its hold was undone with a lost journal flush.
+        flight.getSeatInventory().releaseHolds(new int[]{flight.getSeatInventory().seatIndex("8A")});
+
+        assertThatThrownBy(() -> bookingService.createBooking(new BookingRequest(1L, 2, List.of("8A", "8B"), hold.getHoldId())))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(e -> ((ResponseStatusException) e).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        assertThat(flight.getSeatInventory().snapshot().heldCount()).isZero();
+        assertThat(flight.getSeatInventory().occupiedCount()).isZero();
+        seatHoldService.holdSeats(new SeatHoldRequest(1L, List.of("8B")));
+    }
+}
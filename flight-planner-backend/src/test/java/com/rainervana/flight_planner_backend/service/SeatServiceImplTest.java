@@ -0,0 +1,319 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.rainervana.flight_planner_backend.dto.FlightSearchResult;
+import com.rainervana.flight_planner_backend.dto.SeatAvailabilitySummary;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import com.rainervana.flight_planner_backend.model.SeatLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatServiceImplTest {
+    private Flight boeing;
+    private Flight atr;
+    private SeatServiceImpl seatService;
+    private SeatServiceImpl firstFitSeatService;
+    private FlightService flightService;
+    private SeatLayoutRegistry seatLayoutRegistry;
+
+    @BeforeEach
+    void setUp() {
+        boeing = new Flight(1L, "FL100", "TLL", "WAW",
+                LocalDateTime.of(2025, 4, 1, 10, 30),
+                LocalDateTime.of(2025, 4, 1, 12, 0),
+                new BigDecimal("100.00"), "Boeing 737");
+        atr = new Flight(2L, "FL200", "TLL", "WAW",
+                LocalDateTime.of(2025, 4, 1, 14, 30),
+                LocalDateTime.of(2025, 4, 1, 16, 0),
+                new BigDecimal("80.00"), "ATR 72");
+
+        FlightPlannerMetrics metrics = new FlightPlannerMetrics(new SimpleMeterRegistry(), false);
+        seatLayoutRegistry = new SeatLayoutRegistry();
+        flightService = new FlightServiceImpl(seatLayoutRegistry, metrics, 0);
+        flightService.addFlight(boeing);
+        flightService.addFlight(atr);
+        seatService = new SeatServiceImpl(flightService, seatLayoutRegistry, metrics, SeatAllocationStrategy.BEST_FIT);
+        firstFitSeatService = new SeatServiceImpl(flightService, seatLayoutRegistry, metrics, SeatAllocationStrategy.FIRST_FIT);
+    }
+
+    @Test
+    void searchResultsCarryAvailability() {
+        List<FlightSearchResult> results = search(null, null, null);
+        assertThat(results.stream().map(FlightSearchResult::getFlight).toList()).containsExactly(boeing, atr);
+        assertThat(results.get(0).getAvailability()).isEqualTo(new SeatAvailabilitySummary(150, 12, 138, 6));
+        assertThat(results.get(1).getAvailability()).isEqualTo(new SeatAvailabilitySummary(72, 0, 72, 4));
+
+        assertThat(flightNrs(search(5, null, null))).containsExactly("FL100");
+        // window seats are never adjacent in these layouts.
+        assertThat(flightNrs(search(2, true, null))).isEmpty();
+    }
+
+    @Test
+    void availabilityFollowsBookingsAndHolds() {
+        SeatInventory inventory = boeing.getSeatInventory();
+        for (int row = 1; row <= 25; row++) {
+            inventory.occupy(row, 2);
+        }
+        assertThat(search(null, null, null).get(0).getAvailability()).isEqualTo(new SeatAvailabilitySummary(125, 10, 115, 3));
+        assertThat(flightNrs(search(4, null, null))).containsExactly("FL200");
+
+        // row 1 is the only extra legroom row of the ATR 72, holding it leaves no block there.
+        assertThat(flightNrs(search(3, null, true))).containsExactly("FL100", "FL200");
+        atr.getSeatInventory().holdAll(new int[]{0, 1});
+        assertThat(flightNrs(search(3, null, true))).containsExactly("FL100");
+        assertThat(search(null, null, null).get(1).getAvailability().getFreeSeats()).isEqualTo(70);
+
+        inventory.release(11, 2);
+        assertThat(search(null, null, true).get(0).getAvailability()).isEqualTo(new SeatAvailabilitySummary(126, 10, 116, 6));
+    }
+
+    @Test
+    void bestFitKeepsLargeBlocksForLargeGroups() {
+        occupyAllExcept(boeing.getSeatInventory(), "3A", "3B", "3C", "3D", "3E", "3F", "7E", "7F");
+        assertThat(recommend(firstFitSeatService, 2)).containsExactly("3A", "3B");
+        assertThat(recommend(seatService, 2)).containsExactly("7E", "7F");
+
+        // bookings only re-index the rows they touched.
+        SeatInventory inventory = boeing.getSeatInventory();
+        inventory.occupy(inventory.seatIndex("7E"));
+        inventory.occupy(inventory.seatIndex("7F"));
+        assertThat(recommend(seatService, 2)).containsExactly("3E", "3F");
+        inventory.occupy(inventory.seatIndex("3E"));
+        inventory.occupy(inventory.seatIndex("3F"));
+        assertThat(recommend(seatService, 4)).containsExactly("3A", "3B", "3C", "3D");
+    }
+
+    @Test
+    void groupsThatCantSitTogetherGetTheFewestBlocks() {
+        occupyAllExcept(boeing.getSeatInventory(), "2A", "10C", "10D", "20F");
+        assertThat(recommend(firstFitSeatService, 3)).isEmpty();
+        assertThat(recommend(seatService, 3)).containsExactly("10C", "10D", "2A");
+        assertThat(recommend(seatService, 5)).isEmpty();
+    }
+
+    @Test
+    void recommendationsFollowTheRowMasksOfBothStrategies() {
+        SeatInventory inventory = boeing.getSeatInventory();
+        SeatLayout layout = seatLayoutRegistry.layoutFor(boeing.getAircraftType());
+        Random random = new Random(11L);
+        for (int step = 0; step < 200; step++) {
+            int seatIndex = random.nextInt(inventory.capacity());
+            if (random.nextInt(4) == 0) {
+                inventory.holdAll(new int[]{seatIndex});
+            } else if (!inventory.occupy(seatIndex)) {
+                inventory.release(seatIndex);
+                inventory.releaseHolds(new int[]{seatIndex});
+            }
+            int passengers = 1 + random.nextInt(layout.getColumnCount());
+            int preferences = random.nextInt(8);
+            boolean window = (preferences & 1) != 0;
+            boolean extraLegroom = (preferences & 2) != 0;
+            boolean nearExit = (preferences & 4) != 0;
+
+            List<String> firstFit = recommend(firstFitSeatService, boeing, passengers, window, extraLegroom, nearExit);
+            List<String> bestFit = recommend(seatService, boeing, passengers, window, extraLegroom, nearExit);
+            List<String> expected = firstRun(layout, inventory.snapshot(), passengers, window, extraLegroom, nearExit);
+            if (expected.isEmpty()) {
+                continue;
+            }
+            assertThat(firstFit).isEqualTo(expected);
+            // best fit seats the group together as well, in a block no longer than any other that fits it.
+            assertThat(bestFit).hasSize(passengers);
+            String first = bestFit.get(0);
+            int row = Integer.parseInt(first.substring(0, first.length() - 1));
+            int column = first.charAt(first.length() - 1) - 'A';
+            int block = blockLength(layout, inventory.snapshot(), row, column, window);
+            assertThat(block).isEqualTo(shortestFittingBlock(layout, inventory.snapshot(), passengers, window, extraLegroom, nearExit));
+            for (int i = 0; i < passengers; i++) {
+                assertThat(bestFit.get(i)).isEqualTo(layout.seatNr(row, column + i));
+                assertThat(blockLength(layout, inventory.snapshot(), row, column + i, window)).isEqualTo(block);
+            }
+        }
+    }
+
+    @Test
+    void heldSeatsAreNeverRecommended() {
+        SeatInventory inventory = boeing.getSeatInventory();
+        occupyAllExcept(inventory, "4A", "4B", "4C", "9D", "9E", "9F");
+        inventory.holdAll(new int[]{inventory.seatIndex("4B")});
+
+        assertThat(recommend(firstFitSeatService, 3)).containsExactly("9D", "9E", "9F");
+        assertThat(recommend(seatService, 3)).containsExactly("9D", "9E", "9F");
+        assertThat(recommend(seatService, 1)).containsExactly("4A");
+    }
+
+    @Test
+    void groupsWiderThanARowAreSplitOverAdjacentRows() {
+        occupyAllExcept(boeing.getSeatInventory(), "5A", "5B", "5C", "6A", "6B", "6C", "6D", "20A", "20B", "20C", "20D", "20E", "20F");
+
+        assertThat(recommend(firstFitSeatService, 7)).containsExactly("5A", "5B", "5C", "6A", "6B", "6C", "6D");
+        assertThat(recommend(seatService, 7)).containsExactly("5A", "5B", "5C", "6A", "6B", "6C", "6D");
+        assertThat(recommend(seatService, 6)).containsExactly("20A", "20B", "20C", "20D", "20E", "20F");
+
+        // the window seats of a row are never next to each other.
+        assertThat(recommend(firstFitSeatService, atr, 2, true, false, false)).containsExactly("1A", "2A");
+        assertThat(recommend(seatService, atr, 2, true, false, false)).containsExactly("1A", "2A");
+    }
+
+    @Test
+    void largestBlocksMatchAScanOfTheRows() {
+        SeatInventory inventory = boeing.getSeatInventory();
+        SeatLayout layout = seatLayoutRegistry.layoutFor(boeing.getAircraftType());
+        SeatAvailabilityIndex index = flightService.seatAvailability();
+        Random random = new Random(7L);
+        for (int step = 0; step < 300; step++) {
+            int seatIndex = random.nextInt(inventory.capacity());
+            if (!inventory.occupy(seatIndex)) {
+                inventory.release(seatIndex);
+            }
+            for (int preferences = 0; preferences < 8; preferences++) {
+                boolean window = (preferences & 1) != 0;
+                boolean extraLegroom = (preferences & 2) != 0;
+                boolean nearExit = (preferences & 4) != 0;
+                assertThat(index.largestFreeBlock(boeing, window, extraLegroom, nearExit)).isEqualTo(longestRun(layout, inventory, window, extraLegroom, nearExit));
+            }
+        }
+    }
+
+    @Test
+    void removedFlightsLeaveTheAvailabilityIndex() {
+        search(null, null, null);
+        recommend(seatService, 2);
+        assertThat(flightService.seatAvailability().size()).isEqualTo(2);
+
+        flightService.removeFlight(boeing.getId());
+
+        assertThat(flightService.seatAvailability().size()).isEqualTo(1);
+        assertThat(flightNrs(search(null, null, null))).containsExactly("FL200");
+    }
+
+    private static int longestRun(SeatLayout layout, SeatInventory inventory, boolean window, boolean extraLegroom, boolean nearExit) {
+        int longest = 0;
+        for (int row = 1; row <= layout.getTotalRows(); row++) {
+            if (extraLegroom && !layout.isExtraLegroomRow(row) || nearExit && !layout.isExitRow(row)) {
+                continue;
+            }
+            int run = 0;
+            for (int column = 0; column < layout.getColumnCount(); column++) {
+                boolean free = !inventory.isOccupied(row, column) && (!window || (layout.getWindowColumnMask() & (1L << column)) != 0);
+                run = free ? run + 1 : 0;
+                longest = Math.max(longest, run);
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * @return  -   the leftmost seats of the first row with enough free seats next to each other, empty if there is none.
+     */
+    private static List<String> firstRun(SeatLayout layout, SeatInventory.Snapshot occupancy, int passengers, boolean window, boolean extraLegroom, boolean nearExit) {
+        for (int row = 1; row <= layout.getTotalRows(); row++) {
+            if (extraLegroom && !layout.isExtraLegroomRow(row) || nearExit && !layout.isExitRow(row)) {
+                continue;
+            }
+            List<String> seatNrs = firstRun(layout, occupancy, row, passengers, window);
+            if (!seatNrs.isEmpty()) {
+                return seatNrs;
+            }
+        }
+        return List.of();
+    }
+
+    private static List<String> firstRun(SeatLayout layout, SeatInventory.Snapshot occupancy, int row, int passengers, boolean window) {
+        int run = 0;
+        for (int column = 0; column < layout.getColumnCount(); column++) {
+            run = isCandidate(layout, occupancy, row, column, window) ? run + 1 : 0;
+            if (run == passengers) {
+                List<String> seatNrs = new ArrayList<>();
+                for (int c = column - passengers + 1; c <= column; c++) {
+                    seatNrs.add(layout.seatNr(row, c));
+                }
+                return seatNrs;
+            }
+        }
+        return List.of();
+    }
+
+    private static int shortestFittingBlock(SeatLayout layout, SeatInventory.Snapshot occupancy, int passengers, boolean window, boolean extraLegroom, boolean nearExit) {
+        int shortest = Integer.MAX_VALUE;
+        for (int row = 1; row <= layout.getTotalRows(); row++) {
+            if (extraLegroom && !layout.isExtraLegroomRow(row) || nearExit && !layout.isExitRow(row)) {
+                continue;
+            }
+            for (int column = 0; column < layout.getColumnCount(); column++) {
+                int block = blockLength(layout, occupancy, row, column, window);
+                if (block >= passengers) {
+                    shortest = Math.min(shortest, block);
+                }
+            }
+        }
+        return shortest;
+    }
+
+    /**
+     * @return  -   length of the block of free seats the seat belongs to, 0 if it isn't free.
+     */
+    private static int blockLength(SeatLayout layout, SeatInventory.Snapshot occupancy, int row, int column, boolean window) {
+        if (!isCandidate(layout, occupancy, row, column, window)) {
+            return 0;
+        }
+        int first = column;
+        while (first > 0 && isCandidate(layout, occupancy, row, first - 1, window)) {
+            first--;
+        }
+        int last = column;
+        while (last + 1 < layout.getColumnCount() && isCandidate(layout, occupancy, row, last + 1, window)) {
+            last++;
+        }
+        return last - first + 1;
+    }
+
+    private static boolean isCandidate(SeatLayout layout, SeatInventory.Snapshot occupancy, int row, int column, boolean window) {
+        int index = (row - 1) * layout.getColumnCount() + column;
+        return occupancy.isAvailable(index) && (!window || (layout.getWindowColumnMask() & (1L << column)) != 0);
+    }
+
+    private static List<String> recommend(SeatServiceImpl service, Flight flight, int passengers, boolean window, boolean extraLegroom, boolean nearExit) {
+        return service.getSeatMapAndRecommendations(flight, passengers, Optional.of(window), Optional.of(extraLegroom), Optional.of(nearExit))
+                .getRecommendedSeatNrs();
+    }
+
+    private List<String> recommend(SeatServiceImpl service, int passengers) {
+        return service.getSeatMapAndRecommendations(boeing, passengers, Optional.empty(), Optional.empty(), Optional.empty())
+                .getRecommendedSeatNrs();
+    }
+
+    private static void occupyAllExcept(SeatInventory inventory, String... freeSeatNrs) {
+        Set<Integer> free = new HashSet<>();
+        for (String seatNr : freeSeatNrs) {
+            free.add(inventory.seatIndex(seatNr));
+        }
+        for (int index = 0; index < inventory.capacity(); index++) {
+            if (!free.contains(index)) {
+                inventory.occupy(index);
+            }
+        }
+    }
+
+    private List<FlightSearchResult> search(Integer minAdjacentSeats, Boolean preferWindow, Boolean preferExtraLegroom) {
+        return seatService.findFlightsWithAvailability(null, null, null, null, minAdjacentSeats,
+                Optional.ofNullable(preferWindow), Optional.ofNullable(preferExtraLegroom), Optional.empty());
+    }
+
+    private static List<String> flightNrs(List<FlightSearchResult> results) {
+        return results.stream().map(result -> result.getFlight().getFlightNr()).toList();
+    }
+}
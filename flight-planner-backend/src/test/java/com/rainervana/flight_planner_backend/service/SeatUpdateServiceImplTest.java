@@ -0,0 +1,148 @@
+package com.rainervana.flight_planner_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rainervana.flight_planner_backend.metrics.FlightPlannerMetrics;
+import com.rainervana.flight_planner_backend.model.Flight;
+import com.rainervana.flight_planner_backend.model.SeatInventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatUpdateServiceImplTest {
+    private Flight flight;
+    private FlightService flightService;
+    private SimpleMeterRegistry meterRegistry;
+    private SeatUpdateServiceImpl seatUpdateService;
+    // sends run when the test says so, like slow clients.
+    private final Queue<Runnable> sends = new ArrayDeque<>();
+
+    @BeforeEach
+    void setUp() {
+        flight = new Flight(1L, "FL100", "TLL", "WAW",
+                LocalDateTime.of(2025, 4, 1, 10, 30),
+                LocalDateTime.of(2025, 4, 1, 12, 0),
+                new BigDecimal("100.00"), "Boeing 737");
+
+        meterRegistry = new SimpleMeterRegistry();
+        FlightPlannerMetrics metrics = new FlightPlannerMetrics(meterRegistry, false);
+        SeatLayoutRegistry seatLayoutRegistry = new SeatLayoutRegistry();
+        flightService = new FlightServiceImpl(seatLayoutRegistry, metrics, 0);
+        flightService.addFlight(flight);
+        seatUpdateService = new SeatUpdateServiceImpl(flightService, seatLayoutRegistry, new ObjectMapper(), metrics, sends::add, 60_000) {
+            @Override
+            protected SseEmitter createEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @Test
+    void changesAreCoalescedIntoOneDeltaPerWindow() {
+        RecordingEmitter first = (RecordingEmitter) seatUpdateService.subscribe(1L);
+        RecordingEmitter second = (RecordingEmitter) seatUpdateService.subscribe(1L);
+        runSends();
+        assertThat(first.events).hasSize(1);
+        assertThat(first.events.get(0)).contains("event:" + SeatUpdateServiceImpl.SNAPSHOT_EVENT + "\n");
+
+        SeatInventory inventory = flight.getSeatInventory();
+        inventory.occupy(5, 2);
+        inventory.occupy(5, 3);
+        inventory.occupy(6, 0);
+        inventory.release(5, 3);
+        inventory.holdAll(new int[]{inventory.seatIndex("7F")});
+        seatUpdateService.publishUpdates();
+        runSends();
+
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            assertThat(emitter.events).hasSize(2);
+            assertThat(emitter.events.get(1))
+                    .contains("id:" + inventory.version() + "\n")
+                    .contains("event:" + SeatUpdateServiceImpl.DELTA_EVENT + "\n")
+                    .contains("\"unavailableSeats\":[\"5C\",\"6A\",\"7F\"]")
+                    .contains("\"availableSeats\":[]");
+        }
+
+        // nothing changed, nothing is sent.
+        seatUpdateService.publishUpdates();
+        assertThat(sends).isEmpty();
+
+        inventory.release(5, 2);
+        seatUpdateService.publishUpdates();
+        runSends();
+        assertThat(first.events.get(2)).contains("\"unavailableSeats\":[]").contains("\"availableSeats\":[\"5C\"]");
+    }
+
+    @Test
+    void busySubscribersCatchUpWithASnapshot() {
+        RecordingEmitter emitter = (RecordingEmitter) seatUpdateService.subscribe(1L);
+        runSends();
+
+        flight.getSeatInventory().occupy(3, 0);
+        seatUpdateService.publishUpdates();
+        // the client hasn't received the first delta yet when the next window is published.
+        flight.getSeatInventory().occupy(3, 1);
+        seatUpdateService.publishUpdates();
+        assertThat(sends).hasSize(1);
+        runSends();
+
+        assertThat(emitter.events).hasSize(2);
+        assertThat(emitter.events.get(1))
+                .contains("event:" + SeatUpdateServiceImpl.SNAPSHOT_EVENT + "\n")
+                .contains("id:" + flight.getSeatInventory().version() + "\n");
+        assertThat(meterRegistry.get("seatmap.subscribers").gauge().value()).isEqualTo(1.0);
+
+        // a removed flight ends its streams.
+        flightService.removeFlight(1L);
+        seatUpdateService.publishUpdates();
+        assertThat(emitter.completed).isTrue();
+        assertThat(meterRegistry.get("seatmap.subscribers").gauge().value()).isEqualTo(0.0);
+    }
+
+    private void runSends() {
+        Runnable send;
+        while ((send = sends.poll()) != null) {
+            send.run();
+        }
+    }
+
+    /**
+     * Keeps the text of every event instead of writing it to a response.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+        private Runnable completionCallback;
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder event = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                event.append(part.getData());
+            }
+            events.add(event.toString());
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            this.completionCallback = callback;
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+            completionCallback.run();
+        }
+    }
+}
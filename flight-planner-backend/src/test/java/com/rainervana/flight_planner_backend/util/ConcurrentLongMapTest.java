@@ -0,0 +1,167 @@
+package com.rainervana.flight_planner_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrentLongMapTest {
+    // slots of a new segment, see ConcurrentLongMap.MIN_SEGMENT_CAPACITY.
+    private static final int SLOTS = 16;
+
+    @Test
+    void matchesAHashMapAcrossResizes() {
+        // the fewest segments there can be, so tables resize many times and probe runs get long.
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(1);
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42L);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(4_000) - 2_000L;
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertThat(map.put(key, "v" + i)).isEqualTo(expected.put(key, "v" + i));
+                case 2 -> assertThat(map.putIfAbsent(key, "v" + i)).isEqualTo(expected.putIfAbsent(key, "v" + i));
+                default -> assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = -2_000; key < 2_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+        assertThat(map.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+
+        for (long key : new ArrayList<>(expected.keySet())) {
+            assertThat(map.remove(key)).isEqualTo(expected.get(key));
+        }
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.get(0L)).isNull();
+    }
+
+    @Test
+    void removalShiftsProbeRunsBackAcrossTheEndOfTheTable() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(1);
+        List<Long> lastSlot = keysWithHome(SLOTS - 1, 2);
+        long firstSlot = keysWithHome(0, 1).get(0);
+        long secondSlot = keysWithHome(1, 1).get(0);
+        long fourthSlot = keysWithHome(3, 1).get(0);
+
+        // slots 15, 0, 1, 2 and 3 in that order, the run wraps around the end of the table.
+        map.put(lastSlot.get(0), "a");
+        map.put(lastSlot.get(1), "b");
+        map.put(firstSlot, "c");
+        map.put(secondSlot, "d");
+        map.put(fourthSlot, "e");
+
+        map.remove(lastSlot.get(0));
+
+        assertThat(map.get(lastSlot.get(0))).isNull();
+        assertThat(map.get(lastSlot.get(1))).isEqualTo("b");
+        assertThat(map.get(firstSlot)).isEqualTo("c");
+        assertThat(map.get(secondSlot)).isEqualTo("d");
+        assertThat(map.get(fourthSlot)).isEqualTo("e");
+        assertThat(map.size()).isEqualTo(4);
+
+        // the entry that wrapped was moved back to its home slot, removing it must not strand the rest.
+        map.remove(lastSlot.get(1));
+        map.remove(firstSlot);
+
+        assertThat(map.get(secondSlot)).isEqualTo("d");
+        assertThat(map.get(fourthSlot)).isEqualTo("e");
+        assertThat(map.values()).containsExactlyInAnyOrder("d", "e");
+    }
+
+    @Test
+    void readersNeverMissAnEntryWhileWritersResizeAndShift() throws Exception {
+        int writers = 4;
+        int readers = 4;
+        int stable = 2_000;
+        // few segments, so writers keep resizing and shifting the tables the readers probe.
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(2);
+        for (long key = 0; key < stable; key++) {
+            map.put(key, key * 31);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writes = new ArrayList<>();
+        List<Future<Integer>> reads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            // every writer churns its own key range above the stable keys.
+            long first = stable + w * 100_000L;
+            writes.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < 20; round++) {
+                    for (long key = first; key < first + 2_000; key++) {
+                        map.put(key, key * 31);
+                    }
+                    for (long key = first; key < first + 2_000; key++) {
+                        assertThat(map.remove(key)).isEqualTo(key * 31);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            reads.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int lookups = 0;
+                start.await();
+                while (writing.get()) {
+                    long key = random.nextLong(stable);
+                    assertThat(map.get(key)).as("stable key %s", key).isEqualTo(key * 31);
+                    long churned = stable + random.nextInt(writers) * 100_000L + random.nextInt(2_000);
+                    Long value = map.get(churned);
+                    if (value != null) {
+                        assertThat(value).isEqualTo(churned * 31);
+                    }
+                    lookups++;
+                }
+                return lookups;
+            }));
+        }
+
+        start.countDown();
+        try {
+            for (Future<?> write : writes) {
+                write.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            writing.set(false);
+        }
+        for (Future<Integer> read : reads) {
+            assertThat(read.get(1, TimeUnit.MINUTES)).isPositive();
+        }
+        executor.shutdown();
+
+        assertThat(map.size()).isEqualTo(stable);
+    }
+
+    /**
+     * @return  -   keys of the first of the two segments of a map with concurrency level 1 whose home is the given slot.
+     */
+    private static List<Long> keysWithHome(int slot, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            long hash = ConcurrentLongMap.mix(key);
+            if ((hash >>> 32 & 1) == 0 && ((int) hash & (SLOTS - 1)) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}